@@ -0,0 +1,41 @@
+package com.skishop.payment.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Inventory service client configuration
+ * Short timeouts: cart requests must not queue up behind a slow inventory service.
+ */
+@Configuration
+public class InventoryClientConfig {
+
+    @Value("${app.inventory.base-url:http://localhost:8082}")
+    private String baseUrl;
+
+    @Value("${app.inventory.connect-timeout-ms:500}")
+    private long connectTimeoutMs;
+
+    @Value("${app.inventory.read-timeout-ms:2000}")
+    private long readTimeoutMs;
+
+    @Bean
+    public RestClient inventoryRestClient(RestClient.Builder builder) {
+        HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        return builder
+            .baseUrl(baseUrl)
+            .requestFactory(requestFactory)
+            .build();
+    }
+}
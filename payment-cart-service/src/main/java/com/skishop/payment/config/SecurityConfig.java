@@ -0,0 +1,47 @@
+package com.skishop.payment.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * Security Configuration
+ * Requests carry a JWT from the authorization server; its scopes become SCOPE_ authorities.
+ */
+@Configuration
+@EnableWebSecurity
+public class SecurityConfig {
+
+    /** Bulk refunds act on any user's payments, so they are limited to operators */
+    @Value("${app.payment.bulk-refund.required-authority:SCOPE_payments:refund}")
+    private String bulkRefundAuthority;
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        return http
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session
+                        .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(authz -> authz
+                        // Public endpoints
+                        .requestMatchers("/actuator/**").permitAll()
+                        .requestMatchers("/v3/api-docs/**").permitAll()
+                        .requestMatchers("/swagger-ui/**").permitAll()
+                        .requestMatchers("/swagger-ui.html").permitAll()
+                        // The gateway authenticates webhooks with their signature
+                        .requestMatchers("/api/v1/payments/webhook").permitAll()
+                        .requestMatchers("/api/v1/payments/bulk-refunds/**").hasAuthority(bulkRefundAuthority)
+                        // All other endpoints require authentication
+                        .anyRequest().authenticated())
+                .oauth2ResourceServer(oauth2 -> oauth2
+                        .jwt(jwt -> {
+                            // Scopes are mapped to SCOPE_ authorities by default
+                        }))
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.skishop.payment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Webhook inbox configuration
+ * Webhook requests store their event on a small pool of their own, so that a burst of
+ * webhooks cannot take connections from checkout and a busy checkout pool cannot stall
+ * webhook acknowledgements. Applying events uses the main pool and its transactions.
+ * The beans are not default candidates, so the main data source is still auto-configured.
+ */
+@Configuration
+public class WebhookInboxConfig {
+
+    @Value("${app.payment.webhook.inbox-pool.maximum-pool-size:3}")
+    private int maximumPoolSize;
+
+    @Value("${app.payment.webhook.inbox-pool.connection-timeout-ms:2000}")
+    private long connectionTimeoutMs;
+
+    @Bean(destroyMethod = "close", defaultCandidate = false)
+    public HikariDataSource webhookInboxDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("webhook-inbox");
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setMinimumIdle(1);
+        dataSource.setConnectionTimeout(connectionTimeoutMs);
+        return dataSource;
+    }
+
+    @Bean(defaultCandidate = false)
+    public JdbcTemplate webhookInboxJdbcTemplate(@Qualifier("webhookInboxDataSource") HikariDataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+}
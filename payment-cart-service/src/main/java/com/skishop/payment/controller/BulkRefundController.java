@@ -0,0 +1,48 @@
+package com.skishop.payment.controller;
+
+import com.skishop.payment.dto.ApiResponse;
+import com.skishop.payment.dto.BulkRefundJobResponse;
+import com.skishop.payment.dto.BulkRefundRequest;
+import com.skishop.payment.service.refund.BulkRefundService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/payments/bulk-refunds")
+@RequiredArgsConstructor
+public class BulkRefundController {
+
+    private final BulkRefundService bulkRefundService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<BulkRefundJobResponse>> createBulkRefund(
+            @Valid @RequestBody BulkRefundRequest request,
+            Authentication authentication) {
+        
+        log.info("Creating bulk refund job for user: {}", authentication.getName());
+        
+        BulkRefundJobResponse response = bulkRefundService.createJob(authentication.getName(), request);
+        
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .body(ApiResponse.success(response, "Bulk refund job created successfully"));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<BulkRefundJobResponse>> getBulkRefund(
+            @PathVariable UUID jobId) {
+        
+        log.debug("Getting bulk refund job: {}", jobId);
+        
+        BulkRefundJobResponse response = bulkRefundService.getJob(jobId);
+        
+        return ResponseEntity.ok(ApiResponse.success(response, "Bulk refund job retrieved successfully"));
+    }
+}
@@ -61,6 +61,19 @@ public class CartController {
         return ResponseEntity.ok(ApiResponse.success(null, "Cart item removed successfully"));
     }
 
+    @PostMapping("/merge")
+    public ResponseEntity<ApiResponse<CartResponse>> mergeCart(
+            @Valid @RequestBody MergeCartRequest request,
+            Authentication authentication) {
+        
+        log.info("Merging guest cart for user: {}", authentication.getName());
+        
+        UUID userId = UUID.fromString(authentication.getName());
+        CartResponse response = cartService.mergeCart(userId, request);
+        
+        return ResponseEntity.ok(ApiResponse.success(response, "Cart merged successfully"));
+    }
+
     @GetMapping
     public ResponseEntity<ApiResponse<CartResponse>> getCart(Authentication authentication) {
         log.debug("Getting cart for user: {}", authentication.getName());
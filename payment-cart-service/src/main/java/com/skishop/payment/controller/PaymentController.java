@@ -8,10 +8,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.validation.Valid;
-import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -22,32 +23,32 @@ public class PaymentController {
     private final PaymentService paymentService;
 
     @PostMapping("/intent")
-    public ResponseEntity<ApiResponse<PaymentIntentResponse>> createPaymentIntent(
+    public CompletableFuture<ResponseEntity<ApiResponse<PaymentIntentResponse>>> createPaymentIntent(
             @Valid @RequestBody CreatePaymentIntentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
         
         log.info("Creating payment intent for user: {} and cart: {}", 
                 authentication.getName(), request.cartId());
         
         UUID userId = UUID.fromString(authentication.getName());
-        PaymentIntentResponse response = paymentService.createPaymentIntent(userId, request);
-        
-        return ResponseEntity.status(HttpStatus.CREATED)
-            .body(ApiResponse.success(response, "Payment intent created successfully"));
+        return paymentService.createPaymentIntent(userId, request, idempotencyKey)
+            .thenApply(response -> ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success(response, "Payment intent created successfully")));
     }
 
     @PostMapping("/{paymentId}/process")
-    public ResponseEntity<ApiResponse<PaymentResponse>> processPayment(
+    public CompletableFuture<ResponseEntity<ApiResponse<PaymentResponse>>> processPayment(
             @PathVariable UUID paymentId,
             @Valid @RequestBody ProcessPaymentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
         
         log.info("Processing payment: {} for user: {}", paymentId, authentication.getName());
         
         UUID userId = UUID.fromString(authentication.getName());
-        PaymentResponse response = paymentService.processPayment(userId, paymentId, request);
-        
-        return ResponseEntity.ok(ApiResponse.success(response, "Payment processed successfully"));
+        return paymentService.processPayment(userId, paymentId, request, idempotencyKey)
+            .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response, "Payment processed successfully")));
     }
 
     @GetMapping("/{paymentId}")
@@ -65,19 +66,21 @@ public class PaymentController {
     }
 
     @GetMapping("/history")
-    public ResponseEntity<ApiResponse<List<PaymentResponse>>> getPaymentHistory(
+    public ResponseEntity<ApiResponse<PaymentHistoryResponse>> getPaymentHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
             Authentication authentication) {
         
         log.debug("Getting payment history for user: {}", authentication.getName());
         
         UUID userId = UUID.fromString(authentication.getName());
-        List<PaymentResponse> response = paymentService.getPaymentHistory(userId);
+        PaymentHistoryResponse response = paymentService.getPaymentHistory(userId, cursor, limit);
         
         return ResponseEntity.ok(ApiResponse.success(response, "Payment history retrieved successfully"));
     }
 
     @PostMapping("/{paymentId}/refund")
-    public ResponseEntity<ApiResponse<PaymentResponse>> processRefund(
+    public CompletableFuture<ResponseEntity<ApiResponse<PaymentResponse>>> processRefund(
             @PathVariable UUID paymentId,
             @Valid @RequestBody RefundRequest request,
             Authentication authentication) {
@@ -86,9 +89,8 @@ public class PaymentController {
                 paymentId, authentication.getName());
         
         UUID userId = UUID.fromString(authentication.getName());
-        PaymentResponse response = paymentService.processRefund(userId, paymentId, request);
-        
-        return ResponseEntity.ok(ApiResponse.success(response, "Refund processed successfully"));
+        return paymentService.processRefund(userId, paymentId, request)
+            .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response, "Refund processed successfully")));
     }
 
     @PostMapping("/webhook")
@@ -96,11 +98,15 @@ public class PaymentController {
             @RequestBody String payload,
             @RequestHeader("Stripe-Signature") String signature) {
         
-        log.info("Handling payment webhook");
+        log.debug("Handling payment webhook");
         
         try {
             paymentService.handlePaymentWebhook(payload, signature);
             return ResponseEntity.ok("Webhook handled successfully");
+        } catch (ResponseStatusException e) {
+            // The gateway retries on anything but 2xx
+            log.warn("Webhook not accepted: {}", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
             log.error("Failed to handle webhook: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
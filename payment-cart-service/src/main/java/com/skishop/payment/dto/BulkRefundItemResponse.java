@@ -0,0 +1,21 @@
+package com.skishop.payment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRefundItemResponse {
+
+    private UUID paymentId;
+    private String status;
+    private String failureReason;
+    private LocalDateTime processedAt;
+}
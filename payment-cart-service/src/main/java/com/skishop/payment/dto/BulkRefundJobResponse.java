@@ -0,0 +1,47 @@
+package com.skishop.payment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRefundJobResponse {
+
+    private UUID jobId;
+    private String status;
+    private String reason;
+    private String requestedBy;
+    private int totalCount;
+    private int succeededCount;
+
+    /**
+     * Refunds the processor accepted but had not settled; their payments settle by webhook
+     */
+    private int submittedCount;
+
+    private int failedCount;
+    private int skippedCount;
+
+    /**
+     * Payments settled per second since the job started
+     */
+    private Double throughputPerSecond;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+
+    /**
+     * Most recent failed and skipped payments
+     */
+    private List<BulkRefundItemResponse> unsuccessfulItems;
+}
@@ -0,0 +1,32 @@
+package com.skishop.payment.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bulk refund request
+ * Either lists the payments to refund or selects every completed payment created in a time range.
+ *
+ * @param paymentIds Payments to refund
+ * @param createdFrom Start of the creation time range, inclusive
+ * @param createdTo End of the creation time range, exclusive
+ * @param reason Why the payments are refunded, kept with the job
+ */
+public record BulkRefundRequest(
+    @Size(max = 10000, message = "At most 10000 payments can be listed")
+    List<@NotNull UUID> paymentIds,
+
+    LocalDateTime createdFrom,
+
+    LocalDateTime createdTo,
+
+    @Size(max = 500, message = "Reason must be at most 500 characters")
+    String reason
+) {
+    public boolean selectsByCreationTime() {
+        return createdFrom != null || createdTo != null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.skishop.payment.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Guest cart merge request
+ * 
+ * @param items Lines of the guest cart
+ */
+public record MergeCartRequest(
+    @NotNull(message = "Items are required")
+    @Size(max = 100, message = "At most 100 items can be merged")
+    List<@Valid @NotNull AddCartItemRequest> items
+) {
+    /**
+     * Items with one entry per product, quantities summed and the first product details kept
+     */
+    public Collection<AddCartItemRequest> itemsByProduct() {
+        Map<UUID, AddCartItemRequest> byProduct = new LinkedHashMap<>();
+        for (AddCartItemRequest item : items) {
+            byProduct.merge(item.productId(), item, (first, next) -> new AddCartItemRequest(
+                first.productId(),
+                first.quantity() + next.quantity(),
+                first.productDetails() != null ? first.productDetails() : next.productDetails()));
+        }
+        return byProduct.values();
+    }
+}
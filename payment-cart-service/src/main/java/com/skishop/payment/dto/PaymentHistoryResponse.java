@@ -0,0 +1,22 @@
+package com.skishop.payment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentHistoryResponse {
+
+    private List<PaymentSummaryResponse> payments;
+
+    /**
+     * Cursor of the next page, or null on the last page
+     */
+    private String nextCursor;
+}
@@ -1,5 +1,6 @@
 package com.skishop.payment.entity;
 
+import com.skishop.payment.util.Money;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -68,6 +69,12 @@ public class Cart {
     @Column(nullable = false)
     private LocalDateTime expiresAt;
 
+    /**
+     * Optimistic lock version, incremented with every change to the cart or its total
+     */
+    @Version
+    private Long version;
+
     /**
      * Cart items list
      */
@@ -108,9 +115,11 @@ public class Cart {
      */
     public void calculateTotal() {
         if (items != null && !items.isEmpty()) {
-            totalAmount = items.stream()
-                .map(CartItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            Money total = Money.of(BigDecimal.ZERO, currency);
+            for (CartItem item : items) {
+                total = total.plus(Money.of(item.getTotalPrice(), total.currency()));
+            }
+            totalAmount = total.toBigDecimal();
         } else {
             totalAmount = BigDecimal.ZERO;
         }
@@ -1,5 +1,6 @@
 package com.skishop.payment.entity;
 
+import com.skishop.payment.util.Money;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -12,6 +13,7 @@ import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Currency;
 import java.util.Map;
 import java.util.UUID;
 
@@ -115,11 +117,20 @@ public class CartItem {
     }
 
     /**
-     * Calculate subtotal
+     * Calculate subtotal in the cart currency
      */
     public void calculateTotalPrice() {
+        calculateTotalPrice(cart != null && cart.getCurrency() != null
+            ? Currency.getInstance(cart.getCurrency())
+            : Money.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Calculate subtotal in minor units of the cart currency
+     */
+    public void calculateTotalPrice(Currency currency) {
         if (unitPrice != null && quantity != null) {
-            totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            totalPrice = Money.of(unitPrice, currency).times(quantity).toBigDecimal();
         }
     }
 }
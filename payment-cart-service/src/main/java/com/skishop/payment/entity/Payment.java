@@ -26,7 +26,7 @@ import java.util.UUID;
 @EqualsAndHashCode(callSuper = false)
 @Entity
 @Table(name = "payments", indexes = {
-    @Index(name = "idx_payments_user_id", columnList = "userId"),
+    @Index(name = "idx_payments_user_history", columnList = "userId, createdAt DESC, id DESC"),
     @Index(name = "idx_payments_cart_id", columnList = "cartId"),
     @Index(name = "idx_payments_status", columnList = "status"),
     @Index(name = "idx_payments_intent_id", columnList = "paymentIntentId")
@@ -102,7 +102,7 @@ public class Payment {
     /**
      * Refunded amount
      */
-    @Column(precision = 10, scale = 2)
+    @Column(precision = 12, scale = 2, nullable = false)
     @Builder.Default
     private BigDecimal refundedAmount = BigDecimal.ZERO;
 
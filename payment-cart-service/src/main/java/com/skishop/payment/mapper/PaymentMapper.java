@@ -2,7 +2,9 @@ package com.skishop.payment.mapper;
 
 import com.skishop.payment.dto.PaymentResponse;
 import com.skishop.payment.dto.PaymentIntentResponse;
+import com.skishop.payment.dto.PaymentSummaryResponse;
 import com.skishop.payment.entity.Payment;
+import com.skishop.payment.repository.PaymentRepository;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
@@ -19,6 +21,9 @@ public interface PaymentMapper {
 
     List<PaymentResponse> toPaymentResponseList(List<Payment> payments);
 
+    @Mapping(target = "paymentId", source = "id")
+    PaymentSummaryResponse toPaymentSummaryResponse(PaymentRepository.PaymentSummary payment);
+
     @Mapping(target = "paymentId", source = "id")
     @Mapping(target = "clientSecret", expression = "java(extractClientSecret(payment))")
     PaymentIntentResponse toPaymentIntentResponse(Payment payment);
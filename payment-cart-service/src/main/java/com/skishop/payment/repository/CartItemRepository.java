@@ -2,10 +2,12 @@ package com.skishop.payment.repository;
 
 import com.skishop.payment.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,12 +23,16 @@ public interface CartItemRepository extends JpaRepository<CartItem, UUID> {
 
     void deleteByCartIdAndProductId(UUID cartId, UUID productId);
 
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cartId IN :cartIds")
+    int deleteByCartIdIn(@Param("cartIds") List<UUID> cartIds);
+
     @Query("""
            SELECT SUM(ci.totalPrice) 
            FROM CartItem ci 
            WHERE ci.cart.id = :cartId
            """)
-    Double calculateTotalByCartId(@Param("cartId") UUID cartId);
+    BigDecimal calculateTotalByCartId(@Param("cartId") UUID cartId);
 
     @Query("""
            SELECT COUNT(ci) 
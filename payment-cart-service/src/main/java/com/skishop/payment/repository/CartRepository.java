@@ -2,6 +2,7 @@ package com.skishop.payment.repository;
 
 import com.skishop.payment.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -24,6 +25,24 @@ public interface CartRepository extends JpaRepository<Cart, UUID> {
            """)
     List<Cart> findExpiredCarts(@Param("currentTime") LocalDateTime currentTime);
 
+    /**
+     * Claim a chunk of expired carts; carts locked by another instance are skipped
+     * Carts referenced by a payment are kept as its record
+     */
+    @Query(value = """
+           SELECT id, user_id AS "userId" FROM carts
+           WHERE expires_at < :currentTime
+             AND NOT EXISTS (SELECT 1 FROM payments p WHERE p.cart_id = carts.id)
+           ORDER BY expires_at
+           LIMIT :limit
+           FOR UPDATE SKIP LOCKED
+           """, nativeQuery = true)
+    List<ExpiredCart> claimExpiredCarts(@Param("currentTime") LocalDateTime currentTime, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.id IN :cartIds")
+    int deleteByIdIn(@Param("cartIds") List<UUID> cartIds);
+
     void deleteByUserIdAndExpiresAtBefore(UUID userId, LocalDateTime expirationTime);
 
     @Query("""
@@ -39,4 +58,13 @@ public interface CartRepository extends JpaRepository<Cart, UUID> {
            WHERE c.userId = :userId
            """)
     Optional<Cart> findByUserIdWithItems(@Param("userId") UUID userId);
+
+    /**
+     * Expired cart claimed for cleanup
+     */
+    interface ExpiredCart {
+        UUID getId();
+
+        UUID getUserId();
+    }
 }
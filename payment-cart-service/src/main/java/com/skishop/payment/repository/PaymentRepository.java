@@ -9,6 +9,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,6 +24,8 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
 
     Optional<Payment> findByPaymentIntentId(String paymentIntentId);
 
+    List<Payment> findByPaymentIntentIdIn(Collection<String> paymentIntentIds);
+
     List<Payment> findByStatus(Payment.PaymentStatus status);
 
     List<Payment> findByUserIdAndStatus(UUID userId, Payment.PaymentStatus status);
@@ -49,7 +53,7 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
            WHERE p.userId = :userId 
            AND p.status = 'COMPLETED'
            """)
-    Double getTotalAmountByUserId(@Param("userId") UUID userId);
+    BigDecimal getTotalAmountByUserId(@Param("userId") UUID userId);
 
     @Query("""
            SELECT COUNT(p) 
@@ -60,7 +64,56 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     long countCompletedPaymentsBetween(@Param("startDate") LocalDateTime startDate, 
                                      @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * First page of a user's payment history, newest first, without gateway payloads
+     */
+    @Query(value = """
+           SELECT id, status, amount, currency, payment_method AS "paymentMethod",
+                  created_at AS "createdAt", completed_at AS "completedAt"
+           FROM payments
+           WHERE user_id = :userId
+           ORDER BY created_at DESC, id DESC
+           LIMIT :limit
+           """, nativeQuery = true)
+    List<PaymentSummary> findHistoryPage(@Param("userId") UUID userId, @Param("limit") int limit);
+
+    /**
+     * Page of a user's payment history that follows the given payment in history order
+     */
+    @Query(value = """
+           SELECT id, status, amount, currency, payment_method AS "paymentMethod",
+                  created_at AS "createdAt", completed_at AS "completedAt"
+           FROM payments
+           WHERE user_id = :userId
+             AND (created_at, id) < (:createdAt, :id)
+           ORDER BY created_at DESC, id DESC
+           LIMIT :limit
+           """, nativeQuery = true)
+    List<PaymentSummary> findHistoryPageAfter(@Param("userId") UUID userId,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") UUID id,
+                                              @Param("limit") int limit);
+
     Optional<Payment> findByCartId(UUID cartId);
 
     boolean existsByCartIdAndStatus(UUID cartId, Payment.PaymentStatus status);
+
+    /**
+     * Payment history row; served from idx_payments_user_history without reading the table
+     */
+    interface PaymentSummary {
+        UUID getId();
+
+        String getStatus();
+
+        BigDecimal getAmount();
+
+        String getCurrency();
+
+        String getPaymentMethod();
+
+        LocalDateTime getCreatedAt();
+
+        LocalDateTime getCompletedAt();
+    }
 }
@@ -0,0 +1,78 @@
+package com.skishop.payment.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cart merge repository
+ * Adds many lines to a cart with one multi-row upsert and recomputes its total once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CartMergeRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Line to add to a cart
+     *
+     * @param productId Product ID, unique within one merge
+     * @param quantity Quantity to add
+     * @param unitPrice Unit price, used only when the product is not in the cart yet
+     * @param productDetailsJson Product details as JSON, or null
+     */
+    public record MergeLine(UUID productId, int quantity, BigDecimal unitPrice, String productDetailsJson) {
+    }
+
+    /**
+     * Add lines to a cart; a product already in the cart keeps its price and details and
+     * gains the added quantity. Must run in the transaction that recomputes the total.
+     */
+    public int mergeLines(UUID cartId, List<MergeLine> lines, LocalDateTime now) {
+        if (lines.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(
+            "INSERT INTO cart_items (cart_id, product_id, quantity, unit_price, total_price, product_details, created_at, updated_at) " +
+            "SELECT ?, line.product_id, line.quantity, line.unit_price, line.unit_price * line.quantity, " +
+            "       line.product_details::jsonb, ?, ? " +
+            "FROM unnest(?, ?, ?, ?) AS line(product_id, quantity, unit_price, product_details) " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity, " +
+            "total_price = cart_items.unit_price * (cart_items.quantity + EXCLUDED.quantity), " +
+            "updated_at = EXCLUDED.updated_at",
+            statement -> {
+                Connection connection = statement.getConnection();
+                statement.setObject(1, cartId);
+                statement.setObject(2, now);
+                statement.setObject(3, now);
+                statement.setArray(4, array(connection, "uuid", lines.stream().map(MergeLine::productId).toArray()));
+                statement.setArray(5, array(connection, "integer", lines.stream().map(MergeLine::quantity).toArray()));
+                statement.setArray(6, array(connection, "numeric", lines.stream().map(MergeLine::unitPrice).toArray()));
+                statement.setArray(7, array(connection, "text", lines.stream().map(MergeLine::productDetailsJson).toArray()));
+            });
+    }
+
+    /**
+     * Set the cart total to the sum of its lines, bumping its version like any other change
+     */
+    public void recomputeTotal(UUID cartId, LocalDateTime now) {
+        jdbcTemplate.update(
+            "UPDATE carts SET total_amount = (SELECT COALESCE(SUM(total_price), 0) FROM cart_items WHERE cart_id = ?), " +
+            "version = version + 1, updated_at = ? " +
+            "WHERE id = ?",
+            cartId, now, cartId);
+    }
+
+    private static Array array(Connection connection, String type, Object[] values) throws SQLException {
+        return connection.createArrayOf(type, values);
+    }
+}
@@ -0,0 +1,44 @@
+package com.skishop.payment.repository.jdbc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Point-in-time state of a cart as held in the Redis live cart store
+ * Amounts are minor units of the cart currency.
+ *
+ * @param version incremented by every mutation of the live cart
+ */
+public record CartSnapshot(
+    UUID id,
+    UUID userId,
+    String currency,
+    long totalMinor,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt,
+    LocalDateTime expiresAt,
+    long version,
+    List<Line> lines
+) {
+
+    /**
+     * One cart line
+     *
+     * @param productDetailsJson product details as a JSON object, or null
+     */
+    public record Line(
+        UUID id,
+        UUID productId,
+        int quantity,
+        long unitPriceMinor,
+        String productDetailsJson,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+    ) {
+
+        public long totalPriceMinor() {
+            return unitPriceMinor * quantity;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.skishop.payment.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cart total reconciliation repository
+ * Compares cart totals with the sum of their lines, a keyset-ordered batch of carts at a time.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CartTotalReconciliationRepository {
+
+    /** Start of the keyset scan; sorts before every other UUID */
+    public static final UUID FIRST_KEY = new UUID(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Lock the next batch of unexpired carts after the given ID
+     * Carts being changed right now are skipped; the next run picks them up.
+     * Must run inside a transaction, which holds the locks until the batch is reconciled.
+     */
+    public List<UUID> lockBatch(UUID afterId, int limit) {
+        return jdbcTemplate.queryForList(
+            "SELECT id FROM carts WHERE id > ? AND expires_at > CURRENT_TIMESTAMP " +
+            "ORDER BY id LIMIT ? " +
+            "FOR NO KEY UPDATE SKIP LOCKED",
+            UUID.class, afterId, limit);
+    }
+
+    /**
+     * Set the total of locked carts whose total differs from the sum of their lines
+     * Returns the IDs of the corrected carts; their versions are bumped like any other change.
+     */
+    public List<UUID> correctTotals(List<UUID> cartIds) {
+        if (cartIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+            "UPDATE carts c SET total_amount = s.line_total, version = c.version + 1 " +
+            "FROM (SELECT cart.id, COALESCE(SUM(item.total_price), 0) AS line_total " +
+            "      FROM carts cart LEFT JOIN cart_items item ON item.cart_id = cart.id " +
+            "      WHERE cart.id = ANY(?) GROUP BY cart.id) s " +
+            "WHERE c.id = s.id AND c.total_amount IS DISTINCT FROM s.line_total " +
+            "RETURNING c.id",
+            statement -> statement.setArray(1, statement.getConnection().createArrayOf("uuid", cartIds.toArray())),
+            (resultSet, rowNum) -> resultSet.getObject("id", UUID.class));
+    }
+}
@@ -0,0 +1,166 @@
+package com.skishop.payment.repository.jdbc;
+
+import com.skishop.payment.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Cart write-behind repository
+ * Persists Redis live carts to carts/cart_items in batches and loads them back when a
+ * live cart is missing from Redis. A cart row is only overwritten by a newer version.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CartWriteBehindRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Load the user's unexpired cart with its lines
+     */
+    public Optional<CartSnapshot> findActiveByUserId(UUID userId, LocalDateTime now) {
+        List<CartSnapshot> carts = jdbcTemplate.query(
+            "SELECT id, user_id, total_amount, currency, created_at, updated_at, expires_at, flushed_version " +
+            "FROM carts WHERE user_id = ? AND expires_at > ? " +
+            "ORDER BY created_at DESC LIMIT 1",
+            (resultSet, rowNum) -> {
+                String currency = resultSet.getString("currency");
+                return new CartSnapshot(
+                    resultSet.getObject("id", UUID.class),
+                    resultSet.getObject("user_id", UUID.class),
+                    currency,
+                    toMinor(resultSet.getBigDecimal("total_amount"), currency),
+                    resultSet.getObject("created_at", LocalDateTime.class),
+                    resultSet.getObject("updated_at", LocalDateTime.class),
+                    resultSet.getObject("expires_at", LocalDateTime.class),
+                    resultSet.getLong("flushed_version"),
+                    List.of()
+                );
+            },
+            userId, now);
+        if (carts.isEmpty()) {
+            return Optional.empty();
+        }
+
+        CartSnapshot cart = carts.getFirst();
+        List<CartSnapshot.Line> lines = jdbcTemplate.query(
+            "SELECT id, product_id, quantity, unit_price, product_details::text AS product_details, created_at, updated_at " +
+            "FROM cart_items WHERE cart_id = ? ORDER BY created_at",
+            (resultSet, rowNum) -> toLine(resultSet, cart.currency()),
+            cart.id());
+        return Optional.of(new CartSnapshot(cart.id(), cart.userId(), cart.currency(), cart.totalMinor(),
+            cart.createdAt(), cart.updatedAt(), cart.expiresAt(), cart.version(), lines));
+    }
+
+    /**
+     * Write a batch of snapshots
+     * Carts whose stored version is already at least as new are left untouched, lines included.
+     * Must run inside a transaction so that a cart and its lines are written together.
+     */
+    public int upsert(List<CartSnapshot> carts) {
+        if (carts.isEmpty()) {
+            return 0;
+        }
+
+        int[][] cartCounts = jdbcTemplate.batchUpdate(
+            "INSERT INTO carts (id, user_id, total_amount, currency, created_at, updated_at, expires_at, flushed_version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET total_amount = EXCLUDED.total_amount, updated_at = EXCLUDED.updated_at, " +
+            "expires_at = EXCLUDED.expires_at, flushed_version = EXCLUDED.flushed_version, version = carts.version + 1 " +
+            "WHERE carts.flushed_version < EXCLUDED.flushed_version",
+            carts, carts.size(),
+            (statement, cart) -> {
+                statement.setObject(1, cart.id());
+                statement.setObject(2, cart.userId());
+                statement.setBigDecimal(3, toAmount(cart.totalMinor(), cart.currency()));
+                statement.setString(4, cart.currency());
+                statement.setObject(5, cart.createdAt());
+                statement.setObject(6, cart.updatedAt());
+                statement.setObject(7, cart.expiresAt());
+                statement.setLong(8, cart.version());
+            });
+
+        List<CartSnapshot> written = new ArrayList<>(carts.size());
+        for (int i = 0; i < carts.size(); i++) {
+            int count = cartCounts[0][i];
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                written.add(carts.get(i));
+            }
+        }
+        if (written.isEmpty()) {
+            return 0;
+        }
+
+        // Lines removed from the live cart
+        jdbcTemplate.batchUpdate(
+            "DELETE FROM cart_items WHERE cart_id = ? AND product_id <> ALL(?)",
+            written, written.size(),
+            (statement, cart) -> {
+                statement.setObject(1, cart.id());
+                statement.setArray(2, statement.getConnection().createArrayOf("uuid",
+                    cart.lines().stream().map(CartSnapshot.Line::productId).toArray()));
+            });
+
+        List<LineOfCart> lines = written.stream()
+            .flatMap(cart -> cart.lines().stream().map(line -> new LineOfCart(cart, line)))
+            .toList();
+        if (!lines.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO cart_items (id, cart_id, product_id, quantity, unit_price, total_price, product_details, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?) " +
+                "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity, " +
+                "unit_price = EXCLUDED.unit_price, total_price = EXCLUDED.total_price, " +
+                "product_details = EXCLUDED.product_details, updated_at = EXCLUDED.updated_at",
+                lines, lines.size(),
+                (statement, lineOfCart) -> {
+                    CartSnapshot.Line line = lineOfCart.line();
+                    String currency = lineOfCart.cart().currency();
+                    statement.setObject(1, line.id());
+                    statement.setObject(2, lineOfCart.cart().id());
+                    statement.setObject(3, line.productId());
+                    statement.setInt(4, line.quantity());
+                    statement.setBigDecimal(5, toAmount(line.unitPriceMinor(), currency));
+                    statement.setBigDecimal(6, toAmount(line.totalPriceMinor(), currency));
+                    statement.setString(7, line.productDetailsJson());
+                    statement.setObject(8, line.createdAt());
+                    statement.setObject(9, line.updatedAt());
+                });
+        }
+        return written.size();
+    }
+
+    private static CartSnapshot.Line toLine(ResultSet resultSet, String currency) throws SQLException {
+        return new CartSnapshot.Line(
+            resultSet.getObject("id", UUID.class),
+            resultSet.getObject("product_id", UUID.class),
+            resultSet.getInt("quantity"),
+            toMinor(resultSet.getBigDecimal("unit_price"), currency),
+            resultSet.getString("product_details"),
+            resultSet.getObject("created_at", LocalDateTime.class),
+            resultSet.getObject("updated_at", LocalDateTime.class)
+        );
+    }
+
+    private static long toMinor(BigDecimal amount, String currency) {
+        return amount == null ? 0 : Money.of(amount, currency).minorUnits();
+    }
+
+    private static BigDecimal toAmount(long minorUnits, String currency) {
+        return Money.ofMinor(minorUnits, Currency.getInstance(currency)).toBigDecimal();
+    }
+
+    private record LineOfCart(CartSnapshot cart, CartSnapshot.Line line) {
+    }
+}
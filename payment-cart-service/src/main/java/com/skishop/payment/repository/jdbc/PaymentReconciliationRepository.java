@@ -0,0 +1,201 @@
+package com.skishop.payment.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Payment reconciliation repository
+ * Streams payments through a server-side cursor in (created_at, id) order and keeps the
+ * state of reconciliation runs and the discrepancies they find.
+ * PostgreSQL only honours the fetch size inside a transaction, so streaming callers must be transactional.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentReconciliationRepository {
+
+    public enum RunStatus {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * Payment fields compared with the gateway
+     */
+    public record PaymentRow(UUID id, String paymentIntentId, String status, BigDecimal amount, String currency,
+                             LocalDateTime createdAt) {
+    }
+
+    /**
+     * Reconciliation run; the checkpoint is the last payment of the last finished batch
+     */
+    public record Run(UUID id, LocalDateTime rangeStart, LocalDateTime rangeEnd, RunStatus status,
+                      LocalDateTime checkpointCreatedAt, UUID checkpointPaymentId) {
+    }
+
+    public record Discrepancy(UUID paymentId, String paymentIntentId, String type, String localValue,
+                              String gatewayValue) {
+    }
+
+    private static final String STREAM_PAYMENTS_SQL = """
+            SELECT id, payment_intent_id, status, amount, currency, created_at
+            FROM payments
+            WHERE created_at >= ? AND created_at < ?
+              AND (created_at, id) > (?, ?)
+              AND payment_intent_id IS NOT NULL
+            ORDER BY created_at, id
+            LIMIT ?
+            """;
+
+    private static final String RUN_COLUMNS =
+        "id, range_start, range_end, status, checkpoint_created_at, checkpoint_payment_id";
+
+    /** Sorts before every UUID, for a run without a checkpoint */
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.payment.reconciliation.fetch-size:500}")
+    private int fetchSize;
+
+    /**
+     * Stream up to limit payments of the run's range that follow its checkpoint
+     * Returns the number of payments streamed.
+     */
+    public int streamPayments(Run run, int limit, Consumer<PaymentRow> consumer) {
+        LocalDateTime afterCreatedAt = run.checkpointCreatedAt() != null ? run.checkpointCreatedAt() : run.rangeStart();
+        UUID afterId = run.checkpointPaymentId() != null ? run.checkpointPaymentId() : FIRST_ID;
+        int[] count = {0};
+        jdbcTemplate.query(
+            connection -> {
+                PreparedStatement statement = connection.prepareStatement(STREAM_PAYMENTS_SQL);
+                statement.setFetchSize(fetchSize);
+                statement.setTimestamp(1, Timestamp.valueOf(run.rangeStart()));
+                statement.setTimestamp(2, Timestamp.valueOf(run.rangeEnd()));
+                statement.setTimestamp(3, Timestamp.valueOf(afterCreatedAt));
+                statement.setObject(4, afterId);
+                statement.setInt(5, limit);
+                return statement;
+            },
+            resultSet -> {
+                count[0]++;
+                consumer.accept(new PaymentRow(
+                    resultSet.getObject("id", UUID.class),
+                    resultSet.getString("payment_intent_id"),
+                    resultSet.getString("status"),
+                    resultSet.getBigDecimal("amount"),
+                    resultSet.getString("currency"),
+                    resultSet.getTimestamp("created_at").toLocalDateTime()
+                ));
+            }
+        );
+        return count[0];
+    }
+
+    /**
+     * Run for a range, created when there is none yet
+     */
+    public Run findOrCreateRun(LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+        jdbcTemplate.update(
+            "INSERT INTO payment_reconciliation_runs (range_start, range_end, status) VALUES (?, ?, ?) " +
+            "ON CONFLICT (range_start, range_end) DO NOTHING",
+            Timestamp.valueOf(rangeStart), Timestamp.valueOf(rangeEnd), RunStatus.PENDING.name());
+        return jdbcTemplate.queryForObject(
+            "SELECT " + RUN_COLUMNS + " FROM payment_reconciliation_runs WHERE range_start = ? AND range_end = ?",
+            (resultSet, rowNum) -> toRun(resultSet),
+            Timestamp.valueOf(rangeStart), Timestamp.valueOf(rangeEnd));
+    }
+
+    /**
+     * Runs that stopped before completing; a running run counts once it has made no progress for staleAfter
+     */
+    public List<Run> findUnfinishedRuns(Duration staleAfter) {
+        return jdbcTemplate.query(
+            "SELECT " + RUN_COLUMNS + " FROM payment_reconciliation_runs " +
+            "WHERE status IN (?, ?) OR (status = ? AND updated_at < ?) " +
+            "ORDER BY range_start",
+            (resultSet, rowNum) -> toRun(resultSet),
+            RunStatus.PENDING.name(), RunStatus.FAILED.name(), RunStatus.RUNNING.name(),
+            Timestamp.valueOf(LocalDateTime.now().minus(staleAfter)));
+    }
+
+    /**
+     * Take over a run unless it is completed or another instance is making progress on it
+     * Returns the claimed run with its latest checkpoint.
+     */
+    public Optional<Run> claim(UUID runId, Duration staleAfter) {
+        List<Run> claimed = jdbcTemplate.query(
+            "UPDATE payment_reconciliation_runs SET status = ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ? AND (status IN (?, ?) OR (status = ? AND updated_at < ?)) " +
+            "RETURNING " + RUN_COLUMNS,
+            (resultSet, rowNum) -> toRun(resultSet),
+            RunStatus.RUNNING.name(), runId, RunStatus.PENDING.name(), RunStatus.FAILED.name(), RunStatus.RUNNING.name(),
+            Timestamp.valueOf(LocalDateTime.now().minus(staleAfter)));
+        return claimed.stream().findFirst();
+    }
+
+    /**
+     * Record a finished batch: its discrepancies, counts and the new checkpoint
+     * Must run in one transaction so that the checkpoint never passes unrecorded discrepancies.
+     */
+    public void recordBatch(UUID runId, PaymentRow last, int checked, List<Discrepancy> discrepancies) {
+        int recorded = 0;
+        if (!discrepancies.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(
+                "INSERT INTO payment_reconciliation_discrepancies " +
+                "(run_id, payment_id, payment_intent_id, discrepancy_type, local_value, gateway_value) " +
+                "VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (run_id, payment_id, discrepancy_type) DO NOTHING",
+                discrepancies, discrepancies.size(),
+                (statement, discrepancy) -> {
+                    statement.setObject(1, runId);
+                    statement.setObject(2, discrepancy.paymentId());
+                    statement.setString(3, discrepancy.paymentIntentId());
+                    statement.setString(4, discrepancy.type());
+                    statement.setString(5, discrepancy.localValue());
+                    statement.setString(6, discrepancy.gatewayValue());
+                });
+            recorded = (int) Arrays.stream(counts[0]).filter(count -> count > 0).count();
+        }
+        jdbcTemplate.update(
+            "UPDATE payment_reconciliation_runs SET checkpoint_created_at = ?, checkpoint_payment_id = ?, " +
+            "checked_count = checked_count + ?, discrepancy_count = discrepancy_count + ?, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+            Timestamp.valueOf(last.createdAt()), last.id(), checked, recorded, runId);
+    }
+
+    public void finish(UUID runId, RunStatus status) {
+        jdbcTemplate.update(
+            "UPDATE payment_reconciliation_runs SET status = ?, updated_at = CURRENT_TIMESTAMP, " +
+            "completed_at = CASE WHEN ? = 'COMPLETED' THEN CURRENT_TIMESTAMP END WHERE id = ?",
+            status.name(), status.name(), runId);
+    }
+
+    private static Run toRun(ResultSet resultSet) throws SQLException {
+        Timestamp checkpointCreatedAt = resultSet.getTimestamp("checkpoint_created_at");
+        return new Run(
+            resultSet.getObject("id", UUID.class),
+            resultSet.getTimestamp("range_start").toLocalDateTime(),
+            resultSet.getTimestamp("range_end").toLocalDateTime(),
+            RunStatus.valueOf(resultSet.getString("status")),
+            checkpointCreatedAt != null ? checkpointCreatedAt.toLocalDateTime() : null,
+            resultSet.getObject("checkpoint_payment_id", UUID.class)
+        );
+    }
+}
@@ -0,0 +1,242 @@
+package com.skishop.payment.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Payment refund job repository
+ * Keeps bulk refund jobs and one row per payment to refund. An item leaves PENDING in the
+ * same transaction that records its refund on the payment, so the items double as the
+ * job's checkpoint.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentRefundJobRepository {
+
+    public enum JobStatus {
+        PENDING,
+        RUNNING,
+        COMPLETED
+    }
+
+    public enum ItemStatus {
+        PENDING,
+        SUCCEEDED,
+        /** The processor accepted the refund but had not settled it; its webhook settles the payment */
+        SUBMITTED,
+        FAILED,
+        /** The payment was missing or no longer refundable when its turn came */
+        SKIPPED
+    }
+
+    public record Job(UUID id, JobStatus status, String reason, String requestedBy, int totalCount,
+                      int succeededCount, int submittedCount, int failedCount, int skippedCount, LocalDateTime createdAt,
+                      LocalDateTime startedAt, LocalDateTime updatedAt, LocalDateTime completedAt) {
+    }
+
+    /**
+     * Pending item with the payment fields needed to refund it; payment fields are null when the payment is gone
+     */
+    public record PendingItem(UUID paymentId, String paymentIntentId, String paymentStatus, BigDecimal amount,
+                              String currency, String gatewayProvider) {
+    }
+
+    public record Outcome(UUID paymentId, ItemStatus status, String refundId, String refundStatus,
+                          Long refundAmountMinor, String failureReason) {
+    }
+
+    public record FailedItem(UUID paymentId, ItemStatus status, String failureReason, LocalDateTime processedAt) {
+    }
+
+    private static final String JOB_COLUMNS =
+        "id, status, reason, requested_by, total_count, succeeded_count, submitted_count, failed_count, skipped_count, " +
+        "created_at, started_at, updated_at, completed_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UUID createJob(String reason, String requestedBy) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO payment_refund_jobs (status, reason, requested_by) VALUES (?, ?, ?) RETURNING id",
+            UUID.class, JobStatus.PENDING.name(), reason, requestedBy);
+    }
+
+    /**
+     * Add the given payments to a job and return its item count
+     */
+    public int addPayments(UUID jobId, Collection<UUID> paymentIds) {
+        jdbcTemplate.update(
+            "INSERT INTO payment_refund_job_items (job_id, payment_id) " +
+            "SELECT ?, payment_id FROM unnest(?) AS payment_id " +
+            "ON CONFLICT (job_id, payment_id) DO NOTHING",
+            statement -> {
+                statement.setObject(1, jobId);
+                statement.setArray(2, statement.getConnection().createArrayOf("uuid", paymentIds.toArray()));
+            });
+        return updateTotal(jobId);
+    }
+
+    /**
+     * Add every completed payment created in [from, to) to a job and return its item count
+     */
+    public int addCompletedPaymentsCreatedBetween(UUID jobId, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.update(
+            "INSERT INTO payment_refund_job_items (job_id, payment_id) " +
+            "SELECT ?, id FROM payments WHERE status = 'COMPLETED' AND created_at >= ? AND created_at < ?",
+            jobId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return updateTotal(jobId);
+    }
+
+    private int updateTotal(UUID jobId) {
+        return jdbcTemplate.queryForObject(
+            "UPDATE payment_refund_jobs " +
+            "SET total_count = (SELECT count(*) FROM payment_refund_job_items WHERE job_id = ?) " +
+            "WHERE id = ? RETURNING total_count",
+            Integer.class, jobId, jobId);
+    }
+
+    public Optional<Job> findJob(UUID jobId) {
+        return jdbcTemplate.query(
+            "SELECT " + JOB_COLUMNS + " FROM payment_refund_jobs WHERE id = ?",
+            (resultSet, rowNum) -> toJob(resultSet), jobId).stream().findFirst();
+    }
+
+    /**
+     * Take the oldest job that is waiting, or running without progress for staleAfter
+     * Instances polling at the same time each get a different job.
+     */
+    public Optional<Job> claimNext(Duration staleAfter) {
+        return jdbcTemplate.query(
+            "UPDATE payment_refund_jobs " +
+            "SET status = ?, started_at = COALESCE(started_at, CURRENT_TIMESTAMP), updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = (SELECT id FROM payment_refund_jobs " +
+            "            WHERE status = ? OR (status = ? AND updated_at < ?) " +
+            "            ORDER BY created_at LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING " + JOB_COLUMNS,
+            (resultSet, rowNum) -> toJob(resultSet),
+            JobStatus.RUNNING.name(), JobStatus.PENDING.name(), JobStatus.RUNNING.name(),
+            Timestamp.valueOf(LocalDateTime.now().minus(staleAfter))).stream().findFirst();
+    }
+
+    /**
+     * Pending items after the given payment in payment ID order
+     */
+    public List<PendingItem> findPendingItems(UUID jobId, UUID afterPaymentId, int limit) {
+        return jdbcTemplate.query(
+            "SELECT i.payment_id, p.payment_intent_id, p.status, p.amount, p.currency, p.gateway_provider " +
+            "FROM payment_refund_job_items i LEFT JOIN payments p ON p.id = i.payment_id " +
+            "WHERE i.job_id = ? AND i.status = 'PENDING' AND i.payment_id > ? " +
+            "ORDER BY i.payment_id LIMIT ?",
+            (resultSet, rowNum) -> new PendingItem(
+                resultSet.getObject("payment_id", UUID.class),
+                resultSet.getString("payment_intent_id"),
+                resultSet.getString("status"),
+                resultSet.getBigDecimal("amount"),
+                resultSet.getString("currency"),
+                resultSet.getString("gateway_provider")
+            ),
+            jobId, afterPaymentId, limit);
+    }
+
+    /**
+     * Record the outcomes of a batch: settled items and the job's counts
+     * Must run in the transaction that records the refunds on their payments, so that a
+     * payment is marked refunded exactly when its item is settled.
+     */
+    public void recordOutcomes(UUID jobId, List<Outcome> outcomes) {
+        LocalDateTime now = LocalDateTime.now();
+        int[][] updated = jdbcTemplate.batchUpdate(
+            "UPDATE payment_refund_job_items SET status = ?, refund_id = ?, failure_reason = ?, processed_at = ? " +
+            "WHERE job_id = ? AND payment_id = ? AND status = 'PENDING'",
+            outcomes, outcomes.size(),
+            (statement, outcome) -> {
+                statement.setString(1, outcome.status().name());
+                statement.setString(2, outcome.refundId());
+                statement.setString(3, outcome.failureReason());
+                statement.setTimestamp(4, Timestamp.valueOf(now));
+                statement.setObject(5, jobId);
+                statement.setObject(6, outcome.paymentId());
+            });
+
+        // Count only items this call settled, in case a taken-over job records the same batch twice
+        Map<ItemStatus, Long> counts = IntStream.range(0, outcomes.size())
+            .filter(index -> updated[0][index] > 0)
+            .mapToObj(outcomes::get)
+            .collect(Collectors.groupingBy(Outcome::status, Collectors.counting()));
+        jdbcTemplate.update(
+            "UPDATE payment_refund_jobs SET succeeded_count = succeeded_count + ?, submitted_count = submitted_count + ?, " +
+            "failed_count = failed_count + ?, skipped_count = skipped_count + ?, updated_at = ? WHERE id = ?",
+            counts.getOrDefault(ItemStatus.SUCCEEDED, 0L), counts.getOrDefault(ItemStatus.SUBMITTED, 0L),
+            counts.getOrDefault(ItemStatus.FAILED, 0L),
+            counts.getOrDefault(ItemStatus.SKIPPED, 0L), Timestamp.valueOf(now), jobId);
+    }
+
+    public void complete(UUID jobId) {
+        jdbcTemplate.update(
+            "UPDATE payment_refund_jobs SET status = ?, updated_at = CURRENT_TIMESTAMP, completed_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ?",
+            JobStatus.COMPLETED.name(), jobId);
+    }
+
+    /**
+     * Hand a running job back so that the next poll on any instance resumes it
+     */
+    public void release(UUID jobId) {
+        jdbcTemplate.update(
+            "UPDATE payment_refund_jobs SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ? AND status = ?",
+            JobStatus.PENDING.name(), jobId, JobStatus.RUNNING.name());
+    }
+
+    /**
+     * Items that failed or were skipped, most recent first
+     */
+    public List<FailedItem> findUnsuccessfulItems(UUID jobId, int limit) {
+        return jdbcTemplate.query(
+            "SELECT payment_id, status, failure_reason, processed_at FROM payment_refund_job_items " +
+            "WHERE job_id = ? AND status IN ('FAILED', 'SKIPPED') " +
+            "ORDER BY processed_at DESC LIMIT ?",
+            (resultSet, rowNum) -> new FailedItem(
+                resultSet.getObject("payment_id", UUID.class),
+                ItemStatus.valueOf(resultSet.getString("status")),
+                resultSet.getString("failure_reason"),
+                toLocalDateTime(resultSet.getTimestamp("processed_at"))
+            ),
+            jobId, limit);
+    }
+
+    private static Job toJob(ResultSet resultSet) throws SQLException {
+        return new Job(
+            resultSet.getObject("id", UUID.class),
+            JobStatus.valueOf(resultSet.getString("status")),
+            resultSet.getString("reason"),
+            resultSet.getString("requested_by"),
+            resultSet.getInt("total_count"),
+            resultSet.getInt("succeeded_count"),
+            resultSet.getInt("submitted_count"),
+            resultSet.getInt("failed_count"),
+            resultSet.getInt("skipped_count"),
+            toLocalDateTime(resultSet.getTimestamp("created_at")),
+            toLocalDateTime(resultSet.getTimestamp("started_at")),
+            toLocalDateTime(resultSet.getTimestamp("updated_at")),
+            toLocalDateTime(resultSet.getTimestamp("completed_at"))
+        );
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
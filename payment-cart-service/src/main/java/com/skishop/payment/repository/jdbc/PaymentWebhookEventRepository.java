@@ -0,0 +1,124 @@
+package com.skishop.payment.repository.jdbc;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Payment webhook event repository
+ * Durable inbox of webhook events: each event is stored once when it is received and
+ * marked processed in the transaction that applies it, so redeliveries are ignored and
+ * an event is never lost between acknowledging the gateway and applying it. Events are
+ * stored through the webhook inbox pool and applied through the main one. An event that
+ * reaches the attempt limit is dead: it is no longer retried and is purged by age.
+ */
+@Repository
+public class PaymentWebhookEventRepository {
+
+    public record StoredEvent(String id, String type, long created, String paymentIntentId, String targetStatus,
+                              String failureReason) {
+    }
+
+    private static final String EVENT_COLUMNS =
+        "event_id, event_type, created_epoch, payment_intent_id, target_status, failure_reason";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate inboxJdbcTemplate;
+
+    public PaymentWebhookEventRepository(JdbcTemplate jdbcTemplate,
+                                         @Qualifier("webhookInboxJdbcTemplate") JdbcTemplate inboxJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.inboxJdbcTemplate = inboxJdbcTemplate;
+    }
+
+    /**
+     * Store a received event; returns false when it was stored before
+     */
+    public boolean store(StoredEvent event) {
+        return inboxJdbcTemplate.update(
+            "INSERT INTO payment_webhook_events (" + EVENT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (event_id) DO NOTHING",
+            event.id(), event.type(), event.created(), event.paymentIntentId(), event.targetStatus(),
+            event.failureReason()) > 0;
+    }
+
+    /**
+     * Lock the given events that are still pending
+     * Must run in the transaction that applies them; events locked by another instance are skipped.
+     */
+    public List<StoredEvent> claim(Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+            "SELECT " + EVENT_COLUMNS + " FROM payment_webhook_events " +
+            "WHERE event_id = ANY(?) AND processed_at IS NULL AND dead_at IS NULL FOR UPDATE SKIP LOCKED",
+            statement -> statement.setArray(1, statement.getConnection().createArrayOf("varchar", eventIds.toArray())),
+            (resultSet, rowNum) -> toStoredEvent(resultSet));
+    }
+
+    /**
+     * IDs of events still pending after receivedBefore, those that failed least often first
+     */
+    public List<String> findPendingIds(LocalDateTime receivedBefore, int limit) {
+        return jdbcTemplate.queryForList(
+            "SELECT event_id FROM payment_webhook_events " +
+            "WHERE processed_at IS NULL AND dead_at IS NULL AND received_at < ? ORDER BY attempts, received_at LIMIT ?",
+            String.class, Timestamp.valueOf(receivedBefore), limit);
+    }
+
+    public void markProcessed(Collection<String> eventIds) {
+        jdbcTemplate.update(
+            "UPDATE payment_webhook_events SET processed_at = CURRENT_TIMESTAMP WHERE event_id = ANY(?)",
+            statement -> statement.setArray(1, statement.getConnection().createArrayOf("varchar", eventIds.toArray())));
+    }
+
+    /**
+     * Count a failed attempt, which moves the events behind others in the retry poll
+     * Returns the IDs of events that reached maxAttempts with it and are now dead.
+     */
+    public List<String> recordFailedAttempts(Collection<String> eventIds, int maxAttempts) {
+        return jdbcTemplate.query(
+            "UPDATE payment_webhook_events SET attempts = attempts + 1, " +
+            "dead_at = CASE WHEN attempts + 1 >= ? THEN CURRENT_TIMESTAMP END " +
+            "WHERE event_id = ANY(?) AND processed_at IS NULL AND dead_at IS NULL " +
+            "RETURNING event_id, dead_at",
+            statement -> {
+                statement.setInt(1, maxAttempts);
+                statement.setArray(2, statement.getConnection().createArrayOf("varchar", eventIds.toArray()));
+            },
+            (resultSet, rowNum) -> resultSet.getTimestamp("dead_at") != null ? resultSet.getString("event_id") : null)
+            .stream()
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    /**
+     * Delete processed and dead events received before the cutoff
+     */
+    public int deleteSettledBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update(
+            "DELETE FROM payment_webhook_events " +
+            "WHERE received_at < ? AND (processed_at IS NOT NULL OR dead_at IS NOT NULL)",
+            Timestamp.valueOf(cutoff));
+    }
+
+    private static StoredEvent toStoredEvent(ResultSet resultSet) throws SQLException {
+        return new StoredEvent(
+            resultSet.getString("event_id"),
+            resultSet.getString("event_type"),
+            resultSet.getLong("created_epoch"),
+            resultSet.getString("payment_intent_id"),
+            resultSet.getString("target_status"),
+            resultSet.getString("failure_reason")
+        );
+    }
+}
@@ -15,6 +15,11 @@ public interface CartService {
 
     CartResponse getCartByUserId(UUID userId);
 
+    /**
+     * Merge a guest cart into the user's cart in one write
+     */
+    CartResponse mergeCart(UUID userId, MergeCartRequest request);
+
     void clearCart(UUID userId);
 
     Cart getOrCreateCart(UUID userId);
@@ -5,18 +5,32 @@ import com.skishop.payment.entity.Payment;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface PaymentService {
 
-    PaymentIntentResponse createPaymentIntent(UUID userId, CreatePaymentIntentRequest request);
+    /**
+     * Create a payment intent; a repeated idempotency key replays the first result
+     */
+    CompletableFuture<PaymentIntentResponse> createPaymentIntent(UUID userId, CreatePaymentIntentRequest request,
+                                                                 String idempotencyKey);
 
-    PaymentResponse processPayment(UUID userId, UUID paymentId, ProcessPaymentRequest request);
+    /**
+     * Confirm a payment; a repeated idempotency key replays the first result
+     */
+    CompletableFuture<PaymentResponse> processPayment(UUID userId, UUID paymentId, ProcessPaymentRequest request,
+                                                      String idempotencyKey);
 
     PaymentResponse getPaymentStatus(UUID userId, UUID paymentId);
 
-    List<PaymentResponse> getPaymentHistory(UUID userId);
+    /**
+     * Page of the user's payment history, newest first
+     *
+     * @param cursor nextCursor of the previous page, or null for the first page
+     */
+    PaymentHistoryResponse getPaymentHistory(UUID userId, String cursor, int limit);
 
-    PaymentResponse processRefund(UUID userId, UUID paymentId, RefundRequest request);
+    CompletableFuture<PaymentResponse> processRefund(UUID userId, UUID paymentId, RefundRequest request);
 
     void handlePaymentWebhook(String payload, String signature);
 
@@ -0,0 +1,148 @@
+package com.skishop.payment.service.cart;
+
+import com.skishop.payment.dto.CartResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart response cache
+ * Caches a user's cart in Redis in the compact form of {@link CartResponseCodec}. An entry
+ * in an unknown format or that fails to decode counts as a miss and is dropped, so it is
+ * rewritten by the next read. Lookups are counted by result, with the hit ratio as a gauge.
+ * Every eviction bumps a per-user generation, and a read only fills the cache if the
+ * generation is still the one it saw on its miss, so a read that loaded the cart before a
+ * change committed cannot put the old cart back after that change's eviction.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CartResponseCache {
+
+    private static final String KEY_PREFIX = "cart:";
+    private static final String GENERATION_KEY_PREFIX = "cart:generation:";
+    private static final String NO_GENERATION = "0";
+
+    /** KEYS[1] entry, KEYS[2] generation; ARGV[1] generation seen on the miss, ARGV[2] value, ARGV[3] TTL ms */
+    private static final RedisScript<Long> PUT_IF_UNCHANGED_SCRIPT = new DefaultRedisScript<>("""
+            local generation = redis.call('GET', KEYS[2]) or '0'
+            if generation ~= ARGV[1] then return 0 end
+            redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+
+    /** KEYS[1] entry, KEYS[2] generation; ARGV[1] generation TTL ms */
+    private static final RedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[1])
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    private final RedisTemplate<String, byte[]> cartCacheRedisTemplate;
+    private final CartResponseCodec cartResponseCodec;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.cart.cache.ttl-hours:24}")
+    private long ttlHours;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter unreadable;
+
+    @PostConstruct
+    void init() {
+        hits = lookupCounter("hit");
+        misses = lookupCounter("miss");
+        unreadable = lookupCounter("unreadable");
+        Gauge.builder("cart.cache.hit.ratio", this, cache -> cache.hitRatio())
+            .description("Share of cart reads served from the cache since startup")
+            .register(meterRegistry);
+    }
+
+    public static String key(UUID userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static String generationKey(UUID userId) {
+        return GENERATION_KEY_PREFIX + userId;
+    }
+
+    /**
+     * Cached cart of a user, or on a miss the generation to pass to {@link #putIfUnchanged}
+     */
+    public Lookup get(UUID userId) {
+        String key = key(userId);
+        List<byte[]> values = cartCacheRedisTemplate.opsForValue().multiGet(List.of(key, generationKey(userId)));
+        byte[] value = values != null ? values.get(0) : null;
+        String generation = values != null && values.get(1) != null
+            ? new String(values.get(1), StandardCharsets.UTF_8)
+            : NO_GENERATION;
+        if (value == null) {
+            misses.increment();
+            return new Lookup(null, generation);
+        }
+        try {
+            CartResponse cart = cartResponseCodec.decode(value);
+            if (cart != null) {
+                hits.increment();
+                return new Lookup(cart, generation);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Dropping unreadable cart cache entry {}: {}", key, e.getMessage());
+        }
+        unreadable.increment();
+        cartCacheRedisTemplate.delete(key);
+        return new Lookup(null, generation);
+    }
+
+    /**
+     * Cache a cart loaded after a miss, unless the cart was evicted since that miss
+     */
+    public boolean putIfUnchanged(UUID userId, CartResponse cart, String generation) {
+        Long stored = cartCacheRedisTemplate.execute(PUT_IF_UNCHANGED_SCRIPT, List.of(key(userId), generationKey(userId)),
+            bytes(generation), cartResponseCodec.encode(cart), bytes(String.valueOf(TimeUnit.HOURS.toMillis(ttlHours))));
+        return stored != null && stored == 1;
+    }
+
+    public void evict(UUID userId) {
+        cartCacheRedisTemplate.execute(EVICT_SCRIPT, List.of(key(userId), generationKey(userId)),
+            bytes(String.valueOf(TimeUnit.HOURS.toMillis(ttlHours))));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private double hitRatio() {
+        double lookups = hits.count() + misses.count() + unreadable.count();
+        return lookups > 0 ? hits.count() / lookups : 0;
+    }
+
+    /**
+     * Result of a cache read
+     *
+     * @param cart Cached cart, or null on a miss
+     * @param generation Eviction generation of the user's cart when it was read
+     */
+    public record Lookup(CartResponse cart, String generation) {
+    }
+
+    private Counter lookupCounter(String result) {
+        return Counter.builder("cart.cache.lookups")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,199 @@
+package com.skishop.payment.service.cart;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.payment.dto.CartItemResponse;
+import com.skishop.payment.dto.CartResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cart response codec
+ * Compact binary form of {@link CartResponse} for the cart cache. The first byte is the
+ * format version; a value written in any other format decodes to null, so entries left by
+ * an older release are treated as misses and rewritten instead of failing reads.
+ * Product details are free-form and stored as embedded JSON.
+ */
+@Component
+@RequiredArgsConstructor
+public class CartResponseCodec {
+
+    static final byte FORMAT_VERSION = 1;
+
+    private static final TypeReference<Map<String, Object>> DETAILS = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+
+    public byte[] encode(CartResponse cart) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            writeUuid(out, cart.getId());
+            writeUuid(out, cart.getUserId());
+            writeDecimal(out, cart.getTotalAmount());
+            writeString(out, cart.getCurrency());
+            writeInteger(out, cart.getItemCount());
+            writeDateTime(out, cart.getCreatedAt());
+            writeDateTime(out, cart.getUpdatedAt());
+            writeDateTime(out, cart.getExpiresAt());
+
+            List<CartItemResponse> items = cart.getItems() != null ? cart.getItems() : List.of();
+            out.writeInt(cart.getItems() != null ? items.size() : -1);
+            for (CartItemResponse item : items) {
+                writeUuid(out, item.getId());
+                writeUuid(out, item.getProductId());
+                writeInteger(out, item.getQuantity());
+                writeDecimal(out, item.getUnitPrice());
+                writeDecimal(out, item.getTotalPrice());
+                writeBytes(out, item.getProductDetails() != null
+                    ? objectMapper.writeValueAsBytes(item.getProductDetails())
+                    : null);
+                writeDateTime(out, item.getCreatedAt());
+                writeDateTime(out, item.getUpdatedAt());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode cart", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a cached cart, or null when it was written in another format
+     *
+     * @throws UncheckedIOException when the value is truncated or corrupt
+     */
+    public CartResponse decode(byte[] value) {
+        if (value.length == 0 || value[0] != FORMAT_VERSION) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value, 1, value.length - 1))) {
+            CartResponse cart = CartResponse.builder()
+                .id(readUuid(in))
+                .userId(readUuid(in))
+                .totalAmount(readDecimal(in))
+                .currency(readString(in))
+                .itemCount(readInteger(in))
+                .createdAt(readDateTime(in))
+                .updatedAt(readDateTime(in))
+                .expiresAt(readDateTime(in))
+                .build();
+
+            int itemCount = in.readInt();
+            if (itemCount >= 0) {
+                List<CartItemResponse> items = new ArrayList<>(itemCount);
+                for (int i = 0; i < itemCount; i++) {
+                    CartItemResponse.CartItemResponseBuilder item = CartItemResponse.builder()
+                        .id(readUuid(in))
+                        .productId(readUuid(in))
+                        .quantity(readInteger(in))
+                        .unitPrice(readDecimal(in))
+                        .totalPrice(readDecimal(in));
+                    byte[] details = readBytes(in);
+                    items.add(item
+                        .productDetails(details != null ? objectMapper.readValue(details, DETAILS) : null)
+                        .createdAt(readDateTime(in))
+                        .updatedAt(readDateTime(in))
+                        .build());
+                }
+                cart.setItems(items);
+            }
+            return cart;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode cart", e);
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getMostSignificantBits());
+            out.writeLong(value.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value.scale());
+            writeBytes(out, value.unscaledValue().toByteArray());
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int scale = in.readInt();
+        return new BigDecimal(new BigInteger(readBytes(in)), scale);
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value != null ? value.length : -1);
+        if (value != null) {
+            out.write(value);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+}
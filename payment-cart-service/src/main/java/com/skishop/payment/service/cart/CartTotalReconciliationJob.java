@@ -0,0 +1,80 @@
+package com.skishop.payment.service.cart;
+
+import com.skishop.payment.repository.jdbc.CartTotalReconciliationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cart total reconciliation job
+ * Cart totals are maintained incrementally from line changes. This job walks all unexpired
+ * carts in keyset order, one locked batch per transaction, and corrects any total that
+ * differs from the sum of its lines. A correction means a bug elsewhere and is logged.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.cart.reconciliation.enabled", havingValue = "true")
+public class CartTotalReconciliationJob {
+
+    private final CartTotalReconciliationRepository cartTotalReconciliationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.cart.reconciliation.batch-size:1000}")
+    private int batchSize;
+
+    private Counter checked;
+    private Counter corrected;
+
+    @PostConstruct
+    void init() {
+        checked = Counter.builder("cart.total.reconciliation").tag("outcome", "checked").register(meterRegistry);
+        corrected = Counter.builder("cart.total.reconciliation").tag("outcome", "corrected").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.cart.reconciliation.cron:0 30 3 * * *}")
+    public void reconcileTotals() {
+        try {
+            UUID afterId = CartTotalReconciliationRepository.FIRST_KEY;
+            int checkedCount = 0;
+            int correctedCount = 0;
+            while (true) {
+                UUID from = afterId;
+                Batch batch = transactionTemplate.execute(status -> {
+                    List<UUID> cartIds = cartTotalReconciliationRepository.lockBatch(from, batchSize);
+                    return new Batch(cartIds, cartTotalReconciliationRepository.correctTotals(cartIds));
+                });
+                if (batch == null || batch.cartIds().isEmpty()) {
+                    break;
+                }
+
+                checkedCount += batch.cartIds().size();
+                correctedCount += batch.corrected().size();
+                if (!batch.corrected().isEmpty()) {
+                    log.warn("Corrected cart totals that differed from their lines: {}", batch.corrected());
+                }
+                afterId = batch.cartIds().getLast();
+            }
+
+            checked.increment(checkedCount);
+            corrected.increment(correctedCount);
+            log.info("Cart total reconciliation completed: {} checked, {} corrected", checkedCount, correctedCount);
+        } catch (Exception e) {
+            log.error("Cart total reconciliation error", e);
+        }
+    }
+
+    private record Batch(List<UUID> cartIds, List<UUID> corrected) {
+    }
+}
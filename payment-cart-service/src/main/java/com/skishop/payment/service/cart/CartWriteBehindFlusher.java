@@ -0,0 +1,127 @@
+package com.skishop.payment.service.cart;
+
+import com.skishop.payment.repository.jdbc.CartSnapshot;
+import com.skishop.payment.repository.jdbc.CartWriteBehindRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cart write-behind flusher
+ * Persists changed live carts to the database in batches. A user is marked dirty in Redis
+ * by the same Lua call that changes their cart, and the mark is cleared only after the
+ * flush has committed and only if the cart has not changed since; a crash at any point
+ * therefore leaves the cart dirty for the next run on any instance. Flushes are
+ * idempotent because the database keeps the newest version it has seen.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "redis")
+public class CartWriteBehindFlusher {
+
+    private final RedisCartStore redisCartStore;
+    private final CartWriteBehindRepository cartWriteBehindRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.cart.write-behind.delay-ms:1000}")
+    private long delayMs;
+
+    @Value("${app.cart.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.cart.write-behind.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    private Counter flushed;
+    private Counter lost;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("cart.write-behind.dirty", redisCartStore, RedisCartStore::countDirty)
+            .description("Live carts changed in Redis and not yet flushed to the database")
+            .register(meterRegistry);
+        flushed = Counter.builder("cart.write-behind.flushed").register(meterRegistry);
+        lost = Counter.builder("cart.write-behind.lost")
+            .description("Dirty carts that disappeared from Redis before they were flushed")
+            .register(meterRegistry);
+        batchTimer = Timer.builder("cart.write-behind.batch").register(meterRegistry);
+    }
+
+    /**
+     * Flush carts that have been dirty for at least the write-behind delay
+     * Stops when a batch comes back short or after the per-run batch limit
+     */
+    @Scheduled(fixedDelayString = "${app.cart.write-behind.interval-ms:1000}")
+    public void flushDirtyCarts() {
+        try {
+            int total = 0;
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                List<UUID> userIds = redisCartStore.findDirtyUsers(
+                    LocalDateTime.now().minusNanos(delayMs * 1_000_000), batchSize);
+                if (!userIds.isEmpty()) {
+                    batchTimer.record(() -> flush(userIds));
+                    total += userIds.size();
+                }
+                if (userIds.size() < batchSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.debug("Flushed {} live carts to the database", total);
+            }
+        } catch (Exception e) {
+            log.error("Cart write-behind flush error", e);
+        }
+    }
+
+    /**
+     * Flush the given users' live carts now
+     * Joins the caller's transaction if there is one; the dirty marks are cleared after it commits.
+     */
+    public void flush(List<UUID> userIds) {
+        List<CartSnapshot> snapshots = redisCartStore.getAll(userIds);
+        List<CartSnapshot> live = new ArrayList<>(snapshots.size());
+        List<Long> versions = new ArrayList<>(snapshots.size());
+        for (CartSnapshot snapshot : snapshots) {
+            // A cart taken out of Redis has nothing left to flush here
+            versions.add(snapshot == null ? -1 : snapshot.version());
+            if (snapshot != null) {
+                live.add(snapshot);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            int written = cartWriteBehindRepository.upsert(live);
+            flushed.increment(written);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    long missing = redisCartStore.acknowledge(userIds, versions);
+                    if (missing > 0) {
+                        lost.increment(missing);
+                        log.error("{} dirty live carts were gone from Redis before their flush", missing);
+                    }
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,121 @@
+package com.skishop.payment.service.cart;
+
+import com.skishop.payment.repository.CartItemRepository;
+import com.skishop.payment.repository.CartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Expired cart cleanup service
+ * Deletes expired carts a chunk at a time: each chunk is claimed with SKIP LOCKED, its items
+ * and carts are removed with one set-based delete each and the chunk commits on its own, so
+ * a large backlog never becomes one long transaction. The cached cart responses of the
+ * chunk's users are then dropped in one pipelined Redis round trip.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiredCartCleanupService {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.cart.cleanup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cart.cleanup.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.cart.cleanup.max-chunks-per-run:500}")
+    private int maxChunksPerRun;
+
+    private Counter cartsDeleted;
+    private Counter itemsDeleted;
+    private Timer chunkTimer;
+
+    @PostConstruct
+    void init() {
+        cartsDeleted = Counter.builder("cart.cleanup.deleted").tag("type", "cart").register(meterRegistry);
+        itemsDeleted = Counter.builder("cart.cleanup.deleted").tag("type", "item").register(meterRegistry);
+        chunkTimer = Timer.builder("cart.cleanup.chunk").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.cart.cleanup.cron:0 0 * * * *}")
+    public void scheduledCleanup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            cleanupExpiredCarts();
+        } catch (Exception e) {
+            log.error("Expired cart cleanup error", e);
+        }
+    }
+
+    /**
+     * Delete expired carts chunk by chunk
+     * Stops when a chunk comes back short or after the per-run chunk limit
+     */
+    public int cleanupExpiredCarts() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            int count = chunkTimer.record(() -> cleanupChunk(now));
+            total += count;
+            if (count > 0) {
+                log.debug("Expired cart cleanup progress: {} carts deleted", total);
+            }
+            if (count < chunkSize) {
+                break;
+            }
+        }
+        log.info("Cleaned up {} expired carts", total);
+        return total;
+    }
+
+    private int cleanupChunk(LocalDateTime now) {
+        Chunk chunk = transactionTemplate.execute(status -> {
+            List<CartRepository.ExpiredCart> carts = cartRepository.claimExpiredCarts(now, chunkSize);
+            if (carts.isEmpty()) {
+                return new Chunk(carts, 0);
+            }
+            List<UUID> cartIds = carts.stream().map(CartRepository.ExpiredCart::getId).toList();
+            int items = cartItemRepository.deleteByCartIdIn(cartIds);
+            cartRepository.deleteByIdIn(cartIds);
+            return new Chunk(carts, items);
+        });
+        if (chunk == null || chunk.carts().isEmpty()) {
+            return 0;
+        }
+        cartsDeleted.increment(chunk.carts().size());
+        itemsDeleted.increment(chunk.items());
+
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            chunk.carts().forEach(cart -> stringConnection.del(CartResponseCache.key(cart.getUserId())));
+            return null;
+        });
+        return chunk.carts().size();
+    }
+
+    private record Chunk(List<CartRepository.ExpiredCart> carts, int items) {
+    }
+}
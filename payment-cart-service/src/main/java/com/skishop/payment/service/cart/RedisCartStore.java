@@ -0,0 +1,459 @@
+package com.skishop.payment.service.cart;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.skishop.payment.repository.jdbc.CartSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Redis live cart store
+ * Each user's cart is one hash: cart fields plus an "item:{itemId}" JSON field and a
+ * "product:{productId}" index field per line. Every mutation is a single Lua call that
+ * updates the line, the running total and the version, marks the user dirty for the
+ * write-behind flusher, moves the expiry to a full TTL after the change and returns the
+ * whole cart. A dirty cart and its owner key do not expire until the flush is acknowledged,
+ * so a change can never expire from Redis before it reaches the database.
+ * Mutations return null when the user has no live cart, so that the caller can load it
+ * from the database and try again.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "redis")
+public class RedisCartStore {
+
+    private static final String CART_KEY_PREFIX = "cart:live:";
+    private static final String OWNER_KEY_PREFIX = "cart:owner:";
+    private static final String DIRTY_KEY = "cart:dirty";
+    private static final String ITEM_FIELD_PREFIX = "item:";
+    private static final String ITEM_NOT_FOUND = "CART_ITEM_NOT_FOUND";
+
+    /**
+     * Shared by the mutation scripts: KEYS[1] cart, KEYS[2] dirty set; ARGV[1] user ID,
+     * ARGV[2] timestamp, ARGV[3] dirty score, ARGV[4] new expiry, ARGV[5] new expiry epoch seconds.
+     * A user stays at their first dirty score until flushed, so a busy cart cannot postpone
+     * its own flush. The owner key is named after the cart ID stored in the cart.
+     */
+    private static final String MUTATION_PROLOGUE = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then return {} end
+            local function touch(delta)
+                redis.call('HINCRBY', KEYS[1], 'total', delta)
+                redis.call('HINCRBY', KEYS[1], 'version', 1)
+                redis.call('HSET', KEYS[1], 'updatedAt', ARGV[2], 'expiresAt', ARGV[4], 'expiresAtEpoch', ARGV[5])
+                redis.call('ZADD', KEYS[2], 'NX', ARGV[3], ARGV[1])
+                redis.call('PERSIST', KEYS[1])
+                redis.call('SET', 'cart:owner:' .. redis.call('HGET', KEYS[1], 'cartId'), ARGV[1])
+                return redis.call('HGETALL', KEYS[1])
+            end
+            """;
+
+    /**
+     * ARGV[6..] one group per line: product ID, quantity, unit price, product details or '', new item ID
+     * A product already in the cart keeps its price and details and gains the quantity
+     */
+    private static final RedisScript<List> ADD_ITEMS_SCRIPT = new DefaultRedisScript<>(MUTATION_PROLOGUE + """
+            local delta = 0
+            for i = 6, #ARGV, 5 do
+                local productId = ARGV[i]
+                local quantity = tonumber(ARGV[i + 1])
+                local itemId = redis.call('HGET', KEYS[1], 'product:' .. productId)
+                local item
+                if itemId then
+                    item = cjson.decode(redis.call('HGET', KEYS[1], 'item:' .. itemId))
+                    item.quantity = item.quantity + quantity
+                else
+                    itemId = ARGV[i + 4]
+                    item = {id = itemId, productId = productId, quantity = quantity, unitPrice = tonumber(ARGV[i + 2]), createdAt = ARGV[2]}
+                    if ARGV[i + 3] ~= '' then item.details = ARGV[i + 3] end
+                    redis.call('HSET', KEYS[1], 'product:' .. productId, itemId)
+                end
+                item.updatedAt = ARGV[2]
+                redis.call('HSET', KEYS[1], 'item:' .. itemId, cjson.encode(item))
+                delta = delta + item.unitPrice * quantity
+            end
+            return touch(delta)
+            """, List.class);
+
+    /** ARGV[6] item ID, ARGV[7] quantity */
+    private static final RedisScript<List> UPDATE_ITEM_SCRIPT = new DefaultRedisScript<>(MUTATION_PROLOGUE + """
+            local raw = redis.call('HGET', KEYS[1], 'item:' .. ARGV[6])
+            if not raw then return redis.error_reply('CART_ITEM_NOT_FOUND') end
+            local item = cjson.decode(raw)
+            local quantity = tonumber(ARGV[7])
+            local delta = item.unitPrice * (quantity - item.quantity)
+            item.quantity = quantity
+            item.updatedAt = ARGV[2]
+            redis.call('HSET', KEYS[1], 'item:' .. ARGV[6], cjson.encode(item))
+            return touch(delta)
+            """, List.class);
+
+    /** ARGV[6] item ID */
+    private static final RedisScript<List> REMOVE_ITEM_SCRIPT = new DefaultRedisScript<>(MUTATION_PROLOGUE + """
+            local raw = redis.call('HGET', KEYS[1], 'item:' .. ARGV[6])
+            if not raw then return redis.error_reply('CART_ITEM_NOT_FOUND') end
+            local item = cjson.decode(raw)
+            redis.call('HDEL', KEYS[1], 'item:' .. ARGV[6], 'product:' .. item.productId)
+            return touch(-item.unitPrice * item.quantity)
+            """, List.class);
+
+    private static final RedisScript<List> CLEAR_SCRIPT = new DefaultRedisScript<>(MUTATION_PROLOGUE + """
+            local lineFields = {}
+            for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+                if string.sub(field, 1, 5) == 'item:' or string.sub(field, 1, 8) == 'product:' then
+                    lineFields[#lineFields + 1] = field
+                end
+            end
+            if #lineFields > 0 then redis.call('HDEL', KEYS[1], unpack(lineFields)) end
+            return touch(-tonumber(redis.call('HGET', KEYS[1], 'total')))
+            """, List.class);
+
+    /**
+     * KEYS[1] cart, KEYS[2] owner, KEYS[3] dirty set; ARGV[1] expiry epoch seconds, ARGV[2] user ID,
+     * ARGV[3] dirty score or '' for a cart already in the database, ARGV[4..] field/value pairs
+     * A cart already live in Redis is newer than anything loaded from the database and is kept
+     */
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+            redis.call('HSET', KEYS[1], unpack(ARGV, 4))
+            if ARGV[3] == '' then
+                redis.call('EXPIREAT', KEYS[1], ARGV[1])
+                redis.call('SET', KEYS[2], ARGV[2], 'EXAT', ARGV[1])
+            else
+                redis.call('SET', KEYS[2], ARGV[2])
+                redis.call('ZADD', KEYS[3], 'NX', ARGV[3], ARGV[2])
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS[1] dirty set, KEYS[2..] carts; ARGV[2i-3] user ID and ARGV[2i-2] flushed version of KEYS[i]
+     * A user leaves the dirty set only if the cart has not changed since its snapshot was taken;
+     * the cart and its owner key then expire at the cart's expiry again. Returns the number of
+     * dirty users whose cart was gone from Redis.
+     */
+    private static final RedisScript<Long> ACKNOWLEDGE_SCRIPT = new DefaultRedisScript<>("""
+            local lost = 0
+            for i = 2, #KEYS do
+                local version = redis.call('HGET', KEYS[i], 'version')
+                if not version then
+                    lost = lost + redis.call('ZREM', KEYS[1], ARGV[2 * i - 3])
+                elseif version == ARGV[2 * i - 2] then
+                    redis.call('ZREM', KEYS[1], ARGV[2 * i - 3])
+                    local expiry = redis.call('HGET', KEYS[i], 'expiresAtEpoch')
+                    if expiry then
+                        redis.call('EXPIREAT', KEYS[i], expiry)
+                        redis.call('EXPIREAT', 'cart:owner:' .. redis.call('HGET', KEYS[i], 'cartId'), expiry)
+                    end
+                end
+            end
+            return lost
+            """, Long.class);
+
+    /**
+     * KEYS[1] cart, KEYS[2] owner, KEYS[3] dirty set; ARGV[1] user ID, ARGV[2] cart ID
+     * Removes the live cart and its dirty mark in one step and returns its fields,
+     * or nothing when the user's live cart is another one
+     */
+    private static final RedisScript<List> TAKE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'cartId') ~= ARGV[2] then return {} end
+            local cart = redis.call('HGETALL', KEYS[1])
+            redis.call('DEL', KEYS[1], KEYS[2])
+            redis.call('ZREM', KEYS[3], ARGV[1])
+            return cart
+            """, List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.cart.ttl-days:7}")
+    private long ttlDays;
+
+    /**
+     * Line to add to a live cart
+     *
+     * @param unitPriceMinor Unit price, used only when the product is not in the cart yet
+     */
+    public record NewLine(UUID productId, int quantity, long unitPriceMinor, String productDetailsJson) {
+    }
+
+    public CartSnapshot addItem(UUID userId, UUID productId, int quantity, long unitPriceMinor, String productDetailsJson) {
+        return addItems(userId, List.of(new NewLine(productId, quantity, unitPriceMinor, productDetailsJson)));
+    }
+
+    /**
+     * Add several lines in one call; each product may appear only once
+     */
+    public CartSnapshot addItems(UUID userId, List<NewLine> lines) {
+        List<String> args = new ArrayList<>(lines.size() * 5);
+        for (NewLine line : lines) {
+            args.add(line.productId().toString());
+            args.add(String.valueOf(line.quantity()));
+            args.add(String.valueOf(line.unitPriceMinor()));
+            args.add(line.productDetailsJson() == null ? "" : line.productDetailsJson());
+            args.add(UUID.randomUUID().toString());
+        }
+        return mutate(ADD_ITEMS_SCRIPT, userId, args.toArray(String[]::new));
+    }
+
+    public CartSnapshot updateItem(UUID userId, UUID itemId, int quantity) {
+        return mutate(UPDATE_ITEM_SCRIPT, userId, itemId.toString(), String.valueOf(quantity));
+    }
+
+    public CartSnapshot removeItem(UUID userId, UUID itemId) {
+        return mutate(REMOVE_ITEM_SCRIPT, userId, itemId.toString());
+    }
+
+    public CartSnapshot clear(UUID userId) {
+        return mutate(CLEAR_SCRIPT, userId);
+    }
+
+    /**
+     * Get the live cart, or null when the user has none in Redis
+     */
+    public CartSnapshot get(UUID userId) {
+        Map<Object, Object> hash = stringRedisTemplate.opsForHash().entries(cartKey(userId));
+        return hash.isEmpty() ? null : toSnapshot(userId, hash);
+    }
+
+    /**
+     * Get several live carts in one pipelined round trip; missing carts are null
+     */
+    public List<CartSnapshot> getAll(List<UUID> userIds) {
+        List<Object> hashes = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            userIds.forEach(userId -> stringConnection.hGetAll(cartKey(userId)));
+            return null;
+        });
+
+        List<CartSnapshot> carts = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            Map<?, ?> hash = (Map<?, ?>) hashes.get(i);
+            carts.add(hash == null || hash.isEmpty() ? null : toSnapshot(userIds.get(i), hash));
+        }
+        return carts;
+    }
+
+    /**
+     * Make a cart live in Redis unless the user already has one; returns whether it was loaded
+     */
+    public boolean load(CartSnapshot cart) {
+        return load(cart, "");
+    }
+
+    /**
+     * Put back a cart taken out of Redis whose changes did not reach the database
+     * It is marked dirty again; returns false if the user has started another live cart meanwhile
+     */
+    public boolean restore(CartSnapshot cart) {
+        return load(cart, String.valueOf(toEpochMilli(cart.updatedAt())));
+    }
+
+    /**
+     * Remove the user's live cart if it is the given cart, together with its dirty mark
+     * Returns the removed cart, whose unflushed changes are now up to the caller, or null
+     */
+    @SuppressWarnings("unchecked")
+    public CartSnapshot take(UUID userId, UUID cartId) {
+        List<String> result = stringRedisTemplate.execute(TAKE_SCRIPT,
+            List.of(cartKey(userId), OWNER_KEY_PREFIX + cartId, DIRTY_KEY),
+            userId.toString(), cartId.toString());
+        return result == null || result.isEmpty() ? null : toSnapshot(userId, toHash(result));
+    }
+
+    private boolean load(CartSnapshot cart, String dirtyScore) {
+        long expiry = toEpochSecond(cart.expiresAt());
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(expiry));
+        args.add(cart.userId().toString());
+        args.add(dirtyScore);
+        addField(args, "cartId", cart.id().toString());
+        addField(args, "currency", cart.currency());
+        addField(args, "total", String.valueOf(cart.totalMinor()));
+        addField(args, "version", String.valueOf(cart.version()));
+        addField(args, "createdAt", cart.createdAt().toString());
+        addField(args, "updatedAt", cart.updatedAt().toString());
+        addField(args, "expiresAt", cart.expiresAt().toString());
+        addField(args, "expiresAtEpoch", String.valueOf(expiry));
+        for (CartSnapshot.Line line : cart.lines()) {
+            addField(args, ITEM_FIELD_PREFIX + line.id(), toItemJson(line));
+            addField(args, "product:" + line.productId(), line.id().toString());
+        }
+
+        Long loaded = stringRedisTemplate.execute(LOAD_SCRIPT,
+            List.of(cartKey(cart.userId()), OWNER_KEY_PREFIX + cart.id(), DIRTY_KEY),
+            args.toArray());
+        return loaded != null && loaded == 1;
+    }
+
+    /**
+     * Owner of a live cart
+     */
+    public Optional<UUID> findOwner(UUID cartId) {
+        return Optional.ofNullable(stringRedisTemplate.opsForValue().get(OWNER_KEY_PREFIX + cartId))
+            .map(UUID::fromString);
+    }
+
+    /**
+     * Users whose carts were first changed before the given time and are not yet flushed
+     */
+    public List<UUID> findDirtyUsers(LocalDateTime changedBefore, int limit) {
+        var userIds = stringRedisTemplate.opsForZSet().rangeByScore(DIRTY_KEY,
+            Double.NEGATIVE_INFINITY, toEpochMilli(changedBefore), 0, limit);
+        return userIds == null ? List.of() : userIds.stream().map(UUID::fromString).toList();
+    }
+
+    public long countDirty() {
+        Long count = stringRedisTemplate.opsForZSet().zCard(DIRTY_KEY);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Clear the dirty mark of flushed carts that have not changed since their snapshots
+     * Carts missing from Redis are acknowledged with version -1, which never matches a live cart.
+     * Dirty carts never expire, so a dirty user without a cart means Redis lost it; returns how
+     * many such users were found.
+     */
+    public long acknowledge(List<UUID> userIds, List<Long> versions) {
+        List<String> keys = new ArrayList<>(userIds.size() + 1);
+        List<String> args = new ArrayList<>(userIds.size() * 2);
+        keys.add(DIRTY_KEY);
+        for (int i = 0; i < userIds.size(); i++) {
+            keys.add(cartKey(userIds.get(i)));
+            args.add(userIds.get(i).toString());
+            args.add(String.valueOf(versions.get(i)));
+        }
+        Long lost = stringRedisTemplate.execute(ACKNOWLEDGE_SCRIPT, keys, args.toArray());
+        return lost == null ? 0 : lost;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CartSnapshot mutate(RedisScript<List> script, UUID userId, String... scriptArgs) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusDays(ttlDays);
+        Object[] args = new Object[5 + scriptArgs.length];
+        args[0] = userId.toString();
+        args[1] = now.toString();
+        args[2] = String.valueOf(toEpochMilli(now));
+        args[3] = expiresAt.toString();
+        args[4] = String.valueOf(toEpochSecond(expiresAt));
+        System.arraycopy(scriptArgs, 0, args, 5, scriptArgs.length);
+
+        List<String> result;
+        try {
+            result = stringRedisTemplate.execute(script, List.of(cartKey(userId), DIRTY_KEY), args);
+        } catch (DataAccessException e) {
+            if (String.valueOf(e.getMostSpecificCause().getMessage()).contains(ITEM_NOT_FOUND)) {
+                throw new RuntimeException("Cart item not found");
+            }
+            throw e;
+        }
+        // No live cart: the script returns an empty list, since a false reply would arrive as [null]
+        return result == null || result.isEmpty() ? null : toSnapshot(userId, toHash(result));
+    }
+
+    private static Map<String, String> toHash(List<String> fieldsAndValues) {
+        Map<String, String> hash = new HashMap<>(fieldsAndValues.size() / 2);
+        for (int i = 0; i + 1 < fieldsAndValues.size(); i += 2) {
+            hash.put(fieldsAndValues.get(i), fieldsAndValues.get(i + 1));
+        }
+        return hash;
+    }
+
+    private CartSnapshot toSnapshot(UUID userId, Map<?, ?> hash) {
+        List<CartSnapshot.Line> lines = new ArrayList<>();
+        hash.forEach((field, value) -> {
+            if (field.toString().startsWith(ITEM_FIELD_PREFIX)) {
+                lines.add(toLine(value.toString()));
+            }
+        });
+        lines.sort(Comparator.comparing(CartSnapshot.Line::createdAt));
+
+        return new CartSnapshot(
+            UUID.fromString(field(hash, "cartId")),
+            userId,
+            field(hash, "currency"),
+            Long.parseLong(field(hash, "total")),
+            LocalDateTime.parse(field(hash, "createdAt")),
+            LocalDateTime.parse(field(hash, "updatedAt")),
+            LocalDateTime.parse(field(hash, "expiresAt")),
+            Long.parseLong(field(hash, "version")),
+            lines
+        );
+    }
+
+    private CartSnapshot.Line toLine(String json) {
+        try {
+            JsonNode item = objectMapper.readTree(json);
+            return new CartSnapshot.Line(
+                UUID.fromString(item.path("id").asText()),
+                UUID.fromString(item.path("productId").asText()),
+                item.path("quantity").asInt(),
+                item.path("unitPrice").asLong(),
+                item.hasNonNull("details") ? item.get("details").asText() : null,
+                LocalDateTime.parse(item.path("createdAt").asText()),
+                LocalDateTime.parse(item.path("updatedAt").asText())
+            );
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to parse live cart item: " + json, e);
+        }
+    }
+
+    private String toItemJson(CartSnapshot.Line line) {
+        ObjectNode item = objectMapper.createObjectNode()
+            .put("id", line.id().toString())
+            .put("productId", line.productId().toString())
+            .put("quantity", line.quantity())
+            .put("unitPrice", line.unitPriceMinor())
+            .put("createdAt", line.createdAt().toString())
+            .put("updatedAt", line.updatedAt().toString());
+        if (line.productDetailsJson() != null) {
+            item.put("details", line.productDetailsJson());
+        }
+        return item.toString();
+    }
+
+    private static String field(Map<?, ?> hash, String name) {
+        Object value = hash.get(name);
+        if (value == null) {
+            throw new IllegalStateException("Live cart is missing field " + name);
+        }
+        return value.toString();
+    }
+
+    private static void addField(Collection<String> args, String field, String value) {
+        args.add(field);
+        args.add(value);
+    }
+
+    private static String cartKey(UUID userId) {
+        return CART_KEY_PREFIX + userId;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
@@ -0,0 +1,11 @@
+package com.skishop.payment.service.gateway;
+
+/**
+ * Payment intent as reported by the processor
+ *
+ * @param status processor status, e.g. requires_payment_method, requires_action, succeeded, canceled
+ * @param amountMinor amount in minor units of the currency
+ * @param currency lower-case ISO currency code
+ */
+public record GatewayPaymentIntent(String id, String clientSecret, String status, long amountMinor, String currency) {
+}
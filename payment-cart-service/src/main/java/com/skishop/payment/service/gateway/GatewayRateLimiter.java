@@ -0,0 +1,32 @@
+package com.skishop.payment.service.gateway;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gateway rate limiter
+ * Keeps background jobs within the processor's request quota. Hands out one permit per
+ * interval without bursts; callers sleep until their slot, which costs nothing on virtual
+ * threads.
+ */
+public final class GatewayRateLimiter {
+
+    private final long intervalNanos;
+    private long nextSlotNanos = System.nanoTime();
+
+    public GatewayRateLimiter(double permitsPerSecond) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlotNanos);
+            nextSlotNanos = slot + intervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.skishop.payment.service.gateway;
+
+/**
+ * Refund as reported by the processor
+ */
+public record GatewayRefund(String id, String status, long amountMinor) {
+}
@@ -0,0 +1,35 @@
+package com.skishop.payment.service.gateway;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Payment processor gateway
+ * Every call runs off the caller's thread behind a bounded bulkhead and completes within
+ * its deadline, exceptionally with {@link PaymentGatewayException} on failure. Callers must
+ * not hold a database transaction while waiting for a result.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Provider name recorded on payments
+     */
+    String provider();
+
+    /**
+     * Create a payment intent
+     * Calls made with the same non-null idempotency key create at most one intent.
+     */
+    CompletableFuture<GatewayPaymentIntent> createPaymentIntent(long amountMinor, String currency, String idempotencyKey);
+
+    CompletableFuture<GatewayPaymentIntent> confirmPaymentIntent(String paymentIntentId, String paymentMethodId,
+                                                                 String idempotencyKey);
+
+    /**
+     * Current state of a payment intent
+     * Fails with {@link PaymentGatewayException.Reason#NOT_FOUND} when the processor does not know it.
+     */
+    CompletableFuture<GatewayPaymentIntent> retrievePaymentIntent(String paymentIntentId);
+
+    CompletableFuture<GatewayRefund> createRefund(String paymentIntentId, long amountMinor, String reason,
+                                                  String idempotencyKey);
+}
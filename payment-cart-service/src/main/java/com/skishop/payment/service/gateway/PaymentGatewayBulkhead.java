@@ -0,0 +1,149 @@
+package com.skishop.payment.service.gateway;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Payment gateway bulkhead
+ * Runs processor calls on virtual threads, at most max-concurrent-calls at a time. A call
+ * that finds the bulkhead full is rejected at once instead of queuing, and a call that
+ * misses its deadline completes exceptionally while its permit stays held until the remote
+ * call actually returns, so a slow processor cannot drain capacity it is still using.
+ * Results are delivered on the bulkhead's threads, never on the caller's.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentGatewayBulkhead {
+
+    public enum Operation {
+        CREATE_INTENT,
+        CONFIRM_INTENT,
+        RETRIEVE_INTENT,
+        CREATE_REFUND
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.payment.gateway.max-concurrent-calls:50}")
+    private int maxConcurrentCalls;
+
+    @Value("${app.payment.gateway.deadline.create-intent-ms:5000}")
+    private long createIntentDeadlineMs;
+
+    @Value("${app.payment.gateway.deadline.confirm-intent-ms:10000}")
+    private long confirmIntentDeadlineMs;
+
+    @Value("${app.payment.gateway.deadline.retrieve-intent-ms:5000}")
+    private long retrieveIntentDeadlineMs;
+
+    @Value("${app.payment.gateway.deadline.create-refund-ms:10000}")
+    private long createRefundDeadlineMs;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("payment-gateway-", 0).factory());
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(maxConcurrentCalls);
+        Gauge.builder("payment.gateway.in-flight", permits, p -> maxConcurrentCalls - p.availablePermits())
+            .description("Payment processor calls in progress")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Deadline of an operation; gateways also use it as their transport read timeout
+     */
+    public Duration deadline(Operation operation) {
+        return Duration.ofMillis(switch (operation) {
+            case CREATE_INTENT -> createIntentDeadlineMs;
+            case CONFIRM_INTENT -> confirmIntentDeadlineMs;
+            case RETRIEVE_INTENT -> retrieveIntentDeadlineMs;
+            case CREATE_REFUND -> createRefundDeadlineMs;
+        });
+    }
+
+    /**
+     * Run a processor call within the bulkhead and the operation's deadline
+     * The future completes exceptionally with {@link PaymentGatewayException} on any failure.
+     */
+    public <T> CompletableFuture<T> call(Operation operation, Callable<T> call) {
+        long start = System.nanoTime();
+        if (!permits.tryAcquire()) {
+            record(operation, PaymentGatewayException.Reason.BULKHEAD_FULL.name(), start);
+            return CompletableFuture.failedFuture(new PaymentGatewayException(
+                "Payment gateway is at capacity", PaymentGatewayException.Reason.BULKHEAD_FULL, null));
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                result.complete(call.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                permits.release();
+            }
+        });
+
+        Duration deadline = deadline(operation);
+        return result
+            .orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS)
+            .handleAsync((value, error) -> {
+                if (error == null) {
+                    record(operation, "SUCCESS", start);
+                    return value;
+                }
+                PaymentGatewayException failure = toGatewayException(operation, deadline, error);
+                record(operation, failure.getReason().name(), start);
+                log.warn("Payment gateway {} failed ({}): {}", operation, failure.getReason(), failure.getMessage());
+                throw failure;
+            }, executor);
+    }
+
+    private static PaymentGatewayException toGatewayException(Operation operation, Duration deadline, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof PaymentGatewayException failure) {
+            return failure;
+        }
+        if (cause instanceof TimeoutException) {
+            return new PaymentGatewayException(operation + " exceeded its deadline of " + deadline.toMillis() + " ms",
+                PaymentGatewayException.Reason.DEADLINE_EXCEEDED, cause);
+        }
+        return new PaymentGatewayException(operation + " failed: " + cause.getMessage(),
+            PaymentGatewayException.Reason.UNAVAILABLE, cause);
+    }
+
+    private void record(Operation operation, String outcome, long start) {
+        Timer.builder("payment.gateway.call")
+            .description("Payment processor calls by operation and outcome")
+            .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+            .tag("outcome", outcome.toLowerCase(Locale.ROOT))
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,34 @@
+package com.skishop.payment.service.gateway;
+
+/**
+ * Payment gateway call failure
+ * Only {@link Reason#DECLINED} means the processor refused the operation. After a deadline
+ * or an unavailable processor the outcome is unknown, and a full bulkhead means the call was
+ * never made; in those cases the payment keeps its status and the call may be retried.
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+    public enum Reason {
+        DECLINED,
+        BULKHEAD_FULL,
+        DEADLINE_EXCEEDED,
+        UNAVAILABLE,
+        /** The processor has no such object; only reported by lookups */
+        NOT_FOUND
+    }
+
+    private final Reason reason;
+
+    public PaymentGatewayException(String message, Reason reason, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public boolean isDeclined() {
+        return reason == Reason.DECLINED;
+    }
+}
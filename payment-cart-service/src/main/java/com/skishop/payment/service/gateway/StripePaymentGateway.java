@@ -0,0 +1,149 @@
+package com.skishop.payment.service.gateway;
+
+import com.stripe.Stripe;
+import com.stripe.exception.CardException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stripe payment gateway
+ * The blocking Stripe client runs inside the bulkhead, with the operation's deadline as
+ * its read timeout so that abandoned calls free their permits soon after the deadline.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.payment.gateway.provider", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentGateway implements PaymentGateway {
+
+    private final PaymentGatewayBulkhead bulkhead;
+
+    @Value("${stripe.secret-key:sk_test_dummy}")
+    private String stripeSecretKey;
+
+    @Value("${app.payment.gateway.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @PostConstruct
+    public void init() {
+        Stripe.apiKey = stripeSecretKey;
+    }
+
+    @Override
+    public String provider() {
+        return "stripe";
+    }
+
+    @Override
+    public CompletableFuture<GatewayPaymentIntent> createPaymentIntent(long amountMinor, String currency, String idempotencyKey) {
+        PaymentGatewayBulkhead.Operation operation = PaymentGatewayBulkhead.Operation.CREATE_INTENT;
+        return bulkhead.call(operation, () -> {
+            Map<String, Object> params = new HashMap<>();
+            params.put("amount", amountMinor);
+            params.put("currency", currency.toLowerCase());
+            params.put("payment_method_types", List.of("card"));
+
+            try {
+                PaymentIntent paymentIntent = PaymentIntent.create(params, requestOptions(operation, idempotencyKey));
+                return toGatewayPaymentIntent(paymentIntent);
+            } catch (StripeException e) {
+                throw toGatewayException(e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayPaymentIntent> confirmPaymentIntent(String paymentIntentId, String paymentMethodId,
+                                                                        String idempotencyKey) {
+        PaymentGatewayBulkhead.Operation operation = PaymentGatewayBulkhead.Operation.CONFIRM_INTENT;
+        return bulkhead.call(operation, () -> {
+            Map<String, Object> params = new HashMap<>();
+            params.put("payment_method", paymentMethodId);
+
+            // Confirm by ID without retrieving the intent first
+            PaymentIntent paymentIntent = new PaymentIntent();
+            paymentIntent.setId(paymentIntentId);
+            try {
+                return toGatewayPaymentIntent(paymentIntent.confirm(params, requestOptions(operation, idempotencyKey)));
+            } catch (StripeException e) {
+                throw toGatewayException(e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayPaymentIntent> retrievePaymentIntent(String paymentIntentId) {
+        PaymentGatewayBulkhead.Operation operation = PaymentGatewayBulkhead.Operation.RETRIEVE_INTENT;
+        return bulkhead.call(operation, () -> {
+            try {
+                return toGatewayPaymentIntent(PaymentIntent.retrieve(paymentIntentId, requestOptions(operation, null)));
+            } catch (InvalidRequestException e) {
+                if ("resource_missing".equals(e.getCode())) {
+                    throw new PaymentGatewayException(e.getMessage(), PaymentGatewayException.Reason.NOT_FOUND, e);
+                }
+                throw toGatewayException(e);
+            } catch (StripeException e) {
+                throw toGatewayException(e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayRefund> createRefund(String paymentIntentId, long amountMinor, String reason,
+                                                         String idempotencyKey) {
+        PaymentGatewayBulkhead.Operation operation = PaymentGatewayBulkhead.Operation.CREATE_REFUND;
+        return bulkhead.call(operation, () -> {
+            Map<String, Object> params = new HashMap<>();
+            params.put("payment_intent", paymentIntentId);
+            params.put("amount", amountMinor);
+            if (reason != null) {
+                params.put("reason", reason);
+            }
+
+            try {
+                Refund refund = Refund.create(params, requestOptions(operation, idempotencyKey));
+                return new GatewayRefund(refund.getId(), refund.getStatus(), refund.getAmount());
+            } catch (StripeException e) {
+                throw toGatewayException(e);
+            }
+        });
+    }
+
+    private RequestOptions requestOptions(PaymentGatewayBulkhead.Operation operation, String idempotencyKey) {
+        RequestOptions.RequestOptionsBuilder builder = RequestOptions.builder()
+            .setConnectTimeout(connectTimeoutMs)
+            .setReadTimeout((int) bulkhead.deadline(operation).toMillis());
+        if (idempotencyKey != null) {
+            // Stripe returns the original result for a repeated key instead of acting twice
+            builder.setIdempotencyKey(idempotencyKey);
+        }
+        return builder.build();
+    }
+
+    private static GatewayPaymentIntent toGatewayPaymentIntent(PaymentIntent paymentIntent) {
+        return new GatewayPaymentIntent(paymentIntent.getId(), paymentIntent.getClientSecret(), paymentIntent.getStatus(),
+            paymentIntent.getAmount(), paymentIntent.getCurrency());
+    }
+
+    /**
+     * Only a card error is the processor refusing the payment; invalid or conflicting requests
+     * leave the outcome of the operation unknown, so they must not fail the payment
+     */
+    private static PaymentGatewayException toGatewayException(StripeException e) {
+        return new PaymentGatewayException(e.getMessage(), e instanceof CardException
+            ? PaymentGatewayException.Reason.DECLINED
+            : PaymentGatewayException.Reason.UNAVAILABLE, e);
+    }
+}
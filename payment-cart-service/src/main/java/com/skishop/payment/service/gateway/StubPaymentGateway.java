@@ -0,0 +1,177 @@
+package com.skishop.payment.service.gateway;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stub payment gateway for development and load tests
+ * Simulates processor latency, outages and declines at configurable rates, and remembers
+ * the intents it created so that lookups and reconciliation have something to compare
+ * against. Like the processor, it replays the result stored under an idempotency key,
+ * declines included, instead of acting twice. Calls go through the same bulkhead and
+ * deadlines as the real gateway, so a
+ * latency above the deadline or a high failure rate shows how checkout behaves when the
+ * processor degrades.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.payment.gateway.provider", havingValue = "stub")
+public class StubPaymentGateway implements PaymentGateway {
+
+    private final PaymentGatewayBulkhead bulkhead;
+
+    @Value("${app.payment.gateway.stub.latency-ms:200}")
+    private long latencyMs;
+
+    @Value("${app.payment.gateway.stub.latency-jitter-ms:100}")
+    private long latencyJitterMs;
+
+    /** Share of calls failing as if the processor were unreachable */
+    @Value("${app.payment.gateway.stub.failure-rate:0.0}")
+    private double failureRate;
+
+    /** Share of confirmations and refunds declined by the processor */
+    @Value("${app.payment.gateway.stub.decline-rate:0.0}")
+    private double declineRate;
+
+    /** Intents, and results per idempotency key, remembered; a restarted stub has forgotten all of them */
+    @Value("${app.payment.gateway.stub.max-intents:1000000}")
+    private int maxIntents;
+
+    private final Map<String, GatewayPaymentIntent> intents = new ConcurrentHashMap<>();
+    /** Result or decline of each call made with an idempotency key */
+    private final Map<String, Object> resultsByKey = new ConcurrentHashMap<>();
+
+    @Override
+    public String provider() {
+        return "stub";
+    }
+
+    @Override
+    public CompletableFuture<GatewayPaymentIntent> createPaymentIntent(long amountMinor, String currency, String idempotencyKey) {
+        return bulkhead.call(PaymentGatewayBulkhead.Operation.CREATE_INTENT, () ->
+            idempotent("create_intent", idempotencyKey, GatewayPaymentIntent.class, false, () -> {
+                String id = "pi_stub_" + UUID.randomUUID().toString().replace("-", "");
+                return remember(new GatewayPaymentIntent(id, id + "_secret", "requires_payment_method",
+                    amountMinor, currency.toLowerCase(Locale.ROOT)));
+            }));
+    }
+
+    @Override
+    public CompletableFuture<GatewayPaymentIntent> confirmPaymentIntent(String paymentIntentId, String paymentMethodId,
+                                                                        String idempotencyKey) {
+        return bulkhead.call(PaymentGatewayBulkhead.Operation.CONFIRM_INTENT, () ->
+            idempotent("confirm_intent", idempotencyKey, GatewayPaymentIntent.class, true, () -> {
+                GatewayPaymentIntent intent = find(paymentIntentId);
+                return remember(new GatewayPaymentIntent(intent.id(), intent.clientSecret(), "succeeded",
+                    intent.amountMinor(), intent.currency()));
+            }));
+    }
+
+    @Override
+    public CompletableFuture<GatewayPaymentIntent> retrievePaymentIntent(String paymentIntentId) {
+        return bulkhead.call(PaymentGatewayBulkhead.Operation.RETRIEVE_INTENT, () -> {
+            simulate(false);
+            return find(paymentIntentId);
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayRefund> createRefund(String paymentIntentId, long amountMinor, String reason,
+                                                         String idempotencyKey) {
+        return bulkhead.call(PaymentGatewayBulkhead.Operation.CREATE_REFUND, () ->
+            idempotent("create_refund", idempotencyKey, GatewayRefund.class, true, () ->
+                new GatewayRefund("re_stub_" + UUID.randomUUID().toString().replace("-", ""), "succeeded", amountMinor)));
+    }
+
+    /**
+     * Act once per idempotency key and replay the stored outcome for repeated keys
+     * Outages are not stored, since the processor never saw those calls.
+     */
+    private <T> T idempotent(String operation, String idempotencyKey, Class<T> type, boolean declinable,
+                             Callable<T> action) throws Exception {
+        if (idempotencyKey == null) {
+            simulate(declinable);
+            return action.call();
+        }
+        String key = operation + ":" + idempotencyKey;
+        Object outcome = resultsByKey.get(key);
+        if (outcome == null) {
+            try {
+                simulate(declinable);
+                outcome = action.call();
+            } catch (PaymentGatewayException e) {
+                if (!e.isDeclined()) {
+                    throw e;
+                }
+                outcome = e;
+            }
+            Object stored = remember(resultsByKey, key, outcome);
+            outcome = stored != null ? stored : outcome;
+        } else {
+            simulate(false);
+        }
+        if (outcome instanceof PaymentGatewayException declined) {
+            throw declined;
+        }
+        return type.cast(outcome);
+    }
+
+    private GatewayPaymentIntent remember(GatewayPaymentIntent intent) {
+        makeRoom(intents, intent.id());
+        intents.put(intent.id(), intent);
+        return intent;
+    }
+
+    /**
+     * Store the first outcome for a key, returning the one stored earlier if another call won
+     */
+    private Object remember(Map<String, Object> results, String key, Object outcome) {
+        makeRoom(results, key);
+        return results.putIfAbsent(key, outcome);
+    }
+
+    private void makeRoom(Map<String, ?> remembered, String key) {
+        if (!remembered.containsKey(key) && remembered.size() >= maxIntents) {
+            // Forget an arbitrary entry; lookups of it then report it missing
+            Iterator<String> oldest = remembered.keySet().iterator();
+            if (oldest.hasNext()) {
+                remembered.remove(oldest.next());
+            }
+        }
+    }
+
+    private GatewayPaymentIntent find(String paymentIntentId) {
+        GatewayPaymentIntent intent = intents.get(paymentIntentId);
+        if (intent == null) {
+            throw new PaymentGatewayException("No such payment intent: " + paymentIntentId,
+                PaymentGatewayException.Reason.NOT_FOUND, null);
+        }
+        return intent;
+    }
+
+    private void simulate(boolean declinable) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Thread.sleep(latencyMs + (latencyJitterMs > 0 ? random.nextLong(latencyJitterMs + 1) : 0));
+
+        if (random.nextDouble() < failureRate) {
+            throw new PaymentGatewayException("Stub processor unavailable",
+                PaymentGatewayException.Reason.UNAVAILABLE, null);
+        }
+        if (declinable && random.nextDouble() < declineRate) {
+            throw new PaymentGatewayException("Stub processor declined the request",
+                PaymentGatewayException.Reason.DECLINED, null);
+        }
+    }
+}
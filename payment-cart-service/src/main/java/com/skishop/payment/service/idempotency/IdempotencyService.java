@@ -0,0 +1,277 @@
+package com.skishop.payment.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency key service
+ * Records the fingerprint of each keyed request and, once it succeeds, its response in
+ * Redis. A repeat of a completed request gets the stored response without running again;
+ * the same key with a different request is rejected. Duplicates arriving while the first
+ * request is still running share its result on this instance, and are told to retry on
+ * others, so the payment processor is called once. A failed request releases its key.
+ * The in-progress lock carries an owner token and is renewed while the request runs;
+ * storing the response and releasing the key only act on a lock the request still owns.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    private static final String KEY_PREFIX = "payment:idempotency:";
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String COMPLETED = "COMPLETED";
+    private static final int MAX_KEY_LENGTH = 200;
+
+    /** Whether KEYS[1] holds the lock of owner ARGV[1] */
+    private static final String HOLDS_LOCK = """
+            local current = redis.call('GET', KEYS[1])
+            local holds = false
+            if current then
+              local ok, record = pcall(cjson.decode, current)
+              holds = ok and record.status == 'IN_PROGRESS' and record.owner == ARGV[1]
+            end
+            """;
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(HOLDS_LOCK + """
+            if holds then
+              return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(HOLDS_LOCK + """
+            if holds then
+              redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(HOLDS_LOCK + """
+            if holds then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.payment.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    /** How long a crashed instance holds a key; renewed while the request runs */
+    @Value("${app.payment.idempotency.in-progress-ttl-seconds:60}")
+    private long inProgressTtlSeconds;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService lockRenewal = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("payment-idempotency-lock-renewal").daemon().factory());
+
+    @PreDestroy
+    void stop() {
+        lockRenewal.shutdownNow();
+    }
+
+    /**
+     * Run an action at most once per user, operation and idempotency key
+     * Without a key the action simply runs.
+     *
+     * @param request the request whose fingerprint must match on every use of the key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String operation, UUID userId, String idempotencyKey, Object request,
+                                            Class<T> responseType, Supplier<CompletableFuture<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String storeKey = KEY_PREFIX + operation + ":" + userId + ":" + idempotencyKey;
+        String fingerprint = fingerprint(operation, request);
+
+        InFlight created = new InFlight(fingerprint, new CompletableFuture<>());
+        InFlight existing = inFlight.putIfAbsent(storeKey, created);
+        if (existing != null) {
+            requireSameRequest(existing.fingerprint(), fingerprint);
+            count("collapsed");
+            return (CompletableFuture<T>) existing.result();
+        }
+
+        try {
+            begin(storeKey, fingerprint, responseType, action).whenComplete((value, error) -> {
+                inFlight.remove(storeKey, created);
+                if (error == null) {
+                    ((CompletableFuture<T>) created.result()).complete(value);
+                } else {
+                    created.result().completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(storeKey, created);
+            created.result().completeExceptionally(e);
+            throw e;
+        }
+        return (CompletableFuture<T>) created.result();
+    }
+
+    private <T> CompletableFuture<T> begin(String storeKey, String fingerprint, Class<T> responseType,
+                                           Supplier<CompletableFuture<T>> action) {
+        String stored = stringRedisTemplate.opsForValue().get(storeKey);
+        if (stored == null) {
+            String owner = UUID.randomUUID().toString();
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(storeKey,
+                record(IN_PROGRESS, fingerprint, owner, null), Duration.ofSeconds(inProgressTtlSeconds));
+            if (Boolean.TRUE.equals(acquired)) {
+                count("new");
+                return run(storeKey, fingerprint, owner, action);
+            }
+            stored = stringRedisTemplate.opsForValue().get(storeKey);
+        }
+        return CompletableFuture.completedFuture(replay(stored, fingerprint, responseType));
+    }
+
+    private <T> CompletableFuture<T> run(String storeKey, String fingerprint, String owner,
+                                         Supplier<CompletableFuture<T>> action) {
+        long renewEveryMillis = Math.max(TimeUnit.SECONDS.toMillis(inProgressTtlSeconds) / 3, 1);
+        ScheduledFuture<?> renewal = lockRenewal.scheduleAtFixedRate(() -> renew(storeKey, owner),
+            renewEveryMillis, renewEveryMillis, TimeUnit.MILLISECONDS);
+        CompletableFuture<T> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            renewal.cancel(false);
+            release(storeKey, owner);
+            throw e;
+        }
+        return result.whenComplete((value, error) -> {
+            renewal.cancel(false);
+            try {
+                if (error != null) {
+                    release(storeKey, owner);
+                } else if (!complete(storeKey, owner, record(COMPLETED, fingerprint, null, objectMapper.valueToTree(value)))) {
+                    count("lock_lost");
+                    log.warn("Idempotency lock for {} was lost before the response was stored", storeKey);
+                }
+            } catch (Exception e) {
+                log.error("Failed to record idempotent result for {}", storeKey, e);
+            }
+        });
+    }
+
+    private void renew(String storeKey, String owner) {
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(storeKey), owner,
+                String.valueOf(TimeUnit.SECONDS.toMillis(inProgressTtlSeconds)));
+            if (renewed == null || renewed == 0) {
+                log.warn("Idempotency lock for {} could not be renewed", storeKey);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to renew idempotency lock for {}", storeKey, e);
+        }
+    }
+
+    private boolean complete(String storeKey, String owner, String record) {
+        Long completed = stringRedisTemplate.execute(COMPLETE_SCRIPT, List.of(storeKey), owner, record,
+            String.valueOf(TimeUnit.HOURS.toMillis(ttlHours)));
+        return completed != null && completed == 1;
+    }
+
+    private void release(String storeKey, String owner) {
+        stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(storeKey), owner);
+    }
+
+    private <T> T replay(String stored, String fingerprint, Class<T> responseType) {
+        if (stored == null) {
+            // Released by a failed attempt between our two reads
+            count("conflict");
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key was just processed; retry");
+        }
+        try {
+            JsonNode record = objectMapper.readTree(stored);
+            requireSameRequest(record.path("fingerprint").asText(), fingerprint);
+            if (!COMPLETED.equals(record.path("status").asText())) {
+                count("conflict");
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is in progress");
+            }
+            count("replayed");
+            return objectMapper.treeToValue(record.get("response"), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt idempotency record", e);
+        }
+    }
+
+    private void requireSameRequest(String storedFingerprint, String fingerprint) {
+        if (!storedFingerprint.equals(fingerprint)) {
+            count("mismatch");
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private String record(String status, String fingerprint, String owner, JsonNode response) {
+        ObjectNode record = objectMapper.createObjectNode()
+            .put("status", status)
+            .put("fingerprint", fingerprint);
+        if (owner != null) {
+            record.put("owner", owner);
+        }
+        if (response != null) {
+            record.set("response", response);
+        }
+        return record.toString();
+    }
+
+    private String fingerprint(String operation, Object request) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("payment.idempotency", "result", result).increment();
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<?> result) {
+    }
+}
@@ -1,156 +1,210 @@
 package com.skishop.payment.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.skishop.payment.dto.*;
 import com.skishop.payment.entity.Cart;
 import com.skishop.payment.entity.CartItem;
 import com.skishop.payment.repository.CartRepository;
 import com.skishop.payment.repository.CartItemRepository;
+import com.skishop.payment.repository.jdbc.CartMergeRepository;
 import com.skishop.payment.service.CartService;
+import com.skishop.payment.service.cart.CartResponseCache;
+import com.skishop.payment.service.cart.ExpiredCartCleanupService;
+import com.skishop.payment.service.price.ProductPriceClient;
 import com.skishop.payment.mapper.CartMapper;
+import com.skishop.payment.util.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Currency;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "database", matchIfMissing = true)
 public class CartServiceImpl implements CartService {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final CartMapper cartMapper;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final CartResponseCache cartResponseCache;
+    private final ProductPriceClient productPriceClient;
+    private final ExpiredCartCleanupService expiredCartCleanupService;
+    private final CartMergeRepository cartMergeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
 
-    private static final String CART_CACHE_KEY_PREFIX = "cart:";
-    private static final long CART_CACHE_TTL = 24; // hours
+    @Value("${app.cart.max-conflict-attempts:3}")
+    private int maxConflictAttempts;
 
     @Override
-    @Transactional
     public CartResponse addItemToCart(UUID userId, AddCartItemRequest request) {
         log.info("Adding item to cart for user: {}", userId);
 
-        Cart cart = getOrCreateCart(userId);
-        
-        // Check if item already exists in cart
-        Optional<CartItem> existingItem = cartItemRepository
-            .findByCartIdAndProductId(cart.getId(), request.productId());
-
-        CartItem cartItem;
-        if (existingItem.isPresent()) {
-            // Update quantity of existing item
-            cartItem = existingItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + request.quantity());
-            cartItem.setTotalPrice(cartItem.getUnitPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
-            cartItem.setUpdatedAt(LocalDateTime.now());
-        } else {
-            // Create new cart item  
-            cartItem = CartItem.builder()
-                .cart(cart)
-                .productId(request.productId())
-                .quantity(request.quantity())
-                .unitPrice(BigDecimal.valueOf(10000)) // Default price - would call inventory service
-                .productDetails(request.productDetails())
-                .build();
-            cartItem.setTotalPrice(cartItem.getUnitPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
-        }
+        // A new product's price is looked up before the transaction, so no connection waits on it
+        Money price = isInCart(userId, request.productId()) ? null : productPriceClient.getPrice(request.productId());
+
+        return retryOnConflict(userId, () -> {
+            Cart cart = getOrCreateCart(userId);
+
+            // Check if item already exists in cart
+            Optional<CartItem> existingItem = cartItemRepository
+                .findByCartIdAndProductId(cart.getId(), request.productId());
+
+            CartItem cartItem;
+            Money previousLineTotal;
+            if (existingItem.isPresent()) {
+                // Update quantity of existing item
+                cartItem = existingItem.get();
+                previousLineTotal = lineTotal(cart, cartItem);
+                cartItem.setQuantity(cartItem.getQuantity() + request.quantity());
+                cartItem.calculateTotalPrice(currencyOf(cart));
+                cartItem.setUpdatedAt(LocalDateTime.now());
+            } else {
+                // Create new cart item; the lookup only runs here if the line was removed since the check above
+                Money unitPrice = price != null ? price : productPriceClient.getPrice(request.productId());
+                cartItem = CartItem.builder()
+                    .cart(cart)
+                    .productId(request.productId())
+                    .quantity(request.quantity())
+                    .unitPrice(priceInCartCurrency(cart, unitPrice))
+                    .productDetails(request.productDetails())
+                    .build();
+                cartItem.calculateTotalPrice(currencyOf(cart));
+                previousLineTotal = Money.zero(currencyOf(cart));
+            }
 
-        cartItemRepository.save(cartItem);
-        
-        // Update cart total
-        updateCartTotal(cart);
-        cartRepository.save(cart);
+            cartItemRepository.save(cartItem);
 
-        // Clear cache
-        clearCartCache(userId);
+            // Update cart total
+            applyLineDelta(cart, lineTotal(cart, cartItem).minus(previousLineTotal));
+            cartRepository.save(cart);
 
-        return getCartByUserId(userId);
+            // Clear cache
+            clearCartCache(userId);
+
+            // Built from this transaction's state, but only cached by the next read after commit
+            return cartMapper.toCartResponse(getCartByUserIdEntity(userId));
+        });
     }
 
     @Override
-    @Transactional
     public CartResponse updateCartItem(UUID userId, UUID itemId, UpdateCartItemRequest request) {
         log.info("Updating cart item {} for user: {}", itemId, userId);
 
-        Cart cart = getCartByUserIdEntity(userId);
-        CartItem cartItem = cartItemRepository.findById(itemId)
-            .orElseThrow(() -> new RuntimeException("Cart item not found"));
+        return retryOnConflict(userId, () -> {
+            Cart cart = getCartByUserIdEntity(userId);
+            CartItem cartItem = cartItemRepository.findById(itemId)
+                .orElseThrow(() -> new RuntimeException("Cart item not found"));
 
-        if (!cartItem.getCart().getId().equals(cart.getId())) {
-            throw new RuntimeException("Cart item does not belong to user");
-        }
+            if (!cartItem.getCart().getId().equals(cart.getId())) {
+                throw new RuntimeException("Cart item does not belong to user");
+            }
 
-        cartItem.setQuantity(request.quantity());
-        cartItem.setTotalPrice(cartItem.getUnitPrice().multiply(BigDecimal.valueOf(request.quantity())));
-        cartItem.setUpdatedAt(LocalDateTime.now());
+            Money previousLineTotal = lineTotal(cart, cartItem);
+            cartItem.setQuantity(request.quantity());
+            cartItem.calculateTotalPrice(currencyOf(cart));
+            cartItem.setUpdatedAt(LocalDateTime.now());
 
-        cartItemRepository.save(cartItem);
+            cartItemRepository.save(cartItem);
 
-        // Update cart total
-        updateCartTotal(cart);
-        cartRepository.save(cart);
+            // Update cart total
+            applyLineDelta(cart, lineTotal(cart, cartItem).minus(previousLineTotal));
+            cartRepository.save(cart);
 
-        // Clear cache
-        clearCartCache(userId);
+            // Clear cache
+            clearCartCache(userId);
 
-        return getCartByUserId(userId);
+            // Built from this transaction's state, but only cached by the next read after commit
+            return cartMapper.toCartResponse(getCartByUserIdEntity(userId));
+        });
     }
 
     @Override
-    @Transactional
     public void removeCartItem(UUID userId, UUID itemId) {
         log.info("Removing cart item {} for user: {}", itemId, userId);
 
-        Cart cart = getCartByUserIdEntity(userId);
-        CartItem cartItem = cartItemRepository.findById(itemId)
-            .orElseThrow(() -> new RuntimeException("Cart item not found"));
+        retryOnConflict(userId, () -> {
+            Cart cart = getCartByUserIdEntity(userId);
+            CartItem cartItem = cartItemRepository.findById(itemId)
+                .orElseThrow(() -> new RuntimeException("Cart item not found"));
 
-        if (!cartItem.getCart().getId().equals(cart.getId())) {
-            throw new RuntimeException("Cart item does not belong to user");
-        }
+            if (!cartItem.getCart().getId().equals(cart.getId())) {
+                throw new RuntimeException("Cart item does not belong to user");
+            }
 
-        cartItemRepository.delete(cartItem);
+            cartItemRepository.delete(cartItem);
 
-        // Update cart total
-        updateCartTotal(cart);
-        cartRepository.save(cart);
+            // Update cart total
+            applyLineDelta(cart, Money.zero(currencyOf(cart)).minus(lineTotal(cart, cartItem)));
+            cartRepository.save(cart);
 
-        // Clear cache
-        clearCartCache(userId);
+            // Clear cache
+            clearCartCache(userId);
+            return null;
+        });
     }
 
     @Override
     public CartResponse getCartByUserId(UUID userId) {
         log.debug("Getting cart for user: {}", userId);
 
-        // Try to get from cache first using switch expression
-        String cacheKey = CART_CACHE_KEY_PREFIX + userId.toString();
-        Object cachedData = redisTemplate.opsForValue().get(cacheKey);
-        
-        return switch (cachedData) {
-            case CartResponse response -> {
-                log.debug("Cart found in cache for user: {}", userId);
-                yield response;
-            }
-            case null, default -> {
-                // Get from database
-                Cart cart = getCartByUserIdEntity(userId);
-                CartResponse response = cartMapper.toCartResponse(cart);
-                
-                // Cache the result
-                redisTemplate.opsForValue().set(cacheKey, response, CART_CACHE_TTL, TimeUnit.HOURS);
-                
-                yield response;
-            }
-        };
+        CartResponseCache.Lookup cached = cartResponseCache.get(userId);
+        if (cached.cart() != null) {
+            log.debug("Cart found in cache for user: {}", userId);
+            return cached.cart();
+        }
+
+        // Get from database and cache the result, unless a change was evicted meanwhile
+        Cart cart = getCartByUserIdEntity(userId);
+        CartResponse response = cartMapper.toCartResponse(cart);
+        cartResponseCache.putIfUnchanged(userId, response, cached.generation());
+        return response;
+    }
+
+    @Override
+    public CartResponse mergeCart(UUID userId, MergeCartRequest request) {
+        Collection<AddCartItemRequest> items = request.itemsByProduct();
+        log.info("Merging {} guest cart lines for user: {}", items.size(), userId);
+
+        // Prices are looked up together, before the transaction starts
+        Map<UUID, Money> prices = productPriceClient.getPrices(items.stream().map(AddCartItemRequest::productId).toList());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Cart cart = getOrCreateCart(userId);
+            List<CartMergeRepository.MergeLine> lines = items.stream()
+                .map(item -> new CartMergeRepository.MergeLine(item.productId(), item.quantity(),
+                    priceInCartCurrency(cart, prices.get(item.productId())), toJson(item.productDetails())))
+                .toList();
+            // A new cart must be written before its lines
+            cartRepository.flush();
+            LocalDateTime now = LocalDateTime.now();
+            cartMergeRepository.mergeLines(cart.getId(), lines, now);
+            cartMergeRepository.recomputeTotal(cart.getId(), now);
+            clearCartCache(userId);
+        });
+
+        // The next read caches the merged cart
+        return cartMapper.toCartResponse(getCartByUserIdEntity(userId));
     }
 
     @Override
@@ -208,22 +262,9 @@ public class CartServiceImpl implements CartService {
     }
 
     @Override
-    @Transactional
     public void cleanupExpiredCarts() {
         log.info("Cleaning up expired carts");
-        
-        List<Cart> expiredCarts = cartRepository.findExpiredCarts(LocalDateTime.now());
-        
-        // Utilize Java 21 Sequenced Collections
-        if (!expiredCarts.isEmpty()) {
-            expiredCarts.forEach(cart -> {
-                cartItemRepository.deleteByCartId(cart.getId());
-                cartRepository.delete(cart);
-                clearCartCache(cart.getUserId());
-            });
-        }
-        
-        log.info("Cleaned up {} expired carts", expiredCarts.size());
+        expiredCartCleanupService.cleanupExpiredCarts();
     }
 
     private Cart getCartByUserIdEntity(UUID userId) {
@@ -231,6 +272,12 @@ public class CartServiceImpl implements CartService {
             .orElseThrow(() -> new RuntimeException("Cart not found for user"));
     }
 
+    private boolean isInCart(UUID userId, UUID productId) {
+        return cartRepository.findByUserIdAndExpiresAtAfter(userId, LocalDateTime.now())
+            .flatMap(cart -> cartItemRepository.findByCartIdAndProductId(cart.getId(), productId))
+            .isPresent();
+    }
+
     private Cart createNewCart(UUID userId) {
         Cart cart = Cart.builder()
             .userId(userId)
@@ -242,15 +289,82 @@ public class CartServiceImpl implements CartService {
         return cartRepository.save(cart);
     }
 
-    private void updateCartTotal(Cart cart) {
-        Double total = cartItemRepository.calculateTotalByCartId(cart.getId());
-        cart.setTotalAmount(total != null ? BigDecimal.valueOf(total) : BigDecimal.ZERO);
+    /**
+     * Run a cart change in its own transaction, retrying it when a concurrent change to the
+     * same cart wins the version check; each attempt re-reads the cart as the winner left it.
+     * A cart still contended after the last attempt answers 409 Conflict.
+     */
+    private <T> T retryOnConflict(UUID userId, Supplier<T> change) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> change.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxConflictAttempts) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "The cart was changed concurrently; please retry", e);
+                }
+                log.debug("Concurrent change to the cart of user {}; retrying (attempt {})", userId, attempt);
+            }
+        }
+    }
+
+    /**
+     * Adjust the cart total by the change of one line
+     * The cart's version makes a concurrent change to the same cart fail instead of being lost;
+     * CartTotalReconciliationJob verifies the totals in bulk.
+     */
+    private void applyLineDelta(Cart cart, Money delta) {
+        Money total = Money.of(cart.getTotalAmount(), currencyOf(cart)).plus(delta);
+        cart.setTotalAmount(total.toBigDecimal());
         cart.setUpdatedAt(LocalDateTime.now());
     }
 
+    /**
+     * Unit price in the cart's currency, rejecting a product priced in another currency
+     * Amounts in different currencies cannot be added up, so mixing them would corrupt the total.
+     */
+    private BigDecimal priceInCartCurrency(Cart cart, Money price) {
+        if (!price.currency().getCurrencyCode().equals(cart.getCurrency())) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Product is priced in " + price.currency().getCurrencyCode() + " but the cart is in " + cart.getCurrency());
+        }
+        return price.toBigDecimal();
+    }
+
+    private Money lineTotal(Cart cart, CartItem cartItem) {
+        return Money.of(cartItem.getTotalPrice(), currencyOf(cart));
+    }
+
+    private Currency currencyOf(Cart cart) {
+        return Currency.getInstance(cart.getCurrency());
+    }
+
+    private String toJson(Map<String, Object> productDetails) {
+        if (productDetails == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(productDetails);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid product details", e);
+        }
+    }
+
+    /**
+     * Evict the cached cart once the change is committed
+     * Evicting earlier would let a concurrent read cache the cart as it was before the change.
+     */
     private void clearCartCache(UUID userId) {
-        String cacheKey = CART_CACHE_KEY_PREFIX + userId.toString();
-        redisTemplate.delete(cacheKey);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cartResponseCache.evict(userId);
+                }
+            });
+        } else {
+            cartResponseCache.evict(userId);
+        }
     }
 
     private void validateInventoryAvailability(List<CartItem> items) {
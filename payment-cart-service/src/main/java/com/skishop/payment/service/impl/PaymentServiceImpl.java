@@ -7,22 +7,30 @@ import com.skishop.payment.repository.PaymentRepository;
 import com.skishop.payment.service.PaymentService;
 import com.skishop.payment.service.CartService;
 import com.skishop.payment.mapper.PaymentMapper;
-import com.stripe.Stripe;
-import com.stripe.exception.StripeException;
-import com.stripe.model.PaymentIntent;
+import com.skishop.payment.service.gateway.GatewayPaymentIntent;
+import com.skishop.payment.service.gateway.PaymentGateway;
+import com.skishop.payment.service.gateway.PaymentGatewayException;
+import com.skishop.payment.service.idempotency.IdempotencyService;
+import com.skishop.payment.service.refund.PaymentRefundRecorder;
+import com.skishop.payment.service.webhook.PaymentWebhookService;
+import com.skishop.payment.util.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
-import jakarta.annotation.PostConstruct;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @Service
@@ -32,65 +40,71 @@ public class PaymentServiceImpl implements PaymentService {
     private final PaymentRepository paymentRepository;
     private final CartService cartService;
     private final PaymentMapper paymentMapper;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyService idempotencyService;
+    private final PaymentWebhookService paymentWebhookService;
+    private final PaymentRefundRecorder paymentRefundRecorder;
 
-    @Value("${stripe.secret-key:sk_test_dummy}")
-    private String stripeSecretKey;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
 
-    @PostConstruct
-    public void init() {
-        Stripe.apiKey = stripeSecretKey;
+    @Override
+    public CompletableFuture<PaymentIntentResponse> createPaymentIntent(UUID userId, CreatePaymentIntentRequest request,
+                                                                        String idempotencyKey) {
+        return idempotencyService.execute("intent", userId, idempotencyKey, request, PaymentIntentResponse.class,
+            () -> doCreatePaymentIntent(userId, request,
+                idempotencyKey != null ? "intent:" + userId + ":" + idempotencyKey : null));
     }
 
-    @Override
-    @Transactional
-    public PaymentIntentResponse createPaymentIntent(UUID userId, CreatePaymentIntentRequest request) {
+    private CompletableFuture<PaymentIntentResponse> doCreatePaymentIntent(UUID userId, CreatePaymentIntentRequest request,
+                                                                           String gatewayIdempotencyKey) {
         log.info("Creating payment intent for user: {} and cart: {}", userId, request.cartId());
 
         // Validate cart
         cartService.validateCartForPayment(request.cartId());
         Cart cart = cartService.getOrCreateCart(userId);
+        long amountMinor = Money.of(cart.getTotalAmount(), request.currency()).minorUnits();
 
-        try {
-            // Create Stripe PaymentIntent
-            Map<String, Object> params = new HashMap<>();
-            params.put("amount", cart.getTotalAmount().multiply(BigDecimal.valueOf(100)).longValue()); // Convert to cents
-            params.put("currency", request.currency().toLowerCase());
-            params.put("payment_method_types", List.of("card"));
-
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
-
-            // Save payment record
-            Payment payment = Payment.builder()
-                .userId(userId)
-                .cartId(request.cartId())
-                .paymentIntentId(paymentIntent.getId())
-                .paymentMethod(request.paymentMethod())
-                .amount(cart.getTotalAmount())
-                .currency(request.currency())
-                .status(Payment.PaymentStatus.PENDING)
-                .gatewayProvider("stripe")
-                .build();
-
-            // Store Stripe response
-            Map<String, Object> gatewayResponse = new HashMap<>();
-            gatewayResponse.put("id", paymentIntent.getId());
-            gatewayResponse.put("client_secret", paymentIntent.getClientSecret());
-            gatewayResponse.put("status", paymentIntent.getStatus());
-            payment.setGatewayResponse(gatewayResponse);
-
-            payment = paymentRepository.save(payment);
-
-            return paymentMapper.toPaymentIntentResponse(payment);
-
-        } catch (StripeException e) {
-            log.error("Failed to create payment intent: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to create payment intent: " + e.getMessage());
-        }
+        // No transaction is open while the processor is called
+        return paymentGateway.createPaymentIntent(amountMinor, request.currency(), gatewayIdempotencyKey)
+            .handle((paymentIntent, error) -> {
+                if (error != null) {
+                    throw gatewayFailure("Failed to create payment intent", error);
+                }
+
+                // Save payment record
+                Payment payment = Payment.builder()
+                    .userId(userId)
+                    .cartId(request.cartId())
+                    .paymentIntentId(paymentIntent.id())
+                    .paymentMethod(request.paymentMethod())
+                    .amount(cart.getTotalAmount())
+                    .currency(request.currency())
+                    .status(Payment.PaymentStatus.PENDING)
+                    .gatewayProvider(paymentGateway.provider())
+                    .build();
+
+                // Store gateway response
+                Map<String, Object> gatewayResponse = new HashMap<>();
+                gatewayResponse.put("id", paymentIntent.id());
+                gatewayResponse.put("client_secret", paymentIntent.clientSecret());
+                gatewayResponse.put("status", paymentIntent.status());
+                payment.setGatewayResponse(gatewayResponse);
+
+                return paymentMapper.toPaymentIntentResponse(paymentRepository.save(payment));
+            });
     }
 
     @Override
-    @Transactional
-    public PaymentResponse processPayment(UUID userId, UUID paymentId, ProcessPaymentRequest request) {
+    public CompletableFuture<PaymentResponse> processPayment(UUID userId, UUID paymentId, ProcessPaymentRequest request,
+                                                             String idempotencyKey) {
+        return idempotencyService.execute("process", userId, idempotencyKey, List.of(paymentId, request),
+            PaymentResponse.class, () -> doProcessPayment(userId, paymentId, request,
+                idempotencyKey != null ? "confirm:" + paymentId + ":" + idempotencyKey : null));
+    }
+
+    private CompletableFuture<PaymentResponse> doProcessPayment(UUID userId, UUID paymentId, ProcessPaymentRequest request,
+                                                                String gatewayIdempotencyKey) {
         log.info("Processing payment: {} for user: {}", paymentId, userId);
 
         Payment payment = getPaymentById(paymentId);
@@ -103,58 +117,19 @@ public class PaymentServiceImpl implements PaymentService {
             throw new RuntimeException("Payment is not in pending status");
         }
 
-        try {
-            // Confirm payment with Stripe
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(payment.getPaymentIntentId());
-            
-            Map<String, Object> confirmParams = new HashMap<>();
-            confirmParams.put("payment_method", request.paymentMethodId());
-            
-            paymentIntent = paymentIntent.confirm(confirmParams);
-
-            // Update payment status based on Stripe response using switch expression
-            Payment.PaymentStatus newStatus = switch (paymentIntent.getStatus()) {
-                case "succeeded" -> {
-                    payment.setCompletedAt(LocalDateTime.now());
-                    yield Payment.PaymentStatus.COMPLETED;
-                }
-                case "requires_action" -> Payment.PaymentStatus.REQUIRES_ACTION;
-                case "canceled" -> Payment.PaymentStatus.CANCELLED;
-                default -> Payment.PaymentStatus.FAILED;
-            };
-
-            payment.setStatus(newStatus);
-            payment.setUpdatedAt(LocalDateTime.now());
-
-            // Update gateway response
-            Map<String, Object> updatedResponse = payment.getGatewayResponse();
-            updatedResponse.put("status", paymentIntent.getStatus());
-            updatedResponse.put("payment_intent_id", paymentIntent.getId());
-            payment.setGatewayResponse(updatedResponse);
+        String paymentIntentId = payment.getPaymentIntentId();
+        return paymentGateway.confirmPaymentIntent(paymentIntentId, request.paymentMethodId(), gatewayIdempotencyKey)
+            .exceptionallyCompose(error -> settleDecline(paymentId, paymentIntentId, error))
+            .thenApply(paymentIntent -> {
+                Payment confirmed = transactionTemplate.execute(status -> recordConfirmation(paymentId, paymentIntent));
 
-            payment = paymentRepository.save(payment);
-
-            // If payment succeeded, clear the cart
-            if (newStatus == Payment.PaymentStatus.COMPLETED) {
-                cartService.clearCart(userId);
-            }
+                // If payment succeeded, clear the cart
+                if (confirmed.getStatus() == Payment.PaymentStatus.COMPLETED) {
+                    cartService.clearCart(userId);
+                }
 
-            return paymentMapper.toPaymentResponse(payment);
-
-        } catch (StripeException e) {
-            log.error("Failed to process payment: {}", e.getMessage(), e);
-            
-            payment.setStatus(Payment.PaymentStatus.FAILED);
-            payment.setUpdatedAt(LocalDateTime.now());
-            
-            Map<String, Object> failureResponse = payment.getGatewayResponse();
-            failureResponse.put("failure_reason", e.getMessage());
-            payment.setGatewayResponse(failureResponse);
-            
-            paymentRepository.save(payment);
-            
-            throw new RuntimeException("Failed to process payment: " + e.getMessage());
-        }
+                return paymentMapper.toPaymentResponse(confirmed);
+            });
     }
 
     @Override
@@ -171,16 +146,29 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
-    public List<PaymentResponse> getPaymentHistory(UUID userId) {
+    public PaymentHistoryResponse getPaymentHistory(UUID userId, String cursor, int limit) {
         log.debug("Getting payment history for user: {}", userId);
-        
-        List<Payment> payments = paymentRepository.findByUserId(userId);
-        return paymentMapper.toPaymentResponseList(payments);
+
+        int pageSize = Math.clamp(limit, 1, MAX_HISTORY_PAGE_SIZE);
+        // One extra row tells whether another page follows
+        List<PaymentRepository.PaymentSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = paymentRepository.findHistoryPage(userId, pageSize + 1);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            rows = paymentRepository.findHistoryPageAfter(userId, after.createdAt(), after.id(), pageSize + 1);
+        }
+
+        List<PaymentRepository.PaymentSummary> page = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+        String nextCursor = rows.size() > pageSize ? HistoryCursor.of(page.getLast()).encode() : null;
+        return PaymentHistoryResponse.builder()
+            .payments(page.stream().map(paymentMapper::toPaymentSummaryResponse).toList())
+            .nextCursor(nextCursor)
+            .build();
     }
 
     @Override
-    @Transactional
-    public PaymentResponse processRefund(UUID userId, UUID paymentId, RefundRequest request) {
+    public CompletableFuture<PaymentResponse> processRefund(UUID userId, UUID paymentId, RefundRequest request) {
         log.info("Processing refund for payment: {} and user: {}", paymentId, userId);
 
         Payment payment = getPaymentById(paymentId);
@@ -189,50 +177,32 @@ public class PaymentServiceImpl implements PaymentService {
             throw new RuntimeException("Payment does not belong to user");
         }
 
-        if (payment.getStatus() != Payment.PaymentStatus.COMPLETED) {
+        if (payment.getStatus() != Payment.PaymentStatus.COMPLETED
+                && payment.getStatus() != Payment.PaymentStatus.PARTIALLY_REFUNDED) {
             throw new RuntimeException("Only completed payments can be refunded");
         }
 
-        try {
-            // Process refund with Stripe
-            Map<String, Object> refundParams = new HashMap<>();
-            refundParams.put("payment_intent", payment.getPaymentIntentId());
-            refundParams.put("amount", request.amount().multiply(BigDecimal.valueOf(100)).longValue());
-            
-            if (request.reason() != null) {
-                refundParams.put("reason", request.reason());
-            }
-
-            com.stripe.model.Refund refund = com.stripe.model.Refund.create(refundParams);
-
-            // Update payment status
-            payment.setStatus(Payment.PaymentStatus.REFUNDED);
-            payment.setUpdatedAt(LocalDateTime.now());
-
-            // Update gateway response with refund info
-            Map<String, Object> updatedResponse = payment.getGatewayResponse();
-            updatedResponse.put("refund_id", refund.getId());
-            updatedResponse.put("refund_status", refund.getStatus());
-            updatedResponse.put("refund_amount", refund.getAmount());
-            payment.setGatewayResponse(updatedResponse);
-
-            payment = paymentRepository.save(payment);
-
-            return paymentMapper.toPaymentResponse(payment);
+        long amountMinor = Money.of(request.amount(), payment.getCurrency()).minorUnits();
+        return paymentGateway.createRefund(payment.getPaymentIntentId(), amountMinor, request.reason(), null)
+            .handle((refund, error) -> {
+                if (error != null) {
+                    throw gatewayFailure("Failed to process refund", error);
+                }
+                if (!paymentRefundRecorder.isAccepted(refund)) {
+                    throw new RuntimeException("Failed to process refund: refund is " + refund.status());
+                }
 
-        } catch (StripeException e) {
-            log.error("Failed to process refund: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to process refund: " + e.getMessage());
-        }
+                Payment refunded = transactionTemplate.execute(status -> paymentRefundRecorder.record(paymentId, refund));
+                return paymentMapper.toPaymentResponse(refunded);
+            });
     }
 
     @Override
     public void handlePaymentWebhook(String payload, String signature) {
-        log.info("Handling payment webhook");
-        
-        // This would implement Stripe webhook validation and processing
-        // For now, just log the event
-        log.debug("Webhook payload: {}", payload);
+        log.debug("Handling payment webhook");
+
+        // Status changes are applied asynchronously in batches
+        paymentWebhookService.receive(payload, signature);
     }
 
     @Override
@@ -265,4 +235,118 @@ public class PaymentServiceImpl implements PaymentService {
         
         paymentRepository.save(payment);
     }
+
+    private Payment recordConfirmation(UUID paymentId, GatewayPaymentIntent paymentIntent) {
+        Payment payment = getPaymentById(paymentId);
+
+        // Update payment status based on gateway response using switch expression
+        // An intent the processor is still working on stays pending until its webhook arrives
+        Payment.PaymentStatus newStatus = switch (paymentIntent.status()) {
+            case "succeeded" -> {
+                payment.setCompletedAt(LocalDateTime.now());
+                yield Payment.PaymentStatus.COMPLETED;
+            }
+            case "requires_action" -> Payment.PaymentStatus.REQUIRES_ACTION;
+            case "canceled" -> Payment.PaymentStatus.CANCELLED;
+            case "requires_payment_method" -> Payment.PaymentStatus.FAILED;
+            default -> Payment.PaymentStatus.PENDING;
+        };
+
+        payment.setStatus(newStatus);
+        payment.setUpdatedAt(LocalDateTime.now());
+
+        // Update gateway response
+        Map<String, Object> updatedResponse = gatewayResponseOf(payment);
+        updatedResponse.put("status", paymentIntent.status());
+        updatedResponse.put("payment_intent_id", paymentIntent.id());
+        payment.setGatewayResponse(updatedResponse);
+
+        return paymentRepository.save(payment);
+    }
+
+    /**
+     * Settle a failed confirmation against the intent's current state
+     * A decline only answers this attempt, and an earlier attempt may already have succeeded, so
+     * the payment is marked failed only while its intent still needs a payment method. Any other
+     * state is returned to be recorded as the confirmation; other failures leave the payment as is.
+     */
+    private CompletableFuture<GatewayPaymentIntent> settleDecline(UUID paymentId, String paymentIntentId,
+                                                                  Throwable error) {
+        PaymentGatewayException failure = unwrap(error);
+        if (failure == null || !failure.isDeclined()) {
+            return CompletableFuture.failedFuture(gatewayFailure("Failed to process payment", error));
+        }
+        return paymentGateway.retrievePaymentIntent(paymentIntentId)
+            .exceptionallyCompose(lookupError ->
+                CompletableFuture.failedFuture(gatewayFailure("Failed to process payment", error)))
+            .thenCompose(current -> {
+                if (!"requires_payment_method".equals(current.status())) {
+                    log.warn("Confirmation of payment {} was declined but its intent is {}", paymentId, current.status());
+                    return CompletableFuture.completedFuture(current);
+                }
+                transactionTemplate.executeWithoutResult(status -> recordFailure(paymentId, failure.getMessage()));
+                return CompletableFuture.failedFuture(gatewayFailure("Failed to process payment", error));
+            });
+    }
+
+    private void recordFailure(UUID paymentId, String reason) {
+        Payment payment = getPaymentById(paymentId);
+        payment.setStatus(Payment.PaymentStatus.FAILED);
+        payment.setUpdatedAt(LocalDateTime.now());
+
+        Map<String, Object> failureResponse = gatewayResponseOf(payment);
+        failureResponse.put("failure_reason", reason);
+        payment.setGatewayResponse(failureResponse);
+
+        paymentRepository.save(payment);
+    }
+
+    private static Map<String, Object> gatewayResponseOf(Payment payment) {
+        return payment.getGatewayResponse() != null ? new HashMap<>(payment.getGatewayResponse()) : new HashMap<>();
+    }
+
+    private static PaymentGatewayException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof PaymentGatewayException failure ? failure : null;
+    }
+
+    /**
+     * Declines fail the request as before; a processor that is busy, slow or unreachable
+     * answers 503 so that clients back off and retry
+     */
+    private static RuntimeException gatewayFailure(String message, Throwable error) {
+        PaymentGatewayException failure = unwrap(error);
+        if (failure == null) {
+            return new RuntimeException(message + ": " + error.getMessage(), error);
+        }
+        log.error("{}: {}", message, failure.getMessage());
+        if (failure.isDeclined()) {
+            return new RuntimeException(message + ": " + failure.getMessage(), failure);
+        }
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, message + ": " + failure.getMessage(), failure);
+    }
+
+    /**
+     * Position in a user's payment history; opaque to clients
+     */
+    private record HistoryCursor(LocalDateTime createdAt, UUID id) {
+
+        static HistoryCursor of(PaymentRepository.PaymentSummary payment) {
+            return new HistoryCursor(payment.getCreatedAt(), payment.getId());
+        }
+
+        static HistoryCursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                return new HistoryCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid payment history cursor");
+            }
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+    }
 }
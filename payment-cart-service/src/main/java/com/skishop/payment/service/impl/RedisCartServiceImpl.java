@@ -0,0 +1,307 @@
+package com.skishop.payment.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.payment.dto.*;
+import com.skishop.payment.entity.Cart;
+import com.skishop.payment.entity.CartItem;
+import com.skishop.payment.repository.CartItemRepository;
+import com.skishop.payment.repository.CartRepository;
+import com.skishop.payment.repository.jdbc.CartSnapshot;
+import com.skishop.payment.repository.jdbc.CartWriteBehindRepository;
+import com.skishop.payment.service.CartService;
+import com.skishop.payment.service.cart.CartWriteBehindFlusher;
+import com.skishop.payment.service.cart.ExpiredCartCleanupService;
+import com.skishop.payment.service.cart.RedisCartStore;
+import com.skishop.payment.service.price.ProductPriceClient;
+import com.skishop.payment.util.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Cart service backed by the Redis live cart store
+ * Cart reads and mutations are one Redis call each; the database copy is written behind
+ * by {@link CartWriteBehindFlusher}. A cart missing from Redis is loaded from the
+ * database on first use. Payment paths flush the cart first so that they see its
+ * current contents in the database.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "redis")
+public class RedisCartServiceImpl implements CartService {
+
+    private final RedisCartStore redisCartStore;
+    private final CartWriteBehindFlusher cartWriteBehindFlusher;
+    private final CartWriteBehindRepository cartWriteBehindRepository;
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductPriceClient productPriceClient;
+    private final ExpiredCartCleanupService expiredCartCleanupService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.cart.ttl-days:7}")
+    private long ttlDays;
+
+    @Override
+    public CartResponse addItemToCart(UUID userId, AddCartItemRequest request) {
+        log.info("Adding item to cart for user: {}", userId);
+
+        CartSnapshot current = liveCart(userId);
+        // A product already in the cart keeps the price it was added at, without a lookup
+        long unitPrice = current.lines().stream()
+            .filter(line -> line.productId().equals(request.productId()))
+            .mapToLong(CartSnapshot.Line::unitPriceMinor)
+            .findFirst()
+            .orElseGet(() -> priceInCartCurrency(current, productPriceClient.getPrice(request.productId())));
+        String productDetails = toJson(request.productDetails());
+        CartSnapshot cart = mutate(userId, true, () -> redisCartStore.addItem(
+            userId, request.productId(), request.quantity(), unitPrice, productDetails));
+        return toCartResponse(cart);
+    }
+
+    @Override
+    public CartResponse updateCartItem(UUID userId, UUID itemId, UpdateCartItemRequest request) {
+        log.info("Updating cart item {} for user: {}", itemId, userId);
+
+        CartSnapshot cart = mutate(userId, false, () -> redisCartStore.updateItem(userId, itemId, request.quantity()));
+        return toCartResponse(cart);
+    }
+
+    @Override
+    public void removeCartItem(UUID userId, UUID itemId) {
+        log.info("Removing cart item {} for user: {}", itemId, userId);
+
+        mutate(userId, false, () -> redisCartStore.removeItem(userId, itemId));
+    }
+
+    @Override
+    public CartResponse getCartByUserId(UUID userId) {
+        log.debug("Getting cart for user: {}", userId);
+
+        CartSnapshot cart = redisCartStore.get(userId);
+        if (cart == null) {
+            cart = loadCart(userId, false);
+        }
+        return toCartResponse(cart);
+    }
+
+    @Override
+    public CartResponse mergeCart(UUID userId, MergeCartRequest request) {
+        Collection<AddCartItemRequest> items = request.itemsByProduct();
+        log.info("Merging {} guest cart lines for user: {}", items.size(), userId);
+
+        Map<UUID, Money> prices = productPriceClient.getPrices(items.stream().map(AddCartItemRequest::productId).toList());
+        CartSnapshot current = liveCart(userId);
+        List<RedisCartStore.NewLine> lines = items.stream()
+            .map(item -> new RedisCartStore.NewLine(item.productId(), item.quantity(),
+                priceInCartCurrency(current, prices.get(item.productId())), toJson(item.productDetails())))
+            .toList();
+        return toCartResponse(mutate(userId, true, () -> redisCartStore.addItems(userId, lines)));
+    }
+
+    @Override
+    public void clearCart(UUID userId) {
+        log.info("Clearing cart for user: {}", userId);
+
+        mutate(userId, false, () -> redisCartStore.clear(userId));
+    }
+
+    @Override
+    @Transactional
+    public Cart getOrCreateCart(UUID userId) {
+        CartSnapshot cart = redisCartStore.get(userId);
+        if (cart == null) {
+            cart = loadCart(userId, true);
+        }
+        cartWriteBehindFlusher.flush(List.of(userId));
+        return cartRepository.findById(cart.id())
+            .orElseThrow(() -> new RuntimeException("Cart not found"));
+    }
+
+    @Override
+    @Transactional
+    public void validateCartForPayment(UUID cartId) {
+        redisCartStore.findOwner(cartId)
+            .ifPresent(userId -> cartWriteBehindFlusher.flush(List.of(userId)));
+
+        Cart cart = cartRepository.findById(cartId)
+            .orElseThrow(() -> new RuntimeException("Cart not found"));
+
+        if (cart.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("Cart has expired");
+        }
+
+        List<CartItem> items = cartItemRepository.findByCartId(cartId);
+        if (items.isEmpty()) {
+            throw new RuntimeException("Cart is empty");
+        }
+
+        // Validate inventory availability (would call inventory service)
+        log.info("Validating inventory availability for {} items", items.size());
+    }
+
+    /**
+     * Expire a cart
+     * The live cart is taken out of Redis in one step before its last changes are written,
+     * so no change can land in between; it is put back if the transaction rolls back.
+     */
+    @Override
+    @Transactional
+    public void expireCart(UUID cartId) {
+        redisCartStore.findOwner(cartId)
+            .map(userId -> redisCartStore.take(userId, cartId))
+            .ifPresent(this::writeTakenCart);
+
+        Cart cart = cartRepository.findById(cartId)
+            .orElseThrow(() -> new RuntimeException("Cart not found"));
+
+        cart.setExpiresAt(LocalDateTime.now());
+        cartRepository.save(cart);
+    }
+
+    @Override
+    public void cleanupExpiredCarts() {
+        log.info("Cleaning up expired carts");
+        // Live carts expire from Redis on their own at the same time
+        expiredCartCleanupService.cleanupExpiredCarts();
+    }
+
+    private void writeTakenCart(CartSnapshot cart) {
+        cartWriteBehindRepository.upsert(List.of(cart));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED && !redisCartStore.restore(cart)) {
+                    log.warn("Could not put back live cart {} after rollback; user {} has a newer one",
+                        cart.id(), cart.userId());
+                }
+            }
+        });
+    }
+
+    /**
+     * The user's live cart, loading or starting it when it is not in Redis
+     */
+    private CartSnapshot liveCart(UUID userId) {
+        CartSnapshot cart = redisCartStore.get(userId);
+        return cart != null ? cart : loadCart(userId, true);
+    }
+
+    /**
+     * Unit price in minor units, rejecting a product priced in another currency than the cart
+     * Minor units of different currencies are not comparable, so mixing them would corrupt the total.
+     */
+    private static long priceInCartCurrency(CartSnapshot cart, Money price) {
+        if (!price.currency().getCurrencyCode().equals(cart.currency())) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Product is priced in " + price.currency().getCurrencyCode() + " but the cart is in " + cart.currency());
+        }
+        return price.minorUnits();
+    }
+
+    /**
+     * Run a store mutation, loading the cart into Redis first if it is not live
+     */
+    private CartSnapshot mutate(UUID userId, boolean createIfMissing, Supplier<CartSnapshot> mutation) {
+        CartSnapshot cart = mutation.get();
+        if (cart == null) {
+            loadCart(userId, createIfMissing);
+            cart = mutation.get();
+        }
+        if (cart == null) {
+            throw new IllegalStateException("Live cart for user " + userId + " disappeared while loading");
+        }
+        return cart;
+    }
+
+    /**
+     * Load the user's cart from the database into Redis, or start a new one
+     * A new cart reaches the database with its first flush
+     */
+    private CartSnapshot loadCart(UUID userId, boolean createIfMissing) {
+        LocalDateTime now = LocalDateTime.now();
+        CartSnapshot cart = cartWriteBehindRepository.findActiveByUserId(userId, now)
+            .orElseGet(() -> {
+                if (!createIfMissing) {
+                    throw new RuntimeException("Cart not found for user");
+                }
+                return new CartSnapshot(UUID.randomUUID(), userId, Money.DEFAULT_CURRENCY.getCurrencyCode(), 0,
+                    now, now, now.plusDays(ttlDays), 0, List.of());
+            });
+
+        if (!redisCartStore.load(cart)) {
+            // Loaded concurrently by another request; theirs is the live one
+            CartSnapshot live = redisCartStore.get(userId);
+            return live != null ? live : cart;
+        }
+        return cart;
+    }
+
+    private CartResponse toCartResponse(CartSnapshot cart) {
+        Currency currency = Currency.getInstance(cart.currency());
+        List<CartItemResponse> items = cart.lines().stream()
+            .map(line -> CartItemResponse.builder()
+                .id(line.id())
+                .productId(line.productId())
+                .quantity(line.quantity())
+                .unitPrice(Money.ofMinor(line.unitPriceMinor(), currency).toBigDecimal())
+                .totalPrice(Money.ofMinor(line.totalPriceMinor(), currency).toBigDecimal())
+                .productDetails(fromJson(line.productDetailsJson()))
+                .createdAt(line.createdAt())
+                .updatedAt(line.updatedAt())
+                .build())
+            .toList();
+
+        return CartResponse.builder()
+            .id(cart.id())
+            .userId(cart.userId())
+            .items(items)
+            .totalAmount(Money.ofMinor(cart.totalMinor(), currency).toBigDecimal())
+            .currency(cart.currency())
+            .itemCount(items.size())
+            .createdAt(cart.createdAt())
+            .updatedAt(cart.updatedAt())
+            .expiresAt(cart.expiresAt())
+            .build();
+    }
+
+    private String toJson(Map<String, Object> productDetails) {
+        if (productDetails == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(productDetails);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid product details", e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String productDetails) {
+        if (productDetails == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(productDetails, new TypeReference<>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid stored product details", e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.skishop.payment.service.price;
+
+import java.math.BigDecimal;
+
+/**
+ * The part of the inventory service product representation that carts need
+ */
+record InventoryProductResponse(String id, Price price) {
+
+    record Price(BigDecimal currentPrice, String currencyCode) {
+    }
+}
@@ -0,0 +1,316 @@
+package com.skishop.payment.service.price;
+
+import com.skishop.payment.util.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Product price client
+ * Looks up current prices from the inventory service. Concurrent lookups are collected for
+ * a short window and sent as one call to /api/products/batch, with at most one lookup in
+ * flight per product. Prices are cached locally: a fresh price is returned as is, a stale
+ * one is returned at once while it is refreshed in the background, and only a product
+ * with no usable price waits for the inventory service.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductPriceClient {
+
+    private static final String LOOKUP_COUNTER = "cart.price.lookups";
+
+    private static final ParameterizedTypeReference<List<InventoryProductResponse>> PRODUCT_LIST =
+        new ParameterizedTypeReference<>() {};
+
+    private final RestClient inventoryRestClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.price.fresh-ttl-ms:30000}")
+    private long freshTtlMs;
+
+    @Value("${app.price.max-stale-ms:600000}")
+    private long maxStaleMs;
+
+    @Value("${app.price.max-entries:50000}")
+    private int maxEntries;
+
+    @Value("${app.price.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.price.batch-window-ms:2}")
+    private long batchWindowMs;
+
+    @Value("${app.price.max-concurrent-requests:4}")
+    private int maxConcurrentRequests;
+
+    @Value("${app.price.lookup-timeout-ms:500}")
+    private long lookupTimeoutMs;
+
+    private final Map<UUID, CachedPrice> cache = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<Money>> pending = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<UUID> queue = new LinkedBlockingQueue<>();
+    private Semaphore requestPermits;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    private Counter fresh;
+    private Counter stale;
+    private Counter miss;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void start() {
+        requestPermits = new Semaphore(maxConcurrentRequests);
+
+        Gauge.builder("cart.price.cache.size", cache, Map::size)
+            .description("Product prices cached locally")
+            .register(meterRegistry);
+        fresh = lookupCounter("fresh");
+        stale = lookupCounter("stale");
+        miss = lookupCounter("miss");
+        batchTimer = Timer.builder("cart.price.batch")
+            .description("Batched price lookups against the inventory service")
+            .register(meterRegistry);
+
+        running = true;
+        dispatcher = Thread.ofVirtual().name("price-lookup-dispatcher").start(this::dispatchLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(lookupTimeoutMs);
+    }
+
+    /**
+     * Current unit price of a product
+     * Throws when the product is unknown or inactive, or when no price is cached and the
+     * inventory service does not answer within the lookup timeout. A timed-out lookup keeps
+     * running and caches its price, so the caller's retry is usually served from the cache.
+     */
+    public Money getPrice(UUID productId) {
+        Money cached = cachedPrice(productId);
+        if (cached != null) {
+            return cached;
+        }
+        miss.increment();
+        return await(productId, request(productId), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lookupTimeoutMs));
+    }
+
+    /**
+     * Current unit prices of several products
+     * All uncached products are requested at once, so they share as few inventory calls as
+     * the batch size allows. Throws like {@link #getPrice(UUID)} if any product has no price.
+     */
+    public Map<UUID, Money> getPrices(Collection<UUID> productIds) {
+        Map<UUID, Money> prices = new HashMap<>(productIds.size());
+        Map<UUID, CompletableFuture<Money>> lookups = new HashMap<>();
+        for (UUID productId : productIds) {
+            Money cached = cachedPrice(productId);
+            if (cached != null) {
+                prices.put(productId, cached);
+            } else if (!lookups.containsKey(productId)) {
+                miss.increment();
+                lookups.put(productId, request(productId));
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lookupTimeoutMs);
+        lookups.forEach((productId, lookup) -> prices.put(productId, await(productId, lookup, deadline)));
+        return prices;
+    }
+
+    /**
+     * Cached price that is still usable, refreshing it in the background when stale
+     */
+    private Money cachedPrice(UUID productId) {
+        CachedPrice cached = cache.get(productId);
+        if (cached == null) {
+            return null;
+        }
+        long ageMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - cached.fetchedAt());
+        if (ageMs < freshTtlMs) {
+            fresh.increment();
+            return cached.price();
+        }
+        if (ageMs < maxStaleMs) {
+            stale.increment();
+            request(productId);
+            return cached.price();
+        }
+        return null;
+    }
+
+    private Money await(UUID productId, CompletableFuture<Money> lookup, long deadline) {
+        try {
+            return lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Price lookup timed out for product " + productId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Price lookup failed for product " + productId, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Price lookup interrupted for product " + productId);
+        }
+    }
+
+    private CompletableFuture<Money> request(UUID productId) {
+        CompletableFuture<Money> created = new CompletableFuture<>();
+        CompletableFuture<Money> existing = pending.putIfAbsent(productId, created);
+        if (existing != null) {
+            return existing;
+        }
+        queue.add(productId);
+        return created;
+    }
+
+    private void dispatchLoop() {
+        List<UUID> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                UUID first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Give concurrent lookups a moment to join the same call
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+                while (batch.size() < batchSize) {
+                    UUID next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // Bounded so that a slow inventory service cannot pile up requests
+                requestPermits.acquire();
+                List<UUID> productIds = List.copyOf(batch);
+                Thread.ofVirtual().name("price-lookup").start(() -> {
+                    try {
+                        fetch(productIds);
+                    } finally {
+                        requestPermits.release();
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in price lookup dispatcher", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fetch(List<UUID> productIds) {
+        Map<UUID, Money> prices = new HashMap<>(productIds.size());
+        try {
+            List<InventoryProductResponse> products = batchTimer.recordCallable(() -> inventoryRestClient.post()
+                .uri("/api/products/batch")
+                .body(productIds.stream().map(UUID::toString).toList())
+                .retrieve()
+                .body(PRODUCT_LIST));
+            if (products != null) {
+                for (InventoryProductResponse product : products) {
+                    if (product.price() != null && product.price().currentPrice() != null) {
+                        String currencyCode = product.price().currencyCode() != null
+                            ? product.price().currencyCode()
+                            : Money.DEFAULT_CURRENCY.getCurrencyCode();
+                        prices.put(UUID.fromString(product.id()), Money.of(product.price().currentPrice(), currencyCode));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Stale prices stay usable until they exceed the maximum staleness
+            log.warn("Price lookup for {} products failed: {}", productIds.size(), e.toString());
+            productIds.forEach(productId -> complete(productId,
+                null, new RuntimeException("Price lookup failed for product " + productId, e)));
+            return;
+        }
+
+        long fetchedAt = System.nanoTime();
+        for (UUID productId : productIds) {
+            Money price = prices.get(productId);
+            if (price != null) {
+                cache.put(productId, new CachedPrice(price, fetchedAt));
+                complete(productId, price, null);
+            } else {
+                cache.remove(productId);
+                complete(productId, null, new RuntimeException("Product not found or inactive: " + productId));
+            }
+        }
+        evictIfFull();
+    }
+
+    private void complete(UUID productId, Money price, RuntimeException error) {
+        CompletableFuture<Money> future = pending.remove(productId);
+        if (future == null) {
+            return;
+        }
+        if (error == null) {
+            future.complete(price);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Drop entries past their maximum staleness, then arbitrary ones, until the cache fits
+     */
+    private void evictIfFull() {
+        if (cache.size() <= maxEntries) {
+            return;
+        }
+        long now = System.nanoTime();
+        cache.values().removeIf(cached -> TimeUnit.NANOSECONDS.toMillis(now - cached.fetchedAt()) >= maxStaleMs);
+        Iterator<UUID> iterator = cache.keySet().iterator();
+        while (cache.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private Counter lookupCounter(String result) {
+        return Counter.builder(LOOKUP_COUNTER)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private record CachedPrice(Money price, long fetchedAt) {
+    }
+}
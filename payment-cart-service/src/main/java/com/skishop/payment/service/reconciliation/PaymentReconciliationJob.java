@@ -0,0 +1,298 @@
+package com.skishop.payment.service.reconciliation;
+
+import com.skishop.payment.entity.Payment;
+import com.skishop.payment.repository.jdbc.PaymentReconciliationRepository;
+import com.skishop.payment.repository.jdbc.PaymentReconciliationRepository.Discrepancy;
+import com.skishop.payment.repository.jdbc.PaymentReconciliationRepository.PaymentRow;
+import com.skishop.payment.repository.jdbc.PaymentReconciliationRepository.Run;
+import com.skishop.payment.service.gateway.GatewayPaymentIntent;
+import com.skishop.payment.service.gateway.GatewayRateLimiter;
+import com.skishop.payment.service.gateway.PaymentGateway;
+import com.skishop.payment.service.gateway.PaymentGatewayException;
+import com.skishop.payment.util.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Payment reconciliation job
+ * Compares payments with the gateway's record of their intents, one creation time range per
+ * run. Payments are streamed through a cursor one segment at a time, so no read stays open
+ * for the whole run, and checked in batches: each payment's intent is fetched on a virtual
+ * thread, with a concurrency cap kept well below the checkout bulkhead and an even rate
+ * limit for the gateway's read quota. A batch's discrepancies and the run's checkpoint are
+ * committed together, so an interrupted or failed run resumes after its last batch.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.payment.reconciliation.enabled", havingValue = "true")
+public class PaymentReconciliationJob {
+
+    enum DiscrepancyType {
+        STATUS_MISMATCH,
+        AMOUNT_MISMATCH,
+        CURRENCY_MISMATCH,
+        MISSING_AT_GATEWAY,
+        /** The gateway could not be asked; the payment is neither confirmed nor contradicted */
+        UNVERIFIED
+    }
+
+    /** Local statuses consistent with each gateway intent status */
+    private static final Map<String, Set<Payment.PaymentStatus>> CONSISTENT_STATUSES = Map.of(
+        "succeeded", EnumSet.of(Payment.PaymentStatus.COMPLETED, Payment.PaymentStatus.REFUNDED,
+            Payment.PaymentStatus.PARTIALLY_REFUNDED),
+        "canceled", EnumSet.of(Payment.PaymentStatus.CANCELLED, Payment.PaymentStatus.FAILED),
+        "processing", EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.CONFIRMED),
+        "requires_capture", EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.CONFIRMED),
+        "requires_action", EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.REQUIRES_ACTION),
+        "requires_confirmation", EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.FAILED),
+        "requires_payment_method", EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.FAILED)
+    );
+
+    private final PaymentReconciliationRepository paymentReconciliationRepository;
+    private final PaymentGateway paymentGateway;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.payment.reconciliation.segment-size:20000}")
+    private int segmentSize;
+
+    @Value("${app.payment.reconciliation.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.payment.reconciliation.max-concurrent-calls:8}")
+    private int maxConcurrentCalls;
+
+    @Value("${app.payment.reconciliation.calls-per-second:80}")
+    private double callsPerSecond;
+
+    @Value("${app.payment.reconciliation.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.payment.reconciliation.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    private TransactionTemplate readTemplate;
+    private TransactionTemplate batchTemplate;
+    private Counter checked;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void init() {
+        readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setReadOnly(true);
+        // Batches commit while the segment's cursor is still open
+        batchTemplate = new TransactionTemplate(transactionManager);
+        batchTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        checked = Counter.builder("payment.reconciliation.checked").register(meterRegistry);
+        batchTimer = Timer.builder("payment.reconciliation.batch").register(meterRegistry);
+    }
+
+    /**
+     * Reconcile yesterday's payments, then any earlier run that did not complete
+     */
+    @Scheduled(cron = "${app.payment.reconciliation.cron:0 0 2 * * *}")
+    public void reconcileNightly() {
+        try {
+            LocalDateTime today = LocalDate.now().atStartOfDay();
+            paymentReconciliationRepository.findOrCreateRun(today.minusDays(1), today);
+            for (Run run : paymentReconciliationRepository.findUnfinishedRuns(staleAfter())) {
+                reconcile(run);
+            }
+        } catch (Exception e) {
+            log.error("Payment reconciliation error", e);
+        }
+    }
+
+    /**
+     * Reconcile payments created in [from, to), resuming an earlier run of the same range
+     */
+    public void reconcile(LocalDateTime from, LocalDateTime to) {
+        reconcile(paymentReconciliationRepository.findOrCreateRun(from, to));
+    }
+
+    private void reconcile(Run unclaimed) {
+        Optional<Run> claimed = paymentReconciliationRepository.claim(unclaimed.id(), staleAfter());
+        if (claimed.isEmpty()) {
+            log.info("Payment reconciliation of {} to {} is completed or running elsewhere",
+                unclaimed.rangeStart(), unclaimed.rangeEnd());
+            return;
+        }
+
+        Run run = claimed.get();
+        log.info("Payment reconciliation of {} to {} started after checkpoint {}",
+            run.rangeStart(), run.rangeEnd(), run.checkpointPaymentId());
+        GatewayRateLimiter rateLimiter = new GatewayRateLimiter(callsPerSecond);
+        Semaphore callPermits = new Semaphore(maxConcurrentCalls);
+        long total = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                Run from = run;
+                Segment segment = readTemplate.execute(status -> reconcileSegment(from, executor, rateLimiter, callPermits));
+                if (segment == null || segment.last() == null) {
+                    break;
+                }
+                total += segment.count();
+                log.info("Payment reconciliation of {} to {}: {} payments checked",
+                    run.rangeStart(), run.rangeEnd(), total);
+                if (segment.count() < segmentSize) {
+                    break;
+                }
+                run = new Run(run.id(), run.rangeStart(), run.rangeEnd(), run.status(),
+                    segment.last().createdAt(), segment.last().id());
+            }
+            paymentReconciliationRepository.finish(run.id(), PaymentReconciliationRepository.RunStatus.COMPLETED);
+            log.info("Payment reconciliation of {} to {} completed", run.rangeStart(), run.rangeEnd());
+        } catch (Exception e) {
+            paymentReconciliationRepository.finish(run.id(), PaymentReconciliationRepository.RunStatus.FAILED);
+            log.error("Payment reconciliation of {} to {} failed; it resumes on the next run",
+                run.rangeStart(), run.rangeEnd(), e);
+        }
+    }
+
+    private Segment reconcileSegment(Run run, ExecutorService executor, GatewayRateLimiter rateLimiter,
+                                     Semaphore callPermits) {
+        List<PaymentRow> batch = new ArrayList<>(batchSize);
+        PaymentRow[] last = {null};
+        int count = paymentReconciliationRepository.streamPayments(run, segmentSize, payment -> {
+            batch.add(payment);
+            last[0] = payment;
+            if (batch.size() == batchSize) {
+                reconcileBatch(run, batch, executor, rateLimiter, callPermits);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            reconcileBatch(run, batch, executor, rateLimiter, callPermits);
+        }
+        return new Segment(count, last[0]);
+    }
+
+    private void reconcileBatch(Run run, List<PaymentRow> batch, ExecutorService executor,
+                                GatewayRateLimiter rateLimiter, Semaphore callPermits) {
+        batchTimer.record(() -> {
+            List<CompletableFuture<List<Discrepancy>>> checks = batch.stream()
+                .map(payment -> CompletableFuture.supplyAsync(() -> check(payment, rateLimiter, callPermits), executor))
+                .toList();
+            List<Discrepancy> discrepancies = checks.stream()
+                .flatMap(check -> check.join().stream())
+                .toList();
+
+            batchTemplate.executeWithoutResult(status ->
+                paymentReconciliationRepository.recordBatch(run.id(), batch.getLast(), batch.size(), discrepancies));
+            checked.increment(batch.size());
+            discrepancies.forEach(discrepancy ->
+                meterRegistry.counter("payment.reconciliation.discrepancies",
+                    "type", discrepancy.type().toLowerCase(Locale.ROOT)).increment());
+        });
+    }
+
+    private List<Discrepancy> check(PaymentRow payment, GatewayRateLimiter rateLimiter, Semaphore callPermits) {
+        GatewayPaymentIntent intent;
+        try {
+            intent = retrieve(payment.paymentIntentId(), rateLimiter, callPermits);
+        } catch (PaymentGatewayException e) {
+            if (e.getReason() == PaymentGatewayException.Reason.NOT_FOUND) {
+                return List.of(discrepancy(payment, DiscrepancyType.MISSING_AT_GATEWAY, payment.status(), null));
+            }
+            return List.of(discrepancy(payment, DiscrepancyType.UNVERIFIED, payment.status(), e.getReason().name()));
+        }
+
+        List<Discrepancy> discrepancies = new ArrayList<>(1);
+        // A missing or unknown local status matches no gateway status
+        Set<Payment.PaymentStatus> consistent = CONSISTENT_STATUSES.getOrDefault(intent.status(), Set.of());
+        if (consistent.stream().noneMatch(status -> status.name().equals(payment.status()))) {
+            discrepancies.add(discrepancy(payment, DiscrepancyType.STATUS_MISMATCH, payment.status(), intent.status()));
+        }
+        if (payment.currency() == null || !payment.currency().equalsIgnoreCase(intent.currency())) {
+            discrepancies.add(discrepancy(payment, DiscrepancyType.CURRENCY_MISMATCH, payment.currency(), intent.currency()));
+        } else {
+            long amountMinor = Money.of(payment.amount(), payment.currency().toUpperCase(Locale.ROOT)).minorUnits();
+            if (amountMinor != intent.amountMinor()) {
+                discrepancies.add(discrepancy(payment, DiscrepancyType.AMOUNT_MISMATCH,
+                    String.valueOf(amountMinor), String.valueOf(intent.amountMinor())));
+            }
+        }
+        return discrepancies;
+    }
+
+    /**
+     * Fetch an intent, retrying calls that were rejected or whose outcome is unknown
+     */
+    private GatewayPaymentIntent retrieve(String paymentIntentId, GatewayRateLimiter rateLimiter,
+                                          Semaphore callPermits) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                rateLimiter.acquire();
+                callPermits.acquire();
+                try {
+                    return paymentGateway.retrievePaymentIntent(paymentIntentId).join();
+                } finally {
+                    callPermits.release();
+                }
+            } catch (CompletionException e) {
+                PaymentGatewayException failure = e.getCause() instanceof PaymentGatewayException gatewayException
+                    ? gatewayException
+                    : new PaymentGatewayException(String.valueOf(e.getCause()), PaymentGatewayException.Reason.UNAVAILABLE, e);
+                if (failure.getReason() == PaymentGatewayException.Reason.NOT_FOUND
+                    || failure.getReason() == PaymentGatewayException.Reason.DECLINED
+                    || attempt >= maxAttempts) {
+                    throw failure;
+                }
+                backOff(attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Payment reconciliation interrupted", e);
+            }
+        }
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(200L * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Payment reconciliation interrupted", e);
+        }
+    }
+
+    private static Discrepancy discrepancy(PaymentRow payment, DiscrepancyType type, String localValue,
+                                           String gatewayValue) {
+        return new Discrepancy(payment.id(), payment.paymentIntentId(), type.name(), localValue, gatewayValue);
+    }
+
+    private Duration staleAfter() {
+        return Duration.ofMinutes(staleAfterMinutes);
+    }
+
+    private record Segment(int count, PaymentRow last) {
+    }
+}
@@ -0,0 +1,236 @@
+package com.skishop.payment.service.refund;
+
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository.ItemStatus;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository.Job;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository.Outcome;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository.PendingItem;
+import com.skishop.payment.service.gateway.GatewayRateLimiter;
+import com.skishop.payment.service.gateway.GatewayRefund;
+import com.skishop.payment.service.gateway.PaymentGateway;
+import com.skishop.payment.service.gateway.PaymentGatewayException;
+import com.skishop.payment.util.Money;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bulk refund processor
+ * Works through bulk refund jobs one batch of items at a time. Refunds of a batch run in
+ * parallel on virtual threads, capped by a concurrency limit below the checkout bulkhead
+ * and by the active gateway's refund rate limit. Each batch's outcomes commit in one
+ * transaction, which is the job's checkpoint: a job left by a stopped or crashed instance
+ * is resumed by the next poll on any instance. Refunds are keyed by job and payment, so a
+ * batch repeated after a crash gets the gateway's original refund instead of a second one,
+ * while a later job can retry a payment whose refund failed. Payments made through another
+ * provider than the active gateway are skipped, since that gateway does not know them. The
+ * rate limit applies per instance, and each instance works on one job at a time.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.payment.bulk-refund.enabled", havingValue = "true")
+public class BulkRefundProcessor {
+
+    /** The only refund reason every processor accepts; the job keeps the real one */
+    private static final String GATEWAY_REASON = "requested_by_customer";
+
+    private static final int MAX_FAILURE_REASON_LENGTH = 500;
+
+    /** Sorts before every UUID, to start a job's first batch */
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final PaymentRefundJobRepository paymentRefundJobRepository;
+    private final PaymentGateway paymentGateway;
+    private final PaymentRefundRecorder paymentRefundRecorder;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.payment.bulk-refund.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.payment.bulk-refund.max-concurrent-calls:8}")
+    private int maxConcurrentCalls;
+
+    /** Per instance: the gateway sees this times the number of instances running jobs */
+    @Value("${app.payment.bulk-refund.calls-per-second.${app.payment.gateway.provider:stripe}:20}")
+    private double callsPerSecond;
+
+    @Value("${app.payment.bulk-refund.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.payment.bulk-refund.stale-after-minutes:10}")
+    private long staleAfterMinutes;
+
+    private volatile boolean running;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void init() {
+        running = true;
+        batchTimer = Timer.builder("payment.refund.bulk.batch")
+            .description("Batches of bulk refund items refunded and recorded")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        // The current batch finishes and its job is handed back for another instance
+        running = false;
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.bulk-refund.poll-interval-ms:5000}")
+    public void processJobs() {
+        try {
+            Duration staleAfter = Duration.ofMinutes(staleAfterMinutes);
+            Optional<Job> job;
+            while (running && (job = paymentRefundJobRepository.claimNext(staleAfter)).isPresent()) {
+                process(job.get());
+            }
+        } catch (Exception e) {
+            log.error("Bulk refund polling error", e);
+        }
+    }
+
+    private void process(Job job) {
+        log.info("Bulk refund job {} started: {} payments, {} already settled", job.id(), job.totalCount(),
+            job.succeededCount() + job.submittedCount() + job.failedCount() + job.skippedCount());
+        GatewayRateLimiter rateLimiter = new GatewayRateLimiter(callsPerSecond);
+        Semaphore callPermits = new Semaphore(maxConcurrentCalls);
+        long startedNanos = System.nanoTime();
+        int settled = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            UUID after = FIRST_ID;
+            while (true) {
+                if (!running) {
+                    paymentRefundJobRepository.release(job.id());
+                    log.info("Bulk refund job {} handed back at shutdown after {} payments", job.id(), settled);
+                    return;
+                }
+                List<PendingItem> items = paymentRefundJobRepository.findPendingItems(job.id(), after, batchSize);
+                if (items.isEmpty()) {
+                    break;
+                }
+                batchTimer.record(() -> refundBatch(job, items, executor, rateLimiter, callPermits));
+                after = items.getLast().paymentId();
+                settled += items.size();
+
+                double seconds = (System.nanoTime() - startedNanos) / 1e9;
+                log.info("Bulk refund job {}: {} payments settled, {}/s", job.id(), settled,
+                    String.format(Locale.ROOT, "%.1f", settled / seconds));
+            }
+            paymentRefundJobRepository.complete(job.id());
+            log.info("Bulk refund job {} completed", job.id());
+        } catch (Exception e) {
+            paymentRefundJobRepository.release(job.id());
+            log.error("Bulk refund job {} interrupted; it resumes on the next poll", job.id(), e);
+        }
+    }
+
+    private void refundBatch(Job job, List<PendingItem> items, ExecutorService executor,
+                             GatewayRateLimiter rateLimiter, Semaphore callPermits) {
+        List<CompletableFuture<Outcome>> refunds = items.stream()
+            .map(item -> CompletableFuture.supplyAsync(() -> refund(job, item, rateLimiter, callPermits), executor))
+            .toList();
+        List<Outcome> outcomes = refunds.stream().map(CompletableFuture::join).toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            outcomes.stream()
+                .filter(outcome -> outcome.status() == ItemStatus.SUCCEEDED || outcome.status() == ItemStatus.SUBMITTED)
+                .forEach(outcome -> paymentRefundRecorder.record(outcome.paymentId(),
+                    new GatewayRefund(outcome.refundId(), outcome.refundStatus(), outcome.refundAmountMinor())));
+            paymentRefundJobRepository.recordOutcomes(job.id(), outcomes);
+        });
+        outcomes.forEach(outcome -> meterRegistry.counter("payment.refund.bulk.items",
+            "outcome", outcome.status().name().toLowerCase(Locale.ROOT)).increment());
+    }
+
+    private Outcome refund(Job job, PendingItem item, GatewayRateLimiter rateLimiter, Semaphore callPermits) {
+        if (item.paymentStatus() == null) {
+            return skipped(item, "Payment not found");
+        }
+        if (!"COMPLETED".equals(item.paymentStatus())) {
+            return skipped(item, "Payment is " + item.paymentStatus());
+        }
+        if (!paymentGateway.provider().equals(item.gatewayProvider())) {
+            return skipped(item, "Payment was made through " + item.gatewayProvider() + ", not " + paymentGateway.provider());
+        }
+
+        long amountMinor = Money.of(item.amount(), item.currency()).minorUnits();
+        // One full refund per payment and job, however often the job's batch is repeated
+        String idempotencyKey = "bulk-refund:" + job.id() + ":" + item.paymentId();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                GatewayRefund refund = call(rateLimiter, callPermits, () ->
+                    paymentGateway.createRefund(item.paymentIntentId(), amountMinor, GATEWAY_REASON, idempotencyKey));
+                ItemStatus status = !paymentRefundRecorder.isAccepted(refund) ? ItemStatus.FAILED
+                    : paymentRefundRecorder.isPending(refund) ? ItemStatus.SUBMITTED
+                    : ItemStatus.SUCCEEDED;
+                return new Outcome(item.paymentId(), status, refund.id(), refund.status(), refund.amountMinor(),
+                    status == ItemStatus.FAILED ? "Refund is " + refund.status() : null);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                boolean declined = cause instanceof PaymentGatewayException failure && failure.isDeclined();
+                if (declined || attempt >= maxAttempts) {
+                    return new Outcome(item.paymentId(), ItemStatus.FAILED, null, null, null,
+                        truncate(String.valueOf(cause.getMessage())));
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    private static <T> T call(GatewayRateLimiter rateLimiter, Semaphore callPermits,
+                              Supplier<CompletableFuture<T>> request) {
+        try {
+            rateLimiter.acquire();
+            callPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk refund interrupted", e);
+        }
+        try {
+            return request.get().join();
+        } finally {
+            callPermits.release();
+        }
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(500L * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk refund interrupted", e);
+        }
+    }
+
+    private static Outcome skipped(PendingItem item, String reason) {
+        return new Outcome(item.paymentId(), ItemStatus.SKIPPED, null, null, null, reason);
+    }
+
+    private static String truncate(String message) {
+        return message.length() > MAX_FAILURE_REASON_LENGTH ? message.substring(0, MAX_FAILURE_REASON_LENGTH) : message;
+    }
+}
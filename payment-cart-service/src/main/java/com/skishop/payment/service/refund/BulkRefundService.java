@@ -0,0 +1,104 @@
+package com.skishop.payment.service.refund;
+
+import com.skishop.payment.dto.BulkRefundItemResponse;
+import com.skishop.payment.dto.BulkRefundJobResponse;
+import com.skishop.payment.dto.BulkRefundRequest;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Bulk refund service
+ * Records a bulk refund as a job with one item per payment and returns at once; the
+ * {@link BulkRefundProcessor} refunds the items in the background.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkRefundService {
+
+    private static final int MAX_UNSUCCESSFUL_ITEMS = 100;
+
+    private final PaymentRefundJobRepository paymentRefundJobRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.payment.bulk-refund.max-items:100000}")
+    private int maxItems;
+
+    public BulkRefundJobResponse createJob(String requestedBy, BulkRefundRequest request) {
+        boolean listed = request.paymentIds() != null && !request.paymentIds().isEmpty();
+        if (listed == request.selectsByCreationTime()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Either paymentIds or createdFrom and createdTo must be given");
+        }
+        if (!listed && (request.createdFrom() == null || request.createdTo() == null
+            || !request.createdFrom().isBefore(request.createdTo()))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "createdFrom must be before createdTo");
+        }
+
+        UUID jobId = transactionTemplate.execute(status -> {
+            UUID id = paymentRefundJobRepository.createJob(request.reason(), requestedBy);
+            int total = listed
+                ? paymentRefundJobRepository.addPayments(id, request.paymentIds())
+                : paymentRefundJobRepository.addCompletedPaymentsCreatedBetween(id, request.createdFrom(), request.createdTo());
+            if (total > maxItems) {
+                // Rolls back the job
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "The request selects " + total + " payments; at most " + maxItems + " can be refunded in one job");
+            }
+            return id;
+        });
+
+        log.info("Bulk refund job {} created by {}", jobId, requestedBy);
+        return getJob(jobId);
+    }
+
+    public BulkRefundJobResponse getJob(UUID jobId) {
+        PaymentRefundJobRepository.Job job = paymentRefundJobRepository.findJob(jobId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bulk refund job not found"));
+
+        return BulkRefundJobResponse.builder()
+            .jobId(job.id())
+            .status(job.status().name())
+            .reason(job.reason())
+            .requestedBy(job.requestedBy())
+            .totalCount(job.totalCount())
+            .succeededCount(job.succeededCount())
+            .submittedCount(job.submittedCount())
+            .failedCount(job.failedCount())
+            .skippedCount(job.skippedCount())
+            .throughputPerSecond(throughput(job))
+            .createdAt(job.createdAt())
+            .startedAt(job.startedAt())
+            .updatedAt(job.updatedAt())
+            .completedAt(job.completedAt())
+            .unsuccessfulItems(paymentRefundJobRepository.findUnsuccessfulItems(jobId, MAX_UNSUCCESSFUL_ITEMS).stream()
+                .map(item -> BulkRefundItemResponse.builder()
+                    .paymentId(item.paymentId())
+                    .status(item.status().name())
+                    .failureReason(item.failureReason())
+                    .processedAt(item.processedAt())
+                    .build())
+                .toList())
+            .build();
+    }
+
+    private static Double throughput(PaymentRefundJobRepository.Job job) {
+        if (job.startedAt() == null) {
+            return null;
+        }
+        LocalDateTime end = job.completedAt() != null ? job.completedAt() : LocalDateTime.now();
+        long millis = Duration.between(job.startedAt(), end).toMillis();
+        int settled = job.succeededCount() + job.submittedCount() + job.failedCount() + job.skippedCount();
+        return millis > 0 ? settled * 1000.0 / millis : null;
+    }
+}
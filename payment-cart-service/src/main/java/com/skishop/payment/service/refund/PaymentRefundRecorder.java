@@ -0,0 +1,78 @@
+package com.skishop.payment.service.refund;
+
+import com.skishop.payment.entity.Payment;
+import com.skishop.payment.repository.PaymentRepository;
+import com.skishop.payment.service.gateway.GatewayRefund;
+import com.skishop.payment.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Payment refund recorder
+ * Writes a processor refund to its payment, for single and bulk refunds alike. Only a
+ * refund the processor accepted counts: a failed, canceled or action-requiring one leaves
+ * the payment as it was. A succeeded refund adds to the refunded amount, and the payment
+ * is refunded once that reaches its total, partially refunded before. A pending refund is
+ * noted but leaves the status alone until the processor's refund webhook settles it.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentRefundRecorder {
+
+    private static final String SUCCEEDED = "succeeded";
+    private static final String PENDING = "pending";
+    private static final Set<String> ACCEPTED_STATUSES = Set.of(SUCCEEDED, PENDING);
+
+    private final PaymentRepository paymentRepository;
+
+    public boolean isAccepted(GatewayRefund refund) {
+        return ACCEPTED_STATUSES.contains(refund.status());
+    }
+
+    /**
+     * The processor accepted the refund but has not settled it yet
+     */
+    public boolean isPending(GatewayRefund refund) {
+        return PENDING.equals(refund.status());
+    }
+
+    /**
+     * Record an accepted refund on its payment; must run in a transaction
+     * Recording the same refund again changes nothing.
+     */
+    public Payment record(UUID paymentId, GatewayRefund refund) {
+        Payment payment = paymentRepository.findById(paymentId)
+            .orElseThrow(() -> new RuntimeException("Payment not found"));
+
+        Map<String, Object> updatedResponse = payment.getGatewayResponse() != null
+            ? new HashMap<>(payment.getGatewayResponse())
+            : new HashMap<>();
+        boolean alreadyCounted = refund.id().equals(updatedResponse.get("refund_id"))
+            && SUCCEEDED.equals(updatedResponse.get("refund_status"));
+        if (SUCCEEDED.equals(refund.status()) && !alreadyCounted) {
+            Money refundedBefore = Money.of(payment.getRefundedAmount(), payment.getCurrency());
+            BigDecimal refunded = refundedBefore.plus(Money.ofMinor(refund.amountMinor(), refundedBefore.currency()))
+                .toBigDecimal();
+            payment.setRefundedAmount(refunded);
+            payment.setStatus(refunded.compareTo(payment.getAmount()) >= 0
+                ? Payment.PaymentStatus.REFUNDED
+                : Payment.PaymentStatus.PARTIALLY_REFUNDED);
+        }
+        payment.setUpdatedAt(LocalDateTime.now());
+
+        // Update gateway response with refund info
+        updatedResponse.put("refund_id", refund.id());
+        updatedResponse.put("refund_status", refund.status());
+        updatedResponse.put("refund_amount", refund.amountMinor());
+        payment.setGatewayResponse(updatedResponse);
+
+        return paymentRepository.save(payment);
+    }
+}
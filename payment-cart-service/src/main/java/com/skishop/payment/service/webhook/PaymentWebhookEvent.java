@@ -0,0 +1,22 @@
+package com.skishop.payment.service.webhook;
+
+import com.skishop.payment.entity.Payment;
+
+/**
+ * Verified webhook event that changes the status of a payment
+ *
+ * @param id Gateway event ID
+ * @param type Gateway event type
+ * @param created Creation time in epoch seconds, for ordering within a batch
+ * @param paymentIntentId Payment intent the event refers to
+ * @param status Status the event moves the payment to
+ * @param failureReason Failure reason reported by the gateway, if any
+ */
+record PaymentWebhookEvent(
+    String id,
+    String type,
+    long created,
+    String paymentIntentId,
+    Payment.PaymentStatus status,
+    String failureReason
+) {}
@@ -0,0 +1,400 @@
+package com.skishop.payment.service.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.payment.entity.Payment;
+import com.skishop.payment.repository.PaymentRepository;
+import com.skishop.payment.repository.jdbc.PaymentWebhookEventRepository;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Payment webhook service
+ * The request thread verifies the signature, drops events it has already seen and stores
+ * the rest in an inbox table before the gateway is acknowledged; if the event cannot be
+ * stored the gateway is told to retry later. A single background thread applies queued
+ * events in batches, one transaction per batch, marking them processed in the same
+ * transaction so that a redelivered event is applied once even across restarts and
+ * instances. A failed batch is retried event by event, and events left pending by a
+ * failure, a full queue or a restart are picked up by a periodic poll of the inbox.
+ * An event whose payment is not stored yet stays pending too, since the gateway can send
+ * it before checkout has saved the payment. After max-attempts failed or unmatched tries
+ * an event is dead: it is logged, kept for follow-up and purged with processed events.
+ * Status changes only move a payment forward, so late or out-of-order events cannot undo
+ * a newer state.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentWebhookService {
+
+    private static final String EVENT_COUNTER = "payment.webhook.events";
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentWebhookEventRepository paymentWebhookEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.webhook-secret}")
+    private String webhookSecret;
+
+    @Value("${app.payment.webhook.signature-tolerance-seconds:300}")
+    private long signatureToleranceSeconds;
+
+    @Value("${app.payment.webhook.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.payment.webhook.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.payment.webhook.batch-window-ms:50}")
+    private long batchWindowMs;
+
+    @Value("${app.payment.webhook.seen-cache-size:100000}")
+    private int seenCacheSize;
+
+    @Value("${app.payment.webhook.retry-after-seconds:60}")
+    private long retryAfterSeconds;
+
+    @Value("${app.payment.webhook.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.payment.webhook.retention-days:30}")
+    private long retentionDays;
+
+    private BlockingQueue<String> queue;
+    private Map<String, Boolean> seen;
+    private Thread worker;
+    private volatile boolean running;
+
+    private Timer batchTimer;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        seen = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > seenCacheSize;
+            }
+        });
+
+        Gauge.builder("payment.webhook.queue.size", queue, BlockingQueue::size)
+            .description("Webhook events waiting to be applied")
+            .register(meterRegistry);
+        batchTimer = Timer.builder("payment.webhook.batch")
+            .description("Batches of webhook events applied to payments")
+            .register(meterRegistry);
+
+        running = true;
+        worker = Thread.ofVirtual().name("payment-webhook-worker").start(this::workLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        if (!queue.isEmpty()) {
+            log.info("{} stored webhook events are left for the retry poll", queue.size());
+        }
+    }
+
+    /**
+     * Verify, store and enqueue a webhook
+     * Throws with 400 on an invalid signature or payload, and with 503 when the event cannot be stored.
+     */
+    public void receive(String payload, String signature) {
+        try {
+            Webhook.Signature.verifyHeader(payload, signature, webhookSecret, signatureToleranceSeconds);
+        } catch (SignatureVerificationException e) {
+            count("invalid");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid webhook signature");
+        }
+
+        PaymentWebhookEvent event = parse(payload);
+        if (event == null) {
+            count("ignored");
+            return;
+        }
+        if (seen.putIfAbsent(event.id(), Boolean.TRUE) != null) {
+            count("duplicate");
+            return;
+        }
+
+        boolean stored;
+        try {
+            stored = paymentWebhookEventRepository.store(new PaymentWebhookEventRepository.StoredEvent(event.id(),
+                event.type(), event.created(), event.paymentIntentId(), event.status().name(), event.failureReason()));
+        } catch (DataAccessException e) {
+            seen.remove(event.id());
+            count("rejected");
+            log.error("Failed to store webhook event: eventId={}", event.id(), e);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Webhook event could not be stored");
+        }
+        if (!stored) {
+            count("duplicate");
+            return;
+        }
+        // A stored event that does not fit in the queue is applied by the retry poll
+        count(queue.offer(event.id()) ? "accepted" : "deferred");
+    }
+
+    /**
+     * Apply stored events that are still pending: left by a failed batch, a full queue or a restart
+     */
+    @Scheduled(fixedDelayString = "${app.payment.webhook.retry-interval-ms:30000}")
+    public void applyPendingEvents() {
+        try {
+            List<String> eventIds = paymentWebhookEventRepository.findPendingIds(
+                LocalDateTime.now().minusSeconds(retryAfterSeconds), batchSize);
+            if (!eventIds.isEmpty()) {
+                log.info("Retrying {} pending webhook events", eventIds.size());
+                applyWithRetry(eventIds);
+            }
+        } catch (Exception e) {
+            log.error("Pending webhook event retry error", e);
+        }
+    }
+
+    @Scheduled(cron = "${app.payment.webhook.purge-cron:0 15 4 * * *}")
+    public void purgeOldEvents() {
+        try {
+            int deleted = paymentWebhookEventRepository.deleteSettledBefore(LocalDateTime.now().minusDays(retentionDays));
+            log.info("Purged {} webhook events older than {} days", deleted, retentionDays);
+        } catch (Exception e) {
+            log.error("Webhook event purge error", e);
+        }
+    }
+
+    /**
+     * Event that changes a payment's status, or null for event types this service does not handle
+     */
+    private PaymentWebhookEvent parse(String payload) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid webhook payload");
+        }
+        String type = root.path("type").asText();
+        JsonNode object = root.path("data").path("object");
+
+        Payment.PaymentStatus status = switch (type) {
+            case "payment_intent.succeeded" -> Payment.PaymentStatus.COMPLETED;
+            case "payment_intent.payment_failed" -> Payment.PaymentStatus.FAILED;
+            case "payment_intent.canceled" -> Payment.PaymentStatus.CANCELLED;
+            case "payment_intent.requires_action" -> Payment.PaymentStatus.REQUIRES_ACTION;
+            case "charge.refunded" -> object.path("refunded").asBoolean()
+                ? Payment.PaymentStatus.REFUNDED
+                : Payment.PaymentStatus.PARTIALLY_REFUNDED;
+            default -> null;
+        };
+        if (status == null) {
+            return null;
+        }
+
+        String paymentIntentId = type.startsWith("charge.")
+            ? object.path("payment_intent").asText(null)
+            : object.path("id").asText(null);
+        if (root.path("id").asText(null) == null || paymentIntentId == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid webhook payload");
+        }
+        return new PaymentWebhookEvent(root.path("id").asText(), type, root.path("created").asLong(),
+            paymentIntentId, status, object.path("last_payment_error").path("message").asText(null));
+    }
+
+    private void workLoop() {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                String first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Let a burst fill the batch before opening the transaction
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+                while (batch.size() < batchSize) {
+                    String next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                applyWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Apply a batch, and when it fails apply its events one by one so that a single bad
+     * event does not hold back the rest; events that still fail stay pending in the inbox
+     */
+    private void applyWithRetry(List<String> eventIds) {
+        try {
+            batchTimer.record(() -> applyBatch(eventIds));
+            return;
+        } catch (Exception e) {
+            log.warn("Failed to apply {} webhook events, retrying one by one", eventIds.size(), e);
+        }
+        for (String eventId : eventIds) {
+            try {
+                applyBatch(List.of(eventId));
+            } catch (Exception e) {
+                log.error("Failed to apply webhook event: eventId={}", eventId, e);
+                count("failed");
+                try {
+                    recordFailedAttempts(List.of(eventId));
+                } catch (DataAccessException recordError) {
+                    log.warn("Failed to record webhook event attempt: eventId={}", eventId, recordError);
+                }
+            }
+        }
+    }
+
+    private void applyBatch(List<String> eventIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Events already applied, or being applied by another instance, are not claimed
+            List<PaymentWebhookEvent> events = paymentWebhookEventRepository.claim(eventIds).stream()
+                .map(PaymentWebhookService::toEvent)
+                .collect(Collectors.toCollection(ArrayList::new));
+            if (events.isEmpty()) {
+                return;
+            }
+
+            Map<String, Payment> payments = paymentRepository.findByPaymentIntentIdIn(
+                    events.stream().map(PaymentWebhookEvent::paymentIntentId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Payment::getPaymentIntentId, Function.identity()));
+
+            Map<String, Integer> outcomes = new HashMap<>();
+            List<String> processed = new ArrayList<>();
+            List<String> unmatched = new ArrayList<>();
+            events.sort(Comparator.comparingLong(PaymentWebhookEvent::created));
+            for (PaymentWebhookEvent event : events) {
+                Payment payment = payments.get(event.paymentIntentId());
+                if (payment == null) {
+                    // The payment may not be saved yet; the retry poll tries again
+                    unmatched.add(event.id());
+                    continue;
+                }
+                outcomes.merge(apply(payment, event) ? "applied" : "stale", 1, Integer::sum);
+                processed.add(event.id());
+            }
+            if (!processed.isEmpty()) {
+                paymentWebhookEventRepository.markProcessed(processed);
+            }
+            if (!unmatched.isEmpty()) {
+                outcomes.put("unmatched", unmatched.size());
+                recordFailedAttempts(unmatched);
+            }
+            // Changed payments are written when the transaction commits
+            outcomes.forEach(this::count);
+        });
+    }
+
+    private void recordFailedAttempts(List<String> eventIds) {
+        List<String> dead = paymentWebhookEventRepository.recordFailedAttempts(eventIds, maxAttempts);
+        if (!dead.isEmpty()) {
+            log.error("Giving up on webhook events after {} attempts: eventIds={}", maxAttempts, dead);
+            count("dead", dead.size());
+        }
+    }
+
+    private static PaymentWebhookEvent toEvent(PaymentWebhookEventRepository.StoredEvent stored) {
+        return new PaymentWebhookEvent(stored.id(), stored.type(), stored.created(), stored.paymentIntentId(),
+            Payment.PaymentStatus.valueOf(stored.targetStatus()), stored.failureReason());
+    }
+
+    private static boolean apply(Payment payment, PaymentWebhookEvent event) {
+        if (!canMove(payment.getStatus(), event.status())) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        payment.setStatus(event.status());
+        payment.setUpdatedAt(now);
+        if (event.status() == Payment.PaymentStatus.COMPLETED) {
+            payment.setCompletedAt(now);
+        }
+        if (event.failureReason() != null) {
+            payment.setFailureReason(event.failureReason());
+        }
+
+        Map<String, Object> gatewayResponse = payment.getGatewayResponse() != null
+            ? new HashMap<>(payment.getGatewayResponse())
+            : new HashMap<>();
+        gatewayResponse.put("webhook_event_id", event.id());
+        gatewayResponse.put("webhook_event_type", event.type());
+        payment.setGatewayResponse(gatewayResponse);
+        return true;
+    }
+
+    /**
+     * Whether a payment may move between two statuses; payments never move backwards
+     */
+    private static boolean canMove(Payment.PaymentStatus from, Payment.PaymentStatus to) {
+        return switch (to) {
+            case REQUIRES_ACTION -> from == Payment.PaymentStatus.PENDING
+                || from == Payment.PaymentStatus.CONFIRMED;
+            case FAILED -> from == Payment.PaymentStatus.PENDING
+                || from == Payment.PaymentStatus.CONFIRMED
+                || from == Payment.PaymentStatus.REQUIRES_ACTION;
+            // A failed attempt can still be retried and succeed, or be canceled
+            case COMPLETED, CANCELLED -> from == Payment.PaymentStatus.PENDING
+                || from == Payment.PaymentStatus.CONFIRMED
+                || from == Payment.PaymentStatus.REQUIRES_ACTION
+                || from == Payment.PaymentStatus.FAILED;
+            case PARTIALLY_REFUNDED -> from == Payment.PaymentStatus.COMPLETED;
+            case REFUNDED -> from == Payment.PaymentStatus.COMPLETED || from == Payment.PaymentStatus.PARTIALLY_REFUNDED;
+            default -> false;
+        };
+    }
+
+    private void count(String outcome) {
+        count(outcome, 1);
+    }
+
+    private void count(String outcome, int amount) {
+        if (amount > 0) {
+            meterRegistry.counter(EVENT_COUNTER, "outcome", outcome).increment(amount);
+        }
+    }
+}
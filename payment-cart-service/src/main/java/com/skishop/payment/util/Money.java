@@ -0,0 +1,136 @@
+package com.skishop.payment.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Money value type
+ * Amount held as a long of minor units (e.g. yen for JPY, cents for USD) so that
+ * pricing arithmetic stays allocation-light and exact. Conversions from BigDecimal
+ * and rate calculations round HALF_UP to the currency's fraction digits.
+ */
+public record Money(long minorUnits, Currency currency) implements Comparable<Money> {
+
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("JPY");
+
+    private static final long BASIS_POINTS = 10_000L;
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L};
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0L, currency);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * Create from a whole amount in major units (e.g. 800 JPY, 8 USD)
+     */
+    public static Money ofMajor(long majorUnits, Currency currency) {
+        return new Money(Math.multiplyExact(majorUnits, scaleFactor(currency)), currency);
+    }
+
+    /**
+     * Create from a decimal amount, rounding to the currency's fraction digits
+     */
+    public static Money of(BigDecimal amount, Currency currency) {
+        if (amount == null) {
+            return zero(currency);
+        }
+        long minorUnits = amount.setScale(fractionDigits(currency), RoundingMode.HALF_UP)
+                .unscaledValue()
+                .longValueExact();
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money of(BigDecimal amount, String currencyCode) {
+        return of(amount, currencyCode != null ? Currency.getInstance(currencyCode) : DEFAULT_CURRENCY);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    /**
+     * Apply a rate given in basis points (1000 = 10%), rounding HALF_UP to minor units
+     */
+    public Money percentOf(long basisPoints) {
+        return new Money(divideHalfUp(Math.multiplyExact(minorUnits, basisPoints), BASIS_POINTS), currency);
+    }
+
+    public Money max(Money other) {
+        return compareTo(other) >= 0 ? this : other;
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0L;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0L;
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    /**
+     * Convert to BigDecimal with the currency's scale, for persistence and DTOs
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException(
+                    "Currency mismatch: " + currency.getCurrencyCode() + " and " + other.currency.getCurrencyCode());
+        }
+    }
+
+    private static int fractionDigits(Currency currency) {
+        // Pseudo-currencies report -1
+        return Math.max(currency.getDefaultFractionDigits(), 0);
+    }
+
+    private static long scaleFactor(Currency currency) {
+        return POWERS_OF_TEN[fractionDigits(currency)];
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+}
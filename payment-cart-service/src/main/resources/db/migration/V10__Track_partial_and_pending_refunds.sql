@@ -0,0 +1,8 @@
+-- Refunds add up per payment, so a partial refund no longer marks the payment fully
+-- refunded. Constant defaults keep these column additions metadata-only.
+ALTER TABLE payments
+    ADD COLUMN refunded_amount DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN failure_reason VARCHAR(500);
+
+-- Bulk refunds the processor accepted but had not settled; their webhook settles the payment
+ALTER TABLE payment_refund_jobs ADD COLUMN submitted_count INTEGER NOT NULL DEFAULT 0;
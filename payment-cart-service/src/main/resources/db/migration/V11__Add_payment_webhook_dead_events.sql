@@ -0,0 +1,3 @@
+-- An event that keeps failing, or whose payment never appears, stops being retried once it
+-- reaches the attempt limit; dead events are kept for follow-up and purged with the rest
+ALTER TABLE payment_webhook_events ADD COLUMN dead_at TIMESTAMP;
@@ -0,0 +1,4 @@
+-- Version of the Redis live cart last written to the carts table by the write-behind flusher.
+-- Flushes only overwrite a cart with a newer version, so retried or concurrent flushes
+-- never roll a cart back to an older state.
+ALTER TABLE carts ADD COLUMN flushed_version BIGINT NOT NULL DEFAULT 0;
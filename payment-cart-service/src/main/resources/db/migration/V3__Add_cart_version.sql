@@ -0,0 +1,3 @@
+-- Optimistic lock version of a cart. The cart total is maintained incrementally from line
+-- changes, so concurrent changes to the same cart must not overwrite each other's total.
+ALTER TABLE carts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,2 @@
+-- Expired cart cleanup skips carts that a payment refers to; index the reference
+CREATE INDEX IF NOT EXISTS idx_payments_cart_id ON payments(cart_id);
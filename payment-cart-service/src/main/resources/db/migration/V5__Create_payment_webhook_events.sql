@@ -0,0 +1,9 @@
+-- Payment webhook events already applied; gateways redeliver events, so each is applied once
+CREATE TABLE payment_webhook_events (
+    event_id VARCHAR(255) PRIMARY KEY,
+    event_type VARCHAR(100) NOT NULL,
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Old events are purged by age
+CREATE INDEX idx_payment_webhook_events_received_at ON payment_webhook_events(received_at);
@@ -0,0 +1,10 @@
+-- Payment history pages are read newest first per user, by keyset on (created_at, id).
+-- The summary columns are included so that a page is an index-only scan that never
+-- touches the gateway_response payloads. Built and dropped concurrently, outside a
+-- transaction, so that checkout keeps writing payments meanwhile; a build that fails
+-- leaves an invalid index to drop before the migration is run again.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payments_user_history ON payments(user_id, created_at DESC, id DESC)
+    INCLUDE (status, amount, currency, payment_method, completed_at);
+
+-- Every user_id lookup can use the new index
+DROP INDEX CONCURRENTLY IF EXISTS idx_payments_user_id;
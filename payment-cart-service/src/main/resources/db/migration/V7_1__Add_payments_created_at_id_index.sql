@@ -0,0 +1,6 @@
+-- Runs walk payments in (created_at, id) order and resume by keyset; this replaces the
+-- created_at index. Built and dropped concurrently, outside a transaction, so that
+-- checkout keeps writing payments while the index is built. A build that fails leaves
+-- an invalid index behind; drop it before the migration is repaired and run again.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payments_created_at_id ON payments(created_at, id);
+DROP INDEX CONCURRENTLY IF EXISTS idx_payments_created_at;
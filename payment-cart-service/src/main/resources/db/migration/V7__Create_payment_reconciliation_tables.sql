@@ -0,0 +1,33 @@
+-- One reconciliation run per payment creation time range; the checkpoint lets a failed
+-- or interrupted run resume after the last batch it finished
+CREATE TABLE payment_reconciliation_runs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    range_start TIMESTAMP NOT NULL,
+    range_end TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    checkpoint_created_at TIMESTAMP,
+    checkpoint_payment_id UUID,
+    checked_count BIGINT NOT NULL DEFAULT 0,
+    discrepancy_count BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP,
+    UNIQUE (range_start, range_end)
+);
+
+-- Differences between a payment and the gateway's record of it
+CREATE TABLE payment_reconciliation_discrepancies (
+    id BIGSERIAL PRIMARY KEY,
+    run_id UUID NOT NULL,
+    payment_id UUID NOT NULL,
+    payment_intent_id VARCHAR(255) NOT NULL,
+    discrepancy_type VARCHAR(30) NOT NULL,
+    local_value VARCHAR(255),
+    gateway_value VARCHAR(255),
+    detected_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_discrepancy_run FOREIGN KEY (run_id) REFERENCES payment_reconciliation_runs(id) ON DELETE CASCADE,
+    -- A batch repeated after a resume does not record its discrepancies twice
+    UNIQUE (run_id, payment_id, discrepancy_type)
+);
+
+-- The (created_at, id) index that runs walk is built concurrently by V7_1
@@ -0,0 +1,33 @@
+-- Bulk refund jobs; the item rows are the checkpoint, so a job interrupted by a restart
+-- resumes with the payments it has not settled yet
+CREATE TABLE payment_refund_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    status VARCHAR(20) NOT NULL,
+    reason VARCHAR(500),
+    requested_by VARCHAR(255) NOT NULL,
+    total_count INTEGER NOT NULL DEFAULT 0,
+    succeeded_count INTEGER NOT NULL DEFAULT 0,
+    failed_count INTEGER NOT NULL DEFAULT 0,
+    skipped_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX idx_payment_refund_jobs_status ON payment_refund_jobs(status, created_at);
+
+CREATE TABLE payment_refund_job_items (
+    job_id UUID NOT NULL,
+    payment_id UUID NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    refund_id VARCHAR(255),
+    failure_reason VARCHAR(500),
+    processed_at TIMESTAMP,
+    PRIMARY KEY (job_id, payment_id),
+    CONSTRAINT fk_refund_item_job FOREIGN KEY (job_id) REFERENCES payment_refund_jobs(id) ON DELETE CASCADE
+);
+
+-- Workers page through the unsettled items of a job
+CREATE INDEX idx_payment_refund_job_items_pending ON payment_refund_job_items(job_id, payment_id)
+    WHERE status = 'PENDING';
@@ -0,0 +1,16 @@
+-- Webhook events become a durable inbox: an event is stored before the gateway is
+-- acknowledged and applied afterwards, so a crash or a failed batch leaves it pending
+ALTER TABLE payment_webhook_events
+    ADD COLUMN created_epoch BIGINT,
+    ADD COLUMN payment_intent_id VARCHAR(255),
+    ADD COLUMN target_status VARCHAR(50),
+    ADD COLUMN failure_reason TEXT,
+    ADD COLUMN attempts INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN processed_at TIMESTAMP;
+
+-- Every event recorded so far was recorded when it was applied
+UPDATE payment_webhook_events SET processed_at = received_at;
+
+-- Pending events, for the retry poll
+CREATE INDEX idx_payment_webhook_events_pending ON payment_webhook_events(attempts, received_at)
+    WHERE processed_at IS NULL;
@@ -0,0 +1,89 @@
+package com.skishop.payment.controller;
+
+import com.skishop.payment.config.SecurityConfig;
+import com.skishop.payment.dto.BulkRefundJobResponse;
+import com.skishop.payment.service.refund.BulkRefundService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(BulkRefundController.class)
+class BulkRefundControllerTest {
+
+    private static final String REQUEST = """
+            {"paymentIds": ["3f1c2a4e-8d2b-4c6f-9a51-0e7d3b6c9f10"], "reason": "event cancelled"}
+            """;
+
+    /** The application class enables JPA repositories, which a web slice cannot start */
+    @Configuration
+    @Import({BulkRefundController.class, SecurityConfig.class})
+    static class WebConfig {
+    }
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    BulkRefundService bulkRefundService;
+
+    @MockitoBean
+    JwtDecoder jwtDecoder;
+
+    @Test
+    @DisplayName("createBulkRefund: a caller with the refund scope creates a job")
+    void createBulkRefund_withRefundScope() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        when(bulkRefundService.createJob(eq("operator-1"), any()))
+            .thenReturn(BulkRefundJobResponse.builder().jobId(jobId).status("PENDING").totalCount(1).build());
+
+        mockMvc.perform(post("/api/v1/payments/bulk-refunds")
+                .with(jwt().jwt(token -> token.subject("operator-1").claim("scope", "payments:refund")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(REQUEST))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.data.jobId").value(jobId.toString()))
+            .andExpect(jsonPath("$.data.status").value("PENDING"));
+    }
+
+    @Test
+    @DisplayName("createBulkRefund: a caller without the refund scope is refused")
+    void createBulkRefund_withoutRefundScope() throws Exception {
+        mockMvc.perform(post("/api/v1/payments/bulk-refunds")
+                .with(jwt().jwt(token -> token.subject("customer-1").claim("scope", "payments:read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(REQUEST))
+            .andExpect(status().isForbidden());
+
+        verify(bulkRefundService, never()).createJob(any(), any());
+    }
+
+    @Test
+    @DisplayName("createBulkRefund: an anonymous caller must authenticate")
+    void createBulkRefund_anonymous() throws Exception {
+        mockMvc.perform(post("/api/v1/payments/bulk-refunds")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(REQUEST))
+            .andExpect(status().isUnauthorized());
+
+        verify(bulkRefundService, never()).createJob(any(), any());
+    }
+}
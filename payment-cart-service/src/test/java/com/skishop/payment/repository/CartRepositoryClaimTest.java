@@ -0,0 +1,107 @@
+package com.skishop.payment.repository;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the native claim query of {@link CartRepository} against H2 in PostgreSQL mode
+ */
+class CartRepositoryClaimTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 15, 12, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private String claimSql;
+
+    @BeforeEach
+    void setUp() throws NoSuchMethodException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:carts-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=5000");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE carts (id UUID PRIMARY KEY, user_id UUID NOT NULL, expires_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE payments (id UUID PRIMARY KEY, cart_id UUID REFERENCES carts(id))");
+
+        Query query = CartRepository.class
+            .getMethod("claimExpiredCarts", LocalDateTime.class, int.class)
+            .getAnnotation(Query.class);
+        claimSql = query.value().replace(":currentTime", "?").replace(":limit", "?");
+    }
+
+    @Test
+    @DisplayName("expired carts are claimed oldest first with their users; live carts and carts a payment refers to are kept")
+    void claimExpiredCarts_filtersAndOrders() {
+        UUID newer = insertCart(NOW.minusHours(1));
+        UUID older = insertCart(NOW.minusHours(2));
+        insertCart(NOW.plusHours(1));
+        UUID paid = insertCart(NOW.minusHours(3));
+        jdbcTemplate.update("INSERT INTO payments (id, cart_id) VALUES (?, ?)", UUID.randomUUID(), paid);
+
+        List<UUID> claimed = transactionTemplate.execute(status -> claim(10));
+
+        assertEquals(List.of(older, newer), claimed);
+        assertEquals(userOf(older), transactionTemplate.execute(status -> jdbcTemplate
+            .queryForList(claimSql, NOW, 10).getFirst().get("userId")));
+    }
+
+    @Test
+    @DisplayName("a claim skips carts locked by another instance's open transaction instead of waiting for them")
+    void claimExpiredCarts_skipsLockedRows() {
+        UUID locked = insertCart(NOW.minusHours(3));
+        UUID free = insertCart(NOW.minusHours(2));
+
+        List<UUID> claimed = transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM carts WHERE id = ? FOR UPDATE", UUID.class, locked);
+            // Claim from another connection while this transaction still holds the cart
+            return CompletableFuture
+                .supplyAsync(() -> transactionTemplate.execute(other -> claim(10)))
+                .orTimeout(2, TimeUnit.SECONDS)
+                .join();
+        });
+
+        assertEquals(List.of(free), claimed);
+    }
+
+    @Test
+    @DisplayName("a claim returns at most the chunk size")
+    void claimExpiredCarts_honoursLimit() {
+        for (int i = 1; i <= 3; i++) {
+            insertCart(NOW.minusHours(i));
+        }
+
+        assertEquals(2, transactionTemplate.execute(status -> claim(2)).size());
+    }
+
+    private List<UUID> claim(int limit) {
+        return jdbcTemplate.queryForList(claimSql, NOW, limit).stream()
+            .map(row -> (UUID) row.get("id"))
+            .toList();
+    }
+
+    private UUID insertCart(LocalDateTime expiresAt) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO carts (id, user_id, expires_at) VALUES (?, ?, ?)",
+            id, UUID.randomUUID(), Timestamp.valueOf(expiresAt));
+        return id;
+    }
+
+    private UUID userOf(UUID cartId) {
+        return jdbcTemplate.queryForObject("SELECT user_id FROM carts WHERE id = ?", UUID.class, cartId);
+    }
+}
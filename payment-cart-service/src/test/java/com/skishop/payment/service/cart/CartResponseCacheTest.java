@@ -0,0 +1,99 @@
+package com.skishop.payment.service.cart;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.payment.config.RedisConfig;
+import com.skishop.payment.dto.CartResponse;
+import com.skishop.payment.support.EmbeddedRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartResponseCacheTest {
+
+    private static EmbeddedRedis redis;
+
+    private final UUID userId = UUID.randomUUID();
+    private CartResponseCache cache;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        cache = new CartResponseCache(
+            new RedisConfig().cartCacheRedisTemplate(redis.template().getConnectionFactory()),
+            new CartResponseCodec(new ObjectMapper()),
+            new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "ttlHours", 24L);
+        cache.init();
+    }
+
+    @Test
+    @DisplayName("a cart cached after a miss is returned by the next read")
+    void putIfUnchanged_cachesAfterMiss() {
+        CartResponseCache.Lookup miss = cache.get(userId);
+        assertNull(miss.cart());
+
+        assertTrue(cache.putIfUnchanged(userId, cart("1000"), miss.generation()));
+
+        assertEquals(cart("1000"), cache.get(userId).cart());
+        assertTrue(redis.template().getExpire(CartResponseCache.key(userId)) > 0);
+    }
+
+    @Test
+    @DisplayName("a read that loaded the cart before an eviction does not put the old cart back")
+    void putIfUnchanged_skipsAfterEviction() {
+        CartResponseCache.Lookup miss = cache.get(userId);
+        // A change commits and evicts while the read is loading the cart
+        cache.evict(userId);
+
+        assertFalse(cache.putIfUnchanged(userId, cart("1000"), miss.generation()));
+        assertNull(cache.get(userId).cart());
+
+        CartResponseCache.Lookup next = cache.get(userId);
+        assertTrue(cache.putIfUnchanged(userId, cart("2000"), next.generation()));
+        assertEquals(cart("2000"), cache.get(userId).cart());
+    }
+
+    @Test
+    @DisplayName("eviction removes the cached cart")
+    void evict_removesEntry() {
+        cache.putIfUnchanged(userId, cart("1000"), cache.get(userId).generation());
+
+        cache.evict(userId);
+
+        assertNull(cache.get(userId).cart());
+        assertTrue(redis.template().getExpire("cart:generation:" + userId) > 0);
+    }
+
+    @Test
+    @DisplayName("an unreadable entry counts as a miss and is dropped")
+    void get_dropsUnreadableEntry() {
+        redis.template().opsForValue().set(CartResponseCache.key(userId), "garbage");
+
+        assertNull(cache.get(userId).cart());
+        assertFalse(redis.template().hasKey(CartResponseCache.key(userId)));
+    }
+
+    private CartResponse cart(String total) {
+        return CartResponse.builder().userId(userId).totalAmount(new BigDecimal(total)).currency("JPY").build();
+    }
+}
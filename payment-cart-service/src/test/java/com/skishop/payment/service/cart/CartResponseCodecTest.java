@@ -0,0 +1,85 @@
+package com.skishop.payment.service.cart;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.payment.dto.CartItemResponse;
+import com.skishop.payment.dto.CartResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartResponseCodecTest {
+
+    private final CartResponseCodec codec = new CartResponseCodec(new ObjectMapper());
+
+    @Test
+    @DisplayName("a cart with items decodes to an equal cart, keeping decimal scales and nanoseconds")
+    void encode_roundTrips() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 12, 31, 23, 59, 59, 123_456_789);
+        CartResponse cart = CartResponse.builder()
+            .id(UUID.randomUUID())
+            .userId(UUID.randomUUID())
+            .totalAmount(new BigDecimal("31000.50"))
+            .currency("JPY")
+            .itemCount(3)
+            .createdAt(createdAt)
+            .updatedAt(createdAt.plusMinutes(5))
+            .expiresAt(createdAt.plusDays(30))
+            .items(List.of(
+                CartItemResponse.builder()
+                    .id(UUID.randomUUID())
+                    .productId(UUID.randomUUID())
+                    .quantity(2)
+                    .unitPrice(new BigDecimal("15000.25"))
+                    .totalPrice(new BigDecimal("30000.50"))
+                    .productDetails(Map.of("name", "Ski Wax", "tags", List.of("wax", "tuning"), "length", 170))
+                    .createdAt(createdAt)
+                    .updatedAt(createdAt)
+                    .build(),
+                CartItemResponse.builder()
+                    .id(UUID.randomUUID())
+                    .productId(UUID.randomUUID())
+                    .quantity(1)
+                    .unitPrice(new BigDecimal("-1000.000"))
+                    .totalPrice(new BigDecimal("1E+3"))
+                    .build()))
+            .build();
+
+        CartResponse decoded = codec.decode(codec.encode(cart));
+
+        assertEquals(cart, decoded);
+        assertEquals(2, decoded.getItems().get(0).getTotalPrice().scale());
+        assertEquals(-3, decoded.getItems().get(1).getTotalPrice().scale());
+    }
+
+    @Test
+    @DisplayName("null fields and a missing item list stay null, and an empty list stays empty")
+    void encode_keepsNulls() {
+        CartResponse empty = new CartResponse();
+        assertEquals(empty, codec.decode(codec.encode(empty)));
+        assertNull(codec.decode(codec.encode(empty)).getItems());
+
+        CartResponse noItems = CartResponse.builder().userId(UUID.randomUUID()).items(List.of()).build();
+        assertEquals(List.of(), codec.decode(codec.encode(noItems)).getItems());
+    }
+
+    @Test
+    @DisplayName("a value in another format decodes to null, and a truncated one fails")
+    void decode_rejectsOtherFormats() {
+        byte[] value = codec.encode(CartResponse.builder().currency("JPY").items(List.of()).build());
+
+        byte[] otherVersion = value.clone();
+        otherVersion[0] = CartResponseCodec.FORMAT_VERSION + 1;
+        assertNull(codec.decode(otherVersion));
+        assertNull(codec.decode(new byte[0]));
+        assertThrows(UncheckedIOException.class, () -> codec.decode(Arrays.copyOf(value, value.length - 1)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.skishop.payment.service.cart;
+
+import com.skishop.payment.repository.jdbc.CartTotalReconciliationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CartTotalReconciliationJobTest {
+
+    @Mock
+    CartTotalReconciliationRepository cartTotalReconciliationRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CartTotalReconciliationJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new CartTotalReconciliationJob(cartTotalReconciliationRepository,
+            new TransactionTemplate(transactionManager), meterRegistry);
+        ReflectionTestUtils.setField(job, "batchSize", 2);
+        job.init();
+    }
+
+    @Test
+    @DisplayName("carts are walked in keyset order, one locked and corrected batch per transaction")
+    void reconcileTotals_walksKeysetBatches() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        UUID third = new UUID(0, 3);
+        when(cartTotalReconciliationRepository.lockBatch(CartTotalReconciliationRepository.FIRST_KEY, 2))
+            .thenReturn(List.of(first, second));
+        when(cartTotalReconciliationRepository.lockBatch(second, 2)).thenReturn(List.of(third));
+        when(cartTotalReconciliationRepository.lockBatch(third, 2)).thenReturn(List.of());
+        when(cartTotalReconciliationRepository.correctTotals(List.of(first, second))).thenReturn(List.of(second));
+        when(cartTotalReconciliationRepository.correctTotals(List.of(third))).thenReturn(List.of());
+        when(cartTotalReconciliationRepository.correctTotals(List.of())).thenReturn(List.of());
+
+        job.reconcileTotals();
+
+        InOrder order = inOrder(transactionManager, cartTotalReconciliationRepository);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(cartTotalReconciliationRepository).lockBatch(CartTotalReconciliationRepository.FIRST_KEY, 2);
+        order.verify(cartTotalReconciliationRepository).correctTotals(List.of(first, second));
+        order.verify(transactionManager).commit(any());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(cartTotalReconciliationRepository).lockBatch(second, 2);
+        verify(transactionManager, times(3)).commit(any());
+        assertEquals(3.0, reconciled("checked"));
+        assertEquals(1.0, reconciled("corrected"));
+    }
+
+    @Test
+    @DisplayName("a failed batch ends the run without counting it, and the failure stays inside the job")
+    void reconcileTotals_stopsOnFailure() {
+        when(cartTotalReconciliationRepository.lockBatch(any(), anyInt()))
+            .thenThrow(new DataAccessResourceFailureException("database down"));
+
+        assertDoesNotThrow(job::reconcileTotals);
+
+        verify(transactionManager).rollback(any());
+        assertEquals(0.0, reconciled("checked"));
+    }
+
+    private double reconciled(String outcome) {
+        return meterRegistry.get("cart.total.reconciliation").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,154 @@
+package com.skishop.payment.service.cart;
+
+import com.skishop.payment.repository.CartItemRepository;
+import com.skishop.payment.repository.CartRepository;
+import com.skishop.payment.support.EmbeddedRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExpiredCartCleanupServiceTest {
+
+    private static EmbeddedRedis redis;
+
+    @Mock
+    CartRepository cartRepository;
+
+    @Mock
+    CartItemRepository cartItemRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExpiredCartCleanupService service;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        service = new ExpiredCartCleanupService(cartRepository, cartItemRepository, redis.template(),
+            new TransactionTemplate(transactionManager), meterRegistry);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "maxChunksPerRun", 5);
+        service.init();
+    }
+
+    @Test
+    @DisplayName("each chunk deletes its items and carts in one transaction, then drops the users' cached carts")
+    void cleanupExpiredCarts_deletesChunkThenEvictsCache() {
+        CartRepository.ExpiredCart first = expiredCart();
+        CartRepository.ExpiredCart second = expiredCart();
+        UUID otherUser = UUID.randomUUID();
+        List.of(first.getUserId(), second.getUserId(), otherUser)
+            .forEach(userId -> redis.template().opsForValue().set(CartResponseCache.key(userId), "cached"));
+        when(cartRepository.claimExpiredCarts(any(), eq(2))).thenReturn(List.of(first, second), List.of());
+        List<UUID> cartIds = List.of(first.getId(), second.getId());
+        when(cartItemRepository.deleteByCartIdIn(cartIds)).thenReturn(3);
+
+        assertEquals(2, service.cleanupExpiredCarts());
+
+        InOrder order = inOrder(transactionManager, cartRepository, cartItemRepository);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(cartRepository).claimExpiredCarts(any(), eq(2));
+        order.verify(cartItemRepository).deleteByCartIdIn(cartIds);
+        order.verify(cartRepository).deleteByIdIn(cartIds);
+        order.verify(transactionManager).commit(any());
+        assertFalse(redis.template().hasKey(CartResponseCache.key(first.getUserId())));
+        assertFalse(redis.template().hasKey(CartResponseCache.key(second.getUserId())));
+        assertTrue(redis.template().hasKey(CartResponseCache.key(otherUser)));
+        assertEquals(2.0, meterRegistry.get("cart.cleanup.deleted").tag("type", "cart").counter().count());
+        assertEquals(3.0, meterRegistry.get("cart.cleanup.deleted").tag("type", "item").counter().count());
+    }
+
+    @Test
+    @DisplayName("a run stops at a short chunk")
+    void cleanupExpiredCarts_stopsAfterShortChunk() {
+        when(cartRepository.claimExpiredCarts(any(), eq(2)))
+            .thenReturn(List.of(expiredCart(), expiredCart()), List.of(expiredCart()));
+
+        assertEquals(3, service.cleanupExpiredCarts());
+
+        verify(cartRepository, times(2)).claimExpiredCarts(any(), eq(2));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    @DisplayName("a run stops at the per-run chunk limit, leaving the rest for the next run")
+    void cleanupExpiredCarts_stopsAtChunkLimit() {
+        when(cartRepository.claimExpiredCarts(any(), eq(2)))
+            .thenAnswer(invocation -> List.of(expiredCart(), expiredCart()));
+
+        assertEquals(10, service.cleanupExpiredCarts());
+
+        verify(cartRepository, times(5)).claimExpiredCarts(any(), eq(2));
+    }
+
+    @Test
+    @DisplayName("a chunk that fails to delete rolls back, keeps the cache and stays inside the scheduled job")
+    void scheduledCleanup_failedChunkRollsBack() {
+        CartRepository.ExpiredCart cart = expiredCart();
+        redis.template().opsForValue().set(CartResponseCache.key(cart.getUserId()), "cached");
+        when(cartRepository.claimExpiredCarts(any(), anyInt())).thenReturn(List.of(cart));
+        when(cartItemRepository.deleteByCartIdIn(List.of(cart.getId())))
+            .thenThrow(new DataAccessResourceFailureException("database down"));
+
+        assertDoesNotThrow(service::scheduledCleanup);
+
+        verify(transactionManager).rollback(any());
+        verify(cartRepository, never()).deleteByIdIn(any());
+        assertTrue(redis.template().hasKey(CartResponseCache.key(cart.getUserId())));
+    }
+
+    private static CartRepository.ExpiredCart expiredCart() {
+        UUID id = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        return new CartRepository.ExpiredCart() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public UUID getUserId() {
+                return userId;
+            }
+        };
+    }
+}
@@ -0,0 +1,165 @@
+package com.skishop.payment.service.cart;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.payment.repository.jdbc.CartSnapshot;
+import com.skishop.payment.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisCartStoreTest {
+
+    private static EmbeddedRedis redis;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID cartId = UUID.randomUUID();
+    private final UUID productId = UUID.randomUUID();
+    private RedisCartStore store;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        store = new RedisCartStore(redis.template(), new ObjectMapper());
+        ReflectionTestUtils.setField(store, "ttlDays", 7L);
+    }
+
+    @Test
+    @DisplayName("lines of the same product are merged and every change keeps the total in step")
+    void mutations_maintainTotal() {
+        load(Duration.ofDays(1));
+
+        store.addItem(userId, productId, 2, 1500, null);
+        CartSnapshot added = store.addItem(userId, productId, 1, 9999, "{\"name\":\"Ski\"}");
+        assertEquals(1, added.lines().size());
+        assertEquals(3, added.lines().getFirst().quantity());
+        assertEquals(4500, added.totalMinor());
+
+        UUID itemId = added.lines().getFirst().id();
+        assertEquals(1500, store.updateItem(userId, itemId, 1).totalMinor());
+        CartSnapshot removed = store.removeItem(userId, itemId);
+        assertEquals(0, removed.totalMinor());
+        assertTrue(removed.lines().isEmpty());
+        assertEquals(4, removed.version());
+        assertThrows(RuntimeException.class, () -> store.removeItem(userId, itemId));
+    }
+
+    @Test
+    @DisplayName("a mutation of a cart that is not live returns null")
+    void mutation_withoutLiveCart_returnsNull() {
+        assertNull(store.addItem(userId, productId, 1, 100, null));
+        assertNull(store.clear(userId));
+    }
+
+    @Test
+    @DisplayName("a change moves the expiry to a full TTL, and the cart does not expire until the flush is acknowledged")
+    void mutation_refreshesExpiry() {
+        load(Duration.ofDays(1));
+        assertTrue(redis.template().getExpire(cartKey()) <= Duration.ofDays(1).toSeconds());
+
+        CartSnapshot changed = store.addItem(userId, productId, 1, 100, null);
+
+        assertTrue(changed.expiresAt().isAfter(LocalDateTime.now().plusDays(6)));
+        assertEquals(-1L, redis.template().getExpire(cartKey()));
+        assertEquals(-1L, redis.template().getExpire(ownerKey()));
+        assertEquals(1, store.countDirty());
+
+        assertEquals(0, store.acknowledge(List.of(userId), List.of(changed.version())));
+
+        assertEquals(0, store.countDirty());
+        assertTrue(redis.template().getExpire(cartKey()) > Duration.ofDays(6).toSeconds());
+        assertTrue(redis.template().getExpire(ownerKey()) > Duration.ofDays(6).toSeconds());
+        assertEquals(changed.expiresAt(), store.get(userId).expiresAt());
+    }
+
+    @Test
+    @DisplayName("a cart changed after its snapshot stays dirty and without expiry")
+    void acknowledge_keepsChangedCartDirty() {
+        load(Duration.ofDays(1));
+        CartSnapshot flushed = store.addItem(userId, productId, 1, 100, null);
+        store.addItem(userId, productId, 1, 100, null);
+
+        store.acknowledge(List.of(userId), List.of(flushed.version()));
+
+        assertEquals(List.of(userId), store.findDirtyUsers(LocalDateTime.now().plusSeconds(1), 10));
+        assertEquals(-1L, redis.template().getExpire(cartKey()));
+    }
+
+    @Test
+    @DisplayName("a dirty user whose cart is gone from Redis is reported as lost")
+    void acknowledge_reportsLostCarts() {
+        load(Duration.ofDays(1));
+        store.addItem(userId, productId, 1, 100, null);
+        redis.template().delete(cartKey());
+        UUID cleanUser = UUID.randomUUID();
+
+        assertEquals(1, store.acknowledge(List.of(userId, cleanUser), List.of(-1L, -1L)));
+        assertEquals(0, store.countDirty());
+    }
+
+    @Test
+    @DisplayName("taking a cart removes it, its owner key and its dirty mark in one step")
+    void take_removesCartAtomically() {
+        load(Duration.ofDays(1));
+        store.addItem(userId, productId, 2, 100, null);
+
+        assertNull(store.take(userId, UUID.randomUUID()));
+        assertNotNull(store.get(userId));
+
+        CartSnapshot taken = store.take(userId, cartId);
+
+        assertEquals(200, taken.totalMinor());
+        assertNull(store.get(userId));
+        assertTrue(store.findOwner(cartId).isEmpty());
+        assertEquals(0, store.countDirty());
+        assertNull(store.take(userId, cartId));
+    }
+
+    @Test
+    @DisplayName("a restored cart is live and dirty again, unless the user has started another one")
+    void restore_marksDirty() {
+        load(Duration.ofDays(1));
+        CartSnapshot taken = store.take(userId, cartId);
+
+        assertTrue(store.restore(taken));
+
+        assertEquals(cartId, store.get(userId).id());
+        assertEquals(userId, store.findOwner(cartId).orElseThrow());
+        assertEquals(List.of(userId), store.findDirtyUsers(LocalDateTime.now(), 10));
+        assertEquals(-1L, redis.template().getExpire(cartKey()));
+        assertFalse(store.restore(taken));
+    }
+
+    private void load(Duration ttl) {
+        LocalDateTime now = LocalDateTime.now();
+        assertTrue(store.load(new CartSnapshot(cartId, userId, "JPY", 0, now, now, now.plus(ttl), 0, List.of())));
+    }
+
+    private String cartKey() {
+        return "cart:live:" + userId;
+    }
+
+    private String ownerKey() {
+        return "cart:owner:" + cartId;
+    }
+}
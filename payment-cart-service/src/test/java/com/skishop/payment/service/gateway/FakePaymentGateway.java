@@ -0,0 +1,120 @@
+package com.skishop.payment.service.gateway;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory payment gateway for tests
+ * Answers immediately from the intents and failures it was given, records every call, and
+ * replays the refund stored under an idempotency key as the processor does.
+ */
+public class FakePaymentGateway implements PaymentGateway {
+
+    private final Map<String, GatewayPaymentIntent> intents = new ConcurrentHashMap<>();
+    private final Map<String, PaymentGatewayException.Reason> failures = new ConcurrentHashMap<>();
+    private final Map<String, GatewayRefund> refundsByKey = new ConcurrentHashMap<>();
+    private final Set<String> declinedConfirmations = ConcurrentHashMap.newKeySet();
+    private final List<String> retrieved = new CopyOnWriteArrayList<>();
+    private final List<String> refundKeys = new CopyOnWriteArrayList<>();
+    private volatile String refundStatus = "succeeded";
+
+    public FakePaymentGateway intent(String id, String status, long amountMinor, String currency) {
+        intents.put(id, new GatewayPaymentIntent(id, id + "_secret", status, amountMinor, currency));
+        return this;
+    }
+
+    /**
+     * Make every call about the intent fail with the reason
+     */
+    public FakePaymentGateway failing(String id, PaymentGatewayException.Reason reason) {
+        failures.put(id, reason);
+        return this;
+    }
+
+    /**
+     * Decline confirmations of the intent while lookups still answer its stored state
+     */
+    public FakePaymentGateway decliningConfirmation(String id) {
+        declinedConfirmations.add(id);
+        return this;
+    }
+
+    public FakePaymentGateway refundStatus(String status) {
+        refundStatus = status;
+        return this;
+    }
+
+    public List<String> retrieved() {
+        return retrieved;
+    }
+
+    /**
+     * Idempotency keys of refund calls, including replays
+     */
+    public List<String> refundKeys() {
+        return refundKeys;
+    }
+
+    /**
+     * Refunds the processor actually created
+     */
+    public int refundsCreated() {
+        return refundsByKey.size();
+    }
+
+    @Override
+    public String provider() {
+        return "fake";
+    }
+
+    @Override
+    public CompletableFuture<GatewayPaymentIntent> createPaymentIntent(long amountMinor, String currency, String idempotencyKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<GatewayPaymentIntent> confirmPaymentIntent(String paymentIntentId, String paymentMethodId,
+                                                                        String idempotencyKey) {
+        if (declinedConfirmations.contains(paymentIntentId)) {
+            return CompletableFuture.failedFuture(new PaymentGatewayException("Fake decline",
+                PaymentGatewayException.Reason.DECLINED, null));
+        }
+        return retrievePaymentIntent(paymentIntentId);
+    }
+
+    @Override
+    public CompletableFuture<GatewayPaymentIntent> retrievePaymentIntent(String paymentIntentId) {
+        retrieved.add(paymentIntentId);
+        PaymentGatewayException failure = failure(paymentIntentId);
+        if (failure != null) {
+            return CompletableFuture.failedFuture(failure);
+        }
+        GatewayPaymentIntent intent = intents.get(paymentIntentId);
+        if (intent == null) {
+            return CompletableFuture.failedFuture(new PaymentGatewayException("No such payment intent: " + paymentIntentId,
+                PaymentGatewayException.Reason.NOT_FOUND, null));
+        }
+        return CompletableFuture.completedFuture(intent);
+    }
+
+    @Override
+    public CompletableFuture<GatewayRefund> createRefund(String paymentIntentId, long amountMinor, String reason,
+                                                         String idempotencyKey) {
+        refundKeys.add(idempotencyKey);
+        PaymentGatewayException failure = failure(paymentIntentId);
+        if (failure != null) {
+            return CompletableFuture.failedFuture(failure);
+        }
+        return CompletableFuture.completedFuture(refundsByKey.computeIfAbsent(idempotencyKey,
+            key -> new GatewayRefund("re_" + paymentIntentId + "_" + refundsByKey.size(), refundStatus, amountMinor)));
+    }
+
+    private PaymentGatewayException failure(String paymentIntentId) {
+        PaymentGatewayException.Reason reason = failures.get(paymentIntentId);
+        return reason != null ? new PaymentGatewayException("Fake failure", reason, null) : null;
+    }
+}
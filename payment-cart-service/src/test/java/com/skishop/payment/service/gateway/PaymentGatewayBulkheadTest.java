@@ -0,0 +1,117 @@
+package com.skishop.payment.service.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentGatewayBulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PaymentGatewayBulkhead bulkhead;
+
+    @BeforeEach
+    void setUp() {
+        bulkhead = new PaymentGatewayBulkhead(meterRegistry);
+        ReflectionTestUtils.setField(bulkhead, "maxConcurrentCalls", 1);
+        ReflectionTestUtils.setField(bulkhead, "createIntentDeadlineMs", 100L);
+        ReflectionTestUtils.setField(bulkhead, "confirmIntentDeadlineMs", 2_000L);
+        ReflectionTestUtils.setField(bulkhead, "retrieveIntentDeadlineMs", 2_000L);
+        ReflectionTestUtils.setField(bulkhead, "createRefundDeadlineMs", 2_000L);
+        bulkhead.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        bulkhead.shutdown();
+    }
+
+    @Test
+    @DisplayName("a call that finds the bulkhead full is rejected at once instead of queuing")
+    void call_rejectsWhenFull() throws Exception {
+        CompletableFuture<String> running = bulkhead.call(PaymentGatewayBulkhead.Operation.CONFIRM_INTENT, this::held);
+
+        CompletableFuture<String> rejected = bulkhead.call(PaymentGatewayBulkhead.Operation.CONFIRM_INTENT, () -> "second");
+
+        assertEquals(PaymentGatewayException.Reason.BULKHEAD_FULL, reasonOf(rejected));
+        release.countDown();
+        assertEquals("held", running.get(2, TimeUnit.SECONDS));
+        assertEquals("third", bulkhead.call(PaymentGatewayBulkhead.Operation.CONFIRM_INTENT, () -> "third")
+            .get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("a call past its deadline fails, but keeps its permit until the remote call returns")
+    void call_deadlineKeepsPermit() throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<String> slow = bulkhead.call(PaymentGatewayBulkhead.Operation.CREATE_INTENT, this::held);
+
+        assertEquals(PaymentGatewayException.Reason.DEADLINE_EXCEEDED, reasonOf(slow));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+        assertEquals(PaymentGatewayException.Reason.BULKHEAD_FULL,
+            reasonOf(bulkhead.call(PaymentGatewayBulkhead.Operation.CONFIRM_INTENT, () -> "blocked")));
+
+        release.countDown();
+        awaitInFlight(0);
+        assertEquals("free", bulkhead.call(PaymentGatewayBulkhead.Operation.CONFIRM_INTENT, () -> "free")
+            .get(2, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("payment.gateway.call")
+            .tag("operation", "create_intent").tag("outcome", "deadline_exceeded").timer().count());
+    }
+
+    @Test
+    @DisplayName("failures surface as gateway exceptions, keeping a processor decline as it is")
+    void call_wrapsFailures() {
+        CompletableFuture<String> broken = bulkhead.call(PaymentGatewayBulkhead.Operation.RETRIEVE_INTENT, () -> {
+            throw new IllegalStateException("connection reset");
+        });
+        assertEquals(PaymentGatewayException.Reason.UNAVAILABLE, reasonOf(broken));
+
+        CompletableFuture<String> declined = bulkhead.call(PaymentGatewayBulkhead.Operation.CREATE_REFUND, () -> {
+            throw new PaymentGatewayException("card declined", PaymentGatewayException.Reason.DECLINED, null);
+        });
+        assertEquals(PaymentGatewayException.Reason.DECLINED, reasonOf(declined));
+    }
+
+    @Test
+    @DisplayName("results are delivered on the bulkhead's threads, not the caller's")
+    void call_completesOffCallerThread() throws Exception {
+        CompletableFuture<Thread> callbackThread = bulkhead.call(PaymentGatewayBulkhead.Operation.CONFIRM_INTENT, this::held)
+            .thenApply(value -> Thread.currentThread());
+
+        release.countDown();
+
+        Thread thread = callbackThread.get(2, TimeUnit.SECONDS);
+        assertNotSame(Thread.currentThread(), thread);
+        assertTrue(thread.isVirtual());
+    }
+
+    private String held() throws InterruptedException {
+        release.await();
+        return "held";
+    }
+
+    private void awaitInFlight(double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (meterRegistry.get("payment.gateway.in-flight").gauge().value() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, meterRegistry.get("payment.gateway.in-flight").gauge().value());
+    }
+
+    private static PaymentGatewayException.Reason reasonOf(CompletableFuture<?> call) {
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> call.get(2, TimeUnit.SECONDS));
+        return assertInstanceOf(PaymentGatewayException.class, failure.getCause()).getReason();
+    }
+}
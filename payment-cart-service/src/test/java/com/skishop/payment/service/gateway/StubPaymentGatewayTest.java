@@ -0,0 +1,88 @@
+package com.skishop.payment.service.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StubPaymentGatewayTest {
+
+    private PaymentGatewayBulkhead bulkhead;
+    private StubPaymentGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        bulkhead = new PaymentGatewayBulkhead(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(bulkhead, "maxConcurrentCalls", 10);
+        ReflectionTestUtils.setField(bulkhead, "createIntentDeadlineMs", 2_000L);
+        ReflectionTestUtils.setField(bulkhead, "confirmIntentDeadlineMs", 2_000L);
+        ReflectionTestUtils.setField(bulkhead, "retrieveIntentDeadlineMs", 2_000L);
+        ReflectionTestUtils.setField(bulkhead, "createRefundDeadlineMs", 2_000L);
+        bulkhead.init();
+
+        gateway = new StubPaymentGateway(bulkhead);
+        ReflectionTestUtils.setField(gateway, "latencyMs", 0L);
+        ReflectionTestUtils.setField(gateway, "latencyJitterMs", 0L);
+        ReflectionTestUtils.setField(gateway, "maxIntents", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkhead.shutdown();
+    }
+
+    @Test
+    @DisplayName("a repeated idempotency key returns the intent created first instead of another")
+    void createPaymentIntent_replaysKey() throws Exception {
+        GatewayPaymentIntent first = get(gateway.createPaymentIntent(1_000, "JPY", "key-1"));
+
+        assertEquals(first, get(gateway.createPaymentIntent(1_000, "JPY", "key-1")));
+        assertNotEquals(first.id(), get(gateway.createPaymentIntent(1_000, "JPY", "key-2")).id());
+        assertNotEquals(first.id(), get(gateway.createPaymentIntent(1_000, "JPY", null)).id());
+    }
+
+    @Test
+    @DisplayName("a decline is replayed for its key, while a new key is tried again")
+    void confirmPaymentIntent_replaysDecline() throws Exception {
+        GatewayPaymentIntent intent = get(gateway.createPaymentIntent(1_000, "JPY", null));
+        ReflectionTestUtils.setField(gateway, "declineRate", 1.0);
+        assertEquals(PaymentGatewayException.Reason.DECLINED,
+            reasonOf(gateway.confirmPaymentIntent(intent.id(), "pm_card", "confirm-1")));
+
+        ReflectionTestUtils.setField(gateway, "declineRate", 0.0);
+
+        assertEquals(PaymentGatewayException.Reason.DECLINED,
+            reasonOf(gateway.confirmPaymentIntent(intent.id(), "pm_card", "confirm-1")));
+        assertEquals("succeeded", get(gateway.confirmPaymentIntent(intent.id(), "pm_card", "confirm-2")).status());
+    }
+
+    @Test
+    @DisplayName("an outage is not stored, so a retry with the same key acts")
+    void createRefund_retriesAfterOutage() throws Exception {
+        ReflectionTestUtils.setField(gateway, "failureRate", 1.0);
+        assertEquals(PaymentGatewayException.Reason.UNAVAILABLE,
+            reasonOf(gateway.createRefund("pi_1", 500, null, "refund-1")));
+
+        ReflectionTestUtils.setField(gateway, "failureRate", 0.0);
+        GatewayRefund refund = get(gateway.createRefund("pi_1", 500, null, "refund-1"));
+
+        assertEquals(refund, get(gateway.createRefund("pi_1", 500, null, "refund-1")));
+    }
+
+    private static <T> T get(CompletableFuture<T> call) throws Exception {
+        return call.get(2, TimeUnit.SECONDS);
+    }
+
+    private static PaymentGatewayException.Reason reasonOf(CompletableFuture<?> call) {
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> call.get(2, TimeUnit.SECONDS));
+        return assertInstanceOf(PaymentGatewayException.class, failure.getCause()).getReason();
+    }
+}
@@ -0,0 +1,127 @@
+package com.skishop.payment.service.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.payment.support.EmbeddedRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    private static final String STORE_KEY_PATTERN = "payment:idempotency:*";
+
+    private static EmbeddedRedis redis;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UUID userId = UUID.randomUUID();
+    private final Map<String, String> request = Map.of("orderId", "order-1");
+    private IdempotencyService first;
+    private IdempotencyService second;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        // Two instances sharing one Redis, with a one second lock
+        first = service();
+        second = service();
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    @DisplayName("a payment running past the lock TTL keeps its key, so another instance cannot run it again")
+    void slowPayment_keepsLockWhileRunning() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<String> slow = first.execute("process", userId, "key-1", request, String.class, () -> {
+            executions.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> "payment-1",
+                CompletableFuture.delayedExecutor(2_500, TimeUnit.MILLISECONDS));
+        });
+        Thread.sleep(1_500);
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class, () ->
+            second.execute("process", userId, "key-1", request, String.class, () -> {
+                executions.incrementAndGet();
+                return CompletableFuture.completedFuture("payment-2");
+            }));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+
+        assertEquals("payment-1", slow.get());
+        assertEquals("payment-1", second.execute("process", userId, "key-1", request, String.class,
+            () -> CompletableFuture.completedFuture("payment-2")).get());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("a payment whose lock was taken over does not overwrite or release the new owner's key")
+    void lostLock_isFenced() throws Exception {
+        CompletableFuture<String> succeeding = new CompletableFuture<>();
+        CompletableFuture<String> stored = first.execute("process", userId, "key-1", request, String.class,
+            () -> succeeding);
+        String takenOver = takeOverLock();
+
+        succeeding.complete("payment-1");
+        assertEquals("payment-1", stored.get());
+        assertEquals(takenOver, redis.template().opsForValue().get(storeKey()));
+
+        redis.flush();
+        CompletableFuture<String> failing = new CompletableFuture<>();
+        CompletableFuture<String> failed = first.execute("process", userId, "key-2", request, String.class,
+            () -> failing);
+        takenOver = takeOverLock();
+
+        failing.completeExceptionally(new IllegalStateException("gateway down"));
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(takenOver, redis.template().opsForValue().get(storeKey()));
+    }
+
+    private IdempotencyService service() {
+        IdempotencyService service = new IdempotencyService(redis.template(), objectMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "ttlHours", 24L);
+        ReflectionTestUtils.setField(service, "inProgressTtlSeconds", 1L);
+        return service;
+    }
+
+    /** Replace the only lock with another owner's, as if it had expired and been acquired again */
+    private String takeOverLock() throws Exception {
+        String key = storeKey();
+        Map<String, String> lock = objectMapper.readValue(redis.template().opsForValue().get(key), Map.class);
+        lock.put("owner", UUID.randomUUID().toString());
+        String takenOver = objectMapper.writeValueAsString(lock);
+        redis.template().opsForValue().set(key, takenOver);
+        return takenOver;
+    }
+
+    private String storeKey() {
+        return redis.template().keys(STORE_KEY_PATTERN).iterator().next();
+    }
+}
@@ -0,0 +1,201 @@
+package com.skishop.payment.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.payment.dto.AddCartItemRequest;
+import com.skishop.payment.dto.UpdateCartItemRequest;
+import com.skishop.payment.entity.Cart;
+import com.skishop.payment.entity.CartItem;
+import com.skishop.payment.mapper.CartMapper;
+import com.skishop.payment.repository.CartItemRepository;
+import com.skishop.payment.repository.CartRepository;
+import com.skishop.payment.repository.jdbc.CartMergeRepository;
+import com.skishop.payment.service.cart.CartResponseCache;
+import com.skishop.payment.service.cart.ExpiredCartCleanupService;
+import com.skishop.payment.service.price.ProductPriceClient;
+import com.skishop.payment.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CartServiceImplTest {
+
+    @Mock
+    CartRepository cartRepository;
+
+    @Mock
+    CartItemRepository cartItemRepository;
+
+    @Mock
+    CartMapper cartMapper;
+
+    @Mock
+    CartResponseCache cartResponseCache;
+
+    @Mock
+    ProductPriceClient productPriceClient;
+
+    @Mock
+    ExpiredCartCleanupService expiredCartCleanupService;
+
+    @Mock
+    CartMergeRepository cartMergeRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID productId = UUID.randomUUID();
+    private CartServiceImpl cartService;
+    private Cart cart;
+
+    @BeforeEach
+    void setUp() {
+        cartService = new CartServiceImpl(cartRepository, cartItemRepository, cartMapper, cartResponseCache,
+            productPriceClient, expiredCartCleanupService, cartMergeRepository,
+            new TransactionTemplate(transactionManager), new ObjectMapper());
+        ReflectionTestUtils.setField(cartService, "maxConflictAttempts", 3);
+
+        cart = Cart.builder()
+            .id(UUID.randomUUID())
+            .userId(userId)
+            .totalAmount(BigDecimal.ZERO)
+            .currency("JPY")
+            .expiresAt(LocalDateTime.now().plusDays(7))
+            .build();
+        lenient().when(cartRepository.findByUserIdAndExpiresAtAfter(any(), any())).thenReturn(Optional.of(cart));
+        lenient().when(cartRepository.findByUserIdWithItems(userId)).thenReturn(Optional.of(cart));
+        lenient().when(cartItemRepository.findByCartIdAndProductId(cart.getId(), productId)).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @DisplayName("addItemToCart: the price is looked up before the transaction opens")
+    void addItemToCart_looksUpPriceOutsideTransaction() {
+        when(productPriceClient.getPrice(productId)).thenReturn(Money.of(new BigDecimal("1500"), "JPY"));
+
+        cartService.addItemToCart(userId, new AddCartItemRequest(productId, 2, null));
+
+        InOrder order = inOrder(productPriceClient, transactionManager);
+        order.verify(productPriceClient).getPrice(productId);
+        order.verify(transactionManager).getTransaction(any());
+        assertEquals(0, new BigDecimal("3000").compareTo(cart.getTotalAmount()));
+    }
+
+    @Test
+    @DisplayName("addItemToCart: a product priced in another currency than the cart is rejected with 422")
+    void addItemToCart_rejectsOtherCurrency() {
+        when(productPriceClient.getPrice(productId)).thenReturn(Money.of(new BigDecimal("15.00"), "USD"));
+
+        ResponseStatusException rejected = assertThrows(ResponseStatusException.class,
+            () -> cartService.addItemToCart(userId, new AddCartItemRequest(productId, 1, null)));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, rejected.getStatusCode());
+        verify(cartItemRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("updateCartItem: the cart total moves by the change of the line, not by re-summing the lines")
+    void updateCartItem_appliesLineDelta() {
+        CartItem item = item(1, "1000");
+        cart.setTotalAmount(new BigDecimal("5000"));
+
+        cartService.updateCartItem(userId, item.getId(), new UpdateCartItemRequest(3));
+
+        assertEquals(0, new BigDecimal("3000").compareTo(item.getTotalPrice()));
+        assertEquals(0, new BigDecimal("7000").compareTo(cart.getTotalAmount()));
+        verify(cartItemRepository, never()).findByCartId(any());
+    }
+
+    @Test
+    @DisplayName("removeCartItem: the line's total is subtracted from the cart total")
+    void removeCartItem_subtractsLine() {
+        CartItem item = item(2, "1000");
+        cart.setTotalAmount(new BigDecimal("5000"));
+
+        cartService.removeCartItem(userId, item.getId());
+
+        verify(cartItemRepository).delete(item);
+        assertEquals(0, new BigDecimal("3000").compareTo(cart.getTotalAmount()));
+    }
+
+    @Test
+    @DisplayName("a change that loses the version check is retried in a new transaction")
+    void updateCartItem_retriesVersionConflict() {
+        CartItem item = item(1, "1000");
+        when(cartRepository.save(cart))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Cart.class, cart.getId()))
+            .thenReturn(cart);
+
+        cartService.updateCartItem(userId, item.getId(), new UpdateCartItemRequest(2));
+
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        verify(cartRepository, times(2)).save(cart);
+    }
+
+    @Test
+    @DisplayName("a cart still contended after the last attempt answers 409")
+    void updateCartItem_conflictAfterLastAttempt() {
+        CartItem item = item(1, "1000");
+        when(cartRepository.save(cart))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Cart.class, cart.getId()));
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+            () -> cartService.updateCartItem(userId, item.getId(), new UpdateCartItemRequest(2)));
+
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    @DisplayName("other failures are not retried")
+    void updateCartItem_doesNotRetryOtherFailures() {
+        CartItem item = item(1, "1000");
+        when(cartRepository.save(cart)).thenThrow(new IllegalStateException("database down"));
+
+        assertThrows(IllegalStateException.class,
+            () -> cartService.updateCartItem(userId, item.getId(), new UpdateCartItemRequest(2)));
+
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    private CartItem item(int quantity, String unitPrice) {
+        CartItem item = CartItem.builder()
+            .id(UUID.randomUUID())
+            .cart(cart)
+            .productId(productId)
+            .quantity(quantity)
+            .unitPrice(new BigDecimal(unitPrice))
+            .build();
+        item.calculateTotalPrice(Currency.getInstance("JPY"));
+        when(cartItemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+        return item;
+    }
+}
@@ -0,0 +1,226 @@
+package com.skishop.payment.service.impl;
+
+import com.skishop.payment.dto.PaymentHistoryResponse;
+import com.skishop.payment.dto.PaymentSummaryResponse;
+import com.skishop.payment.dto.ProcessPaymentRequest;
+import com.skishop.payment.entity.Payment;
+import com.skishop.payment.mapper.PaymentMapperImpl;
+import com.skishop.payment.repository.PaymentRepository;
+import com.skishop.payment.service.CartService;
+import com.skishop.payment.service.gateway.FakePaymentGateway;
+import com.skishop.payment.service.idempotency.IdempotencyService;
+import com.skishop.payment.service.refund.PaymentRefundRecorder;
+import com.skishop.payment.service.webhook.PaymentWebhookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceImplTest {
+
+    @Mock
+    PaymentRepository paymentRepository;
+
+    @Mock
+    CartService cartService;
+
+    @Mock
+    IdempotencyService idempotencyService;
+
+    @Mock
+    PaymentWebhookService paymentWebhookService;
+
+    @Mock
+    PaymentRefundRecorder paymentRefundRecorder;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final UUID userId = UUID.randomUUID();
+    private final FakePaymentGateway gateway = new FakePaymentGateway();
+    private PaymentServiceImpl paymentService;
+    private Payment payment;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        paymentService = new PaymentServiceImpl(paymentRepository, cartService, new PaymentMapperImpl(), gateway,
+            new TransactionTemplate(transactionManager), idempotencyService, paymentWebhookService, paymentRefundRecorder);
+
+        payment = Payment.builder()
+            .id(UUID.randomUUID())
+            .userId(userId)
+            .paymentIntentId("pi_1")
+            .amount(new BigDecimal("1000"))
+            .currency("JPY")
+            .status(Payment.PaymentStatus.PENDING)
+            .build();
+        lenient().when(paymentRepository.findById(payment.getId())).thenReturn(Optional.of(payment));
+        lenient().when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(idempotencyService.execute(eq("process"), eq(userId), isNull(), any(), any(), any()))
+            .thenAnswer(invocation -> ((Supplier<CompletableFuture<?>>) invocation.getArgument(5)).get());
+    }
+
+    @Test
+    @DisplayName("a succeeded intent completes the payment and clears the cart")
+    void processPayment_succeeded() throws Exception {
+        gateway.intent("pi_1", "succeeded", 1_000, "jpy");
+
+        process().get(2, TimeUnit.SECONDS);
+
+        assertEquals(Payment.PaymentStatus.COMPLETED, payment.getStatus());
+        assertNotNull(payment.getCompletedAt());
+        verify(cartService).clearCart(userId);
+    }
+
+    @Test
+    @DisplayName("a declined confirmation whose intent is still processing leaves the payment pending")
+    void processPayment_declinedButProcessing() throws Exception {
+        gateway.intent("pi_1", "processing", 1_000, "jpy").decliningConfirmation("pi_1");
+
+        process().get(2, TimeUnit.SECONDS);
+
+        assertEquals(Payment.PaymentStatus.PENDING, payment.getStatus());
+        assertEquals("processing", payment.getGatewayResponse().get("status"));
+        verify(cartService, never()).clearCart(any());
+    }
+
+    @Test
+    @DisplayName("an intent that still needs confirmation is not recorded as failed")
+    void processPayment_requiresConfirmation() throws Exception {
+        gateway.intent("pi_1", "requires_confirmation", 1_000, "jpy");
+
+        process().get(2, TimeUnit.SECONDS);
+
+        assertEquals(Payment.PaymentStatus.PENDING, payment.getStatus());
+    }
+
+    @Test
+    @DisplayName("a decline of an intent that needs another payment method fails the payment")
+    void processPayment_declined() {
+        gateway.intent("pi_1", "requires_payment_method", 1_000, "jpy").decliningConfirmation("pi_1");
+
+        assertThrows(ExecutionException.class, () -> process().get(2, TimeUnit.SECONDS));
+
+        assertEquals(Payment.PaymentStatus.FAILED, payment.getStatus());
+        assertEquals("Fake decline", payment.getGatewayResponse().get("failure_reason"));
+    }
+
+    @Test
+    @DisplayName("history pages follow each other by cursor, and the last page has none")
+    void getPaymentHistory_pagesByCursor() {
+        List<PaymentRepository.PaymentSummary> rows = history(5);
+        when(paymentRepository.findHistoryPage(userId, 3)).thenReturn(rows.subList(0, 3));
+
+        PaymentHistoryResponse first = paymentService.getPaymentHistory(userId, null, 2);
+
+        assertEquals(List.of(rows.get(0).getId(), rows.get(1).getId()), paymentIds(first));
+        assertNotNull(first.getNextCursor());
+
+        PaymentRepository.PaymentSummary last = rows.get(1);
+        when(paymentRepository.findHistoryPageAfter(userId, last.getCreatedAt(), last.getId(), 3))
+            .thenReturn(rows.subList(2, 4));
+
+        PaymentHistoryResponse second = paymentService.getPaymentHistory(userId, first.getNextCursor(), 2);
+
+        assertEquals(List.of(rows.get(2).getId(), rows.get(3).getId()), paymentIds(second));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("the page size is clamped, and a cursor that cannot be read answers 400")
+    void getPaymentHistory_validatesInput() {
+        when(paymentRepository.findHistoryPage(userId, 101)).thenReturn(List.of());
+
+        assertTrue(paymentService.getPaymentHistory(userId, " ", 1_000).getPayments().isEmpty());
+
+        ResponseStatusException invalid = assertThrows(ResponseStatusException.class,
+            () -> paymentService.getPaymentHistory(userId, "not-a-cursor", 20));
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    /**
+     * History rows newest first, as the index returns them
+     */
+    private static List<PaymentRepository.PaymentSummary> history(int count) {
+        LocalDateTime newest = LocalDateTime.of(2026, 10, 17, 12, 0);
+        List<PaymentRepository.PaymentSummary> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new HistoryRow(UUID.randomUUID(), newest.minusMinutes(i)));
+        }
+        return rows;
+    }
+
+    private static List<UUID> paymentIds(PaymentHistoryResponse page) {
+        return page.getPayments().stream().map(PaymentSummaryResponse::getPaymentId).toList();
+    }
+
+    private record HistoryRow(UUID id, LocalDateTime createdAt) implements PaymentRepository.PaymentSummary {
+
+        @Override
+        public UUID getId() {
+            return id;
+        }
+
+        @Override
+        public String getStatus() {
+            return "COMPLETED";
+        }
+
+        @Override
+        public BigDecimal getAmount() {
+            return new BigDecimal("1000");
+        }
+
+        @Override
+        public String getCurrency() {
+            return "JPY";
+        }
+
+        @Override
+        public String getPaymentMethod() {
+            return "card";
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public LocalDateTime getCompletedAt() {
+            return createdAt;
+        }
+    }
+
+    private CompletableFuture<?> process() {
+        return paymentService.processPayment(userId, payment.getId(), new ProcessPaymentRequest("pm_card", null, false), null);
+    }
+}
@@ -0,0 +1,92 @@
+package com.skishop.payment.service.price;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory inventory service answering /api/products/batch, for a RestClient under test
+ * Records the product IDs of every call, and can hold calls until released.
+ */
+class FakeInventoryService implements ClientHttpRequestFactory {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<UUID, InventoryProductResponse.Price> prices = new ConcurrentHashMap<>();
+    private final List<List<UUID>> calls = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private volatile boolean down;
+
+    FakeInventoryService price(UUID productId, String amount, String currencyCode) {
+        prices.put(productId, new InventoryProductResponse.Price(new BigDecimal(amount), currencyCode));
+        return this;
+    }
+
+    /** Hold every call until {@link #release()} */
+    void hold() {
+        gate = new CountDownLatch(1);
+    }
+
+    void release() {
+        gate.countDown();
+    }
+
+    void down(boolean down) {
+        this.down = down;
+    }
+
+    /** Product IDs of each call, in order */
+    List<List<UUID>> calls() {
+        return calls;
+    }
+
+    int callsFor(UUID productId) {
+        return (int) calls.stream().flatMap(List::stream).filter(id -> Objects.equals(id, productId)).count();
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new MockClientHttpRequest(httpMethod, uri) {
+            @Override
+            protected ClientHttpResponse executeInternal() throws IOException {
+                List<UUID> productIds = objectMapper.readValue(getBodyAsBytes(), new TypeReference<List<String>>() {})
+                    .stream().map(UUID::fromString).toList();
+                calls.add(productIds);
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (down) {
+                    return new MockClientHttpResponse(new byte[0], HttpStatus.SERVICE_UNAVAILABLE);
+                }
+                List<InventoryProductResponse> products = productIds.stream()
+                    .filter(prices::containsKey)
+                    .map(productId -> new InventoryProductResponse(productId.toString(), prices.get(productId)))
+                    .toList();
+                MockClientHttpResponse response = new MockClientHttpResponse(
+                    objectMapper.writeValueAsBytes(products), HttpStatus.OK);
+                response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                return response;
+            }
+        };
+    }
+}
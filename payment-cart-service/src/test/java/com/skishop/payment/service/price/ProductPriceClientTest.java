@@ -0,0 +1,129 @@
+package com.skishop.payment.service.price;
+
+import com.skishop.payment.util.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductPriceClientTest {
+
+    private final FakeInventoryService inventory = new FakeInventoryService();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProductPriceClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = new ProductPriceClient(RestClient.builder().requestFactory(inventory).build(), meterRegistry);
+        ReflectionTestUtils.setField(client, "freshTtlMs", 200L);
+        ReflectionTestUtils.setField(client, "maxStaleMs", 60_000L);
+        ReflectionTestUtils.setField(client, "maxEntries", 100);
+        ReflectionTestUtils.setField(client, "batchSize", 10);
+        ReflectionTestUtils.setField(client, "batchWindowMs", 50L);
+        ReflectionTestUtils.setField(client, "maxConcurrentRequests", 2);
+        ReflectionTestUtils.setField(client, "lookupTimeoutMs", 2_000L);
+        client.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        inventory.release();
+        client.stop();
+    }
+
+    @Test
+    @DisplayName("concurrent lookups of different products share one inventory call")
+    void getPrice_batchesConcurrentLookups() {
+        List<UUID> productIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        productIds.forEach(productId -> inventory.price(productId, "1000", "JPY"));
+
+        List<CompletableFuture<Money>> lookups = productIds.stream()
+            .map(productId -> CompletableFuture.supplyAsync(() -> client.getPrice(productId)))
+            .toList();
+
+        lookups.forEach(lookup -> assertEquals(Money.of(new BigDecimal("1000"), "JPY"), lookup.join()));
+        assertEquals(1, inventory.calls().size());
+        assertEquals(Set.copyOf(productIds), Set.copyOf(inventory.calls().getFirst()));
+    }
+
+    @Test
+    @DisplayName("lookups of a product already being fetched wait for that call instead of sending another")
+    void getPrice_singleFlightPerProduct() throws Exception {
+        UUID productId = UUID.randomUUID();
+        inventory.price(productId, "2500", "JPY");
+        inventory.hold();
+
+        CompletableFuture<Money> first = CompletableFuture.supplyAsync(() -> client.getPrice(productId));
+        awaitCalls(1);
+        CompletableFuture<Map<UUID, Money>> second = CompletableFuture.supplyAsync(() -> client.getPrices(List.of(productId)));
+        Thread.sleep(100);
+        inventory.release();
+
+        assertEquals(Money.of(new BigDecimal("2500"), "JPY"), first.get(2, TimeUnit.SECONDS));
+        assertEquals(Money.of(new BigDecimal("2500"), "JPY"), second.get(2, TimeUnit.SECONDS).get(productId));
+        assertEquals(1, inventory.callsFor(productId));
+    }
+
+    @Test
+    @DisplayName("a stale price is returned at once and refreshed in the background, even while the inventory service is down")
+    void getPrice_servesStaleWhileRevalidating() throws Exception {
+        UUID productId = UUID.randomUUID();
+        inventory.price(productId, "1000", "JPY");
+        assertEquals(Money.of(new BigDecimal("1000"), "JPY"), client.getPrice(productId));
+
+        // Fresh: served from the cache without a call
+        assertEquals(Money.of(new BigDecimal("1000"), "JPY"), client.getPrice(productId));
+        assertEquals(1, inventory.calls().size());
+
+        Thread.sleep(250);
+        inventory.down(true);
+        assertEquals(Money.of(new BigDecimal("1000"), "JPY"), client.getPrice(productId));
+        awaitCalls(2);
+        // Let the failed refresh finish, so that the next lookup starts another
+        Thread.sleep(50);
+
+        inventory.down(false);
+        inventory.price(productId, "1200", "JPY");
+        assertEquals(Money.of(new BigDecimal("1000"), "JPY"), client.getPrice(productId));
+        awaitCalls(3);
+        // Let the refresh store its price
+        Thread.sleep(50);
+        assertEquals(Money.of(new BigDecimal("1200"), "JPY"), client.getPrice(productId));
+        assertEquals(1.0, meterRegistry.get("cart.price.lookups").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    @DisplayName("an uncached price that does not arrive within the lookup timeout answers 503")
+    void getPrice_timesOut() {
+        UUID productId = UUID.randomUUID();
+        inventory.price(productId, "1000", "JPY");
+        inventory.hold();
+        ReflectionTestUtils.setField(client, "lookupTimeoutMs", 100L);
+
+        ResponseStatusException timeout = assertThrows(ResponseStatusException.class, () -> client.getPrice(productId));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, timeout.getStatusCode());
+    }
+
+    private void awaitCalls(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (inventory.calls().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, inventory.calls().size());
+    }
+}
@@ -0,0 +1,222 @@
+package com.skishop.payment.service.reconciliation;
+
+import com.skishop.payment.repository.jdbc.PaymentReconciliationRepository;
+import com.skishop.payment.repository.jdbc.PaymentReconciliationRepository.Discrepancy;
+import com.skishop.payment.repository.jdbc.PaymentReconciliationRepository.PaymentRow;
+import com.skishop.payment.repository.jdbc.PaymentReconciliationRepository.Run;
+import com.skishop.payment.repository.jdbc.PaymentReconciliationRepository.RunStatus;
+import com.skishop.payment.service.gateway.FakePaymentGateway;
+import com.skishop.payment.service.gateway.PaymentGatewayException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentReconciliationJobTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 10, 17, 0, 0);
+    private static final LocalDateTime TO = FROM.plusDays(1);
+    private static final Comparator<PaymentRow> KEYSET =
+        Comparator.comparing(PaymentRow::createdAt).thenComparing(PaymentRow::id);
+
+    @Mock
+    PaymentReconciliationRepository repository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final FakePaymentGateway gateway = new FakePaymentGateway();
+    private final List<PaymentRow> payments = new ArrayList<>();
+    /** Batches recorded by the job, in order */
+    private final List<RecordedBatch> batches = new ArrayList<>();
+
+    private PaymentReconciliationJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new PaymentReconciliationJob(repository, gateway, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "segmentSize", 3);
+        ReflectionTestUtils.setField(job, "batchSize", 2);
+        ReflectionTestUtils.setField(job, "maxConcurrentCalls", 4);
+        ReflectionTestUtils.setField(job, "callsPerSecond", 10_000.0);
+        ReflectionTestUtils.setField(job, "maxAttempts", 1);
+        ReflectionTestUtils.setField(job, "staleAfterMinutes", 30L);
+        job.init();
+    }
+
+    @Test
+    @DisplayName("payments are classified against the gateway's intents")
+    void reconcile_classifiesDiscrepancies() {
+        PaymentRow matching = payment("pi_match", "COMPLETED", "1000", "JPY");
+        PaymentRow refunded = payment("pi_refunded", "REFUNDED", "1000", "JPY");
+        PaymentRow statusMismatch = payment("pi_status", "PENDING", "1000", "JPY");
+        PaymentRow amountMismatch = payment("pi_amount", "COMPLETED", "19.99", "USD");
+        PaymentRow currencyMismatch = payment("pi_currency", "COMPLETED", "1000", "JPY");
+        PaymentRow missing = payment("pi_missing", "COMPLETED", "1000", "JPY");
+        PaymentRow unverified = payment("pi_down", "COMPLETED", "1000", "JPY");
+        PaymentRow noStatus = payment("pi_no_status", null, "1000", "JPY");
+        gateway.intent("pi_match", "succeeded", 1000, "jpy")
+            .intent("pi_refunded", "succeeded", 1000, "jpy")
+            .intent("pi_status", "succeeded", 1000, "jpy")
+            .intent("pi_amount", "succeeded", 2000, "usd")
+            .intent("pi_currency", "succeeded", 1000, "usd")
+            .intent("pi_no_status", "succeeded", 1000, "jpy")
+            .failing("pi_down", PaymentGatewayException.Reason.UNAVAILABLE);
+        Run run = run(null);
+        givenRun(run, run);
+
+        job.reconcile(FROM, TO);
+
+        Map<UUID, List<Discrepancy>> found = batches.stream()
+            .flatMap(batch -> batch.discrepancies().stream())
+            .collect(Collectors.groupingBy(Discrepancy::paymentId));
+        assertFalse(found.containsKey(matching.id()));
+        assertFalse(found.containsKey(refunded.id()));
+        assertEquals(List.of(new Discrepancy(statusMismatch.id(), "pi_status", "STATUS_MISMATCH", "PENDING", "succeeded")),
+            found.get(statusMismatch.id()));
+        assertEquals(List.of(new Discrepancy(amountMismatch.id(), "pi_amount", "AMOUNT_MISMATCH", "1999", "2000")),
+            found.get(amountMismatch.id()));
+        assertEquals(List.of(new Discrepancy(currencyMismatch.id(), "pi_currency", "CURRENCY_MISMATCH", "JPY", "usd")),
+            found.get(currencyMismatch.id()));
+        assertEquals(List.of(new Discrepancy(missing.id(), "pi_missing", "MISSING_AT_GATEWAY", "COMPLETED", null)),
+            found.get(missing.id()));
+        assertEquals(List.of(new Discrepancy(unverified.id(), "pi_down", "UNVERIFIED", "COMPLETED", "UNAVAILABLE")),
+            found.get(unverified.id()));
+        assertEquals(List.of(new Discrepancy(noStatus.id(), "pi_no_status", "STATUS_MISMATCH", null, "succeeded")),
+            found.get(noStatus.id()));
+        verify(repository).finish(run.id(), RunStatus.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("every batch moves the checkpoint, and a failed run resumes after its last batch")
+    void reconcile_resumesAfterCheckpoint() {
+        for (int i = 0; i < 7; i++) {
+            payment("pi_" + i, "COMPLETED", "1000", "JPY");
+            gateway.intent("pi_" + i, "succeeded", 1000, "jpy");
+        }
+        Run fresh = run(null);
+        givenRun(fresh, fresh);
+        // The batch of the fourth and fifth payments fails to commit
+        doThrow(new IllegalStateException("database down")).when(repository).recordBatch(
+            eq(fresh.id()), eq(payments.get(4)), anyInt(), any());
+
+        job.reconcile(FROM, TO);
+
+        verify(repository).finish(fresh.id(), RunStatus.FAILED);
+        assertEquals(List.of(payments.get(1), payments.get(2)), batches.stream().map(RecordedBatch::last).toList());
+
+        // The next run is claimed with the checkpoint of the last committed batch
+        Run resumed = run(payments.get(2));
+        givenRun(fresh, resumed);
+        gateway.retrieved().clear();
+        batches.clear();
+
+        job.reconcile(FROM, TO);
+
+        assertEquals(List.of("pi_3", "pi_4", "pi_5", "pi_6"), gateway.retrieved().stream().sorted().toList());
+        assertEquals(List.of(payments.get(4), payments.get(5), payments.get(6)),
+            batches.stream().map(RecordedBatch::last).toList());
+        verify(repository).finish(fresh.id(), RunStatus.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("a stale running run is taken over from its checkpoint, a live one is left alone")
+    void reconcileNightly_takesOverStaleRuns() {
+        for (int i = 0; i < 3; i++) {
+            payment("pi_" + i, "COMPLETED", "1000", "JPY");
+            gateway.intent("pi_" + i, "succeeded", 1000, "jpy");
+        }
+        Run stale = new Run(UUID.randomUUID(), FROM, TO, RunStatus.RUNNING, null, null);
+        Run live = new Run(UUID.randomUUID(), FROM.minusDays(1), FROM, RunStatus.RUNNING, null, null);
+        Duration staleAfter = Duration.ofMinutes(30);
+        when(repository.findUnfinishedRuns(staleAfter)).thenReturn(List.of(live, stale));
+        when(repository.claim(live.id(), staleAfter)).thenReturn(Optional.empty());
+        when(repository.claim(stale.id(), staleAfter)).thenReturn(Optional.of(
+            new Run(stale.id(), FROM, TO, RunStatus.RUNNING, payments.get(0).createdAt(), payments.get(0).id())));
+        givenStreaming();
+
+        job.reconcileNightly();
+
+        assertEquals(List.of("pi_1", "pi_2"), gateway.retrieved().stream().sorted().toList());
+        verify(repository).finish(stale.id(), RunStatus.COMPLETED);
+        verify(repository, never()).finish(eq(live.id()), any());
+    }
+
+    private void givenRun(Run created, Run claimed) {
+        when(repository.findOrCreateRun(FROM, TO)).thenReturn(created);
+        when(repository.claim(created.id(), Duration.ofMinutes(30))).thenReturn(Optional.of(claimed));
+        givenStreaming();
+    }
+
+    /**
+     * Stream the payments after the run's checkpoint in keyset order, as the repository does
+     */
+    private void givenStreaming() {
+        doAnswer(invocation -> {
+            Run run = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            Consumer<PaymentRow> consumer = invocation.getArgument(2);
+            List<PaymentRow> segment = payments.stream()
+                .filter(payment -> run.checkpointPaymentId() == null || KEYSET.compare(payment, checkpoint(run)) > 0)
+                .sorted(KEYSET)
+                .limit(limit)
+                .toList();
+            segment.forEach(consumer);
+            return segment.size();
+        }).when(repository).streamPayments(any(), anyInt(), any());
+        doAnswer(invocation -> record(invocation.getArgument(1), invocation.getArgument(3)))
+            .when(repository).recordBatch(any(), any(), anyInt(), any());
+    }
+
+    private Object record(PaymentRow last, List<Discrepancy> discrepancies) {
+        batches.add(new RecordedBatch(last, discrepancies));
+        return null;
+    }
+
+    private static PaymentRow checkpoint(Run run) {
+        return new PaymentRow(run.checkpointPaymentId(), null, null, null, null, run.checkpointCreatedAt());
+    }
+
+    private PaymentRow payment(String paymentIntentId, String status, String amount, String currency) {
+        PaymentRow payment = new PaymentRow(UUID.randomUUID(), paymentIntentId, status, new BigDecimal(amount), currency,
+            FROM.plusMinutes(payments.size()));
+        payments.add(payment);
+        return payment;
+    }
+
+    private static Run run(PaymentRow checkpoint) {
+        return new Run(UUID.nameUUIDFromBytes(FROM.toString().getBytes()), FROM, TO, RunStatus.RUNNING,
+            checkpoint != null ? checkpoint.createdAt() : null, checkpoint != null ? checkpoint.id() : null);
+    }
+
+    private record RecordedBatch(PaymentRow last, List<Discrepancy> discrepancies) {
+    }
+}
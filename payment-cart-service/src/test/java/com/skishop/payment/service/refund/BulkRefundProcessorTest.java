@@ -0,0 +1,216 @@
+package com.skishop.payment.service.refund;
+
+import com.skishop.payment.entity.Payment;
+import com.skishop.payment.repository.PaymentRepository;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository.ItemStatus;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository.Job;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository.JobStatus;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository.Outcome;
+import com.skishop.payment.repository.jdbc.PaymentRefundJobRepository.PendingItem;
+import com.skishop.payment.service.gateway.FakePaymentGateway;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkRefundProcessorTest {
+
+    @Mock
+    PaymentRefundJobRepository jobRepository;
+
+    @Mock
+    PaymentRepository paymentRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final FakePaymentGateway gateway = new FakePaymentGateway();
+    /** Items still pending, by payment ID, as the job's item table holds them */
+    private final Map<UUID, PendingItem> pending = new HashMap<>();
+    /** Batches of outcomes committed, in order */
+    private final List<List<Outcome>> committed = new ArrayList<>();
+    private final Map<UUID, Payment> payments = new HashMap<>();
+
+    private BulkRefundProcessor processor;
+
+    /** UUID order of the database, which compares them as unsigned bytes */
+    private static final Comparator<UUID> DATABASE_ORDER = Comparator.comparing(UUID::toString);
+
+    @BeforeEach
+    void setUp() {
+        processor = new BulkRefundProcessor(jobRepository, gateway, new PaymentRefundRecorder(paymentRepository),
+            new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(processor, "batchSize", 2);
+        ReflectionTestUtils.setField(processor, "maxConcurrentCalls", 4);
+        ReflectionTestUtils.setField(processor, "callsPerSecond", 10_000.0);
+        ReflectionTestUtils.setField(processor, "maxAttempts", 1);
+        ReflectionTestUtils.setField(processor, "staleAfterMinutes", 10L);
+        processor.init();
+
+        lenient().when(jobRepository.findPendingItems(any(), any(), anyInt())).thenAnswer(invocation -> {
+            UUID after = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return pending.values().stream()
+                .filter(item -> DATABASE_ORDER.compare(item.paymentId(), after) > 0)
+                .sorted(Comparator.comparing(PendingItem::paymentId, DATABASE_ORDER))
+                .limit(limit)
+                .toList();
+        });
+        lenient().doAnswer(invocation -> {
+            List<Outcome> outcomes = invocation.getArgument(1);
+            outcomes.forEach(outcome -> pending.remove(outcome.paymentId()));
+            committed.add(outcomes);
+            return null;
+        }).when(jobRepository).recordOutcomes(any(), any());
+        lenient().when(paymentRepository.findById(any()))
+            .thenAnswer(invocation -> Optional.ofNullable(payments.get(invocation.<UUID>getArgument(0))));
+        lenient().when(paymentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("each batch commits its outcomes and the next batch starts after it")
+    void processJobs_checkpointsEveryBatch() {
+        List<UUID> paymentIds = givenPayments(5);
+        Job job = job();
+        when(jobRepository.claimNext(any())).thenReturn(Optional.of(job), Optional.empty());
+
+        processor.processJobs();
+
+        assertEquals(List.of(paymentIds.subList(0, 2), paymentIds.subList(2, 4), paymentIds.subList(4, 5)),
+            committed.stream().map(batch -> batch.stream().map(Outcome::paymentId).sorted(DATABASE_ORDER).toList()).toList());
+        verify(jobRepository).findPendingItems(job.id(), new UUID(0, 0), 2);
+        verify(jobRepository).findPendingItems(job.id(), paymentIds.get(1), 2);
+        verify(jobRepository).findPendingItems(job.id(), paymentIds.get(3), 2);
+        verify(jobRepository).complete(job.id());
+        assertTrue(paymentIds.stream().allMatch(id -> payments.get(id).getStatus() == Payment.PaymentStatus.REFUNDED));
+    }
+
+    @Test
+    @DisplayName("a batch replayed after a crash gets the original refunds, not second ones")
+    void processJobs_replaysBatchIdempotently() {
+        List<UUID> paymentIds = givenPayments(2);
+        Job job = job();
+        when(jobRepository.claimNext(any())).thenReturn(Optional.of(job), Optional.empty(), Optional.of(job), Optional.empty());
+        // The first attempt dies after refunding, before its batch commits
+        doAnswer(invocation -> {
+            throw new IllegalStateException("connection lost");
+        }).doAnswer(invocation -> {
+            List<Outcome> outcomes = invocation.getArgument(1);
+            outcomes.forEach(outcome -> pending.remove(outcome.paymentId()));
+            committed.add(outcomes);
+            return null;
+        }).when(jobRepository).recordOutcomes(eq(job.id()), any());
+
+        processor.processJobs();
+
+        verify(jobRepository).release(job.id());
+        assertEquals(2, pending.size());
+
+        processor.processJobs();
+
+        assertTrue(pending.isEmpty());
+        assertEquals(4, gateway.refundKeys().size());
+        assertEquals(2, gateway.refundsCreated());
+        assertTrue(paymentIds.stream().allMatch(id -> payments.get(id).getStatus() == Payment.PaymentStatus.REFUNDED));
+        verify(jobRepository).complete(job.id());
+    }
+
+    @Test
+    @DisplayName("a refund the gateway did not accept fails, and a pending one is submitted without refunding the payment yet")
+    void processJobs_failsRefundsTheGatewayDidNotAccept() {
+        UUID paymentId = givenPayments(1).getFirst();
+        gateway.refundStatus("requires_action");
+        when(jobRepository.claimNext(any())).thenReturn(Optional.of(job()), Optional.empty());
+
+        processor.processJobs();
+
+        Outcome outcome = committed.getFirst().getFirst();
+        assertEquals(ItemStatus.FAILED, outcome.status());
+        assertEquals("Refund is requires_action", outcome.failureReason());
+        assertEquals(Payment.PaymentStatus.COMPLETED, payments.get(paymentId).getStatus());
+
+        pending.put(paymentId, pendingItem(paymentId));
+        gateway.refundStatus("pending");
+        Job retry = job();
+        when(jobRepository.claimNext(any())).thenReturn(Optional.of(retry), Optional.empty());
+
+        processor.processJobs();
+
+        // A later job asks again under its own key instead of replaying the failure
+        assertEquals(ItemStatus.SUBMITTED, committed.getLast().getFirst().status());
+        assertEquals(Payment.PaymentStatus.COMPLETED, payments.get(paymentId).getStatus());
+        assertEquals("pending", payments.get(paymentId).getGatewayResponse().get("refund_status"));
+        assertEquals(2, gateway.refundsCreated());
+    }
+
+    @Test
+    @DisplayName("payments made through another provider are skipped instead of sent to the active gateway")
+    void processJobs_skipsOtherProviders() {
+        UUID paymentId = givenPayments(1).getFirst();
+        pending.put(paymentId, new PendingItem(paymentId, "pi_" + paymentId, "COMPLETED", new BigDecimal("1000"), "JPY",
+            "stripe"));
+        when(jobRepository.claimNext(any())).thenReturn(Optional.of(job()), Optional.empty());
+
+        processor.processJobs();
+
+        Outcome outcome = committed.getFirst().getFirst();
+        assertEquals(ItemStatus.SKIPPED, outcome.status());
+        assertEquals("Payment was made through stripe, not fake", outcome.failureReason());
+        assertTrue(gateway.refundKeys().isEmpty());
+        assertEquals(Payment.PaymentStatus.COMPLETED, payments.get(paymentId).getStatus());
+    }
+
+    private List<UUID> givenPayments(int count) {
+        List<UUID> paymentIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UUID paymentId = UUID.randomUUID();
+            payments.put(paymentId, Payment.builder()
+                .id(paymentId)
+                .amount(new BigDecimal("1000"))
+                .currency("JPY")
+                .status(Payment.PaymentStatus.COMPLETED)
+                .build());
+            pending.put(paymentId, pendingItem(paymentId));
+            paymentIds.add(paymentId);
+        }
+        paymentIds.sort(DATABASE_ORDER);
+        return paymentIds;
+    }
+
+    private static PendingItem pendingItem(UUID paymentId) {
+        return new PendingItem(paymentId, "pi_" + paymentId, "COMPLETED", new BigDecimal("1000"), "JPY", "fake");
+    }
+
+    private Job job() {
+        LocalDateTime now = LocalDateTime.now();
+        return new Job(UUID.randomUUID(), JobStatus.RUNNING, "recall", "operator", pending.size(), 0, 0, 0, 0,
+            now, now, now, null);
+    }
+}
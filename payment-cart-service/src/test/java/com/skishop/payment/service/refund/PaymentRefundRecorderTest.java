@@ -0,0 +1,81 @@
+package com.skishop.payment.service.refund;
+
+import com.skishop.payment.entity.Payment;
+import com.skishop.payment.repository.PaymentRepository;
+import com.skishop.payment.service.gateway.GatewayRefund;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentRefundRecorderTest {
+
+    @Mock
+    PaymentRepository paymentRepository;
+
+    private PaymentRefundRecorder recorder;
+    private Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        recorder = new PaymentRefundRecorder(paymentRepository);
+        payment = Payment.builder()
+            .id(UUID.randomUUID())
+            .amount(new BigDecimal("100.00"))
+            .currency("USD")
+            .status(Payment.PaymentStatus.COMPLETED)
+            .build();
+        lenient().when(paymentRepository.findById(payment.getId())).thenReturn(Optional.of(payment));
+        lenient().when(paymentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("refunds add up: partially refunded below the payment total, refunded once they reach it")
+    void record_addsUpRefunds() {
+        recorder.record(payment.getId(), new GatewayRefund("re_1", "succeeded", 4_000));
+
+        assertEquals(Payment.PaymentStatus.PARTIALLY_REFUNDED, payment.getStatus());
+        assertEquals(new BigDecimal("40.00"), payment.getRefundedAmount());
+
+        recorder.record(payment.getId(), new GatewayRefund("re_2", "succeeded", 6_000));
+
+        assertEquals(Payment.PaymentStatus.REFUNDED, payment.getStatus());
+        assertEquals(new BigDecimal("100.00"), payment.getRefundedAmount());
+    }
+
+    @Test
+    @DisplayName("recording the same refund twice counts it once")
+    void record_isIdempotent() {
+        recorder.record(payment.getId(), new GatewayRefund("re_1", "succeeded", 4_000));
+        recorder.record(payment.getId(), new GatewayRefund("re_1", "succeeded", 4_000));
+
+        assertEquals(new BigDecimal("40.00"), payment.getRefundedAmount());
+        assertEquals(Payment.PaymentStatus.PARTIALLY_REFUNDED, payment.getStatus());
+    }
+
+    @Test
+    @DisplayName("a pending refund is noted but neither counted nor terminal until it settles")
+    void record_leavesPendingRefundsOpen() {
+        GatewayRefund pending = new GatewayRefund("re_1", "pending", 10_000);
+        assertTrue(recorder.isAccepted(pending));
+        assertTrue(recorder.isPending(pending));
+
+        recorder.record(payment.getId(), pending);
+
+        assertEquals(Payment.PaymentStatus.COMPLETED, payment.getStatus());
+        assertEquals(0, payment.getRefundedAmount().signum());
+        assertEquals("re_1", payment.getGatewayResponse().get("refund_id"));
+        assertEquals("pending", payment.getGatewayResponse().get("refund_status"));
+    }
+}
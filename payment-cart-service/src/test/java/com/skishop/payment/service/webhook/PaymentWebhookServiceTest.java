@@ -0,0 +1,175 @@
+package com.skishop.payment.service.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.payment.entity.Payment;
+import com.skishop.payment.repository.PaymentRepository;
+import com.skishop.payment.repository.jdbc.PaymentWebhookEventRepository;
+import com.skishop.payment.repository.jdbc.PaymentWebhookEventRepository.StoredEvent;
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentWebhookServiceTest {
+
+    private static final String SECRET = "whsec_test";
+
+    @Mock
+    PaymentRepository paymentRepository;
+
+    @Mock
+    PaymentWebhookEventRepository eventRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PaymentWebhookService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PaymentWebhookService(paymentRepository, eventRepository, new TransactionTemplate(transactionManager),
+            new ObjectMapper(), meterRegistry);
+        ReflectionTestUtils.setField(service, "webhookSecret", SECRET);
+        ReflectionTestUtils.setField(service, "signatureToleranceSeconds", 300L);
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "batchWindowMs", 10L);
+        ReflectionTestUtils.setField(service, "seenCacheSize", 100);
+        ReflectionTestUtils.setField(service, "retryAfterSeconds", 60L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    @Test
+    @DisplayName("a verified event is stored before the gateway is acknowledged")
+    void receive_storesVerifiedEvent() {
+        when(eventRepository.store(any())).thenReturn(true);
+        String payload = succeeded("evt_1", "pi_1");
+
+        service.receive(payload, sign(payload));
+
+        verify(eventRepository).store(new StoredEvent("evt_1", "payment_intent.succeeded", 1_700_000_000L, "pi_1",
+            "COMPLETED", null));
+        assertEquals(1.0, meterRegistry.get("payment.webhook.events").tag("outcome", "accepted").counter().count());
+    }
+
+    @Test
+    @DisplayName("an invalid signature or payload answers 400 without storing anything")
+    void receive_rejectsInvalidRequests() {
+        String payload = succeeded("evt_1", "pi_1");
+        ResponseStatusException badSignature = assertThrows(ResponseStatusException.class,
+            () -> service.receive(payload, sign(payload).replace("v1=", "v1=0")));
+        assertEquals(HttpStatus.BAD_REQUEST, badSignature.getStatusCode());
+
+        String malformed = "{\"type\": \"payment_intent.succeeded\"";
+        ResponseStatusException badPayload = assertThrows(ResponseStatusException.class,
+            () -> service.receive(malformed, sign(malformed)));
+        assertEquals(HttpStatus.BAD_REQUEST, badPayload.getStatusCode());
+
+        verify(eventRepository, never()).store(any());
+    }
+
+    @Test
+    @DisplayName("an event that cannot be stored answers 503 so that the gateway redelivers it")
+    void receive_failsWhenStoreFails() {
+        when(eventRepository.store(any())).thenThrow(new QueryTimeoutException("pool exhausted"));
+        String payload = succeeded("evt_1", "pi_1");
+
+        ResponseStatusException unavailable = assertThrows(ResponseStatusException.class,
+            () -> service.receive(payload, sign(payload)));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, unavailable.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("a pending event is applied to its payment and marked processed")
+    void applyPendingEvents_appliesMatchedEvents() {
+        Payment payment = Payment.builder().paymentIntentId("pi_1").status(Payment.PaymentStatus.PENDING).build();
+        givenPending(storedEvent("evt_1", "pi_1"));
+        when(paymentRepository.findByPaymentIntentIdIn(any())).thenReturn(List.of(payment));
+
+        service.applyPendingEvents();
+
+        assertEquals(Payment.PaymentStatus.COMPLETED, payment.getStatus());
+        verify(eventRepository).markProcessed(List.of("evt_1"));
+        verify(eventRepository, never()).recordFailedAttempts(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("an event that arrives before its payment is saved stays pending instead of being dropped")
+    void applyPendingEvents_keepsUnmatchedEventsPending() {
+        givenPending(storedEvent("evt_1", "pi_unknown"));
+        when(paymentRepository.findByPaymentIntentIdIn(any())).thenReturn(List.of());
+        when(eventRepository.recordFailedAttempts(List.of("evt_1"), 3)).thenReturn(List.of());
+
+        service.applyPendingEvents();
+
+        verify(eventRepository, never()).markProcessed(any());
+        verify(eventRepository).recordFailedAttempts(List.of("evt_1"), 3);
+    }
+
+    @Test
+    @DisplayName("an event that keeps failing is given up at the attempt limit")
+    void applyPendingEvents_givesUpAtAttemptLimit() {
+        givenPending(storedEvent("evt_1", "pi_1"));
+        when(paymentRepository.findByPaymentIntentIdIn(any())).thenThrow(new IllegalStateException("broken row"));
+        when(eventRepository.recordFailedAttempts(List.of("evt_1"), 3)).thenReturn(List.of("evt_1"));
+
+        service.applyPendingEvents();
+
+        verify(eventRepository, never()).markProcessed(any());
+        assertEquals(1.0, meterRegistry.get("payment.webhook.events").tag("outcome", "dead").counter().count());
+    }
+
+    private void givenPending(StoredEvent event) {
+        when(eventRepository.findPendingIds(any(), anyInt())).thenReturn(List.of(event.id()));
+        when(eventRepository.claim(List.of(event.id()))).thenReturn(List.of(event));
+    }
+
+    private static StoredEvent storedEvent(String id, String paymentIntentId) {
+        return new StoredEvent(id, "payment_intent.succeeded", 1_700_000_000L, paymentIntentId, "COMPLETED", null);
+    }
+
+    private static String succeeded(String eventId, String paymentIntentId) {
+        return """
+            {"id": "%s", "type": "payment_intent.succeeded", "created": 1700000000,
+             "data": {"object": {"id": "%s"}}}
+            """.formatted(eventId, paymentIntentId);
+    }
+
+    private static String sign(String payload) {
+        long timestamp = Webhook.Util.getTimeNow();
+        try {
+            return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(SECRET, timestamp + "." + payload);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
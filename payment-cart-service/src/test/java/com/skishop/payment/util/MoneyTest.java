@@ -0,0 +1,76 @@
+package com.skishop.payment.util;
+
+import com.skishop.payment.entity.Cart;
+import com.skishop.payment.entity.CartItem;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    private static final Currency JPY = Currency.getInstance("JPY");
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @Test
+    @DisplayName("decimal amounts round HALF_UP to the currency's fraction digits")
+    void of_roundsToCurrencyScale() {
+        assertEquals(1235L, Money.of(new BigDecimal("12.345"), USD).minorUnits());
+        assertEquals(1234L, Money.of(new BigDecimal("12.344"), USD).minorUnits());
+        assertEquals(13L, Money.of(new BigDecimal("12.5"), JPY).minorUnits());
+        assertEquals(new BigDecimal("12.35"), Money.of(new BigDecimal("12.345"), USD).toBigDecimal());
+        assertEquals(new BigDecimal("13"), Money.of(new BigDecimal("12.5"), JPY).toBigDecimal());
+    }
+
+    @Test
+    @DisplayName("arithmetic stays in minor units")
+    void arithmetic_isExact() {
+        Money price = Money.of(new BigDecimal("19.99"), USD);
+
+        assertEquals(new BigDecimal("59.97"), price.times(3).toBigDecimal());
+        assertEquals(new BigDecimal("39.98"), price.plus(price).toBigDecimal());
+        assertEquals(new BigDecimal("0.00"), price.minus(price).toBigDecimal());
+        assertEquals(800_00L, Money.ofMajor(800, USD).minorUnits());
+        assertEquals(800L, Money.ofMajor(800, JPY).minorUnits());
+    }
+
+    @Test
+    @DisplayName("basis point rates round HALF_UP in both directions")
+    void percentOf_roundsHalfUp() {
+        assertEquals(100L, Money.ofMinor(1_000L, JPY).percentOf(1_000).minorUnits());
+        assertEquals(1L, Money.ofMinor(5L, JPY).percentOf(1_000).minorUnits());
+        assertEquals(0L, Money.ofMinor(4L, JPY).percentOf(1_000).minorUnits());
+        assertEquals(-1L, Money.ofMinor(-5L, JPY).percentOf(1_000).minorUnits());
+    }
+
+    @Test
+    @DisplayName("amounts in different currencies are not combined")
+    void mixedCurrencies_areRejected() {
+        Money yen = Money.ofMajor(100, JPY);
+        Money dollars = Money.ofMajor(1, USD);
+
+        assertThrows(IllegalArgumentException.class, () -> yen.plus(dollars));
+        assertThrows(IllegalArgumentException.class, () -> yen.compareTo(dollars));
+    }
+
+    @Test
+    @DisplayName("cart line totals keep the cart currency's cents")
+    void cartItemTotal_usesCartCurrency() {
+        Cart cart = new Cart();
+        cart.setCurrency("USD");
+        CartItem item = CartItem.builder()
+            .cart(cart)
+            .unitPrice(new BigDecimal("19.99"))
+            .quantity(3)
+            .build();
+
+        item.calculateTotalPrice();
+        assertEquals(new BigDecimal("59.97"), item.getTotalPrice());
+
+        item.calculateTotalPrice(JPY);
+        assertEquals(new BigDecimal("60"), item.getTotalPrice());
+    }
+}
@@ -0,0 +1,9 @@
+package com.skishop.sales.config.routing;
+
+/**
+ * Target pool of a routed connection
+ */
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
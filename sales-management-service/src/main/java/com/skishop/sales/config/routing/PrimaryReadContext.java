@@ -0,0 +1,37 @@
+package com.skishop.sales.config.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound override that sends reads to the primary
+ * Must be entered before the transaction's first statement; the routing data source
+ * is wrapped in a lazy connection proxy, so the physical connection is chosen then.
+ */
+public final class PrimaryReadContext {
+
+    private static final ThreadLocal<Integer> DEPTH = new ThreadLocal<>();
+
+    private PrimaryReadContext() {
+    }
+
+    /**
+     * Run the supplier with every new connection routed to the primary
+     */
+    public static <T> T onPrimary(Supplier<T> supplier) {
+        Integer depth = DEPTH.get();
+        DEPTH.set(depth == null ? 1 : depth + 1);
+        try {
+            return supplier.get();
+        } finally {
+            if (depth == null) {
+                DEPTH.remove();
+            } else {
+                DEPTH.set(depth);
+            }
+        }
+    }
+
+    public static boolean isPrimaryForced() {
+        return DEPTH.get() != null;
+    }
+}
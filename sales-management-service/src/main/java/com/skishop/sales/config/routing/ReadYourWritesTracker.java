@@ -0,0 +1,72 @@
+package com.skishop.sales.config.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes window
+ * Remembers keys (customer, order) written in the last few seconds; reads for those keys
+ * go to the primary so that a customer sees an order right after placing it, even while
+ * the replica has not replayed it yet. Windows are tracked per service instance.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    private final long windowNanos;
+
+    public ReadYourWritesTracker(@Value("${app.datasource.replica.read-your-writes-window-ms:5000}") long windowMillis) {
+        this.windowNanos = windowMillis * 1_000_000L;
+    }
+
+    public static String customerKey(String customerId) {
+        return "customer:" + customerId;
+    }
+
+    public static String orderKey(Object orderIdOrNumber) {
+        return "order:" + orderIdOrNumber;
+    }
+
+    /**
+     * Open a window for keys written by the current request
+     */
+    public void recordWrite(String... keys) {
+        long expiry = System.nanoTime() + windowNanos;
+        for (String key : keys) {
+            expiries.put(key, expiry);
+        }
+        if (expiries.size() > PURGE_THRESHOLD) {
+            purgeExpired();
+        }
+    }
+
+    public boolean isRecentlyWritten(String key) {
+        Long expiry = expiries.get(key);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry - System.nanoTime() > 0) {
+            return true;
+        }
+        expiries.remove(key, expiry);
+        return false;
+    }
+
+    /**
+     * Run a read on the primary if the key was written within the window
+     */
+    public <T> T read(String key, Supplier<T> reader) {
+        return isRecentlyWritten(key) ? PrimaryReadContext.onPrimary(reader) : reader.get();
+    }
+
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        expiries.entrySet().removeIf(entry -> entry.getValue() - now <= 0);
+    }
+}
@@ -0,0 +1,69 @@
+package com.skishop.sales.config.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Replica lag monitor
+ * Periodically measures replication lag on the replica. The replica is only used while
+ * the last probe succeeded and reported a lag within the configured limit.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final String lagQuery;
+    private final long maxLagMillis;
+
+    private volatile boolean replicaUsable;
+    private volatile long lastLagMillis = -1;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+        this.replicaJdbcTemplate.setQueryTimeout(Math.max(1, (int) maxLag.toSeconds()));
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLag.toMillis();
+    }
+
+    /**
+     * Probe the replica and update its usability
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        boolean usable;
+        try {
+            Double lag = replicaJdbcTemplate.queryForObject(lagQuery, Double.class);
+            lastLagMillis = lag != null ? lag.longValue() : 0L;
+            usable = lastLagMillis <= maxLagMillis;
+        } catch (Exception e) {
+            lastLagMillis = -1;
+            usable = false;
+            log.debug("Replica lag probe failed", e);
+        }
+
+        if (usable != replicaUsable) {
+            if (usable) {
+                log.info("Read replica usable again (lag {} ms)", lastLagMillis);
+            } else {
+                log.warn("Routing reads to primary: replica lag {} ms exceeds {} ms or replica unreachable",
+                        lastLagMillis, maxLagMillis);
+            }
+        }
+        replicaUsable = usable;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * Last measured lag in milliseconds, or -1 if the last probe failed
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+}
@@ -0,0 +1,36 @@
+package com.skishop.sales.config.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Routes read-only transactions to the replica pool
+ * Everything else goes to the primary, as do read-only transactions while the replica
+ * is lagging or unreachable, and reads pinned by {@link PrimaryReadContext}.
+ * Wrap in a LazyConnectionDataSourceProxy so the key is resolved after the transaction's
+ * read-only flag has been bound.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(DataSourceRole.PRIMARY, primary, DataSourceRole.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (PrimaryReadContext.isPrimaryForced()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || !lagMonitor.isReplicaUsable()) {
+            return DataSourceRole.PRIMARY;
+        }
+        return DataSourceRole.REPLICA;
+    }
+}
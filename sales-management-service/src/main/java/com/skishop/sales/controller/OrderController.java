@@ -2,8 +2,14 @@ package com.skishop.sales.controller;
 
 import com.skishop.sales.dto.request.OrderCreateRequest;
 import com.skishop.sales.dto.request.OrderStatusUpdateRequest;
+import com.skishop.sales.dto.response.CustomerOrderSummaryResponse;
 import com.skishop.sales.dto.response.OrderResponse;
+import com.skishop.sales.dto.response.OrderSearchResponse;
 import com.skishop.sales.service.OrderService;
+import com.skishop.sales.service.idempotency.IdempotencyService;
+import com.skishop.sales.service.idempotency.IdempotentResult;
+import com.skishop.sales.service.search.OrderSearchService;
+import com.skishop.sales.service.summary.CustomerOrderSummaryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -17,6 +23,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -29,7 +36,13 @@ import java.util.UUID;
 @Tag(name = "Order Management", description = "Order Management API")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final OrderSearchService orderSearchService;
+    private final CustomerOrderSummaryService customerOrderSummaryService;
 
     /**
      * Create Order
@@ -37,11 +50,22 @@ public class OrderController {
     @PostMapping
     @Operation(summary = "Create Order", description = "Creates a new order")
     public ResponseEntity<OrderResponse> createOrder(
+            @Parameter(description = "Idempotency key for safe retries") @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody OrderCreateRequest request) {
         log.info("Creating order for customer: {}", request.customerId());
         
-        OrderResponse response = orderService.createOrder(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            OrderResponse response = orderService.createOrder(request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+        
+        // Scoped per customer so that keys from different customers never collide
+        IdempotentResult<OrderResponse> result = idempotencyService.execute(
+                "order:" + request.customerId(), idempotencyKey, request, OrderResponse.class,
+                () -> orderService.createOrder(request));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.value());
     }
 
     /**
@@ -84,6 +108,17 @@ public class OrderController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get customer order summary
+     */
+    @GetMapping("/customer/{customerId}/summary")
+    @Operation(summary = "Get customer order summary",
+            description = "Get order count, lifetime spend, status counts and recent orders for the specified customer")
+    public ResponseEntity<CustomerOrderSummaryResponse> getCustomerOrderSummary(
+            @Parameter(description = "Customer ID") @PathVariable String customerId) {
+        return ResponseEntity.ok(customerOrderSummaryService.getSummary(customerId));
+    }
+
     /**
      * Update order status
      */
@@ -114,36 +149,20 @@ public class OrderController {
 
     /**
      * Search orders
-     * Uses Java 21 Switch expressions to handle search criteria
+     * Matches partial order number, customer ID, recipient name, phone or tracking number
      */
     @GetMapping("/search")
-    @Operation(summary = "Search orders", description = "Search orders with specified criteria")
-    public ResponseEntity<Page<OrderResponse>> searchOrders(
+    @Operation(summary = "Search orders", description = "Search orders by partial order number, customer, recipient name, phone or tracking number (at least 3 letters or digits)")
+    public ResponseEntity<List<OrderSearchResponse>> searchOrders(
+            @Parameter(description = "Search text") @RequestParam("q") String query,
             @Parameter(description = "Customer ID") @RequestParam(required = false) String customerId,
             @Parameter(description = "Order status") @RequestParam(required = false) String status,
             @Parameter(description = "Payment status") @RequestParam(required = false) String paymentStatus,
-            @PageableDefault(size = 20) Pageable pageable) {
-        
-        var searchCriteria = String.format("customerId=%s, status=%s, paymentStatus=%s", 
-                customerId, status, paymentStatus);
-        log.info("Searching orders with criteria: {}", searchCriteria);
-        
-        // Search logic using Java 21 Switch expressions (for future implementation)
-        var searchType = switch (customerId != null ? "HAS_CUSTOMER" : "NO_CUSTOMER") {
-            case "HAS_CUSTOMER" -> status != null ? "CUSTOMER_AND_STATUS" : "CUSTOMER_ONLY";
-            case "NO_CUSTOMER" -> status != null ? "STATUS_ONLY" : "ALL";
-            default -> "ALL";
-        };
-        
-        log.debug("Search type determined: {}", searchType);
+            @Parameter(description = "Maximum number of results") @RequestParam(defaultValue = "20") int limit) {
+        log.debug("Searching orders: q={}, customerId={}, status={}, paymentStatus={}",
+                query, customerId, status, paymentStatus);
         
-        // Search logic based on search conditions (currently returns empty results)
-        // Future implementation will include the following search types:
-        // - CUSTOMER_AND_STATUS: Filter by customer ID and status
-        // - CUSTOMER_ONLY: Filter by customer ID
-        // - STATUS_ONLY: Filter by status
-        // - ALL: Get all
-        Page<OrderResponse> response = Page.empty();
+        List<OrderSearchResponse> response = orderSearchService.search(query, customerId, status, paymentStatus, limit);
         return ResponseEntity.ok(response);
     }
 }
@@ -5,6 +5,8 @@ import com.skishop.sales.dto.response.ReturnReportResponse;
 import com.skishop.sales.dto.response.SalesReportResponse;
 import com.skishop.sales.dto.response.ShippingReportResponse;
 import com.skishop.sales.service.ReportsService;
+import com.skishop.sales.service.export.SalesExportFormat;
+import com.skishop.sales.service.ranking.RankingWindow;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -18,8 +20,10 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Reports API Controller
@@ -54,6 +58,26 @@ public class ReportsController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get trending products
+     */
+    @GetMapping("/trending")
+    @Operation(summary = "Get trending products", description = "Retrieves best-selling products for the last hour, day or week")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved trending products"),
+        @ApiResponse(responseCode = "400", description = "Invalid parameters"),
+        @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    })
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SALES_MANAGER') or hasRole('ANALYST')")
+    public ResponseEntity<List<SalesReportResponse.TopProduct>> getTrendingProducts(
+            @Parameter(description = "Sliding window (HOUR, DAY, WEEK)") @RequestParam(defaultValue = "DAY") RankingWindow window,
+            @Parameter(description = "Result limit") @RequestParam(defaultValue = "10") int limit) {
+
+        log.info("Getting trending products for window: {}, limit: {}", window, limit);
+        List<SalesReportResponse.TopProduct> response = reportsService.getTrendingProducts(window, limit);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get product-specific sales report
      */
@@ -86,29 +110,25 @@ public class ReportsController {
         @ApiResponse(responseCode = "403", description = "Access denied")
     })
     @PreAuthorize("hasRole('ADMIN') or hasRole('SALES_MANAGER')")
-    public ResponseEntity<byte[]> exportSalesReport(
+    public ResponseEntity<StreamingResponseBody> exportSalesReport(
             @Parameter(description = "Start date") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
             @Parameter(description = "End date") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
-            @Parameter(description = "Export format (CSV, EXCEL, PDF)") @RequestParam(defaultValue = "CSV") String format) {
+            @Parameter(description = "Export format (CSV, COLUMNAR)") @RequestParam(defaultValue = "CSV") SalesExportFormat format) {
         
         log.info("Exporting sales report from {} to {}, format: {}", fromDate, toDate, format);
-        byte[] fileData = reportsService.exportSalesReport(fromDate, toDate, format);
         
         HttpHeaders headers = new HttpHeaders();
-        String filename = String.format("sales_report_%s_%s.%s", fromDate, toDate, format.toLowerCase());
+        String filename = String.format("sales_report_%s_%s.%s", fromDate, toDate, format.getFileExtension());
         headers.setContentDispositionFormData("attachment", filename);
         
-        MediaType mediaType = switch (format.toUpperCase()) {
-            case "CSV" -> MediaType.TEXT_PLAIN;
-            case "EXCEL" -> MediaType.APPLICATION_OCTET_STREAM;
-            case "PDF" -> MediaType.APPLICATION_PDF;
-            default -> MediaType.APPLICATION_OCTET_STREAM;
-        };
+        // Rows are written while the response is streamed, on the async request executor
+        StreamingResponseBody body = outputStream ->
+                reportsService.exportSalesReport(fromDate, toDate, format, outputStream);
         
         return ResponseEntity.ok()
                 .headers(headers)
-                .contentType(mediaType)
-                .body(fileData);
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
     }
 
     /**
@@ -21,6 +21,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.UUID;
+
 /**
  * Return Management API Controller
  */
@@ -66,7 +68,7 @@ public class ReturnController {
     })
     @PreAuthorize("hasRole('ADMIN') or hasRole('CUSTOMER_SERVICE') or hasRole('RETURN_PROCESSOR')")
     public ResponseEntity<ReturnDetailResponse> getReturnDetail(
-            @Parameter(description = "Return ID") @PathVariable Long id) {
+            @Parameter(description = "Return ID") @PathVariable UUID id) {
         
         log.info("Getting return detail for id: {}", id);
         ReturnDetailResponse response = returnService.getReturnDetail(id);
@@ -105,7 +107,7 @@ public class ReturnController {
     })
     @PreAuthorize("hasRole('ADMIN') or hasRole('CUSTOMER_SERVICE') or hasRole('RETURN_PROCESSOR')")
     public ResponseEntity<ReturnResponse> updateReturnStatus(
-            @Parameter(description = "Return ID") @PathVariable Long id,
+            @Parameter(description = "Return ID") @PathVariable UUID id,
             @Parameter(description = "Status update request") @Valid @RequestBody ReturnStatusUpdateRequest request) {
         
         log.info("Updating return status for id: {}, status: {}", id, request.status());
@@ -125,7 +127,7 @@ public class ReturnController {
     })
     @PreAuthorize("hasRole('ADMIN') or hasRole('CUSTOMER_SERVICE') or hasRole('RETURN_PROCESSOR')")
     public ResponseEntity<ReturnListResponse> getReturnsByOrder(
-            @Parameter(description = "Order ID") @PathVariable Long orderId) {
+            @Parameter(description = "Order ID") @PathVariable UUID orderId) {
         
         log.info("Getting returns for order: {}", orderId);
         ReturnListResponse response = returnService.getReturnsByOrder(orderId);
@@ -1,12 +1,15 @@
 package com.skishop.sales.controller;
 
+import com.skishop.sales.dto.request.CarrierTrackingBatchRequest;
 import com.skishop.sales.dto.request.ShipmentCreateRequest;
 import com.skishop.sales.dto.request.ShipmentStatusUpdateRequest;
 import com.skishop.sales.dto.request.TrackingUpdateRequest;
 import com.skishop.sales.dto.response.ShipmentDetailResponse;
 import com.skishop.sales.dto.response.ShipmentListResponse;
 import com.skishop.sales.dto.response.ShipmentResponse;
+import com.skishop.sales.dto.response.TrackingIngestionResponse;
 import com.skishop.sales.service.ShipmentService;
+import com.skishop.sales.service.tracking.TrackingIngestionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -15,8 +18,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -33,6 +38,10 @@ import org.springframework.web.bind.annotation.*;
 public class ShipmentController {
 
     private final ShipmentService shipmentService;
+    private final TrackingIngestionService trackingIngestionService;
+
+    @Value("${app.tracking.retry-after-seconds:5}")
+    private int retryAfterSeconds;
 
     /**
      * Get shipments list
@@ -153,4 +162,32 @@ public class ShipmentController {
         ShipmentResponse response = shipmentService.updateTracking(id.toString(), request);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Receive carrier tracking events
+     */
+    @PostMapping("/tracking-events")
+    @Operation(summary = "Receive Carrier Tracking Events", description = "Queues a burst of carrier tracking events for batched application")
+    @ApiResponses({
+        @ApiResponse(responseCode = "202", description = "Events queued"),
+        @ApiResponse(responseCode = "400", description = "Invalid request content"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "503", description = "Ingestion queue full; retry after the Retry-After interval")
+    })
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LOGISTICS_MANAGER') or hasRole('CARRIER')")
+    public ResponseEntity<TrackingIngestionResponse> receiveTrackingEvents(
+            @Parameter(description = "Carrier tracking events") @Valid @RequestBody CarrierTrackingBatchRequest request) {
+
+        boolean accepted = trackingIngestionService.enqueue(request.events());
+        TrackingIngestionResponse response = new TrackingIngestionResponse(
+                accepted ? request.events().size() : 0,
+                trackingIngestionService.queueDepth(),
+                trackingIngestionService.remainingCapacity());
+        if (!accepted) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(response);
+        }
+        return ResponseEntity.accepted().body(response);
+    }
 }
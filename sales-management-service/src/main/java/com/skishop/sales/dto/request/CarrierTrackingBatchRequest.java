@@ -0,0 +1,17 @@
+package com.skishop.sales.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Carrier Tracking Webhook Request
+ * A burst of tracking events delivered in one webhook call
+ */
+public record CarrierTrackingBatchRequest(
+    @NotEmpty(message = "Events are required")
+    @Size(max = 1000, message = "At most 1000 events per request")
+    List<@Valid CarrierTrackingEventRequest> events
+) {}
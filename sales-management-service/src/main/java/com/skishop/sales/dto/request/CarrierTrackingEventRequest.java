@@ -0,0 +1,27 @@
+package com.skishop.sales.dto.request;
+
+import com.skishop.sales.entity.jpa.Shipment;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Carrier Tracking Event
+ * One status scan reported by a carrier webhook
+ */
+public record CarrierTrackingEventRequest(
+    @NotBlank(message = "Tracking number is required")
+    String trackingNumber,
+
+    @NotBlank(message = "Carrier is required")
+    String carrier,
+
+    @NotNull(message = "Status is required")
+    Shipment.ShipmentStatus status,
+
+    @NotNull(message = "Event time is required")
+    LocalDateTime eventTime,
+
+    LocalDateTime estimatedDeliveryAt
+) {}
@@ -0,0 +1,35 @@
+package com.skishop.sales.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Customer Order Summary DTO
+ * Precomputed per-customer order statistics; lifetime spend excludes cancelled and returned orders
+ */
+public record CustomerOrderSummaryResponse(
+    String customerId,
+    long orderCount,
+    BigDecimal lifetimeSpend,
+    String currencyCode,
+    Map<String, Long> statusCounts,
+    List<RecentOrder> recentOrders,
+    LocalDateTime lastOrderDate) {
+
+    /**
+     * One of the customer's most recent orders
+     */
+    public record RecentOrder(
+        String orderId,
+        String orderNumber,
+        LocalDateTime orderDate,
+        String status,
+        BigDecimal totalAmount) {
+    }
+
+    public static CustomerOrderSummaryResponse empty(String customerId) {
+        return new CustomerOrderSummaryResponse(customerId, 0, BigDecimal.ZERO, null, Map.of(), List.of(), null);
+    }
+}
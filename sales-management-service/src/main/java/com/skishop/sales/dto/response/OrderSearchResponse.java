@@ -0,0 +1,20 @@
+package com.skishop.sales.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Order Search Result DTO
+ * Lightweight order summary served straight from the search index
+ */
+public record OrderSearchResponse(
+    String orderId,
+    String orderNumber,
+    String customerId,
+    String recipientName,
+    String phoneNumber,
+    List<String> trackingNumbers,
+    LocalDateTime orderDate,
+    String status,
+    String paymentStatus) {
+}
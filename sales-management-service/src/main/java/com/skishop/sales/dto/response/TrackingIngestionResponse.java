@@ -0,0 +1,11 @@
+package com.skishop.sales.dto.response;
+
+/**
+ * Tracking Ingestion Result DTO
+ * How many events were queued and how full the ingestion queue is
+ */
+public record TrackingIngestionResponse(
+    int accepted,
+    int queueDepth,
+    int remainingCapacity) {
+}
@@ -1,5 +1,6 @@
 package com.skishop.sales.entity.jpa;
 
+import com.skishop.sales.util.Money;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
@@ -8,6 +9,8 @@ import lombok.Builder;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -38,6 +41,12 @@ public class OrderItem {
     @Column(nullable = false)
     private UUID orderId;
 
+    /**
+     * Order date (partition key, copied from the order)
+     */
+    @Column(nullable = false)
+    private LocalDateTime orderDate;
+
     /**
      * Product ID
      */
@@ -108,8 +117,15 @@ public class OrderItem {
      * Leveraging Java 21's improved null handling
      */
     public void calculateSubtotal() {
+        calculateSubtotal(Money.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Calculate subtotal in minor units of the order currency
+     */
+    public void calculateSubtotal(Currency currency) {
         if (unitPrice != null && quantity != null) {
-            this.subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            this.subtotal = Money.of(unitPrice, currency).times(quantity).toBigDecimal();
         } else {
             this.subtotal = BigDecimal.ZERO;
         }
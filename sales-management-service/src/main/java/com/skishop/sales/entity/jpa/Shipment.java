@@ -77,6 +77,11 @@ public class Shipment {
      */
     private LocalDateTime deliveredAt;
 
+    /**
+     * Event time of the last applied carrier tracking update
+     */
+    private LocalDateTime lastTrackingEventAt;
+
     /**
      * Notes
      */
@@ -1,8 +1,13 @@
 package com.skishop.sales.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
 /**
  * Exception for business rule violations
+ * The request breaks a rule, so it is answered as a bad request rather than a server error
  */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
 public final class BusinessRuleViolationException extends SalesException {
 
     public BusinessRuleViolationException(String message) {
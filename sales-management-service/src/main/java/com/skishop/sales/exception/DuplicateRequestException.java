@@ -0,0 +1,20 @@
+package com.skishop.sales.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when an idempotency key is reused for a different request,
+ * or its first request is still running after the wait timeout
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class DuplicateRequestException extends RuntimeException {
+
+    public DuplicateRequestException(String message) {
+        super(message);
+    }
+
+    public DuplicateRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package com.skishop.sales.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a report is not ready before its deadline
+ */
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class ReportTimeoutException extends RuntimeException {
+
+    public ReportTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.skishop.sales.repository.jdbc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Customer order summary source row
+ * The fields of one order that feed its customer's order summary
+ */
+public record CustomerOrderRow(
+    UUID orderId,
+    String orderNumber,
+    String customerId,
+    LocalDateTime orderDate,
+    String status,
+    BigDecimal totalAmount,
+    String currencyCode,
+    LocalDateTime updatedAt) {
+}
@@ -0,0 +1,57 @@
+package com.skishop.sales.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Customer order summary source repository
+ * Streams every live order once, for seeding customer summaries that predate the order events
+ */
+@Repository
+@RequiredArgsConstructor
+public class CustomerOrderSummaryRepository {
+
+    private static final String STREAM_ORDERS_SQL = """
+            SELECT id, order_number, customer_id, order_date, status, total_amount, currency_code, updated_at
+            FROM orders
+            ORDER BY order_date
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.customer-summary.backfill-fetch-size:5000}")
+    private int fetchSize;
+
+    /**
+     * Stream every order to the consumer, oldest first
+     */
+    @Transactional(readOnly = true)
+    public void streamOrders(Consumer<CustomerOrderRow> consumer) {
+        jdbcTemplate.query(
+            connection -> {
+                PreparedStatement statement = connection.prepareStatement(STREAM_ORDERS_SQL);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            },
+            resultSet -> {
+                consumer.accept(new CustomerOrderRow(
+                    resultSet.getObject("id", UUID.class),
+                    resultSet.getString("order_number"),
+                    resultSet.getString("customer_id"),
+                    resultSet.getTimestamp("order_date").toLocalDateTime(),
+                    resultSet.getString("status"),
+                    resultSet.getBigDecimal("total_amount"),
+                    resultSet.getString("currency_code"),
+                    resultSet.getTimestamp("updated_at").toLocalDateTime()
+                ));
+            }
+        );
+    }
+}
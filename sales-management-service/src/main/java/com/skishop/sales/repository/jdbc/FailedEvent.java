@@ -0,0 +1,13 @@
+package com.skishop.sales.repository.jdbc;
+
+/**
+ * Failed event
+ * A Kafka record whose send failed, waiting to be retried
+ */
+public record FailedEvent(
+    long id,
+    String topic,
+    String key,
+    String payload,
+    int attempts) {
+}
@@ -0,0 +1,103 @@
+package com.skishop.sales.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Failed event repository
+ * Local retry and dead-letter store for Kafka records that could not be delivered.
+ * Records stay PENDING until delivered or out of attempts, then become DEAD.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FailedEventRepository {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Store a record for retry
+     */
+    public void save(String topic, String key, String payload, String error, LocalDateTime nextAttemptAt) {
+        jdbcTemplate.update(
+            "INSERT INTO failed_events (topic, event_key, payload, attempts, last_error, next_attempt_at) VALUES (?, ?, ?, 1, ?, ?)",
+            topic, key, payload, truncate(error), nextAttemptAt);
+    }
+
+    /**
+     * Claim due records; rows locked by another replica are skipped
+     * The claimed rows are leased by moving their next attempt to leaseUntil, so that once the
+     * transaction commits no other replica picks them up while they are being sent. A replica
+     * that dies mid-send leaves them due again when the lease runs out. Must run inside a transaction.
+     */
+    public List<FailedEvent> claimDue(int limit, LocalDateTime leaseUntil) {
+        List<FailedEvent> events = jdbcTemplate.query(
+            "SELECT id, topic, event_key, payload, attempts FROM failed_events " +
+            "WHERE status = 'PENDING' AND next_attempt_at <= CURRENT_TIMESTAMP " +
+            "ORDER BY next_attempt_at " +
+            "LIMIT ? " +
+            "FOR UPDATE SKIP LOCKED",
+            (resultSet, rowNum) -> new FailedEvent(
+                resultSet.getLong("id"),
+                resultSet.getString("topic"),
+                resultSet.getString("event_key"),
+                resultSet.getString("payload"),
+                resultSet.getInt("attempts")
+            ),
+            limit);
+        if (!events.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE failed_events SET next_attempt_at = ? WHERE id = ?", events, events.size(),
+                (statement, event) -> {
+                    statement.setObject(1, leaseUntil);
+                    statement.setLong(2, event.id());
+                });
+        }
+        return events;
+    }
+
+    /**
+     * Remove records that were delivered
+     */
+    public void deleteByIds(List<Long> ids) {
+        jdbcTemplate.batchUpdate("DELETE FROM failed_events WHERE id = ?", ids, ids.size(),
+            (statement, id) -> statement.setLong(1, id));
+    }
+
+    /**
+     * Record another failed attempt and schedule the next one
+     */
+    public void recordFailure(long id, String error, LocalDateTime nextAttemptAt) {
+        jdbcTemplate.update(
+            "UPDATE failed_events SET attempts = attempts + 1, last_error = ?, next_attempt_at = ? WHERE id = ?",
+            truncate(error), nextAttemptAt, id);
+    }
+
+    /**
+     * Give up on a record, keeping it as a dead letter
+     */
+    public void markDead(long id, String error) {
+        jdbcTemplate.update(
+            "UPDATE failed_events SET status = 'DEAD', attempts = attempts + 1, last_error = ? WHERE id = ?",
+            truncate(error), id);
+    }
+
+    /**
+     * Count records by status
+     */
+    public long countByStatus(String status) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM failed_events WHERE status = ?", Long.class, status);
+        return count != null ? count : 0L;
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,64 @@
+package com.skishop.sales.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Order export repository
+ * Streams orders through a server-side cursor so exports run in constant memory.
+ * PostgreSQL only honours the fetch size inside a transaction, so callers must be transactional.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderExportRepository {
+
+    private static final String STREAM_ORDERS_SQL = """
+            SELECT order_number, order_date, customer_id, status, payment_status, payment_method,
+                   subtotal_amount, tax_amount, shipping_fee, discount_amount, total_amount
+            FROM orders
+            WHERE order_date >= ? AND order_date < ?
+            ORDER BY order_date
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.report.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Stream orders placed in [from, to) to the consumer, one row at a time
+     */
+    public void streamOrders(LocalDateTime from, LocalDateTime to, Consumer<OrderExportRow> consumer) {
+        jdbcTemplate.query(
+            connection -> {
+                PreparedStatement statement = connection.prepareStatement(STREAM_ORDERS_SQL);
+                statement.setFetchSize(fetchSize);
+                statement.setTimestamp(1, Timestamp.valueOf(from));
+                statement.setTimestamp(2, Timestamp.valueOf(to));
+                return statement;
+            },
+            resultSet -> {
+                consumer.accept(new OrderExportRow(
+                    resultSet.getString("order_number"),
+                    resultSet.getTimestamp("order_date").toLocalDateTime(),
+                    resultSet.getString("customer_id"),
+                    resultSet.getString("status"),
+                    resultSet.getString("payment_status"),
+                    resultSet.getString("payment_method"),
+                    resultSet.getBigDecimal("subtotal_amount"),
+                    resultSet.getBigDecimal("tax_amount"),
+                    resultSet.getBigDecimal("shipping_fee"),
+                    resultSet.getBigDecimal("discount_amount"),
+                    resultSet.getBigDecimal("total_amount")
+                ));
+            }
+        );
+    }
+}
@@ -0,0 +1,23 @@
+package com.skishop.sales.repository.jdbc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order row projection for report exports
+ * Flat record read straight from JDBC, without loading the Order entity
+ */
+public record OrderExportRow(
+    String orderNumber,
+    LocalDateTime orderDate,
+    String customerId,
+    String status,
+    String paymentStatus,
+    String paymentMethod,
+    BigDecimal subtotalAmount,
+    BigDecimal taxAmount,
+    BigDecimal shippingFee,
+    BigDecimal discountAmount,
+    BigDecimal totalAmount
+) {
+}
@@ -0,0 +1,16 @@
+package com.skishop.sales.repository.jdbc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sold order line projection for rebuilding rankings
+ */
+public record OrderLineSale(
+    String productId,
+    String productName,
+    long quantity,
+    BigDecimal subtotal,
+    LocalDateTime orderDate
+) {
+}
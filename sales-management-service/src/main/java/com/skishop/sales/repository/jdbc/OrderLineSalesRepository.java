@@ -0,0 +1,57 @@
+package com.skishop.sales.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Order line sales repository
+ * Streams sold order lines through a server-side cursor to rebuild in-memory rankings.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderLineSalesRepository {
+
+    private static final String STREAM_LINES_SQL = """
+            SELECT product_id, product_name, quantity, subtotal, order_date
+            FROM order_items
+            WHERE order_date >= ? AND order_date < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.report.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Stream the lines of orders placed in [from, to) to the consumer, one row at a time
+     */
+    @Transactional(readOnly = true)
+    public void streamLines(LocalDateTime from, LocalDateTime to, Consumer<OrderLineSale> consumer) {
+        jdbcTemplate.query(
+            connection -> {
+                PreparedStatement statement = connection.prepareStatement(STREAM_LINES_SQL);
+                statement.setFetchSize(fetchSize);
+                statement.setTimestamp(1, Timestamp.valueOf(from));
+                statement.setTimestamp(2, Timestamp.valueOf(to));
+                return statement;
+            },
+            resultSet -> {
+                consumer.accept(new OrderLineSale(
+                    resultSet.getString("product_id"),
+                    resultSet.getString("product_name"),
+                    resultSet.getLong("quantity"),
+                    resultSet.getBigDecimal("subtotal"),
+                    resultSet.getTimestamp("order_date").toLocalDateTime()
+                ));
+            }
+        );
+    }
+}
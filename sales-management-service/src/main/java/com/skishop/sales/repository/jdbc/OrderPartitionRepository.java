@@ -0,0 +1,39 @@
+package com.skishop.sales.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * Order partition repository
+ * Thin wrapper over the partition maintenance functions created by the V2 migration.
+ * Each call runs in its own transaction and is serialized across replicas by an advisory lock.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderPartitionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Create missing monthly partitions for every month in [fromMonth, toMonth]
+     * Returns the number of months created
+     */
+    public int createPartitions(LocalDate fromMonth, LocalDate toMonth) {
+        Integer created = jdbcTemplate.queryForObject(
+            "SELECT create_order_partitions(?, ?)", Integer.class, fromMonth, toMonth);
+        return created != null ? created : 0;
+    }
+
+    /**
+     * Move monthly partitions older than beforeMonth to the archive tables
+     * Returns the number of months archived
+     */
+    public int archivePartitionsBefore(LocalDate beforeMonth) {
+        Integer archived = jdbcTemplate.queryForObject(
+            "SELECT archive_order_partitions(?)", Integer.class, beforeMonth);
+        return archived != null ? archived : 0;
+    }
+}
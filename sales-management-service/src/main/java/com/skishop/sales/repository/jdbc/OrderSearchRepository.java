@@ -0,0 +1,62 @@
+package com.skishop.sales.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Order search source repository
+ * Streams the searchable columns of every live order for rebuilding the search index.
+ * Runs in its own read-only transaction so PostgreSQL uses a cursor for the fetch size.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderSearchRepository {
+
+    private static final String STREAM_SEARCH_ROWS_SQL = """
+            SELECT o.id, o.order_number, o.customer_id, o.shipping_recipient_name, o.shipping_phone_number,
+                   s.tracking_number, o.order_date, o.status, o.payment_status, o.updated_at
+            FROM orders o
+            LEFT JOIN shipments s ON s.order_id = o.id
+            ORDER BY o.order_date
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.search.bootstrap-fetch-size:5000}")
+    private int fetchSize;
+
+    /**
+     * Stream every order to the consumer, oldest first
+     */
+    @Transactional(readOnly = true)
+    public void streamSearchRows(Consumer<OrderSearchRow> consumer) {
+        jdbcTemplate.query(
+            connection -> {
+                PreparedStatement statement = connection.prepareStatement(STREAM_SEARCH_ROWS_SQL);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            },
+            resultSet -> {
+                consumer.accept(new OrderSearchRow(
+                    resultSet.getObject("id", UUID.class),
+                    resultSet.getString("order_number"),
+                    resultSet.getString("customer_id"),
+                    resultSet.getString("shipping_recipient_name"),
+                    resultSet.getString("shipping_phone_number"),
+                    resultSet.getString("tracking_number"),
+                    resultSet.getTimestamp("order_date").toLocalDateTime(),
+                    resultSet.getString("status"),
+                    resultSet.getString("payment_status"),
+                    resultSet.getTimestamp("updated_at").toLocalDateTime()
+                ));
+            }
+        );
+    }
+}
@@ -0,0 +1,21 @@
+package com.skishop.sales.repository.jdbc;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Order search source row
+ * One row per order, joined with its shipment when there is one
+ */
+public record OrderSearchRow(
+    UUID orderId,
+    String orderNumber,
+    String customerId,
+    String recipientName,
+    String phoneNumber,
+    String trackingNumber,
+    LocalDateTime orderDate,
+    String status,
+    String paymentStatus,
+    LocalDateTime updatedAt) {
+}
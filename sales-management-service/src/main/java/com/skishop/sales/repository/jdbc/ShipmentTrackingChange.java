@@ -0,0 +1,20 @@
+package com.skishop.sales.repository.jdbc;
+
+import java.util.UUID;
+
+/**
+ * Shipment tracking change
+ * A shipment row touched by a tracking batch, with its status before the update
+ */
+public record ShipmentTrackingChange(
+    UUID shipmentId,
+    UUID orderId,
+    String carrier,
+    String trackingNumber,
+    String status,
+    String previousStatus) {
+
+    public boolean statusChanged() {
+        return !status.equals(previousStatus);
+    }
+}
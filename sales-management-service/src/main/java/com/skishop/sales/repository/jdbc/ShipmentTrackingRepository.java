@@ -0,0 +1,105 @@
+package com.skishop.sales.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Shipment tracking repository
+ * Applies a whole batch of carrier updates in one statement by joining shipments against
+ * unnested parameter arrays on tracking_number. Updates older than the last applied event
+ * are skipped, so replays and out-of-order deliveries from carriers are harmless.
+ * Updates that could not be applied at all are kept in dead_tracking_updates for follow-up.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ShipmentTrackingRepository {
+
+    private static final String APPLY_UPDATES_SQL = """
+            WITH u AS (
+                SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::timestamp[], ?::timestamp[])
+                    AS t(tracking_number, carrier, status, event_time, estimated_delivery_at)
+            ), previous AS (
+                SELECT s.id, s.status FROM shipments s JOIN u ON u.tracking_number = s.tracking_number
+            )
+            UPDATE shipments s
+            SET status = u.status,
+                carrier = u.carrier,
+                estimated_delivery_at = COALESCE(u.estimated_delivery_at, s.estimated_delivery_at),
+                shipped_at = CASE WHEN s.shipped_at IS NULL AND u.status <> 'PREPARING' THEN u.event_time ELSE s.shipped_at END,
+                delivered_at = CASE WHEN u.status = 'DELIVERED' THEN u.event_time ELSE s.delivered_at END,
+                last_tracking_event_at = u.event_time
+            FROM u, previous
+            WHERE s.tracking_number = u.tracking_number
+              AND previous.id = s.id
+              AND (s.last_tracking_event_at IS NULL OR s.last_tracking_event_at < u.event_time)
+            RETURNING s.id, s.order_id, s.carrier, s.tracking_number, s.status, previous.status AS previous_status
+            """;
+
+    private static final String SAVE_DEAD_SQL = """
+            INSERT INTO dead_tracking_updates (tracking_number, carrier, status, event_time, estimated_delivery_at, last_error)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Apply updates carrying distinct tracking numbers; returns the shipments actually changed
+     */
+    public List<ShipmentTrackingChange> applyUpdates(List<ShipmentTrackingUpdate> updates) {
+        if (updates.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(
+            connection -> {
+                PreparedStatement statement = connection.prepareStatement(APPLY_UPDATES_SQL);
+                statement.setArray(1, varcharArray(connection, updates.stream().map(ShipmentTrackingUpdate::trackingNumber).toArray()));
+                statement.setArray(2, varcharArray(connection, updates.stream().map(ShipmentTrackingUpdate::carrier).toArray()));
+                statement.setArray(3, varcharArray(connection, updates.stream().map(ShipmentTrackingUpdate::status).toArray()));
+                statement.setArray(4, connection.createArrayOf("timestamp", updates.stream()
+                    .map(update -> Timestamp.valueOf(update.eventTime()))
+                    .toArray()));
+                statement.setArray(5, connection.createArrayOf("timestamp", updates.stream()
+                    .map(update -> update.estimatedDeliveryAt() != null ? Timestamp.valueOf(update.estimatedDeliveryAt()) : null)
+                    .toArray()));
+                return statement;
+            },
+            (resultSet, rowNum) -> new ShipmentTrackingChange(
+                resultSet.getObject("id", UUID.class),
+                resultSet.getObject("order_id", UUID.class),
+                resultSet.getString("carrier"),
+                resultSet.getString("tracking_number"),
+                resultSet.getString("status"),
+                resultSet.getString("previous_status")
+            )
+        );
+    }
+
+    /**
+     * Store updates that were given up on, with the error of their last attempt
+     */
+    public void saveDead(List<ShipmentTrackingUpdate> updates, String error) {
+        String lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        jdbcTemplate.batchUpdate(SAVE_DEAD_SQL, updates, updates.size(), (statement, update) -> {
+            statement.setString(1, update.trackingNumber());
+            statement.setString(2, update.carrier());
+            statement.setString(3, update.status());
+            statement.setObject(4, update.eventTime());
+            statement.setObject(5, update.estimatedDeliveryAt());
+            statement.setString(6, lastError);
+        });
+    }
+
+    private static Array varcharArray(Connection connection, Object[] values) throws SQLException {
+        return connection.createArrayOf("varchar", values);
+    }
+}
@@ -0,0 +1,15 @@
+package com.skishop.sales.repository.jdbc;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shipment tracking update
+ * The latest carrier scan for one tracking number, ready to be applied to shipments
+ */
+public record ShipmentTrackingUpdate(
+    String trackingNumber,
+    String carrier,
+    String status,
+    LocalDateTime eventTime,
+    LocalDateTime estimatedDeliveryAt) {
+}
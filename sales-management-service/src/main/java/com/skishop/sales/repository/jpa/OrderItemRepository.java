@@ -3,12 +3,16 @@ package com.skishop.sales.repository.jpa;
 import com.skishop.sales.entity.jpa.OrderItem;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -22,6 +26,20 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, UUID> {
      */
     List<OrderItem> findByOrderId(UUID orderId);
 
+    /**
+     * Find an order item and lock it until the surrounding transaction ends
+     * Serializes concurrent returns of the same item
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.id = :id")
+    Optional<OrderItem> findByIdForUpdate(@Param("id") UUID id);
+
+    /**
+     * Find order items of an archived order
+     */
+    @Query(value = "SELECT oi.* FROM order_items_archive oi WHERE oi.order_id = :orderId", nativeQuery = true)
+    List<OrderItem> findArchivedByOrderId(@Param("orderId") UUID orderId);
+
     /**
      * Find order items by order ID (with pagination)
      */
@@ -56,13 +74,15 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, UUID> {
     Integer getTotalQuantitySoldBySku(@Param("sku") String sku);
 
     /**
-     * Get product sales ranking
+     * Get product sales ranking for orders placed in [from, to), by quantity sold then revenue
      */
     @Query("SELECT oi.productId, oi.productName, SUM(oi.quantity) as totalQuantity, SUM(oi.subtotal) as totalSales " +
            "FROM OrderItem oi " +
+           "WHERE oi.orderDate >= :from AND oi.orderDate < :to " +
            "GROUP BY oi.productId, oi.productName " +
-           "ORDER BY totalSales DESC")
-    List<Object[]> getProductSalesRanking(Pageable pageable);
+           "ORDER BY totalQuantity DESC, totalSales DESC")
+    List<Object[]> getProductSalesRanking(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                          Pageable pageable);
 
     /**
      * Find order items with applied coupons
@@ -4,6 +4,7 @@ import com.skishop.sales.entity.jpa.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -24,6 +25,18 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
      */
     Optional<Order> findByOrderNumber(String orderNumber);
 
+    /**
+     * Find an order moved to the archive tables by partition maintenance
+     */
+    @Query(value = "SELECT o.* FROM orders_archive o WHERE o.id = :id", nativeQuery = true)
+    Optional<Order> findArchivedById(@Param("id") UUID id);
+
+    /**
+     * Find an archived order by order number
+     */
+    @Query(value = "SELECT o.* FROM orders_archive o WHERE o.order_number = :orderNumber", nativeQuery = true)
+    Optional<Order> findArchivedByOrderNumber(@Param("orderNumber") String orderNumber);
+
     /**
      * Find orders by customer ID
      */
@@ -108,4 +121,62 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
      */
     @Query("SELECT o FROM Order o WHERE o.paymentStatus = 'PENDING' AND o.createdAt < :expiryTime")
     List<Order> findExpiredPendingOrders(@Param("expiryTime") LocalDateTime expiryTime);
+
+    /**
+     * Claim a chunk of expired unpaid order IDs
+     * Rows are locked until the surrounding transaction ends; rows already claimed
+     * by another replica are skipped instead of waited on
+     */
+    @Query(value = "SELECT id FROM orders " +
+                   "WHERE payment_status = 'PENDING' AND status IN ('PENDING', 'CONFIRMED') AND created_at < :expiryTime " +
+                   "ORDER BY created_at " +
+                   "LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<UUID> claimExpiredPendingOrderIds(@Param("expiryTime") LocalDateTime expiryTime, @Param("limit") int limit);
+
+    /**
+     * Update status of multiple orders and append a note
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :status, o.notes = CONCAT(COALESCE(o.notes, ''), :note), o.updatedAt = :updatedAt " +
+           "WHERE o.id IN :orderIds")
+    int updateStatusByIdIn(
+        @Param("orderIds") List<UUID> orderIds,
+        @Param("status") Order.OrderStatus status,
+        @Param("note") String note,
+        @Param("updatedAt") LocalDateTime updatedAt
+    );
+
+    /**
+     * Get sales summary in [startDate, endDate), excluding cancelled and returned orders
+     * Returns a single row of [revenue, order count, customer count]
+     */
+    @Query("SELECT COALESCE(SUM(o.totalAmount), 0), COUNT(o), COUNT(DISTINCT o.customerId) FROM Order o " +
+           "WHERE o.orderDate >= :startDate AND o.orderDate < :endDate " +
+           "AND o.status NOT IN ('CANCELLED', 'RETURNED')")
+    List<Object[]> getSalesSummaryBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Get sales in [startDate, endDate) grouped by date_trunc unit (day, week, month)
+     * Returns rows of [bucket start date, revenue, order count, customer count]
+     */
+    @Query(value = "SELECT CAST(date_trunc(:unit, order_date) AS DATE) AS bucket, COALESCE(SUM(total_amount), 0), " +
+                   "COUNT(*), COUNT(DISTINCT customer_id) FROM orders " +
+                   "WHERE order_date >= :startDate AND order_date < :endDate AND status NOT IN ('CANCELLED', 'RETURNED') " +
+                   "GROUP BY bucket ORDER BY bucket",
+           nativeQuery = true)
+    List<Object[]> getSalesByPeriodBetween(
+        @Param("unit") String unit,
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Get revenue in [startDate, endDate), excluding cancelled and returned orders
+     */
+    @Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o " +
+           "WHERE o.orderDate >= :startDate AND o.orderDate < :endDate " +
+           "AND o.status NOT IN ('CANCELLED', 'RETURNED')")
+    java.math.BigDecimal getRevenueBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 }
@@ -1,13 +1,19 @@
 package com.skishop.sales.repository.jpa;
 
 import com.skishop.sales.entity.jpa.Return;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -73,9 +79,61 @@ public interface ReturnRepository extends JpaRepository<Return, UUID> {
 
     /**
      * Find expired return requests
+     * Locks the returned rows, skipping rows locked by another replica, so the page can be
+     * processed as one chunk without contention
      */
-    @Query("SELECT r FROM Return r WHERE r.status = 'REQUESTED' AND r.requestedAt < :expiryTime")
-    List<Return> findExpiredReturnRequests(@Param("expiryTime") LocalDateTime expiryTime);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM Return r WHERE r.status = 'REQUESTED' AND r.requestedAt < :expiryTime ORDER BY r.requestedAt")
+    List<Return> findExpiredReturnRequests(@Param("expiryTime") LocalDateTime expiryTime, Pageable pageable);
+
+    /**
+     * Claim IDs of requested returns eligible for auto-approval
+     * Rows locked by another replica are skipped instead of waited on
+     */
+    @Query(value = "SELECT id FROM returns " +
+                   "WHERE status = 'REQUESTED' AND refund_amount < :threshold " +
+                   "ORDER BY requested_at " +
+                   "LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<UUID> claimAutoApprovableReturnIds(@Param("threshold") BigDecimal threshold, @Param("limit") int limit);
+
+    /**
+     * Approve multiple requested returns and append a note on a new line
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Return r SET r.status = 'APPROVED', r.approvedAt = :approvedAt, " +
+           "r.adminNotes = CASE WHEN r.adminNotes IS NULL OR r.adminNotes = '' THEN :note " +
+           "ELSE CONCAT(r.adminNotes, '\n', :note) END, r.updatedAt = :approvedAt " +
+           "WHERE r.id IN :returnIds AND r.status = 'REQUESTED'")
+    int approveByIdIn(
+            @Param("returnIds") List<UUID> returnIds,
+            @Param("note") String note,
+            @Param("approvedAt") LocalDateTime approvedAt);
+
+    /**
+     * Move multiple returns from one status to another and append a note on a new line
+     * Returns no longer in the expected status are left unchanged
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Return r SET r.status = :status, " +
+           "r.adminNotes = CASE WHEN r.adminNotes IS NULL OR r.adminNotes = '' THEN :note " +
+           "ELSE CONCAT(r.adminNotes, '\n', :note) END, r.updatedAt = :updatedAt " +
+           "WHERE r.id IN :returnIds AND r.status = :expectedStatus")
+    int updateStatusByIdIn(
+            @Param("returnIds") List<UUID> returnIds,
+            @Param("expectedStatus") Return.ReturnStatus expectedStatus,
+            @Param("status") Return.ReturnStatus status,
+            @Param("note") String note,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Sum quantities already under return for an order item, excluding rejected and cancelled returns
+     */
+    @Query("SELECT COALESCE(SUM(r.quantity), 0) FROM Return r " +
+           "WHERE r.orderItemId = :orderItemId AND r.status NOT IN ('REJECTED', 'CANCELLED')")
+    long sumActiveQuantityByOrderItemId(@Param("orderItemId") UUID orderItemId);
 
     /**
      * Count returns by reason
@@ -104,7 +162,7 @@ public interface ReturnRepository extends JpaRepository<Return, UUID> {
      * Get total refunds in specified period
      */
     @Query("SELECT COALESCE(SUM(r.refundAmount), 0) FROM Return r WHERE r.status = 'REFUNDED' AND r.refundedAt BETWEEN :startDate AND :endDate")
-    java.math.BigDecimal getTotalRefundsBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    BigDecimal getTotalRefundsBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
     /**
      * Check if return number exists
@@ -5,10 +5,10 @@ import com.skishop.sales.entity.jpa.Order;
 import com.skishop.sales.entity.jpa.OrderItem;
 import com.skishop.sales.entity.jpa.Shipment;
 import com.skishop.sales.entity.jpa.Return;
+import com.skishop.sales.service.messaging.KafkaEventSender;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -23,7 +23,7 @@ public class EventPublisherService {
 
     private static final Logger log = LoggerFactory.getLogger(EventPublisherService.class);
     
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaEventSender kafkaEventSender;
     private final ObjectMapper objectMapper;
 
     private static final String ORDER_TOPIC = "sales.orders";
@@ -36,20 +36,35 @@ public class EventPublisherService {
      */
     public void publishOrderCreatedEvent(Order order, List<OrderItem> orderItems) {
         try {
-            var event = Map.of(
-                    "eventType", "ORDER_CREATED",
-                    "orderId", order.getId().toString(),
-                    "orderNumber", order.getOrderNumber(),
-                    "customerId", order.getCustomerId(),
-                    "totalAmount", order.getTotalAmount(),
-                    "itemCount", orderItems.size(),
-                    "timestamp", System.currentTimeMillis(),
-                    "status", order.getStatus().name(),
-                    "paymentMethod", order.getPaymentMethod()
+            var shippingAddress = order.getShippingAddress();
+            var event = Map.ofEntries(
+                    Map.entry("eventType", "ORDER_CREATED"),
+                    Map.entry("orderId", order.getId().toString()),
+                    Map.entry("orderNumber", order.getOrderNumber()),
+                    Map.entry("customerId", order.getCustomerId()),
+                    Map.entry("orderDate", order.getOrderDate().toString()),
+                    Map.entry("totalAmount", order.getTotalAmount()),
+                    Map.entry("currencyCode", order.getCurrencyCode()),
+                    Map.entry("itemCount", orderItems.size()),
+                    Map.entry("timestamp", System.currentTimeMillis()),
+                    Map.entry("status", order.getStatus().name()),
+                    Map.entry("paymentStatus", order.getPaymentStatus().name()),
+                    Map.entry("paymentMethod", order.getPaymentMethod()),
+                    Map.entry("recipientName", shippingAddress != null && shippingAddress.getRecipientName() != null
+                            ? shippingAddress.getRecipientName() : ""),
+                    Map.entry("phoneNumber", shippingAddress != null && shippingAddress.getPhone() != null
+                            ? shippingAddress.getPhone() : ""),
+                    Map.entry("items", orderItems.stream()
+                            .map(item -> Map.of(
+                                    "productId", item.getProductId(),
+                                    "productName", item.getProductName(),
+                                    "quantity", item.getQuantity(),
+                                    "subtotal", item.getSubtotal()))
+                            .toList())
             );
 
             var eventJson = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(ORDER_TOPIC, order.getId().toString(), eventJson);
+            kafkaEventSender.send(ORDER_TOPIC, order.getId().toString(), eventJson);
             
             log.info("Published ORDER_CREATED event for order: {}", order.getOrderNumber());
         } catch (Exception e) {
@@ -67,13 +82,16 @@ public class EventPublisherService {
                     "orderId", order.getId().toString(),
                     "orderNumber", order.getOrderNumber(),
                     "customerId", order.getCustomerId(),
+                    "orderDate", order.getOrderDate().toString(),
+                    "totalAmount", order.getTotalAmount(),
+                    "currencyCode", order.getCurrencyCode(),
                     "status", order.getStatus().toString(),
                     "paymentStatus", order.getPaymentStatus().toString(),
                     "timestamp", System.currentTimeMillis()
             );
 
             String eventJson = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(ORDER_TOPIC, order.getId().toString(), eventJson);
+            kafkaEventSender.send(ORDER_TOPIC, order.getId().toString(), eventJson);
             
             log.info("Published ORDER_STATUS_UPDATED event for order: {}", order.getOrderNumber());
         } catch (Exception e) {
@@ -91,12 +109,16 @@ public class EventPublisherService {
                     "orderId", order.getId().toString(),
                     "orderNumber", order.getOrderNumber(),
                     "customerId", order.getCustomerId(),
+                    "orderDate", order.getOrderDate().toString(),
                     "totalAmount", order.getTotalAmount(),
+                    "currencyCode", order.getCurrencyCode(),
+                    "status", order.getStatus().toString(),
+                    "paymentStatus", order.getPaymentStatus().toString(),
                     "timestamp", System.currentTimeMillis()
             );
 
             String eventJson = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(ORDER_TOPIC, order.getId().toString(), eventJson);
+            kafkaEventSender.send(ORDER_TOPIC, order.getId().toString(), eventJson);
             
             log.info("Published ORDER_CANCELLED event for order: {}", order.getOrderNumber());
         } catch (Exception e) {
@@ -120,7 +142,7 @@ public class EventPublisherService {
             );
 
             String eventJson = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(SHIPMENT_TOPIC, shipment.getId().toString(), eventJson);
+            kafkaEventSender.send(SHIPMENT_TOPIC, shipment.getId().toString(), eventJson);
             
             log.info("Published SHIPMENT_CREATED event for shipment: {}", shipment.getId());
         } catch (Exception e) {
@@ -133,18 +155,8 @@ public class EventPublisherService {
      */
     public void publishShipmentStatusUpdatedEvent(Shipment shipment) {
         try {
-            Map<String, Object> event = Map.of(
-                    "eventType", "SHIPMENT_STATUS_UPDATED",
-                    "shipmentId", shipment.getId().toString(),
-                    "orderId", shipment.getOrderId().toString(),
-                    "carrier", shipment.getCarrier(),
-                    "trackingNumber", shipment.getTrackingNumber() != null ? shipment.getTrackingNumber() : "",
-                    "status", shipment.getStatus().toString(),
-                    "timestamp", System.currentTimeMillis()
-            );
-
-            String eventJson = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(SHIPMENT_TOPIC, shipment.getId().toString(), eventJson);
+            String eventJson = objectMapper.writeValueAsString(shipmentStatusUpdatedEvent(shipment));
+            kafkaEventSender.send(SHIPMENT_TOPIC, shipment.getId().toString(), eventJson);
             
             log.info("Published SHIPMENT_STATUS_UPDATED event for shipment: {}", shipment.getId());
         } catch (Exception e) {
@@ -152,6 +164,36 @@ public class EventPublisherService {
         }
     }
 
+    /**
+     * Publish shipment status updated events for a batch of shipments
+     * Records are handed to the producer back to back so they share producer batches
+     */
+    public void publishShipmentStatusUpdatedEvents(List<Shipment> shipments) {
+        int published = 0;
+        for (Shipment shipment : shipments) {
+            try {
+                String eventJson = objectMapper.writeValueAsString(shipmentStatusUpdatedEvent(shipment));
+                kafkaEventSender.send(SHIPMENT_TOPIC, shipment.getId().toString(), eventJson);
+                published++;
+            } catch (Exception e) {
+                log.error("Failed to publish SHIPMENT_STATUS_UPDATED event for shipment: {}", shipment.getId(), e);
+            }
+        }
+        log.info("Published {} SHIPMENT_STATUS_UPDATED events", published);
+    }
+
+    private static Map<String, Object> shipmentStatusUpdatedEvent(Shipment shipment) {
+        return Map.of(
+                "eventType", "SHIPMENT_STATUS_UPDATED",
+                "shipmentId", shipment.getId().toString(),
+                "orderId", shipment.getOrderId().toString(),
+                "carrier", shipment.getCarrier(),
+                "trackingNumber", shipment.getTrackingNumber() != null ? shipment.getTrackingNumber() : "",
+                "status", shipment.getStatus().toString(),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
     /**
      * Publish return requested event
      */
@@ -170,7 +212,7 @@ public class EventPublisherService {
             );
 
             String eventJson = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(RETURN_TOPIC, returnEntity.getId().toString(), eventJson);
+            kafkaEventSender.send(RETURN_TOPIC, returnEntity.getId().toString(), eventJson);
             
             log.info("Published RETURN_REQUESTED event for return: {}", returnEntity.getReturnNumber());
         } catch (Exception e) {
@@ -183,23 +225,43 @@ public class EventPublisherService {
      */
     public void publishReturnStatusUpdatedEvent(Return returnEntity) {
         try {
-            Map<String, Object> event = Map.of(
-                    "eventType", "RETURN_STATUS_UPDATED",
-                    "returnId", returnEntity.getId().toString(),
-                    "returnNumber", returnEntity.getReturnNumber(),
-                    "orderId", returnEntity.getOrderId().toString(),
-                    "customerId", returnEntity.getCustomerId(),
-                    "status", returnEntity.getStatus().toString(),
-                    "refundAmount", returnEntity.getRefundAmount(),
-                    "timestamp", System.currentTimeMillis()
-            );
-
-            String eventJson = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(RETURN_TOPIC, returnEntity.getId().toString(), eventJson);
+            String eventJson = objectMapper.writeValueAsString(returnStatusUpdatedEvent(returnEntity));
+            kafkaEventSender.send(RETURN_TOPIC, returnEntity.getId().toString(), eventJson);
             
             log.info("Published RETURN_STATUS_UPDATED event for return: {}", returnEntity.getReturnNumber());
         } catch (Exception e) {
             log.error("Failed to publish RETURN_STATUS_UPDATED event for return: {}", returnEntity.getReturnNumber(), e);
         }
     }
+
+    /**
+     * Publish return status updated events for a batch of returns
+     * Records are handed to the producer back to back so they share producer batches
+     */
+    public void publishReturnStatusUpdatedEvents(List<Return> returns) {
+        int published = 0;
+        for (Return returnEntity : returns) {
+            try {
+                String eventJson = objectMapper.writeValueAsString(returnStatusUpdatedEvent(returnEntity));
+                kafkaEventSender.send(RETURN_TOPIC, returnEntity.getId().toString(), eventJson);
+                published++;
+            } catch (Exception e) {
+                log.error("Failed to publish RETURN_STATUS_UPDATED event for return: {}", returnEntity.getReturnNumber(), e);
+            }
+        }
+        log.info("Published {} RETURN_STATUS_UPDATED events", published);
+    }
+
+    private static Map<String, Object> returnStatusUpdatedEvent(Return returnEntity) {
+        return Map.of(
+                "eventType", "RETURN_STATUS_UPDATED",
+                "returnId", returnEntity.getId().toString(),
+                "returnNumber", returnEntity.getReturnNumber(),
+                "orderId", returnEntity.getOrderId().toString(),
+                "customerId", returnEntity.getCustomerId(),
+                "status", returnEntity.getStatus().toString(),
+                "refundAmount", returnEntity.getRefundAmount(),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
 }
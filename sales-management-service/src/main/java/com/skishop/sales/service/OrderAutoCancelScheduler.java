@@ -0,0 +1,60 @@
+package com.skishop.sales.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Expired order auto-cancel scheduler
+ * Runs on every replica; each chunk is claimed with FOR UPDATE SKIP LOCKED in its own
+ * transaction, so replicas share the backlog without processing the same order twice
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.order.auto-cancel-enabled", havingValue = "true")
+public class OrderAutoCancelScheduler {
+
+    private final OrderService orderService;
+
+    @Value("${app.order.expiry-hours:24}")
+    private long expiryHours;
+
+    @Value("${app.order.auto-cancel-chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.order.auto-cancel-max-chunks-per-run:50}")
+    private int maxChunksPerRun;
+
+    /**
+     * Cancel expired unpaid orders
+     * Stops when a chunk comes back short or after the per-run chunk limit
+     */
+    @Scheduled(fixedDelayString = "${app.order.auto-cancel-interval-ms:60000}")
+    public void cancelExpiredOrders() {
+        try {
+            LocalDateTime expiryTime = LocalDateTime.now().minusHours(expiryHours);
+            int total = 0;
+
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                // Each call runs and commits in its own transaction, releasing the row locks
+                int cancelled = orderService.cancelExpiredOrderChunk(expiryTime, chunkSize);
+                total += cancelled;
+                if (cancelled < chunkSize) {
+                    break;
+                }
+            }
+
+            if (total > 0) {
+                log.info("Auto-cancel run completed: {} orders cancelled", total);
+            }
+        } catch (Exception e) {
+            log.error("Expired order auto-cancel error", e);
+        }
+    }
+}
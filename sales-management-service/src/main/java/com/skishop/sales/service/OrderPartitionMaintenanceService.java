@@ -0,0 +1,67 @@
+package com.skishop.sales.service;
+
+import com.skishop.sales.repository.jdbc.OrderPartitionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Order partition maintenance
+ * Keeps monthly partitions of orders/order_items created ahead of time and moves
+ * partitions past the retention period to the archive tables.
+ * Archived orders stay readable by ID and order number; searches, reports and
+ * exports cover only the live months.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.order.partition.maintenance-enabled", havingValue = "true", matchIfMissing = true)
+public class OrderPartitionMaintenanceService {
+
+    private final OrderPartitionRepository orderPartitionRepository;
+
+    @Value("${app.order.partition.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${app.order.partition.archive-after-months:24}")
+    private int archiveAfterMonths;
+
+    /**
+     * Make sure upcoming partitions exist before the first order is accepted
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintainPartitions();
+    }
+
+    /**
+     * Create future partitions and archive old ones
+     */
+    @Scheduled(cron = "${app.order.partition.maintenance-cron:0 30 2 * * *}")
+    public void maintainPartitions() {
+        try {
+            LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+
+            int created = orderPartitionRepository.createPartitions(currentMonth, currentMonth.plusMonths(monthsAhead));
+            if (created > 0) {
+                log.info("Created {} monthly order partitions", created);
+            }
+
+            if (archiveAfterMonths > 0) {
+                int archived = orderPartitionRepository.archivePartitionsBefore(currentMonth.minusMonths(archiveAfterMonths));
+                if (archived > 0) {
+                    log.info("Archived {} monthly order partitions", archived);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Order partition maintenance error", e);
+        }
+    }
+}
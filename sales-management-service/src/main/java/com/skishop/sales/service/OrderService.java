@@ -1,5 +1,6 @@
 package com.skishop.sales.service;
 
+import com.skishop.sales.config.routing.ReadYourWritesTracker;
 import com.skishop.sales.dto.request.OrderCreateRequest;
 import com.skishop.sales.dto.request.OrderStatusUpdateRequest;
 import com.skishop.sales.dto.response.OrderResponse;
@@ -10,16 +11,19 @@ import com.skishop.sales.exception.InvalidOrderStateException;
 import com.skishop.sales.mapper.OrderMapper;
 import com.skishop.sales.repository.jpa.OrderRepository;
 import com.skishop.sales.repository.jpa.OrderItemRepository;
+import com.skishop.sales.util.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Currency;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -35,6 +39,10 @@ public class OrderService {
     private final OrderMapper orderMapper;
     private final OrderNumberGenerator orderNumberGenerator;
     private final EventPublisherService eventPublisherService;
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    @Value("${app.order.tax-rate-basis-points:1000}")
+    private long taxRateBasisPoints;
 
     /**
      * Create order
@@ -81,13 +89,14 @@ public class OrderService {
                 .map(itemRequest -> {
                     OrderItem orderItem = OrderItem.builder()
                             .orderId(savedOrder.getId())
+                            .orderDate(savedOrder.getOrderDate())
                             .productId(itemRequest.productId())
                             .productName(itemRequest.productName())
                             .sku(itemRequest.sku())
                             .unitPrice(itemRequest.unitPrice())
                             .quantity(itemRequest.quantity())
                             .build();
-                    orderItem.calculateSubtotal();
+                    orderItem.calculateSubtotal(Currency.getInstance(savedOrder.getCurrencyCode()));
                     return orderItem;
                 })
                 .toList();
@@ -100,6 +109,7 @@ public class OrderService {
 
         // Publish event
         eventPublisherService.publishOrderCreatedEvent(savedOrder, orderItems);
+        recordWrite(savedOrder);
 
         log.info("Order created successfully: {}", orderNumber);
         return orderMapper.toResponse(savedOrder, orderItems);
@@ -110,11 +120,14 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public OrderResponse getOrder(UUID orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderId));
-
-        List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
-        return orderMapper.toResponse(order, orderItems);
+        return readYourWritesTracker.read(ReadYourWritesTracker.orderKey(orderId), () -> {
+            Optional<Order> order = orderRepository.findById(orderId);
+            if (order.isPresent()) {
+                return orderMapper.toResponse(order.get(), orderItemRepository.findByOrderId(orderId));
+            }
+            return getArchivedOrder(orderRepository.findArchivedById(orderId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderId)));
+        });
     }
 
     /**
@@ -122,11 +135,22 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public OrderResponse getOrderByNumber(String orderNumber) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderNumber));
+        return readYourWritesTracker.read(ReadYourWritesTracker.orderKey(orderNumber), () -> {
+            Optional<Order> order = orderRepository.findByOrderNumber(orderNumber);
+            if (order.isPresent()) {
+                return orderMapper.toResponse(order.get(), orderItemRepository.findByOrderId(order.get().getId()));
+            }
+            return getArchivedOrder(orderRepository.findArchivedByOrderNumber(orderNumber)
+                    .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderNumber)));
+        });
+    }
 
-        List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-        return orderMapper.toResponse(order, orderItems);
+    /**
+     * Build the response of an order moved to the archive tables
+     * Archived orders are read-only; status updates and cancellation only see live orders.
+     */
+    private OrderResponse getArchivedOrder(Order order) {
+        return orderMapper.toResponse(order, orderItemRepository.findArchivedByOrderId(order.getId()));
     }
 
     /**
@@ -134,10 +158,12 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public Page<OrderResponse> getOrdersByCustomer(String customerId, Pageable pageable) {
-        Page<Order> orders = orderRepository.findByCustomerId(customerId, pageable);
-        return orders.map(order -> {
-            List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-            return orderMapper.toResponse(order, orderItems);
+        return readYourWritesTracker.read(ReadYourWritesTracker.customerKey(customerId), () -> {
+            Page<Order> orders = orderRepository.findByCustomerId(customerId, pageable);
+            return orders.map(order -> {
+                List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
+                return orderMapper.toResponse(order, orderItems);
+            });
         });
     }
 
@@ -163,6 +189,7 @@ public class OrderService {
 
         // Publish event
         eventPublisherService.publishOrderStatusUpdatedEvent(savedOrder);
+        recordWrite(savedOrder);
 
         List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
         return orderMapper.toResponse(savedOrder, orderItems);
@@ -187,60 +214,103 @@ public class OrderService {
 
         // Publish event
         eventPublisherService.publishOrderCancelledEvent(savedOrder);
+        recordWrite(savedOrder);
 
         List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
         return orderMapper.toResponse(savedOrder, orderItems);
     }
 
+    /**
+     * Cancel one chunk of expired unpaid orders
+     * Claims at most chunkSize orders with SKIP LOCKED, cancels them with a single update
+     * and publishes ORDER_CANCELLED for each. Returns the number of cancelled orders.
+     */
+    @Transactional
+    public int cancelExpiredOrderChunk(LocalDateTime expiryTime, int chunkSize) {
+        List<UUID> orderIds = orderRepository.claimExpiredPendingOrderIds(expiryTime, chunkSize);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+
+        orderRepository.updateStatusByIdIn(
+                orderIds,
+                Order.OrderStatus.CANCELLED,
+                "\nCancelled: payment not received before expiry",
+                LocalDateTime.now()
+        );
+
+        orderRepository.findAllById(orderIds).forEach(eventPublisherService::publishOrderCancelledEvent);
+
+        log.info("Auto-cancelled {} expired orders", orderIds.size());
+        return orderIds.size();
+    }
+
+    /**
+     * Keep the customer's next reads of this order on the primary until the replica catches up
+     */
+    private void recordWrite(Order order) {
+        readYourWritesTracker.recordWrite(
+                ReadYourWritesTracker.customerKey(order.getCustomerId()),
+                ReadYourWritesTracker.orderKey(order.getId()),
+                ReadYourWritesTracker.orderKey(order.getOrderNumber())
+        );
+    }
+
     /**
      * Calculate order amounts
+     * All arithmetic is done in minor units of the order currency
      */
     private void calculateOrderAmounts(Order order, List<OrderItem> orderItems) {
-        BigDecimal subtotal = orderItems.stream()
-                .map(OrderItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // TODO: The specification of the tax rate should be set by an external variable rather than being static.
-        BigDecimal taxAmount = subtotal.multiply(BigDecimal.valueOf(0.1)); // 10% tax rate
-        BigDecimal shippingFee = calculateShippingFee(subtotal);
-        BigDecimal discountAmount = calculateDiscountAmount(order);
-
-        order.setSubtotalAmount(subtotal);
-        order.setTaxAmount(taxAmount);
-        order.setShippingFee(shippingFee);
-        order.setDiscountAmount(discountAmount);
-        order.setTotalAmount(subtotal.add(taxAmount).add(shippingFee).subtract(discountAmount));
+        Currency currency = Currency.getInstance(order.getCurrencyCode());
+
+        Money subtotal = Money.zero(currency);
+        for (OrderItem orderItem : orderItems) {
+            subtotal = subtotal.plus(Money.of(orderItem.getSubtotal(), currency));
+        }
+
+        Money taxAmount = subtotal.percentOf(taxRateBasisPoints);
+        Money shippingFee = calculateShippingFee(subtotal);
+        Money discountAmount = calculateDiscountAmount(order, currency);
+
+        order.setSubtotalAmount(subtotal.toBigDecimal());
+        order.setTaxAmount(taxAmount.toBigDecimal());
+        order.setShippingFee(shippingFee.toBigDecimal());
+        order.setDiscountAmount(discountAmount.toBigDecimal());
+        order.setTotalAmount(subtotal.plus(taxAmount).plus(shippingFee).minus(discountAmount).toBigDecimal());
     }
 
     /**
      * Shipping fee calculation
-     * Uses Java 21's Switch expressions to implement tiered shipping fee calculation
+     * Tiered by subtotal: 800 JPY for an empty order, 500 below 5000, 300 below 10000, free above
      */
-    private BigDecimal calculateShippingFee(BigDecimal subtotal) {
-        return switch (subtotal.compareTo(BigDecimal.ZERO)) {
-            case -1 -> BigDecimal.ZERO; // For negative values
-            case 0 -> BigDecimal.valueOf(800); // For 0 JPY
-            default -> switch (subtotal.compareTo(BigDecimal.valueOf(5000))) {
-                case -1 -> BigDecimal.valueOf(500); // Less than 5000 JPY
-                default -> switch (subtotal.compareTo(BigDecimal.valueOf(10000))) {
-                    case -1 -> BigDecimal.valueOf(300); // 5000 JPY or more, less than 10000 JPY
-                    default -> BigDecimal.ZERO; // Free shipping for 10000 JPY or more
-                };
-            };
-        };
+    private Money calculateShippingFee(Money subtotal) {
+        Currency currency = subtotal.currency();
+        if (subtotal.isNegative()) {
+            return Money.zero(currency);
+        }
+        if (subtotal.isZero()) {
+            return Money.ofMajor(800, currency);
+        }
+        if (subtotal.isLessThan(Money.ofMajor(5000, currency))) {
+            return Money.ofMajor(500, currency);
+        }
+        if (subtotal.isLessThan(Money.ofMajor(10000, currency))) {
+            return Money.ofMajor(300, currency);
+        }
+        return Money.zero(currency);
     }
 
     /**
      * Calculate discount amount
      */
-    private BigDecimal calculateDiscountAmount(Order order) {
-        BigDecimal discount = BigDecimal.ZERO;
+    private Money calculateDiscountAmount(Order order, Currency currency) {
+        Money discount = Money.zero(currency);
 
-        // Points discount
+        // Points discount (1 point = 1 major unit)
         if (order.getUsedPoints() != null && order.getUsedPoints() > 0) {
-            BigDecimal pointDiscount = BigDecimal.valueOf(order.getUsedPoints());
-            order.setPointDiscountAmount(pointDiscount);
-            discount = discount.add(pointDiscount);
+            Money pointDiscount = Money.ofMajor(order.getUsedPoints(), currency);
+            order.setPointDiscountAmount(pointDiscount.toBigDecimal());
+            discount = discount.plus(pointDiscount);
         }
 
         return discount;
@@ -1,13 +1,36 @@
 package com.skishop.sales.service;
 
 import com.skishop.sales.dto.response.*;
+import com.skishop.sales.repository.jdbc.OrderExportRepository;
+import com.skishop.sales.repository.jpa.OrderItemRepository;
+import com.skishop.sales.repository.jpa.OrderRepository;
+import com.skishop.sales.service.export.SalesExportFormat;
+import com.skishop.sales.service.export.SalesExportWriter;
+import com.skishop.sales.service.ranking.BestSellerTracker;
+import com.skishop.sales.service.ranking.RankedProduct;
+import com.skishop.sales.service.ranking.RankingWindow;
+import com.skishop.sales.service.report.ReportTaskScope;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Reports Service
@@ -17,54 +40,166 @@ import java.util.List;
 @Slf4j
 public class ReportsService {
 
+    private static final int TOP_PRODUCT_LIMIT = 10;
+
+    private final BestSellerTracker bestSellerTracker;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderExportRepository orderExportRepository;
+    private final OrderRepository orderRepository;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.report.deadline-ms:10000}")
+    private long reportDeadlineMs;
+
     /**
      * Get sales report
+     * Summary, period data, top products and trends are independent aggregations, so they
+     * run in parallel on virtual threads and the report takes as long as the slowest one
      */
     public SalesReportResponse getSalesReport(String period, String fromDate, String toDate) {
         log.info("Generating sales report: period={}, from={}, to={}", period, fromDate, toDate);
         
-        // Mock data
-        SalesReportResponse.SalesSummary summary = new SalesReportResponse.SalesSummary(
-            new BigDecimal("100000"),
-            150,
-            new BigDecimal("666.67"),
-            75,
-            new BigDecimal("12.5")
-        );
+        LocalDate from = LocalDate.parse(fromDate);
+        LocalDate to = LocalDate.parse(toDate);
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        Instant deadline = Instant.now().plusMillis(reportDeadlineMs);
         
-        List<SalesReportResponse.SalesData> data = List.of(
-            new SalesReportResponse.SalesData(
-                LocalDate.now().toString(),
-                new BigDecimal("10000"),
-                15,
-                10
-            )
-        );
+        try (ReportTaskScope scope = new ReportTaskScope("sales", meterRegistry)) {
+            Supplier<SalesReportResponse.SalesSummary> summary =
+                scope.fork("summary", () -> withinDeadline(deadline, () -> getSalesSummary(start, end)));
+            Supplier<List<SalesReportResponse.SalesData>> data =
+                scope.fork("data", () -> withinDeadline(deadline, () -> getSalesData(period, start, end)));
+            Supplier<List<SalesReportResponse.TopProduct>> topProducts =
+                scope.fork("topProducts", () -> withinDeadline(deadline, () -> getTopProducts(from, to, TOP_PRODUCT_LIMIT)));
+            Supplier<List<SalesReportResponse.SalesTrend>> trends =
+                scope.fork("trends", () -> withinDeadline(deadline, () -> getSalesTrends(start, end)));
+            
+            scope.joinUntil(deadline);
+            
+            return new SalesReportResponse(
+                "SALES",
+                period,
+                summary.get(),
+                data.get(),
+                topProducts.get(),
+                trends.get()
+            );
+        }
+    }
+
+    /**
+     * Run a report sub-query in a read-only transaction that times out at the report deadline
+     * The transaction timeout becomes the JDBC query timeout, so the database cancels a
+     * statement the report gave up on instead of running it to completion
+     */
+    private <T> T withinDeadline(Instant deadline, Supplier<T> query) {
+        long remainingMs = Duration.between(Instant.now(), deadline).toMillis();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setTimeout((int) Math.max(1, (remainingMs + 999) / 1000));
+        return transaction.execute(status -> query.get());
+    }
+
+    /**
+     * Get sales summary for the report period
+     * Conversion rate needs storefront traffic, which this service does not see
+     */
+    private SalesReportResponse.SalesSummary getSalesSummary(LocalDateTime start, LocalDateTime end) {
+        Object[] row = orderRepository.getSalesSummaryBetween(start, end).get(0);
+        BigDecimal revenue = (BigDecimal) row[0];
+        long orders = ((Number) row[1]).longValue();
+        long customers = ((Number) row[2]).longValue();
         
-        List<SalesReportResponse.TopProduct> topProducts = List.of(
-            new SalesReportResponse.TopProduct(
-                "product-001",
-                "Best Seller",
-                50,
-                new BigDecimal("25000")
-            )
-        );
+        BigDecimal averageOrderValue = orders > 0
+            ? revenue.divide(BigDecimal.valueOf(orders), 2, RoundingMode.HALF_UP)
+            : BigDecimal.ZERO;
         
-        List<SalesReportResponse.SalesTrend> trends = List.of(
-            new SalesReportResponse.SalesTrend(
-                "Weekly",
-                new BigDecimal("15000"),
-                "+12.5%"
-            )
+        return new SalesReportResponse.SalesSummary(
+            revenue,
+            (int) orders,
+            averageOrderValue,
+            (int) customers,
+            null
         );
+    }
+
+    /**
+     * Get sales per day, week or month of the report period
+     */
+    private List<SalesReportResponse.SalesData> getSalesData(String period, LocalDateTime start, LocalDateTime end) {
+        String unit = switch (period == null ? "DAILY" : period.toUpperCase()) {
+            case "WEEKLY" -> "week";
+            case "MONTHLY" -> "month";
+            default -> "day";
+        };
         
-        return new SalesReportResponse(
-            "SALES",
-            period,
-            summary,
-            data,
-            topProducts,
-            trends
+        return orderRepository.getSalesByPeriodBetween(unit, start, end).stream()
+            .map(row -> new SalesReportResponse.SalesData(
+                row[0].toString(),
+                (BigDecimal) row[1],
+                ((Number) row[2]).intValue(),
+                ((Number) row[3]).intValue()
+            ))
+            .toList();
+    }
+
+    /**
+     * Revenue of the report period, compared with the preceding period of the same length
+     */
+    private List<SalesReportResponse.SalesTrend> getSalesTrends(LocalDateTime start, LocalDateTime end) {
+        Duration length = Duration.between(start, end);
+        BigDecimal current = orderRepository.getRevenueBetween(start, end);
+        BigDecimal previous = orderRepository.getRevenueBetween(start.minus(length), start);
+        
+        String change = previous.signum() == 0
+            ? "N/A"
+            : String.format("%+.1f%%", current.subtract(previous)
+                .multiply(BigDecimal.valueOf(100))
+                .divide(previous, 1, RoundingMode.HALF_UP));
+        
+        return List.of(new SalesReportResponse.SalesTrend(
+            "Last " + length.toDays() + " days vs previous " + length.toDays() + " days",
+            current,
+            change
+        ));
+    }
+
+    /**
+     * Get trending products
+     * Served from the streaming best-seller snapshot without touching the database
+     */
+    public List<SalesReportResponse.TopProduct> getTrendingProducts(RankingWindow window, int limit) {
+        return bestSellerTracker.getTopProducts(window, limit).stream()
+            .map(this::toTopProduct)
+            .toList();
+    }
+
+    /**
+     * Get top products for the report period, ranked by quantity sold like the trending products
+     * Always from the order item ranking query: the streaming windows slide with the clock, so
+     * none of them spans a calendar period, and answering from a wider one would count sales
+     * outside the period.
+     */
+    private List<SalesReportResponse.TopProduct> getTopProducts(LocalDate fromDate, LocalDate toDate, int limit) {
+        return orderItemRepository.getProductSalesRanking(
+                fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay(), PageRequest.of(0, limit)).stream()
+            .map(row -> new SalesReportResponse.TopProduct(
+                (String) row[0],
+                (String) row[1],
+                ((Number) row[2]).intValue(),
+                (BigDecimal) row[3]
+            ))
+            .toList();
+    }
+
+    private SalesReportResponse.TopProduct toTopProduct(RankedProduct product) {
+        return new SalesReportResponse.TopProduct(
+            product.productId(),
+            product.productName(),
+            (int) Math.min(product.quantity(), Integer.MAX_VALUE),
+            product.revenue()
         );
     }
 
@@ -196,12 +331,22 @@ public class ReportsService {
 
     /**
      * Export sales report
+     * Streams orders from a database cursor straight into the output stream, so memory
+     * use does not depend on the size of the period
      */
-    public byte[] exportSalesReport(java.time.LocalDate fromDate, java.time.LocalDate toDate, String format) {
+    @Transactional(readOnly = true)
+    public void exportSalesReport(LocalDate fromDate, LocalDate toDate, SalesExportFormat format,
+                                  OutputStream outputStream) throws IOException {
         log.info("Exporting sales report from {} to {} in format: {}", fromDate, toDate, format);
-        
-        // Mock implementation - Actually generates a report and returns it as a byte array
-        String content = String.format("Sales Report Export\nFrom: %s\nTo: %s\nFormat: %s", fromDate, toDate, format);
-        return content.getBytes();
+
+        SalesExportWriter writer = format.openWriter(outputStream);
+        orderExportRepository.streamOrders(fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay(), row -> {
+            try {
+                writer.write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.finish();
     }
 }
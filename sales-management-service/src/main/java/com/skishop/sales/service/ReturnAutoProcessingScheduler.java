@@ -0,0 +1,68 @@
+package com.skishop.sales.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Return auto-processing scheduler
+ * Approves requested returns below the auto-approval threshold, then expires requests left
+ * unreviewed too long. Like the order auto-cancel job, each chunk is one set-based update in
+ * its own transaction, claimed with SKIP LOCKED so that replicas share the backlog.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.return.auto-processing-enabled", havingValue = "true")
+public class ReturnAutoProcessingScheduler {
+
+    private final ReturnService returnService;
+
+    @Value("${app.return.request-expiry-days:14}")
+    private long requestExpiryDays;
+
+    @Value("${app.return.auto-processing-chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.return.auto-processing-max-chunks-per-run:50}")
+    private int maxChunksPerRun;
+
+    /**
+     * Auto-approve, then expire
+     * Each phase stops when a chunk comes back short or after the per-run chunk limit
+     */
+    @Scheduled(fixedDelayString = "${app.return.auto-processing-interval-ms:60000}")
+    public void processReturns() {
+        try {
+            int approved = 0;
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                int count = returnService.autoApproveReturnChunk(chunkSize);
+                approved += count;
+                if (count < chunkSize) {
+                    break;
+                }
+            }
+
+            LocalDateTime expiryTime = LocalDateTime.now().minusDays(requestExpiryDays);
+            int expired = 0;
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                int count = returnService.expireStaleReturnChunk(expiryTime, chunkSize);
+                expired += count;
+                if (count < chunkSize) {
+                    break;
+                }
+            }
+
+            if (approved > 0 || expired > 0) {
+                log.info("Return auto-processing run completed: {} approved, {} expired", approved, expired);
+            }
+        } catch (Exception e) {
+            log.error("Return auto-processing error", e);
+        }
+    }
+}
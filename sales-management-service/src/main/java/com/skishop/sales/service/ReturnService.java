@@ -1,15 +1,37 @@
 package com.skishop.sales.service;
 
+import com.skishop.sales.dto.request.ReturnCreateRequest;
 import com.skishop.sales.dto.request.ReturnStatusUpdateRequest;
 import com.skishop.sales.dto.response.ReturnDetailResponse;
 import com.skishop.sales.dto.response.ReturnListResponse;
+import com.skishop.sales.dto.response.ReturnResponse;
+import com.skishop.sales.entity.jpa.Order;
+import com.skishop.sales.entity.jpa.OrderItem;
+import com.skishop.sales.entity.jpa.Return;
+import com.skishop.sales.entity.jpa.Shipment;
+import com.skishop.sales.exception.BusinessRuleViolationException;
+import com.skishop.sales.exception.InvalidOrderStateException;
+import com.skishop.sales.exception.ResourceNotFoundException;
+import com.skishop.sales.mapper.ReturnMapper;
+import com.skishop.sales.repository.jpa.OrderItemRepository;
+import com.skishop.sales.repository.jpa.OrderRepository;
+import com.skishop.sales.repository.jpa.ReturnRepository;
+import com.skishop.sales.repository.jpa.ShipmentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
@@ -20,111 +42,337 @@ import java.util.UUID;
 @Slf4j
 public class ReturnService {
 
+    private static final DateTimeFormatter RETURN_NUMBER_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final ReturnRepository returnRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ShipmentRepository shipmentRepository;
+    private final ReturnMapper returnMapper;
+    private final EventPublisherService eventPublisherService;
+
+    @Value("${app.return.allowed-days:30}")
+    private long allowedDays;
+
+    @Value("${app.return.auto-approval-threshold:10000}")
+    private BigDecimal autoApprovalThreshold;
+
     /**
      * Get returns list
      */
+    @Transactional(readOnly = true)
     public ReturnListResponse getReturns(Pageable pageable, String status, String fromDate, String toDate) {
         log.info("Getting returns list: status={}, fromDate={}, toDate={}", status, fromDate, toDate);
-        // TODO: Implement actual data retrieval logic
-        // Mock data
-        List<ReturnListResponse.ReturnSummary> returns = List.of(
-            new ReturnListResponse.ReturnSummary(
-                UUID.randomUUID().toString(),
-                "ORDER-001",
-                "user-123",
-                "PENDING",
-                "5000",
-                LocalDateTime.now().minusDays(1).toString(),
-                null
-            )
-        );
-        return new ReturnListResponse(returns, 1, 1, 0, 20);
+
+        Page<Return> returns;
+        if (status != null) {
+            returns = returnRepository.findByStatus(parseStatus(status), pageable);
+        } else if (fromDate != null || toDate != null) {
+            LocalDateTime from = fromDate != null ? LocalDate.parse(fromDate).atStartOfDay() : LocalDateTime.of(1970, 1, 1, 0, 0);
+            LocalDateTime to = toDate != null ? LocalDate.parse(toDate).plusDays(1).atStartOfDay() : LocalDateTime.now();
+            returns = returnRepository.findByRequestedAtBetween(from, to, pageable);
+        } else {
+            returns = returnRepository.findAll(pageable);
+        }
+        return toListResponse(returns);
     }
 
     /**
      * Get return details
      */
+    @Transactional(readOnly = true)
     public ReturnDetailResponse getReturnById(String returnId) {
-        log.info("Getting return details: {}", returnId);
-        
-        // Mock data
-        List<ReturnDetailResponse.ReturnItemDetail> items = List.of(
+        Return returnEntity = findReturn(UUID.fromString(returnId));
+        OrderItem orderItem = orderItemRepository.findById(returnEntity.getOrderItemId()).orElse(null);
+
+        List<ReturnDetailResponse.ReturnItemDetail> items = orderItem == null ? List.of() : List.of(
             new ReturnDetailResponse.ReturnItemDetail(
-                "product-001",
-                "Sample Product",
-                1,
-                "Defective",
-                "Used"
+                orderItem.getProductId(),
+                orderItem.getProductName(),
+                returnEntity.getQuantity(),
+                returnEntity.getReason().name(),
+                null
             )
         );
-        
+
         return new ReturnDetailResponse(
-            returnId,
-            "ORDER-001",
-            "user-123",
-            "PENDING",
-            "Defective",
-            "Product is defective",
+            returnEntity.getId().toString(),
+            returnEntity.getOrderId().toString(),
+            returnEntity.getCustomerId(),
+            returnEntity.getStatus().name(),
+            returnEntity.getReason().name(),
+            returnEntity.getReasonDetail(),
             items,
-            "5000",
-            "CREDIT_CARD",
-            null,
-            LocalDateTime.now().minusDays(1),
+            returnEntity.getRefundAmount().toPlainString(),
             null,
-            LocalDateTime.now().minusDays(1),
-            LocalDateTime.now()
+            returnEntity.getAdminNotes(),
+            returnEntity.getRequestedAt(),
+            processedAt(returnEntity),
+            returnEntity.getCreatedAt(),
+            returnEntity.getUpdatedAt()
         );
     }
 
     /**
-     * Get return details (for Long ID)
+     * Get return details
      */
-    public ReturnDetailResponse getReturnDetail(Long returnId) {
+    public ReturnDetailResponse getReturnDetail(UUID returnId) {
         return getReturnById(returnId.toString());
     }
 
     /**
      * Update return status
      */
-    public com.skishop.sales.dto.response.ReturnResponse updateReturnStatus(String returnId, ReturnStatusUpdateRequest request) {
-        log.info("Updating return status: {} -> {}", returnId, request.status());
-        // Mock implementation - actually returns a response object
-        return com.skishop.sales.dto.response.ReturnResponse.builder()
-                .id(returnId)
-                .returnNumber("RET-" + returnId)
-                .status(request.status())
-                .adminNotes("Return status updated successfully")
-                .updatedAt(java.time.LocalDateTime.now())
-                .build();
+    @Transactional
+    public ReturnResponse updateReturnStatus(String returnId, ReturnStatusUpdateRequest request) {
+        Return returnEntity = findReturn(UUID.fromString(returnId));
+        Return.ReturnStatus newStatus = parseStatus(request.status());
+
+        validateStatusTransition(returnEntity.getStatus(), newStatus);
+
+        LocalDateTime now = LocalDateTime.now();
+        switch (newStatus) {
+            case APPROVED -> returnEntity.setApprovedAt(now);
+            case RECEIVED -> returnEntity.setReceivedAt(now);
+            case REFUNDED -> returnEntity.setRefundedAt(now);
+            default -> { }
+        }
+        returnEntity.setStatus(newStatus);
+        if (request.adminComments() != null || request.reason() != null) {
+            String comment = request.adminComments() != null ? request.adminComments() : request.reason();
+            returnEntity.setAdminNotes(appendNote(returnEntity.getAdminNotes(), comment));
+        }
+
+        Return savedReturn = returnRepository.save(returnEntity);
+        eventPublisherService.publishReturnStatusUpdatedEvent(savedReturn);
+
+        log.info("Return {} moved to {}", savedReturn.getReturnNumber(), newStatus);
+        return returnMapper.toResponse(savedReturn);
     }
 
     /**
      * Create return
+     * The order must be delivered, the request within the allowed return period, and the
+     * quantity and refund amount within what is left of the order item. The order item row
+     * stays locked until commit, so concurrent requests cannot both pass the quantity check.
      */
-    public ReturnDetailResponse createReturn(com.skishop.sales.dto.request.ReturnCreateRequest request) {
+    @Transactional
+    public ReturnDetailResponse createReturn(ReturnCreateRequest request) {
         log.info("Creating return for order: {}", request.getOrderId());
-        
-        String returnId = UUID.randomUUID().toString();
-        // Mock implementation
-        return getReturnById(returnId);
+
+        UUID orderId = UUID.fromString(request.getOrderId());
+        UUID orderItemId = UUID.fromString(request.getOrderItemId());
+        Return.ReturnReason reason = parseReason(request.getReason());
+
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderId));
+        OrderItem orderItem = orderItemRepository.findByIdForUpdate(orderItemId)
+                .filter(item -> item.getOrderId().equals(orderId))
+                .orElseThrow(() -> new ResourceNotFoundException("Order item not found: " + orderItemId));
+
+        if (order.getStatus() != Order.OrderStatus.DELIVERED) {
+            throw new InvalidOrderStateException("Cannot return items of order in status: " + order.getStatus());
+        }
+
+        LocalDateTime returnPeriodStart = shipmentRepository.findByOrderId(orderId)
+                .map(Shipment::getDeliveredAt)
+                .orElse(order.getOrderDate());
+        if (LocalDateTime.now().isAfter(returnPeriodStart.plusDays(allowedDays))) {
+            throw new BusinessRuleViolationException("Return period of " + allowedDays + " days has passed");
+        }
+
+        long alreadyReturned = returnRepository.sumActiveQuantityByOrderItemId(orderItemId);
+        if (alreadyReturned + request.getQuantity() > orderItem.getQuantity()) {
+            throw new BusinessRuleViolationException("Return quantity exceeds remaining quantity: "
+                    + (orderItem.getQuantity() - alreadyReturned));
+        }
+
+        BigDecimal maxRefund = orderItem.getUnitPrice().multiply(BigDecimal.valueOf(request.getQuantity()));
+        if (request.getRefundAmount().compareTo(maxRefund) > 0) {
+            throw new BusinessRuleViolationException("Refund amount exceeds item price: " + maxRefund);
+        }
+
+        Return returnEntity = Return.builder()
+                .returnNumber(generateReturnNumber())
+                .orderId(orderId)
+                .orderItemId(orderItemId)
+                .customerId(order.getCustomerId())
+                .reason(reason)
+                .reasonDetail(request.getReasonDetail())
+                .quantity(request.getQuantity())
+                .refundAmount(request.getRefundAmount())
+                .status(Return.ReturnStatus.REQUESTED)
+                .build();
+
+        Return savedReturn = returnRepository.save(returnEntity);
+        eventPublisherService.publishReturnRequestedEvent(savedReturn);
+
+        return getReturnById(savedReturn.getId().toString());
     }
 
     /**
      * Get returns by order
      */
-    public ReturnListResponse getReturnsByOrder(Long orderId) {
+    @Transactional(readOnly = true)
+    public ReturnListResponse getReturnsByOrder(UUID orderId) {
         log.info("Getting returns for order: {}", orderId);
-        
-        // Mock data
-        List<ReturnListResponse.ReturnSummary> returns = List.of();
-        return new ReturnListResponse(returns, 0, 0, 0, 20);
+
+        List<ReturnListResponse.ReturnSummary> returns = returnRepository.findByOrderId(orderId).stream()
+                .map(ReturnService::toSummary)
+                .toList();
+        return new ReturnListResponse(returns, returns.size(), 1, 0, returns.size());
     }
 
     /**
-     * Search returns
+     * Search returns by return number or customer ID
      */
+    @Transactional(readOnly = true)
     public ReturnListResponse searchReturns(String keyword, Pageable pageable) {
         log.info("Searching returns: keyword={}", keyword);
-        return getReturns(pageable, null, null, null);
+
+        return returnRepository.findByReturnNumber(keyword)
+                .map(returnEntity -> new ReturnListResponse(List.of(toSummary(returnEntity)), 1, 1, 0, pageable.getPageSize()))
+                .orElseGet(() -> toListResponse(returnRepository.findLatestReturnsByCustomerId(keyword, pageable)));
+    }
+
+    /**
+     * Approve one chunk of requested returns below the auto-approval threshold
+     * Claims at most chunkSize returns with SKIP LOCKED, approves them with a single update
+     * and publishes RETURN_STATUS_UPDATED for the chunk. Returns the number of approved returns.
+     */
+    @Transactional
+    public int autoApproveReturnChunk(int chunkSize) {
+        List<UUID> returnIds = returnRepository.claimAutoApprovableReturnIds(autoApprovalThreshold, chunkSize);
+        if (returnIds.isEmpty()) {
+            return 0;
+        }
+
+        int approved = returnRepository.approveByIdIn(
+                returnIds,
+                "Auto-approved: refund below " + autoApprovalThreshold.toPlainString(),
+                LocalDateTime.now()
+        );
+
+        eventPublisherService.publishReturnStatusUpdatedEvents(returnRepository.findAllById(returnIds).stream()
+                .filter(returnEntity -> returnEntity.getStatus() == Return.ReturnStatus.APPROVED)
+                .toList());
+
+        log.info("Auto-approved {} returns", approved);
+        return approved;
+    }
+
+    /**
+     * Cancel one chunk of return requests left unreviewed since before expiryTime
+     * Returns the number of expired returns
+     */
+    @Transactional
+    public int expireStaleReturnChunk(LocalDateTime expiryTime, int chunkSize) {
+        List<UUID> returnIds = returnRepository.findExpiredReturnRequests(expiryTime, PageRequest.of(0, chunkSize)).stream()
+                .map(Return::getId)
+                .toList();
+        if (returnIds.isEmpty()) {
+            return 0;
+        }
+
+        int expired = returnRepository.updateStatusByIdIn(
+                returnIds,
+                Return.ReturnStatus.REQUESTED,
+                Return.ReturnStatus.CANCELLED,
+                "Cancelled: request expired before review",
+                LocalDateTime.now()
+        );
+
+        eventPublisherService.publishReturnStatusUpdatedEvents(returnRepository.findAllById(returnIds).stream()
+                .filter(returnEntity -> returnEntity.getStatus() == Return.ReturnStatus.CANCELLED)
+                .toList());
+
+        log.info("Expired {} stale return requests", expired);
+        return expired;
+    }
+
+    private Return findReturn(UUID returnId) {
+        return returnRepository.findById(returnId)
+                .orElseThrow(() -> new ResourceNotFoundException("Return not found: " + returnId));
+    }
+
+    /**
+     * Validate return status transition
+     */
+    private void validateStatusTransition(Return.ReturnStatus currentStatus, Return.ReturnStatus newStatus) {
+        boolean isValidTransition = switch (currentStatus) {
+            case REQUESTED -> newStatus == Return.ReturnStatus.APPROVED
+                    || newStatus == Return.ReturnStatus.REJECTED
+                    || newStatus == Return.ReturnStatus.CANCELLED;
+            case APPROVED -> newStatus == Return.ReturnStatus.RECEIVED || newStatus == Return.ReturnStatus.CANCELLED;
+            case RECEIVED -> newStatus == Return.ReturnStatus.REFUNDED || newStatus == Return.ReturnStatus.REJECTED;
+            case REJECTED, REFUNDED, CANCELLED -> false;
+        };
+
+        if (!isValidTransition) {
+            throw new InvalidOrderStateException("Invalid return status transition: " + currentStatus + " -> " + newStatus);
+        }
+    }
+
+    private static Return.ReturnStatus parseStatus(String status) {
+        try {
+            return Return.ReturnStatus.valueOf(status.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessRuleViolationException("Unknown return status: " + status);
+        }
+    }
+
+    private static Return.ReturnReason parseReason(String reason) {
+        try {
+            return Return.ReturnReason.valueOf(reason.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessRuleViolationException("Unknown return reason: " + reason);
+        }
+    }
+
+    private static ReturnListResponse toListResponse(Page<Return> returns) {
+        return new ReturnListResponse(
+                returns.map(ReturnService::toSummary).getContent(),
+                (int) returns.getTotalElements(),
+                returns.getTotalPages(),
+                returns.getNumber(),
+                returns.getSize()
+        );
+    }
+
+    private static ReturnListResponse.ReturnSummary toSummary(Return returnEntity) {
+        LocalDateTime processedAt = processedAt(returnEntity);
+        return new ReturnListResponse.ReturnSummary(
+                returnEntity.getId().toString(),
+                returnEntity.getOrderId().toString(),
+                returnEntity.getCustomerId(),
+                returnEntity.getStatus().name(),
+                returnEntity.getRefundAmount().toPlainString(),
+                returnEntity.getRequestedAt().toString(),
+                processedAt != null ? processedAt.toString() : null
+        );
+    }
+
+    /**
+     * When the request was decided on: approval time, or the last update for rejected and cancelled returns
+     */
+    private static LocalDateTime processedAt(Return returnEntity) {
+        return switch (returnEntity.getStatus()) {
+            case REQUESTED -> null;
+            case REJECTED, CANCELLED -> returnEntity.getUpdatedAt();
+            default -> returnEntity.getApprovedAt();
+        };
+    }
+
+    private static String appendNote(String notes, String note) {
+        return notes == null || notes.isEmpty() ? note : notes + "\n" + note;
+    }
+
+    /**
+     * Generate return number
+     * Format: RET + YYYYMMDD + 8 random hex digits
+     */
+    private static String generateReturnNumber() {
+        String random = UUID.randomUUID().toString().replace("-", "").substring(0, 8).toUpperCase(Locale.ROOT);
+        return "RET" + LocalDate.now().format(RETURN_NUMBER_DATE_FORMAT) + random;
     }
 }
@@ -0,0 +1,107 @@
+package com.skishop.sales.service.export;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reader for the columnar export format written by {@link ColumnarSalesExportWriter}
+ * Columns are taken from the file header, and only one row group is held in memory.
+ */
+final class ColumnarSalesExportReader implements Closeable {
+
+    private static final byte[] MAGIC = "SKCOL1".getBytes(StandardCharsets.US_ASCII);
+    private static final SalesExportColumn.Type[] TYPES = SalesExportColumn.Type.values();
+
+    private final DataInputStream in;
+    private final List<String> columnNames;
+    private final SalesExportColumn.Type[] columnTypes;
+    private Object[][] rowGroup = new Object[0][];
+    private int nextRow;
+    private boolean finished;
+
+    ColumnarSalesExportReader(InputStream inputStream) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream, 64 * 1024), 64 * 1024));
+
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(MAGIC, magic)) {
+            throw new IOException("Not a columnar sales export");
+        }
+        int columnCount = in.readInt();
+        List<String> names = new ArrayList<>(columnCount);
+        this.columnTypes = new SalesExportColumn.Type[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            names.add(in.readUTF());
+            int type = in.readUnsignedByte();
+            if (type >= TYPES.length) {
+                throw new IOException("Unknown column type " + type);
+            }
+            columnTypes[column] = TYPES[type];
+        }
+        this.columnNames = List.copyOf(names);
+    }
+
+    List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Values of the next row in header column order, or null after the last row
+     */
+    Object[] next() throws IOException {
+        while (nextRow == rowGroup.length) {
+            if (finished) {
+                return null;
+            }
+            readRowGroup();
+        }
+        return rowGroup[nextRow++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readRowGroup() throws IOException {
+        int rowCount = in.readInt();
+        if (rowCount < 0) {
+            throw new IOException("Invalid row group size " + rowCount);
+        }
+        if (rowCount == 0) {
+            finished = true;
+        }
+        Object[][] rows = new Object[rowCount][columnTypes.length];
+        byte[] nulls = new byte[(rowCount + 7) / 8];
+        for (int column = 0; column < columnTypes.length; column++) {
+            in.readFully(nulls);
+            for (int row = 0; row < rowCount; row++) {
+                if ((nulls[row >>> 3] & (1 << (row & 7))) == 0) {
+                    rows[row][column] = readValue(columnTypes[column]);
+                }
+            }
+        }
+        rowGroup = rows;
+        nextRow = 0;
+    }
+
+    private Object readValue(SalesExportColumn.Type type) throws IOException {
+        return switch (type) {
+            case STRING -> in.readUTF();
+            case TIMESTAMP -> LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZoneOffset.UTC);
+            case DECIMAL -> BigDecimal.valueOf(in.readLong(), 2);
+        };
+    }
+}
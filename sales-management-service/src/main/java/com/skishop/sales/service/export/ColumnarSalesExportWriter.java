@@ -0,0 +1,106 @@
+package com.skishop.sales.service.export;
+
+import com.skishop.sales.repository.jdbc.OrderExportRow;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed columnar export writer
+ *
+ * Layout (big-endian, inside a single gzip stream):
+ * magic "SKCOL1", int column count, then per column its UTF name and type ordinal
+ * ({@link SalesExportColumn.Type}); then row groups of int row count followed, for each
+ * column, by a null bitmap of ceil(rows / 8) bytes (bit i of byte i / 8 set when row i is
+ * null, low bit first) and the values of the non-null rows; terminated by a row group of
+ * size 0. Strings are UTF and decimals are longs in minor units (scale 2).
+ * Timestamps are the order's wall-clock date-time as stored, without a zone: milliseconds
+ * from 1970-01-01T00:00 to that local date-time, which is not an instant. Decode them at
+ * offset zero, as {@link ColumnarSalesExportReader} does, to get the same wall-clock value.
+ * Grouping values by column lets gzip compress repetitive columns such as status well,
+ * while only one row group is ever buffered.
+ */
+final class ColumnarSalesExportWriter implements SalesExportWriter {
+
+    private static final byte[] MAGIC = "SKCOL1".getBytes(StandardCharsets.US_ASCII);
+    private static final int ROW_GROUP_SIZE = 8192;
+
+    private static final SalesExportColumn[] COLUMNS = SalesExportColumn.values();
+
+    private final GZIPOutputStream gzip;
+    private final DataOutputStream out;
+    private final OrderExportRow[] rowGroup = new OrderExportRow[ROW_GROUP_SIZE];
+    private int rowCount;
+
+    ColumnarSalesExportWriter(OutputStream outputStream) throws IOException {
+        this.gzip = new GZIPOutputStream(outputStream, 64 * 1024);
+        this.out = new DataOutputStream(new BufferedOutputStream(gzip, 64 * 1024));
+
+        out.write(MAGIC);
+        out.writeInt(COLUMNS.length);
+        for (SalesExportColumn column : COLUMNS) {
+            out.writeUTF(column.getColumnName());
+            out.writeByte(column.getType().ordinal());
+        }
+    }
+
+    @Override
+    public void write(OrderExportRow row) throws IOException {
+        rowGroup[rowCount++] = row;
+        if (rowCount == ROW_GROUP_SIZE) {
+            flushRowGroup();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (rowCount > 0) {
+            flushRowGroup();
+        }
+        out.writeInt(0);
+        out.flush();
+        gzip.finish();
+    }
+
+    private void flushRowGroup() throws IOException {
+        out.writeInt(rowCount);
+        Object[] values = new Object[rowCount];
+        byte[] nulls = new byte[(rowCount + 7) / 8];
+        for (SalesExportColumn column : COLUMNS) {
+            Arrays.fill(nulls, (byte) 0);
+            for (int i = 0; i < rowCount; i++) {
+                values[i] = column.valueOf(rowGroup[i]);
+                if (values[i] == null) {
+                    nulls[i >>> 3] |= (byte) (1 << (i & 7));
+                }
+            }
+            out.write(nulls);
+            for (int i = 0; i < rowCount; i++) {
+                if (values[i] != null) {
+                    writeValue(column.getType(), values[i]);
+                }
+            }
+        }
+        Arrays.fill(rowGroup, 0, rowCount, null);
+        rowCount = 0;
+    }
+
+    private void writeValue(SalesExportColumn.Type type, Object value) throws IOException {
+        switch (type) {
+            case STRING -> out.writeUTF(value.toString());
+            // Wall-clock millis: UTC is only the arithmetic, not the zone of the order
+            case TIMESTAMP -> out.writeLong(((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli());
+            case DECIMAL -> out.writeLong(((BigDecimal) value).setScale(2, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.skishop.sales.service.export;
+
+import com.skishop.sales.repository.jdbc.OrderExportRow;
+
+import java.util.function.Function;
+
+/**
+ * Columns written by every export format, in output order
+ */
+enum SalesExportColumn {
+    ORDER_NUMBER("order_number", Type.STRING, OrderExportRow::orderNumber),
+    ORDER_DATE("order_date", Type.TIMESTAMP, OrderExportRow::orderDate),
+    CUSTOMER_ID("customer_id", Type.STRING, OrderExportRow::customerId),
+    STATUS("status", Type.STRING, OrderExportRow::status),
+    PAYMENT_STATUS("payment_status", Type.STRING, OrderExportRow::paymentStatus),
+    PAYMENT_METHOD("payment_method", Type.STRING, OrderExportRow::paymentMethod),
+    SUBTOTAL_AMOUNT("subtotal_amount", Type.DECIMAL, OrderExportRow::subtotalAmount),
+    TAX_AMOUNT("tax_amount", Type.DECIMAL, OrderExportRow::taxAmount),
+    SHIPPING_FEE("shipping_fee", Type.DECIMAL, OrderExportRow::shippingFee),
+    DISCOUNT_AMOUNT("discount_amount", Type.DECIMAL, OrderExportRow::discountAmount),
+    TOTAL_AMOUNT("total_amount", Type.DECIMAL, OrderExportRow::totalAmount);
+
+    private final String columnName;
+    private final Type type;
+    private final Function<OrderExportRow, Object> accessor;
+
+    SalesExportColumn(String columnName, Type type, Function<OrderExportRow, Object> accessor) {
+        this.columnName = columnName;
+        this.type = type;
+        this.accessor = accessor;
+    }
+
+    String getColumnName() {
+        return columnName;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    Object valueOf(OrderExportRow row) {
+        return accessor.apply(row);
+    }
+
+    /**
+     * Physical value type
+     */
+    enum Type {
+        STRING, TIMESTAMP, DECIMAL
+    }
+}
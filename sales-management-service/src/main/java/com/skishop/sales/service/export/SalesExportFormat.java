@@ -0,0 +1,38 @@
+package com.skishop.sales.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Sales report export formats
+ */
+public enum SalesExportFormat {
+    CSV("text/csv", "csv"),
+    COLUMNAR("application/octet-stream", "skcol.gz");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    SalesExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Open a writer for this format on top of the response stream
+     */
+    public SalesExportWriter openWriter(OutputStream outputStream) throws IOException {
+        return switch (this) {
+            case CSV -> new CsvSalesExportWriter(outputStream);
+            case COLUMNAR -> new ColumnarSalesExportWriter(outputStream);
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package com.skishop.sales.service.export;
+
+import com.skishop.sales.repository.jdbc.OrderExportRow;
+
+import java.io.IOException;
+
+/**
+ * Incremental writer for sales report exports
+ * Implementations hold at most a bounded buffer of rows, never the whole result.
+ */
+public interface SalesExportWriter {
+
+    /**
+     * Append one order row
+     */
+    void write(OrderExportRow row) throws IOException;
+
+    /**
+     * Flush remaining data and write any trailer; the underlying stream stays open
+     */
+    void finish() throws IOException;
+}
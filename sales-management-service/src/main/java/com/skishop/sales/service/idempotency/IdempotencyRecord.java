@@ -0,0 +1,36 @@
+package com.skishop.sales.service.idempotency;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Stored state of an idempotency key
+ *
+ * @param state IN_PROGRESS while the first request runs, COMPLETED once its response is stored
+ * @param fingerprint Hash of the request body the key was first used with
+ * @param responseJson Serialized response (COMPLETED only)
+ * @param owner Token of the request holding the lock (IN_PROGRESS only)
+ */
+public record IdempotencyRecord(
+    State state,
+    String fingerprint,
+    String responseJson,
+    String owner
+) {
+
+    public static IdempotencyRecord inProgress(String fingerprint, String owner) {
+        return new IdempotencyRecord(State.IN_PROGRESS, fingerprint, null, owner);
+    }
+
+    public static IdempotencyRecord completed(String fingerprint, String responseJson) {
+        return new IdempotencyRecord(State.COMPLETED, fingerprint, responseJson, null);
+    }
+
+    @JsonIgnore
+    public boolean isCompleted() {
+        return state == State.COMPLETED;
+    }
+
+    public enum State {
+        IN_PROGRESS, COMPLETED
+    }
+}
@@ -0,0 +1,219 @@
+package com.skishop.sales.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.sales.exception.DuplicateRequestException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency key handling
+ * The first request for a key runs the action and stores its response; retries with the
+ * same key replay that response. Concurrent duplicates wait for the first result instead of
+ * running the action again: on the same instance through a shared future, across instances
+ * by polling the store while the IN_PROGRESS lock is held. The lock is renewed while the
+ * action runs, so a slow request keeps it, and the response is stored only while the lock
+ * is still held.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final String KEY_PREFIX = "idempotency:";
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService lockRenewal = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("idempotency-lock-renewal").daemon().factory());
+
+    private final Duration ttl;
+    private final Duration lockTtl;
+    private final long waitTimeoutMillis;
+    private final long pollIntervalMillis;
+
+    public IdempotencyService(IdempotencyStore idempotencyStore,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${app.idempotency.lock-ttl-seconds:30}") long lockTtlSeconds,
+                              @Value("${app.idempotency.wait-timeout-ms:10000}") long waitTimeoutMillis,
+                              @Value("${app.idempotency.poll-interval-ms:50}") long pollIntervalMillis) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lockTtl = Duration.ofSeconds(lockTtlSeconds);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    @PreDestroy
+    void stop() {
+        lockRenewal.shutdownNow();
+    }
+
+    /**
+     * Execute the action at most once per (scope, idempotency key)
+     */
+    public <T> IdempotentResult<T> execute(String scope, String idempotencyKey, Object request,
+                                           Class<T> responseType, Supplier<T> action) {
+        String storeKey = KEY_PREFIX + scope + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+
+        CompletableFuture<IdempotencyRecord> ownFuture = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> runningFuture = inFlight.putIfAbsent(storeKey, ownFuture);
+        if (runningFuture != null) {
+            log.debug("Waiting for in-flight request with idempotency key: {}", storeKey);
+            return replay(awaitLocal(runningFuture, storeKey), fingerprint, responseType);
+        }
+
+        try {
+            Outcome<T> outcome = executeOrAwait(storeKey, fingerprint, action);
+            ownFuture.complete(outcome.record());
+            return outcome.executed()
+                    ? new IdempotentResult<>(outcome.value(), false)
+                    : replay(outcome.record(), fingerprint, responseType);
+        } catch (RuntimeException e) {
+            ownFuture.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(storeKey, ownFuture);
+        }
+    }
+
+    private <T> Outcome<T> executeOrAwait(String storeKey, String fingerprint, Supplier<T> action) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+
+        while (true) {
+            Optional<IdempotencyRecord> existing = idempotencyStore.get(storeKey);
+            if (existing.isPresent() && existing.get().isCompleted()) {
+                return new Outcome<>(existing.get(), null, false);
+            }
+
+            if (existing.isEmpty()) {
+                IdempotencyRecord lock = IdempotencyRecord.inProgress(fingerprint, UUID.randomUUID().toString());
+                if (idempotencyStore.tryAcquire(storeKey, lock, lockTtl)) {
+                    return run(storeKey, lock, action);
+                }
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                throw new DuplicateRequestException("Request with the same idempotency key is still in progress");
+            }
+            sleep(pollIntervalMillis);
+        }
+    }
+
+    private <T> Outcome<T> run(String storeKey, IdempotencyRecord lock, Supplier<T> action) {
+        // Renew well before the lock expires, so that one late renewal does not lose it
+        long renewIntervalMillis = Math.max(lockTtl.toMillis() / 3, 1);
+        ScheduledFuture<?> renewal = lockRenewal.scheduleAtFixedRate(() -> renew(storeKey, lock),
+                renewIntervalMillis, renewIntervalMillis, TimeUnit.MILLISECONDS);
+        T response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            // Failed requests must stay retryable with the same key
+            idempotencyStore.release(storeKey, lock);
+            throw e;
+        } finally {
+            renewal.cancel(false);
+        }
+
+        IdempotencyRecord record = IdempotencyRecord.completed(lock.fingerprint(), toJson(response));
+        if (!idempotencyStore.complete(storeKey, lock, record, ttl)) {
+            // Another request took the key after the lock was lost; its outcome is kept
+            log.warn("Idempotency lock was lost before the response was stored: {}", storeKey);
+        }
+        return new Outcome<>(record, response, true);
+    }
+
+    private void renew(String storeKey, IdempotencyRecord lock) {
+        try {
+            if (!idempotencyStore.renew(storeKey, lock, lockTtl)) {
+                log.warn("Idempotency lock expired while the request was running: {}", storeKey);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to renew idempotency lock: {}", storeKey, e);
+        }
+    }
+
+    private IdempotencyRecord awaitLocal(CompletableFuture<IdempotencyRecord> future, String storeKey) {
+        try {
+            return future.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Idempotent request failed: " + storeKey, e.getCause());
+        } catch (TimeoutException e) {
+            throw new DuplicateRequestException("Request with the same idempotency key is still in progress", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DuplicateRequestException("Interrupted while waiting for idempotent request", e);
+        }
+    }
+
+    private <T> IdempotentResult<T> replay(IdempotencyRecord record, String fingerprint, Class<T> responseType) {
+        if (!record.fingerprint().equals(fingerprint)) {
+            throw new DuplicateRequestException("Idempotency key was already used with a different request");
+        }
+        return new IdempotentResult<>(fromJson(record.responseJson(), responseType), true);
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotent response", e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize idempotent response", e);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DuplicateRequestException("Interrupted while waiting for idempotent request", e);
+        }
+    }
+
+    private record Outcome<T>(IdempotencyRecord record, T value, boolean executed) {
+    }
+}
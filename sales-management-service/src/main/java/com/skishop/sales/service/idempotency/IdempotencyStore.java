@@ -0,0 +1,39 @@
+package com.skishop.sales.service.idempotency;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Key-value store backing idempotency keys
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Get the current record for a key
+     */
+    Optional<IdempotencyRecord> get(String key);
+
+    /**
+     * Atomically store an IN_PROGRESS record if the key is absent
+     * Returns true if this caller now owns the key
+     */
+    boolean tryAcquire(String key, IdempotencyRecord record, Duration lockTtl);
+
+    /**
+     * Extend the lock while its owner is still running
+     * Returns false if the lock expired or is held by another request
+     */
+    boolean renew(String key, IdempotencyRecord lock, Duration lockTtl);
+
+    /**
+     * Store the completed record in place of the given lock
+     * Returns false, leaving the key as it is, if the lock is no longer held
+     */
+    boolean complete(String key, IdempotencyRecord lock, IdempotencyRecord record, Duration ttl);
+
+    /**
+     * Remove the key so that the request can be retried after a failure
+     * Only removes the given lock; a lock that expired and was taken by another request is kept
+     */
+    void release(String key, IdempotencyRecord lock);
+}
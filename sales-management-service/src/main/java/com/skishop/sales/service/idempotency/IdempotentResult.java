@@ -0,0 +1,10 @@
+package com.skishop.sales.service.idempotency;
+
+/**
+ * Result of an idempotent execution
+ *
+ * @param value Response value
+ * @param replayed True if the value was stored by an earlier request with the same key
+ */
+public record IdempotentResult<T>(T value, boolean replayed) {
+}
@@ -0,0 +1,84 @@
+package com.skishop.sales.service.idempotency;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory idempotency store
+ * Stand-in for local development and single-instance runs without Redis
+ */
+@Component
+@ConditionalOnProperty(name = "app.idempotency.store", havingValue = "local")
+public class LocalIdempotencyStore implements IdempotencyStore {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<IdempotencyRecord> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.record());
+    }
+
+    @Override
+    public boolean tryAcquire(String key, IdempotencyRecord record, Duration lockTtl) {
+        long now = System.currentTimeMillis();
+        Entry candidate = new Entry(record, now + lockTtl.toMillis());
+        Entry result = entries.compute(key, (k, existing) ->
+                existing == null || existing.isExpired(now) ? candidate : existing);
+        return result == candidate;
+    }
+
+    @Override
+    public boolean renew(String key, IdempotencyRecord lock, Duration lockTtl) {
+        return replaceLock(key, lock, new Entry(lock, System.currentTimeMillis() + lockTtl.toMillis()));
+    }
+
+    @Override
+    public boolean complete(String key, IdempotencyRecord lock, IdempotencyRecord record, Duration ttl) {
+        return replaceLock(key, lock, new Entry(record, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public void release(String key, IdempotencyRecord lock) {
+        replaceLock(key, lock, null);
+    }
+
+    /**
+     * Replace the entry only while it still holds the given, unexpired lock
+     */
+    private boolean replaceLock(String key, IdempotencyRecord lock, Entry replacement) {
+        long now = System.currentTimeMillis();
+        boolean[] replaced = {false};
+        entries.computeIfPresent(key, (k, existing) -> {
+            if (existing.isExpired(now) || !existing.record().equals(lock)) {
+                return existing;
+            }
+            replaced[0] = true;
+            return replacement;
+        });
+        return replaced[0];
+    }
+
+    /**
+     * Evict expired keys
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    private record Entry(IdempotencyRecord record, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return expiresAtMillis <= now;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.skishop.sales.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Redis idempotency store
+ * SET NX acts as the cross-replica in-flight lock. Renewing, completing and releasing it
+ * check the lock's owner token in a script, so that a request outliving its lock cannot
+ * extend, overwrite or free a lock another replica has since taken.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.idempotency.store", havingValue = "redis", matchIfMissing = true)
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    /** Whether KEYS[1] holds the lock of owner ARGV[1] */
+    private static final String HOLDS_LOCK = """
+            local current = redis.call('GET', KEYS[1])
+            local holds = false
+            if current then
+              local ok, record = pcall(cjson.decode, current)
+              holds = ok and record.state == 'IN_PROGRESS' and record.owner == ARGV[1]
+            end
+            """;
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(HOLDS_LOCK + """
+            if holds then
+              return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(HOLDS_LOCK + """
+            if holds then
+              redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(HOLDS_LOCK + """
+            if holds then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Optional<IdempotencyRecord> get(String key) {
+        String json = stringRedisTemplate.opsForValue().get(key);
+        return Optional.ofNullable(json).map(this::fromJson);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, IdempotencyRecord record, Duration lockTtl) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, toJson(record), lockTtl));
+    }
+
+    @Override
+    public boolean renew(String key, IdempotencyRecord lock, Duration lockTtl) {
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(key), lock.owner(),
+                String.valueOf(lockTtl.toMillis()));
+        return renewed != null && renewed == 1;
+    }
+
+    @Override
+    public boolean complete(String key, IdempotencyRecord lock, IdempotencyRecord record, Duration ttl) {
+        Long completed = stringRedisTemplate.execute(COMPLETE_SCRIPT, List.of(key), lock.owner(), toJson(record),
+                String.valueOf(ttl.toMillis()));
+        return completed != null && completed == 1;
+    }
+
+    @Override
+    public void release(String key, IdempotencyRecord lock) {
+        stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(key), lock.owner());
+    }
+
+    private String toJson(IdempotencyRecord record) {
+        try {
+            return objectMapper.writeValueAsString(record);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotency record", e);
+        }
+    }
+
+    private IdempotencyRecord fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, IdempotencyRecord.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize idempotency record", e);
+        }
+    }
+}
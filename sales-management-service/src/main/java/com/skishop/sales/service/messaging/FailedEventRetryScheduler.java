@@ -0,0 +1,178 @@
+package com.skishop.sales.service.messaging;
+
+import com.skishop.sales.repository.jdbc.FailedEvent;
+import com.skishop.sales.repository.jdbc.FailedEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Failed event retry scheduler
+ * Re-sends records from the failed_events store with exponential backoff. Each chunk is
+ * claimed with SKIP LOCKED and leased in a short transaction, then sent as a batch with no
+ * connection or row lock held, so replicas share the backlog; records that run out of
+ * attempts stay in the table as dead letters for manual replay.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.kafka.retry.enabled", havingValue = "true", matchIfMissing = true)
+public class FailedEventRetryScheduler {
+
+    private static final String RETRY_COUNTER = "sales.kafka.publish.retries";
+
+    private final FailedEventRepository failedEventRepository;
+    private final KafkaEventSender kafkaEventSender;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.kafka.retry.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${app.kafka.retry.max-chunks-per-run:20}")
+    private int maxChunksPerRun;
+
+    @Value("${app.kafka.retry.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.kafka.retry.initial-backoff-ms:5000}")
+    private long initialBackoffMs;
+
+    @Value("${app.kafka.retry.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    @Value("${app.kafka.retry.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    /** Must exceed the send timeout, or another replica may re-send a chunk still in flight */
+    @Value("${app.kafka.retry.claim-lease-ms:60000}")
+    private long claimLeaseMs;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder("sales.kafka.failed-events", pending, AtomicLong::get)
+                .description("Undelivered records waiting for retry")
+                .tag("status", "pending")
+                .register(meterRegistry);
+        Gauge.builder("sales.kafka.failed-events", dead, AtomicLong::get)
+                .description("Records that ran out of delivery attempts")
+                .tag("status", "dead")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Retry due records
+     * Stops when a chunk comes back short or after the per-run chunk limit
+     */
+    @Scheduled(fixedDelayString = "${app.kafka.retry.interval-ms:30000}")
+    public void retryFailedEvents() {
+        try {
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                int claimed = retryChunk();
+                if (claimed < chunkSize) {
+                    break;
+                }
+            }
+            pending.set(failedEventRepository.countByStatus("PENDING"));
+            dead.set(failedEventRepository.countByStatus("DEAD"));
+        } catch (Exception e) {
+            log.error("Failed event retry error", e);
+        }
+    }
+
+    private int retryChunk() {
+        LocalDateTime leaseUntil = LocalDateTime.now().plus(Duration.ofMillis(claimLeaseMs));
+        List<FailedEvent> events = transactionTemplate.execute(status -> failedEventRepository.claimDue(chunkSize, leaseUntil));
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        // Send the whole chunk before waiting, so the records share producer batches
+        List<CompletableFuture<SendResult<String, String>>> sends = events.stream()
+                .map(event -> kafkaEventSender.sendTracked(event.topic(), event.key(), event.payload()))
+                .toList();
+        awaitAll(sends);
+
+        List<Long> delivered = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            FailedEvent event = events.get(i);
+            String error = sendError(sends.get(i));
+            if (error == null) {
+                delivered.add(event.id());
+                countRetry(event, "delivered");
+            } else if (event.attempts() + 1 >= maxAttempts) {
+                failedEventRepository.markDead(event.id(), error);
+                countRetry(event, "dead");
+                log.error("Giving up on event {} for topic {} after {} attempts: {}",
+                        event.id(), event.topic(), event.attempts() + 1, error);
+            } else {
+                failedEventRepository.recordFailure(event.id(), error, nextAttemptAt(event.attempts()));
+                countRetry(event, "failed");
+            }
+        }
+
+        if (!delivered.isEmpty()) {
+            failedEventRepository.deleteByIds(delivered);
+            log.info("Re-delivered {} failed events", delivered.size());
+        }
+        return events.size();
+    }
+
+    /**
+     * Wait for the whole chunk under one deadline; sends still unacknowledged at the deadline count as failed
+     */
+    private void awaitAll(List<CompletableFuture<SendResult<String, String>>> sends) {
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying failed events", e);
+        } catch (ExecutionException | TimeoutException e) {
+            // Outcomes are read per record below
+        }
+    }
+
+    private String sendError(CompletableFuture<SendResult<String, String>> send) {
+        if (!send.isDone()) {
+            return "Send not acknowledged within " + sendTimeoutMs + " ms";
+        }
+        if (!send.isCompletedExceptionally()) {
+            return null;
+        }
+        Throwable error = send.exceptionNow();
+        return error.getCause() != null ? error.getCause().toString() : error.toString();
+    }
+
+    /**
+     * Exponential backoff from the initial delay, capped at the maximum
+     */
+    private LocalDateTime nextAttemptAt(int attempts) {
+        long backoffMs = initialBackoffMs << Math.min(attempts, 20);
+        return LocalDateTime.now().plus(Duration.ofMillis(Math.min(backoffMs, maxBackoffMs)));
+    }
+
+    private void countRetry(FailedEvent event, String outcome) {
+        meterRegistry.counter(RETRY_COUNTER, "topic", event.topic(), "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,141 @@
+package com.skishop.sales.service.messaging;
+
+import com.skishop.sales.repository.jdbc.FailedEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Instrumented Kafka sender
+ * Every send is timed from send() to broker acknowledgement, per topic and outcome, with
+ * an in-flight gauge per topic. Records whose send fails are written to the local
+ * failed_events store for retry; that write happens off the producer I/O thread.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaEventSender {
+
+    private static final String LATENCY_TIMER = "sales.kafka.publish";
+    private static final String FAILURE_COUNTER = "sales.kafka.publish.failures";
+    private static final String IN_FLIGHT_GAUGE = "sales.kafka.publish.in-flight";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final FailedEventRepository failedEventRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.kafka.retry.initial-backoff-ms:5000}")
+    private long initialBackoffMs;
+
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    /** Keeps the database write of a failed record off the producer I/O thread */
+    private final ExecutorService failureExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("kafka-send-failure-", 0).factory());
+
+    /**
+     * Let failed records already handed over be stored before shutdown
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        failureExecutor.shutdown();
+        if (!failureExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Failed events still being stored at shutdown");
+            failureExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Send a record; a failed send is stored for retry instead of being lost
+     */
+    public void send(String topic, String key, String payload) {
+        sendTracked(topic, key, payload).whenComplete((result, error) -> {
+            if (error != null) {
+                failureExecutor.execute(() -> storeForRetry(topic, key, payload, error));
+            }
+        });
+    }
+
+    /**
+     * Send a record with metrics only; the caller handles failure
+     */
+    public CompletableFuture<SendResult<String, String>> sendTracked(String topic, String key, String payload) {
+        AtomicInteger topicInFlight = inFlight(topic);
+        topicInFlight.incrementAndGet();
+        long start = System.nanoTime();
+
+        CompletableFuture<SendResult<String, String>> future;
+        try {
+            future = kafkaTemplate.send(topic, key, payload);
+        } catch (RuntimeException e) {
+            // Serialization or metadata errors surface synchronously
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        return future.whenComplete((result, error) -> {
+            topicInFlight.decrementAndGet();
+            String outcome = error == null ? "success" : "failure";
+            Timer.builder(LATENCY_TIMER)
+                    .description("Time from send to broker acknowledgement")
+                    .tag("topic", topic)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                Counter.builder(FAILURE_COUNTER)
+                        .tag("topic", topic)
+                        .tag("exception", rootCause(error).getClass().getSimpleName())
+                        .register(meterRegistry)
+                        .increment();
+            }
+        });
+    }
+
+    private void storeForRetry(String topic, String key, String payload, Throwable error) {
+        Throwable cause = rootCause(error);
+        log.warn("Kafka send to {} failed for key {}; stored for retry: {}", topic, key, cause.toString());
+        try {
+            failedEventRepository.save(topic, key, payload, cause.toString(),
+                    LocalDateTime.now().plus(Duration.ofMillis(initialBackoffMs)));
+        } catch (Exception e) {
+            log.error("Failed to store undelivered event for topic {} key {}: {}", topic, key, payload, e);
+        }
+    }
+
+    private AtomicInteger inFlight(String topic) {
+        return inFlight.computeIfAbsent(topic, t -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder(IN_FLIGHT_GAUGE, counter, AtomicInteger::get)
+                    .description("Records sent but not yet acknowledged")
+                    .tag("topic", t)
+                    .register(meterRegistry);
+            return counter;
+        });
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,138 @@
+package com.skishop.sales.service.ranking;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.sales.repository.jdbc.OrderLineSalesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming best-seller tracker
+ * Consumes ORDER_CREATED events and keeps hourly, daily and weekly top products
+ * in bounded memory, independent of catalog size. Queries read a precomputed snapshot.
+ * On startup the windows are rebuilt from the order lines placed before this instance
+ * started; events from before that moment are skipped so no sale is counted twice.
+ */
+@Service
+@Slf4j
+public class BestSellerTracker {
+
+    private final ObjectMapper objectMapper;
+    private final OrderLineSalesRepository orderLineSalesRepository;
+    private final Map<RankingWindow, SlidingWindowTopK> windows = new EnumMap<>(RankingWindow.class);
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    public BestSellerTracker(ObjectMapper objectMapper,
+                             OrderLineSalesRepository orderLineSalesRepository,
+                             @Value("${app.ranking.sketch-capacity:512}") int sketchCapacity,
+                             @Value("${app.ranking.top-k:100}") int topK) {
+        this.objectMapper = objectMapper;
+        this.orderLineSalesRepository = orderLineSalesRepository;
+        for (RankingWindow window : RankingWindow.values()) {
+            windows.put(window, new SlidingWindowTopK(window, sketchCapacity, topK));
+        }
+    }
+
+    /**
+     * Rebuild the windows from order lines placed before this instance started
+     */
+    @Async("virtualThreadTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime to = LocalDateTime.ofInstant(Instant.ofEpochMilli(startedAtMillis), zone);
+        LocalDateTime from = to.minus(RankingWindow.WEEK.getLength());
+        try {
+            long[] lines = {0};
+            orderLineSalesRepository.streamLines(from, to, line -> {
+                record(line.productId(), line.productName(), line.quantity(), line.subtotal(),
+                        line.orderDate().atZone(zone).toInstant().toEpochMilli());
+                lines[0]++;
+            });
+            refreshSnapshots();
+            log.info("Best-seller rankings rebuilt from {} order lines in {} ms", lines[0],
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to rebuild best-seller rankings; serving event-fed rankings only", e);
+        }
+    }
+
+    /**
+     * Consume order events
+     * Every instance needs all orders, so each has its own consumer group named by its
+     * instance ID; a restarted instance resumes its group and skips what the rebuild counted
+     */
+    @KafkaListener(
+            topics = "${app.kafka.topics.orders:sales.orders}",
+            groupId = "${spring.application.name}-best-sellers-${app.instance-id}",
+            properties = "auto.offset.reset=earliest")
+    public void handleOrderEvent(String eventJson) {
+        try {
+            JsonNode event = objectMapper.readTree(eventJson);
+            if (!"ORDER_CREATED".equals(event.path("eventType").asText())) {
+                return;
+            }
+
+            long timestamp = event.path("timestamp").asLong(System.currentTimeMillis());
+            if (timestamp < startedAtMillis) {
+                return;
+            }
+            for (JsonNode item : event.path("items")) {
+                record(
+                        item.path("productId").asText(),
+                        item.path("productName").asText(),
+                        item.path("quantity").asLong(),
+                        item.path("subtotal").decimalValue(),
+                        timestamp
+                );
+            }
+        } catch (Exception e) {
+            log.warn("Failed to apply order event to best-seller ranking", e);
+        }
+    }
+
+    /**
+     * Record a sold order line in every window
+     */
+    public void record(String productId, String productName, long quantity, BigDecimal revenue, long timestampMillis) {
+        if (productId == null || productId.isEmpty() || quantity <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        BigDecimal safeRevenue = revenue != null ? revenue : BigDecimal.ZERO;
+        windows.values().forEach(window ->
+                window.offer(timestampMillis, now, productId, productName, quantity, safeRevenue));
+    }
+
+    /**
+     * Rebuild ranking snapshots
+     */
+    @Scheduled(fixedDelayString = "${app.ranking.refresh-interval-ms:5000}")
+    public void refreshSnapshots() {
+        long now = System.currentTimeMillis();
+        windows.values().forEach(window -> window.refresh(now));
+    }
+
+    /**
+     * Get top products for a window from the latest snapshot
+     */
+    public List<RankedProduct> getTopProducts(RankingWindow window, int limit) {
+        return windows.get(window).top(limit);
+    }
+}
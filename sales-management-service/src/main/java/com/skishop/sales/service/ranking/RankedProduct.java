@@ -0,0 +1,21 @@
+package com.skishop.sales.service.ranking;
+
+import java.math.BigDecimal;
+
+/**
+ * Best-selling product entry from a ranking snapshot
+ *
+ * @param productId Product ID
+ * @param productName Product name (snapshot at order time)
+ * @param quantity Estimated quantity sold in the window (may over-estimate by at most maxError)
+ * @param revenue Revenue observed while the product was tracked
+ * @param maxError Upper bound of the quantity over-estimation
+ */
+public record RankedProduct(
+    String productId,
+    String productName,
+    long quantity,
+    BigDecimal revenue,
+    long maxError
+) {
+}
@@ -0,0 +1,33 @@
+package com.skishop.sales.service.ranking;
+
+import java.time.Duration;
+
+/**
+ * Sliding windows tracked by the best-seller tracker
+ * Each window is split into fixed time buckets that expire one at a time
+ */
+public enum RankingWindow {
+    HOUR(Duration.ofMinutes(5), 12),
+    DAY(Duration.ofHours(1), 24),
+    WEEK(Duration.ofHours(6), 28);
+
+    private final Duration bucketSize;
+    private final int bucketCount;
+
+    RankingWindow(Duration bucketSize, int bucketCount) {
+        this.bucketSize = bucketSize;
+        this.bucketCount = bucketCount;
+    }
+
+    public Duration getBucketSize() {
+        return bucketSize;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    public Duration getLength() {
+        return bucketSize.multipliedBy(bucketCount);
+    }
+}
@@ -0,0 +1,84 @@
+package com.skishop.sales.service.ranking;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sliding-window top-K built from a ring of time-bucketed Space-Saving sketches
+ * Writes touch only the current bucket; reads return a precomputed snapshot that is
+ * rebuilt by {@link #refresh(long)}, so memory is bounded by bucketCount x capacity.
+ */
+final class SlidingWindowTopK {
+
+    private final long bucketMillis;
+    private final int topK;
+    private final SpaceSavingSketch[] buckets;
+    private final long[] bucketEpochs;
+
+    private volatile List<RankedProduct> snapshot = List.of();
+
+    SlidingWindowTopK(RankingWindow window, int capacity, int topK) {
+        this.bucketMillis = window.getBucketSize().toMillis();
+        this.topK = topK;
+        this.buckets = new SpaceSavingSketch[window.getBucketCount()];
+        this.bucketEpochs = new long[window.getBucketCount()];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new SpaceSavingSketch(capacity);
+        }
+        Arrays.fill(bucketEpochs, Long.MIN_VALUE);
+    }
+
+    /**
+     * Record a sale; sales older than the window are ignored and future timestamps count as now
+     */
+    synchronized void offer(long timestampMillis, long nowMillis, String productId, String productName,
+                            long quantity, BigDecimal revenue) {
+        long currentEpoch = nowMillis / bucketMillis;
+        long epoch = Math.min(timestampMillis / bucketMillis, currentEpoch);
+        if (epoch <= currentEpoch - buckets.length) {
+            return;
+        }
+
+        int index = (int) Math.floorMod(epoch, (long) buckets.length);
+        if (bucketEpochs[index] != epoch) {
+            buckets[index].clear();
+            bucketEpochs[index] = epoch;
+        }
+        buckets[index].offer(productId, productName, quantity, revenue);
+    }
+
+    /**
+     * Merge all live buckets and publish a new top-K snapshot
+     */
+    void refresh(long nowMillis) {
+        long oldestLiveEpoch = nowMillis / bucketMillis - buckets.length;
+        Map<String, SpaceSavingSketch.Counter> merged = new HashMap<>();
+
+        synchronized (this) {
+            for (int i = 0; i < buckets.length; i++) {
+                if (bucketEpochs[i] > oldestLiveEpoch) {
+                    buckets[i].mergeInto(merged);
+                }
+            }
+        }
+
+        snapshot = merged.values().stream()
+                .sorted(Comparator.comparingLong((SpaceSavingSketch.Counter counter) -> counter.count).reversed())
+                .limit(topK)
+                .map(counter -> new RankedProduct(
+                        counter.productId, counter.productName, counter.count, counter.revenue, counter.error))
+                .toList();
+    }
+
+    /**
+     * Top products from the latest snapshot
+     */
+    List<RankedProduct> top(int limit) {
+        List<RankedProduct> current = snapshot;
+        return current.subList(0, Math.min(Math.max(limit, 0), current.size()));
+    }
+}
@@ -0,0 +1,104 @@
+package com.skishop.sales.service.ranking;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitters sketch
+ * Tracks approximate top products by sold quantity using a fixed number of counters.
+ * When all counters are in use, the smallest counter is replaced and its count is kept
+ * as the over-estimation error of the new product. Not thread-safe; callers synchronize.
+ */
+final class SpaceSavingSketch {
+
+    private static final Comparator<Counter> BY_COUNT = Comparator
+            .comparingLong((Counter counter) -> counter.count)
+            .thenComparing(counter -> counter.productId);
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private final TreeSet<Counter> ordered = new TreeSet<>(BY_COUNT);
+
+    SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Sketch capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Add sold quantity and revenue for a product
+     */
+    void offer(String productId, String productName, long quantity, BigDecimal revenue) {
+        Counter counter = counters.get(productId);
+        if (counter != null) {
+            // Counters must leave the ordered set before their sort key changes
+            ordered.remove(counter);
+            counter.count += quantity;
+            counter.revenue = counter.revenue.add(revenue);
+            ordered.add(counter);
+            return;
+        }
+
+        long error = 0;
+        if (counters.size() >= capacity) {
+            Counter evicted = ordered.pollFirst();
+            counters.remove(evicted.productId);
+            error = evicted.count;
+        }
+
+        counter = new Counter(productId, productName, error + quantity, error, revenue);
+        counters.put(productId, counter);
+        ordered.add(counter);
+    }
+
+    /**
+     * Accumulate this sketch's counters into a merge buffer keyed by product ID
+     */
+    void mergeInto(Map<String, Counter> target) {
+        counters.values().forEach(counter -> target.merge(counter.productId, counter.copy(), Counter::add));
+    }
+
+    void clear() {
+        counters.clear();
+        ordered.clear();
+    }
+
+    int size() {
+        return counters.size();
+    }
+
+    /**
+     * Mutable counter for one tracked product
+     */
+    static final class Counter {
+        final String productId;
+        final String productName;
+        long count;
+        long error;
+        BigDecimal revenue;
+
+        Counter(String productId, String productName, long count, long error, BigDecimal revenue) {
+            this.productId = productId;
+            this.productName = productName;
+            this.count = count;
+            this.error = error;
+            this.revenue = revenue;
+        }
+
+        Counter copy() {
+            return new Counter(productId, productName, count, error, revenue);
+        }
+
+        Counter add(Counter other) {
+            count += other.count;
+            error += other.error;
+            revenue = revenue.add(other.revenue);
+            return this;
+        }
+    }
+}
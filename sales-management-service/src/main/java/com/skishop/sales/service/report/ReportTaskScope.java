@@ -0,0 +1,119 @@
+package com.skishop.sales.service.report;
+
+import com.skishop.sales.exception.ReportTimeoutException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fail-fast scope for the sub-queries of one report
+ * Each forked sub-query runs on its own virtual thread and is timed. The first failure,
+ * or the deadline passing, interrupts every sibling. Closing the scope interrupts
+ * anything still running, so no sub-query outlives the report that started it.
+ * Mirrors StructuredTaskScope.ShutdownOnFailure, which is still a preview API in Java 21.
+ */
+@Slf4j
+public final class ReportTaskScope implements AutoCloseable {
+
+    private static final String TIMER_NAME = "sales.report.subquery";
+
+    private final String reportName;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    /** Starts at one for the owner, so completion cannot fire while sub-queries are still being forked */
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile boolean cancelled;
+
+    public ReportTaskScope(String reportName, MeterRegistry meterRegistry) {
+        this.reportName = reportName;
+        this.meterRegistry = meterRegistry;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                .name("report-" + reportName + "-", 0)
+                .factory());
+    }
+
+    /**
+     * Start a named sub-query; its result is available from the returned supplier after join
+     */
+    public <T> Supplier<T> fork(String name, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pending.incrementAndGet();
+
+        executor.submit(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "success";
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                outcome = cancelled ? "cancelled" : "failure";
+                result.completeExceptionally(e);
+                // Fail fast: wake the joiner, which then interrupts the siblings
+                completion.completeExceptionally(e);
+            } finally {
+                long nanos = sample.stop(Timer.builder(TIMER_NAME)
+                        .tag("report", reportName)
+                        .tag("part", name)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+                log.debug("Report {} sub-query {} finished in {} ms ({})",
+                        reportName, name, TimeUnit.NANOSECONDS.toMillis(nanos), outcome);
+                if (pending.decrementAndGet() == 0) {
+                    completion.complete(null);
+                }
+            }
+        });
+
+        return result::join;
+    }
+
+    /**
+     * Wait until every sub-query has succeeded, one has failed, or the deadline passes
+     * Failures are rethrown as-is when unchecked; the deadline raises ReportTimeoutException
+     */
+    public void joinUntil(Instant deadline) {
+        if (pending.decrementAndGet() == 0) {
+            completion.complete(null);
+        }
+
+        long remainingNanos = Math.max(Duration.between(Instant.now(), deadline).toNanos(), 0L);
+        try {
+            completion.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancelAll();
+            throw new ReportTimeoutException("Report " + reportName + " exceeded its deadline");
+        } catch (ExecutionException e) {
+            cancelAll();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Report " + reportName + " sub-query failed", e.getCause());
+        } catch (InterruptedException e) {
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building report " + reportName, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private void cancelAll() {
+        cancelled = true;
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,94 @@
+package com.skishop.sales.service.search;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Searchable snapshot of an order and its shipment
+ * Partial snapshots from different events are merged field by field; updatedAt is when the
+ * source row or event was written, and decides which snapshot is newer.
+ */
+public record OrderSearchDocument(
+        UUID orderId,
+        String orderNumber,
+        String customerId,
+        String recipientName,
+        String phoneNumber,
+        List<String> trackingNumbers,
+        LocalDateTime orderDate,
+        String status,
+        String paymentStatus,
+        LocalDateTime updatedAt) {
+
+    public OrderSearchDocument {
+        trackingNumbers = trackingNumbers != null ? List.copyOf(trackingNumbers) : List.of();
+    }
+
+    /**
+     * Merge another snapshot of the same order, whichever arrived first
+     * The non-blank fields of the newer snapshot win, so a stale snapshot cannot overwrite a
+     * later status; a snapshot without updatedAt counts as the newer one. Tracking numbers add up.
+     */
+    OrderSearchDocument merge(OrderSearchDocument other) {
+        boolean otherIsNewer = other.updatedAt == null || updatedAt == null || !other.updatedAt.isBefore(updatedAt);
+        OrderSearchDocument newer = otherIsNewer ? other : this;
+        OrderSearchDocument older = otherIsNewer ? this : other;
+
+        Set<String> mergedTracking = new LinkedHashSet<>(trackingNumbers);
+        mergedTracking.addAll(other.trackingNumbers);
+
+        return new OrderSearchDocument(
+                orderId,
+                pick(newer.orderNumber, older.orderNumber),
+                pick(newer.customerId, older.customerId),
+                pick(newer.recipientName, older.recipientName),
+                pick(newer.phoneNumber, older.phoneNumber),
+                List.copyOf(mergedTracking),
+                newer.orderDate != null ? newer.orderDate : older.orderDate,
+                pick(newer.status, older.status),
+                pick(newer.paymentStatus, older.paymentStatus),
+                latest(updatedAt, other.updatedAt)
+        );
+    }
+
+    /**
+     * When the order was placed, or for a partial snapshot without it, when it was last written
+     */
+    LocalDateTime ageReference() {
+        return orderDate != null ? orderDate : updatedAt;
+    }
+
+    /**
+     * Searchable field values, in the order they are indexed
+     */
+    List<String> searchableValues() {
+        List<String> values = new ArrayList<>(4 + trackingNumbers.size());
+        addIfPresent(values, orderNumber);
+        addIfPresent(values, customerId);
+        addIfPresent(values, recipientName);
+        addIfPresent(values, phoneNumber);
+        trackingNumbers.forEach(trackingNumber -> addIfPresent(values, trackingNumber));
+        return values;
+    }
+
+    private static void addIfPresent(List<String> values, String value) {
+        if (value != null && !value.isBlank()) {
+            values.add(value);
+        }
+    }
+
+    private static LocalDateTime latest(LocalDateTime left, LocalDateTime right) {
+        if (left == null) {
+            return right;
+        }
+        return right != null && right.isAfter(left) ? right : left;
+    }
+
+    private static String pick(String preferred, String fallback) {
+        return preferred != null && !preferred.isBlank() ? preferred : fallback;
+    }
+}
@@ -0,0 +1,145 @@
+package com.skishop.sales.service.search;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory order search index
+ * Orders get a dense integer document ID on first sight; their searchable fields are
+ * normalized and fed to a trigram index, and postings of replaced values are removed.
+ * Candidates from the trigram intersection are verified against the current field values
+ * and the caller's filter before they count towards the limit. Evicted orders drop their
+ * postings; their document IDs are not reused, so newer orders keep the higher IDs. Readers
+ * share a lock; writers are exclusive.
+ */
+final class OrderSearchIndex {
+
+    /** Joins normalized fields so that a verified match never spans two fields */
+    private static final String FIELD_SEPARATOR = "\u0001";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramIndex trigrams = new TrigramIndex();
+    private final Map<UUID, Integer> docIds = new HashMap<>();
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Insert an order or merge a partial snapshot into the indexed one
+     */
+    void upsert(OrderSearchDocument document) {
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIds.get(document.orderId());
+            Entry previous = null;
+            if (docId == null) {
+                docId = entries.size();
+                entries.add(null);
+                docIds.put(document.orderId(), docId);
+            } else {
+                previous = entries.get(docId);
+            }
+
+            OrderSearchDocument merged = previous != null ? previous.document().merge(document) : document;
+            List<String> values = merged.searchableValues().stream()
+                    .map(OrderSearchIndex::normalize)
+                    .filter(value -> !value.isEmpty())
+                    .toList();
+            String searchText = String.join(FIELD_SEPARATOR, values);
+
+            // Status-only updates leave the searchable text, and so the postings, unchanged
+            if (previous == null) {
+                for (String value : values) {
+                    trigrams.add(docId, value);
+                }
+            } else if (!previous.searchText().equals(searchText)) {
+                trigrams.replace(docId, previous.values(), values);
+            }
+            entries.set(docId, new Entry(merged, searchText, values));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove orders placed before the cutoff
+     * Returns the number of orders removed
+     */
+    int removeOlderThan(LocalDateTime cutoff) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (int docId = 0; docId < entries.size(); docId++) {
+                Entry entry = entries.get(docId);
+                LocalDateTime age = entry != null ? entry.document().ageReference() : null;
+                if (age != null && age.isBefore(cutoff)) {
+                    trigrams.replace(docId, entry.values(), List.of());
+                    docIds.remove(entry.document().orderId());
+                    entries.set(docId, null);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find up to limit orders whose searchable fields contain the normalized query
+     */
+    List<OrderSearchDocument> search(String normalizedQuery, int limit, Predicate<OrderSearchDocument> filter) {
+        List<OrderSearchDocument> hits = new ArrayList<>(Math.min(limit, 64));
+        lock.readLock().lock();
+        try {
+            trigrams.forEachCandidate(normalizedQuery, docId -> {
+                Entry entry = entries.get(docId);
+                if (entry.searchText().contains(normalizedQuery) && filter.test(entry.document())) {
+                    hits.add(entry.document());
+                }
+                return hits.size() < limit;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hits;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Normalize text for indexing and querying
+     * NFKC folds full-width digits and letters; only letters and digits are kept, so
+     * "090-1234-5678" and "09012345678" index identically
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        StringBuilder normalized = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    private record Entry(OrderSearchDocument document, String searchText, List<String> values) {
+    }
+}
@@ -0,0 +1,224 @@
+package com.skishop.sales.service.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.sales.dto.response.OrderSearchResponse;
+import com.skishop.sales.repository.jdbc.OrderSearchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Order search service
+ * Serves support-staff lookups by partial order number, customer ID, recipient name,
+ * phone number or tracking number from an in-process trigram index. The index is loaded
+ * from the database on startup and kept current from order and shipment events. Every
+ * instance holds the full index, so heap grows with the number of live orders; orders
+ * past the partition archive age are evicted daily, as archival moves them out of the live tables.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSearchService {
+
+    private final ObjectMapper objectMapper;
+    private final OrderSearchRepository orderSearchRepository;
+    private final OrderSearchIndex index = new OrderSearchIndex();
+
+    @Value("${app.search.bootstrap-enabled:true}")
+    private boolean bootstrapEnabled;
+
+    @Value("${app.search.max-limit:100}")
+    private int maxLimit;
+
+    @Value("${app.order.partition.archive-after-months:24}")
+    private int archiveAfterMonths;
+
+    private volatile boolean ready;
+
+    /**
+     * Load existing orders into the index in the background
+     * Events consumed while loading are merged with the loaded rows by their updatedAt, so
+     * whichever arrives first, the newer status is kept
+     */
+    @Async("virtualThreadTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (!bootstrapEnabled) {
+            ready = true;
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            orderSearchRepository.streamSearchRows(row -> index.upsert(new OrderSearchDocument(
+                    row.orderId(),
+                    row.orderNumber(),
+                    row.customerId(),
+                    row.recipientName(),
+                    row.phoneNumber(),
+                    row.trackingNumber() != null ? List.of(row.trackingNumber()) : List.of(),
+                    row.orderDate(),
+                    row.status(),
+                    row.paymentStatus(),
+                    row.updatedAt()
+            )));
+            log.info("Order search index loaded: {} orders in {} ms", index.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to load order search index; serving event-fed results only", e);
+        } finally {
+            ready = true;
+        }
+    }
+
+    /**
+     * Consume order and shipment events
+     * Every instance uses its own consumer group so that each index sees all events; the
+     * group is named after the instance, so a restart resumes it instead of leaving one behind
+     */
+    @KafkaListener(
+            topics = {"${app.kafka.topics.orders:sales.orders}", "${app.kafka.topics.shipments:sales.shipments}"},
+            groupId = "${spring.application.name}-order-search-${app.instance-id}")
+    public void handleEvent(String eventJson) {
+        try {
+            JsonNode event = objectMapper.readTree(eventJson);
+            String orderId = event.path("orderId").asText(null);
+            if (orderId == null) {
+                return;
+            }
+
+            OrderSearchDocument document = switch (event.path("eventType").asText()) {
+                case "ORDER_CREATED" -> new OrderSearchDocument(
+                        UUID.fromString(orderId),
+                        event.path("orderNumber").asText(null),
+                        event.path("customerId").asText(null),
+                        event.path("recipientName").asText(null),
+                        event.path("phoneNumber").asText(null),
+                        List.of(),
+                        parseOrderDate(event),
+                        event.path("status").asText(null),
+                        event.path("paymentStatus").asText(null),
+                        eventTime(event)
+                );
+                case "ORDER_STATUS_UPDATED", "ORDER_CANCELLED" -> new OrderSearchDocument(
+                        UUID.fromString(orderId),
+                        event.path("orderNumber").asText(null),
+                        event.path("customerId").asText(null),
+                        null,
+                        null,
+                        List.of(),
+                        null,
+                        event.path("status").asText("CANCELLED"),
+                        event.path("paymentStatus").asText(null),
+                        eventTime(event)
+                );
+                case "SHIPMENT_CREATED", "SHIPMENT_STATUS_UPDATED" -> new OrderSearchDocument(
+                        UUID.fromString(orderId),
+                        null,
+                        null,
+                        null,
+                        null,
+                        trackingNumbers(event.path("trackingNumber").asText("")),
+                        null,
+                        null,
+                        null,
+                        eventTime(event)
+                );
+                default -> null;
+            };
+
+            if (document != null) {
+                index.upsert(document);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to apply event to order search index", e);
+        }
+    }
+
+    /**
+     * Evict orders that partition maintenance has moved, or is about to move, to the archive
+     */
+    @Scheduled(cron = "${app.search.eviction-cron:0 45 2 * * *}")
+    public void evictArchivedOrders() {
+        if (archiveAfterMonths <= 0) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(archiveAfterMonths);
+        int evicted = index.removeOlderThan(cutoff.atStartOfDay());
+        if (evicted > 0) {
+            log.info("Evicted {} archived orders from the search index", evicted);
+        }
+    }
+
+    /**
+     * Search orders by free text, optionally narrowed by customer and status
+     * Queries shorter than three letters or digits after normalization match nothing
+     */
+    public List<OrderSearchResponse> search(String query, String customerId, String status,
+                                            String paymentStatus, int limit) {
+        String normalizedQuery = OrderSearchIndex.normalize(query);
+        if (normalizedQuery.length() < TrigramIndex.GRAM_LENGTH) {
+            return List.of();
+        }
+        if (!ready) {
+            log.debug("Order search index is still loading; results may be incomplete");
+        }
+
+        Predicate<OrderSearchDocument> filter = document ->
+                (customerId == null || customerId.equals(document.customerId()))
+                        && (status == null || status.equals(document.status()))
+                        && (paymentStatus == null || paymentStatus.equals(document.paymentStatus()));
+
+        int boundedLimit = Math.max(1, Math.min(limit, maxLimit));
+        return index.search(normalizedQuery, boundedLimit, filter).stream()
+                .map(OrderSearchService::toResponse)
+                .toList();
+    }
+
+    private static OrderSearchResponse toResponse(OrderSearchDocument document) {
+        return new OrderSearchResponse(
+                document.orderId().toString(),
+                document.orderNumber(),
+                document.customerId(),
+                document.recipientName(),
+                document.phoneNumber(),
+                document.trackingNumbers(),
+                document.orderDate(),
+                document.status(),
+                document.paymentStatus()
+        );
+    }
+
+    private static LocalDateTime parseOrderDate(JsonNode event) {
+        String orderDate = event.path("orderDate").asText(null);
+        if (orderDate != null) {
+            return LocalDateTime.parse(orderDate);
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(event.path("timestamp").asLong()), ZoneId.systemDefault());
+    }
+
+    private static LocalDateTime eventTime(JsonNode event) {
+        JsonNode timestamp = event.path("timestamp");
+        return timestamp.canConvertToLong()
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp.asLong()), ZoneId.systemDefault())
+                : null;
+    }
+
+    private static List<String> trackingNumbers(String trackingNumber) {
+        return trackingNumber.isBlank() ? List.of() : List.of(trackingNumber);
+    }
+}
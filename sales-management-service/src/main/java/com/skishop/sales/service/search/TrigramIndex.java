@@ -0,0 +1,164 @@
+package com.skishop.sales.service.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Trigram inverted index over integer document IDs
+ * Each trigram of normalized text maps to a sorted posting list of document IDs.
+ * Lookups intersect the posting lists of the query's trigrams, so callers must still
+ * verify candidates against the original text. Not thread-safe; callers synchronize.
+ */
+final class TrigramIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    /**
+     * Index every trigram of the normalized text for a document
+     */
+    void add(int docId, String normalizedText) {
+        for (int i = 0; i + GRAM_LENGTH <= normalizedText.length(); i++) {
+            postings.computeIfAbsent(gram(normalizedText, i), key -> new PostingList()).add(docId);
+        }
+    }
+
+    /**
+     * Re-index a document whose normalized texts changed
+     * Only trigrams that appear on one side are touched, so unchanged fields cost nothing
+     */
+    void replace(int docId, List<String> previousTexts, List<String> normalizedTexts) {
+        Set<Long> previous = distinctGrams(previousTexts);
+        Set<Long> current = distinctGrams(normalizedTexts);
+        for (long gram : previous) {
+            if (!current.contains(gram)) {
+                PostingList list = postings.get(gram);
+                if (list != null && list.remove(docId) && list.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        for (long gram : current) {
+            if (!previous.contains(gram)) {
+                postings.computeIfAbsent(gram, key -> new PostingList()).add(docId);
+            }
+        }
+    }
+
+    /**
+     * Visit documents containing every trigram of the normalized query, newest first
+     * The visitor returns false to stop, so callers filter candidates before counting them.
+     */
+    void forEachCandidate(String normalizedQuery, IntPredicate visitor) {
+        long[] grams = distinctGrams(normalizedQuery);
+        PostingList[] lists = new PostingList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return;
+            }
+        }
+
+        // Drive the intersection from the shortest list
+        Arrays.sort(lists, (left, right) -> Integer.compare(left.size, right.size));
+        PostingList shortest = lists[0];
+
+        for (int i = shortest.size - 1; i >= 0; i--) {
+            int docId = shortest.docIds[i];
+            boolean inAll = true;
+            for (int j = 1; j < lists.length && inAll; j++) {
+                inAll = lists[j].contains(docId);
+            }
+            if (inAll && !visitor.test(docId)) {
+                return;
+            }
+        }
+    }
+
+    int gramCount() {
+        return postings.size();
+    }
+
+    private static Set<Long> distinctGrams(List<String> texts) {
+        Set<Long> grams = new HashSet<>();
+        for (String text : texts) {
+            for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+                grams.add(gram(text, i));
+            }
+        }
+        return grams;
+    }
+
+    private static long[] distinctGrams(String text) {
+        return IntStream.rangeClosed(0, text.length() - GRAM_LENGTH)
+                .mapToLong(i -> gram(text, i))
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * Pack three UTF-16 chars into one long key
+     */
+    private static long gram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+                | ((long) text.charAt(offset + 1) << 16)
+                | text.charAt(offset + 2);
+    }
+
+    /**
+     * Growable sorted, de-duplicated int array
+     */
+    private static final class PostingList {
+        private int[] docIds = new int[4];
+        private int size;
+
+        void add(int docId) {
+            // New documents get increasing IDs, so the common case is an append
+            if (size > 0 && docIds[size - 1] >= docId) {
+                insertSorted(docId);
+                return;
+            }
+            ensureCapacity();
+            docIds[size++] = docId;
+        }
+
+        boolean contains(int docId) {
+            return Arrays.binarySearch(docIds, 0, size, docId) >= 0;
+        }
+
+        boolean remove(int docId) {
+            int position = Arrays.binarySearch(docIds, 0, size, docId);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(docIds, position + 1, docIds, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        private void insertSorted(int docId) {
+            int position = Arrays.binarySearch(docIds, 0, size, docId);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            ensureCapacity();
+            System.arraycopy(docIds, insertAt, docIds, insertAt + 1, size - insertAt);
+            docIds[insertAt] = docId;
+            size++;
+        }
+
+        private void ensureCapacity() {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size + (size >> 1) + 1);
+            }
+        }
+    }
+}
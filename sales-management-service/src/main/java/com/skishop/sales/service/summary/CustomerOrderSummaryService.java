@@ -0,0 +1,357 @@
+package com.skishop.sales.service.summary;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.skishop.sales.dto.response.CustomerOrderSummaryResponse;
+import com.skishop.sales.repository.jdbc.CustomerOrderRow;
+import com.skishop.sales.repository.jdbc.CustomerOrderSummaryRepository;
+import com.skishop.sales.util.Money;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Customer order summary service
+ * Keeps order count, lifetime spend, per-status counts and the most recent orders of each
+ * customer precomputed in Redis, so account pages and other services never scan orders.
+ * Each order event applies the change from that order's previous snapshot to running
+ * totals with HINCRBY, so an event costs the same however many orders the customer has;
+ * replays and out-of-order events leave the summary unchanged. Snapshots are kept for the
+ * most recent orders only: older orders stay in the totals, and their late events are ignored.
+ * Snapshots of customers inactive for the TTL expire, while totals and summaries are kept;
+ * the next order then treats every earlier order as evicted and starts a new recent list.
+ * Reads go through a small local near-cache in front of Redis.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerOrderSummaryService {
+
+    private static final String SUMMARY_KEY_PREFIX = "sales:customer-summary:";
+    private static final String ORDER_STATES_KEY_PREFIX = "sales:customer-order-states:";
+    private static final String ORDER_INDEX_KEY_PREFIX = "sales:customer-order-index:";
+    private static final String TOTALS_KEY_PREFIX = "sales:customer-totals:";
+
+    /**
+     * KEYS[1] summary, KEYS[2] order snapshots, KEYS[3] orders by order time, KEYS[4] running totals;
+     * ARGV[1] order snapshot, ARGV[2] recent limit, ARGV[3] snapshot TTL seconds, ARGV[4] tracked order limit
+     * Snapshots older than the stored one are ignored; fields missing from a snapshot keep their stored value
+     */
+    private static final RedisScript<String> APPLY_ORDER_SCRIPT = new DefaultRedisScript<>("""
+            local order = cjson.decode(ARGV[1])
+            local current = redis.call('HGET', KEYS[2], order.orderId)
+            local stored
+            if current then
+                stored = cjson.decode(current)
+                if stored.eventTimestamp > order.eventTimestamp then
+                    return redis.call('GET', KEYS[1])
+                end
+                for field, value in pairs(stored) do
+                    if order[field] == nil then order[field] = value end
+                end
+            end
+            if order.orderTime == nil or order.totalAmountMinor == nil or order.status == nil then
+                return redis.call('GET', KEYS[1])
+            end
+            if not stored and redis.call('EXISTS', KEYS[3]) == 0 then
+                -- Snapshots expired while the customer was inactive: every order seen so far is counted
+                local latest = redis.call('HGET', KEYS[4], 'latestOrderTime')
+                if latest and tonumber(latest) > tonumber(redis.call('HGET', KEYS[4], 'evictedBefore') or '-1') then
+                    redis.call('HSET', KEYS[4], 'evictedBefore', latest)
+                end
+            end
+            if not stored and order.orderTime <= tonumber(redis.call('HGET', KEYS[4], 'evictedBefore') or '-1') then
+                -- Counted before its snapshot was evicted
+                return redis.call('GET', KEYS[1])
+            end
+            redis.call('HSET', KEYS[2], order.orderId, cjson.encode(order))
+            redis.call('ZADD', KEYS[3], order.orderTime, order.orderId)
+            if order.orderTime > tonumber(redis.call('HGET', KEYS[4], 'latestOrderTime') or '-1') then
+                redis.call('HSET', KEYS[4], 'latestOrderTime', string.format('%d', order.orderTime))
+            end
+
+            local function spend(o)
+                if o.status == 'CANCELLED' or o.status == 'RETURNED' then return 0 end
+                return o.totalAmountMinor
+            end
+            local function increment(field, delta)
+                if delta ~= 0 and redis.call('HINCRBY', KEYS[4], field, string.format('%d', delta)) == 0
+                        and field ~= 'lifetimeSpendMinor' then
+                    redis.call('HDEL', KEYS[4], field)
+                end
+            end
+            if stored then
+                increment('status:' .. stored.status, -1)
+                increment('lifetimeSpendMinor', spend(order) - spend(stored))
+            else
+                increment('orderCount', 1)
+                increment('lifetimeSpendMinor', spend(order))
+            end
+            increment('status:' .. order.status, 1)
+            if order.currencyCode then
+                redis.call('HSET', KEYS[4], 'currencyCode', order.currencyCode)
+            end
+
+            local excess = redis.call('ZCARD', KEYS[3]) - tonumber(ARGV[4])
+            if excess > 0 then
+                local oldest = redis.call('ZRANGE', KEYS[3], 0, excess - 1, 'WITHSCORES')
+                for i = 1, #oldest, 2 do
+                    redis.call('HDEL', KEYS[2], oldest[i])
+                end
+                redis.call('ZREMRANGEBYRANK', KEYS[3], 0, excess - 1)
+                redis.call('HSET', KEYS[4], 'evictedBefore', oldest[#oldest])
+            end
+
+            local totals = redis.call('HGETALL', KEYS[4])
+            local statusCounts, orderCount, lifetimeSpend, currencyCode = {}, 0, '0', nil
+            for i = 1, #totals, 2 do
+                local field, value = totals[i], totals[i + 1]
+                if field == 'orderCount' then orderCount = tonumber(value)
+                elseif field == 'lifetimeSpendMinor' then lifetimeSpend = value
+                elseif field == 'currencyCode' then currencyCode = value
+                elseif string.sub(field, 1, 7) == 'status:' then statusCounts[string.sub(field, 8)] = tonumber(value)
+                end
+            end
+
+            local recent = {}
+            local recentIds = redis.call('ZREVRANGE', KEYS[3], 0, tonumber(ARGV[2]) - 1)
+            if #recentIds > 0 then
+                for i, raw in ipairs(redis.call('HMGET', KEYS[2], unpack(recentIds))) do
+                    local o = cjson.decode(raw)
+                    recent[i] = {orderId = o.orderId, orderNumber = o.orderNumber, orderDate = o.orderDate,
+                                 status = o.status, totalAmountMinor = string.format('%d', o.totalAmountMinor)}
+                end
+            end
+
+            local summary = cjson.encode({
+                customerId = order.customerId,
+                orderCount = orderCount,
+                lifetimeSpendMinor = lifetimeSpend,
+                currencyCode = currencyCode,
+                statusCounts = statusCounts,
+                recentOrders = recent,
+                lastOrderDate = recent[1] and recent[1].orderDate
+            })
+            redis.call('SET', KEYS[1], summary)
+            redis.call('PERSIST', KEYS[4])
+            local ttl = tonumber(ARGV[3])
+            redis.call('EXPIRE', KEYS[2], ttl)
+            redis.call('EXPIRE', KEYS[3], ttl)
+            return summary
+            """, String.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final CustomerOrderSummaryRepository customerOrderSummaryRepository;
+
+    @Value("${app.customer-summary.recent-orders:10}")
+    private int recentOrders;
+
+    @Value("${app.customer-summary.tracked-orders:200}")
+    private int trackedOrders;
+
+    @Value("${app.customer-summary.ttl-days:400}")
+    private long ttlDays;
+
+    @Value("${app.customer-summary.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    @Value("${app.customer-summary.near-cache-max-entries:10000}")
+    private int nearCacheMaxEntries;
+
+    @Value("${app.customer-summary.near-cache-ttl-ms:2000}")
+    private long nearCacheTtlMs;
+
+    private NearCache<String, CustomerOrderSummaryResponse> nearCache;
+
+    @PostConstruct
+    void init() {
+        nearCache = new NearCache<>(nearCacheMaxEntries, nearCacheTtlMs);
+    }
+
+    /**
+     * Get a customer's order summary from the near-cache or Redis
+     * Customers without any recorded order get an empty summary
+     */
+    public CustomerOrderSummaryResponse getSummary(String customerId) {
+        CustomerOrderSummaryResponse summary = nearCache.get(customerId);
+        if (summary != null) {
+            return summary;
+        }
+
+        String json = stringRedisTemplate.opsForValue().get(SUMMARY_KEY_PREFIX + hashTag(customerId));
+        summary = json != null ? parseSummary(customerId, json) : CustomerOrderSummaryResponse.empty(customerId);
+        nearCache.put(customerId, summary);
+        return summary;
+    }
+
+    /**
+     * Consume order events
+     * One consumer group for all instances, since the summaries live in shared Redis
+     */
+    @KafkaListener(
+            topics = "${app.kafka.topics.orders:sales.orders}",
+            groupId = "${spring.application.name}-customer-summary")
+    public void handleOrderEvent(String eventJson) {
+        try {
+            JsonNode event = objectMapper.readTree(eventJson);
+            String customerId = event.path("customerId").asText(null);
+            String orderId = event.path("orderId").asText(null);
+            if (customerId == null || orderId == null) {
+                return;
+            }
+
+            String status = switch (event.path("eventType").asText()) {
+                case "ORDER_CREATED", "ORDER_STATUS_UPDATED" -> event.path("status").asText(null);
+                case "ORDER_CANCELLED" -> event.path("status").asText("CANCELLED");
+                default -> null;
+            };
+            if (status == null) {
+                return;
+            }
+
+            ObjectNode snapshot = objectMapper.createObjectNode()
+                    .put("orderId", orderId)
+                    .put("customerId", customerId)
+                    .put("status", status)
+                    .put("eventTimestamp", event.path("timestamp").asLong());
+            if (event.hasNonNull("orderNumber")) {
+                snapshot.put("orderNumber", event.get("orderNumber").asText());
+            }
+            if (event.hasNonNull("orderDate")) {
+                putOrderDate(snapshot, LocalDateTime.parse(event.get("orderDate").asText()));
+            }
+            if (event.hasNonNull("totalAmount")) {
+                String currencyCode = event.path("currencyCode").asText(Money.DEFAULT_CURRENCY.getCurrencyCode());
+                snapshot.put("currencyCode", currencyCode);
+                snapshot.put("totalAmountMinor", Money.of(event.get("totalAmount").decimalValue(), currencyCode).minorUnits());
+            }
+            apply(customerId, snapshot);
+        } catch (Exception e) {
+            log.warn("Failed to apply order event to customer summary", e);
+        }
+    }
+
+    /**
+     * Seed summaries from the orders table for customers whose history predates the events
+     * Safe to run while events are flowing: the newer snapshot of an order always wins
+     */
+    @Async("virtualThreadTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStartup) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        long[] applied = {0};
+        try {
+            customerOrderSummaryRepository.streamOrders(row -> {
+                apply(row.customerId(), snapshotOf(row));
+                applied[0]++;
+            });
+            log.info("Customer order summaries backfilled from {} orders in {} ms",
+                    applied[0], System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Customer order summary backfill stopped after {} orders", applied[0], e);
+        }
+    }
+
+    private void apply(String customerId, ObjectNode snapshot) {
+        String tag = hashTag(customerId);
+        String summaryJson = stringRedisTemplate.execute(
+                APPLY_ORDER_SCRIPT,
+                List.of(SUMMARY_KEY_PREFIX + tag, ORDER_STATES_KEY_PREFIX + tag, ORDER_INDEX_KEY_PREFIX + tag,
+                        TOTALS_KEY_PREFIX + tag),
+                snapshot.toString(),
+                String.valueOf(recentOrders),
+                String.valueOf(Duration.ofDays(ttlDays).toSeconds()),
+                String.valueOf(Math.max(trackedOrders, recentOrders)));
+        if (summaryJson != null) {
+            nearCache.put(customerId, parseSummary(customerId, summaryJson));
+        }
+    }
+
+    private ObjectNode snapshotOf(CustomerOrderRow row) {
+        Currency currency = row.currencyCode() != null ? Currency.getInstance(row.currencyCode()) : Money.DEFAULT_CURRENCY;
+        ObjectNode snapshot = objectMapper.createObjectNode()
+                .put("orderId", row.orderId().toString())
+                .put("customerId", row.customerId())
+                .put("orderNumber", row.orderNumber())
+                .put("status", row.status())
+                .put("currencyCode", currency.getCurrencyCode())
+                .put("totalAmountMinor", Money.of(row.totalAmount(), currency).minorUnits())
+                .put("eventTimestamp", row.updatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        return putOrderDate(snapshot, row.orderDate());
+    }
+
+    /** The order time in epoch millis orders the per-customer index */
+    private static ObjectNode putOrderDate(ObjectNode snapshot, LocalDateTime orderDate) {
+        return snapshot
+                .put("orderDate", orderDate.toString())
+                .put("orderTime", orderDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private CustomerOrderSummaryResponse parseSummary(String customerId, String json) {
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            Currency currency = Currency.getInstance(
+                    node.path("currencyCode").asText(Money.DEFAULT_CURRENCY.getCurrencyCode()));
+
+            Map<String, Long> statusCounts = new LinkedHashMap<>();
+            node.path("statusCounts").properties()
+                    .forEach(entry -> statusCounts.put(entry.getKey(), entry.getValue().asLong()));
+
+            List<CustomerOrderSummaryResponse.RecentOrder> recent = new ArrayList<>();
+            for (JsonNode order : node.path("recentOrders")) {
+                recent.add(new CustomerOrderSummaryResponse.RecentOrder(
+                        order.path("orderId").asText(),
+                        order.path("orderNumber").asText(null),
+                        LocalDateTime.parse(order.path("orderDate").asText()),
+                        order.path("status").asText(),
+                        toAmount(order.path("totalAmountMinor"), currency)));
+            }
+
+            return new CustomerOrderSummaryResponse(
+                    customerId,
+                    node.path("orderCount").asLong(),
+                    toAmount(node.path("lifetimeSpendMinor"), currency),
+                    currency.getCurrencyCode(),
+                    statusCounts,
+                    recent,
+                    node.hasNonNull("lastOrderDate") ? LocalDateTime.parse(node.get("lastOrderDate").asText()) : null);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to parse customer order summary for " + customerId, e);
+        }
+    }
+
+    /** Amounts are written as strings of minor units so Lua never rounds them to 14 digits */
+    private static BigDecimal toAmount(JsonNode minorUnits, Currency currency) {
+        return Money.ofMinor(Long.parseLong(minorUnits.asText("0")), currency).toBigDecimal();
+    }
+
+    /** Hash tag so all keys of a customer land in the same Redis Cluster slot */
+    private static String hashTag(String customerId) {
+        return "{" + customerId + "}";
+    }
+}
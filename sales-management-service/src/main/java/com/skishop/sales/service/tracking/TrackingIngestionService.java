@@ -0,0 +1,254 @@
+package com.skishop.sales.service.tracking;
+
+import com.skishop.sales.dto.request.CarrierTrackingEventRequest;
+import com.skishop.sales.entity.jpa.Shipment;
+import com.skishop.sales.repository.jdbc.ShipmentTrackingChange;
+import com.skishop.sales.repository.jdbc.ShipmentTrackingRepository;
+import com.skishop.sales.repository.jdbc.ShipmentTrackingUpdate;
+import com.skishop.sales.service.EventPublisherService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carrier tracking ingestion service
+ * Webhook calls only enqueue; a single drainer takes up to one batch at a time, keeps the
+ * newest event per tracking number, applies the batch to shipments in one statement and
+ * publishes SHIPMENT_STATUS_UPDATED for shipments whose status actually changed.
+ * The queue is bounded by permits, and a request that does not fit is rejected whole so
+ * that carriers retry it later instead of us buffering without limit. A batch that still
+ * fails after the last attempt has already been accepted, so it is stored as dead for
+ * manual follow-up rather than dropped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrackingIngestionService {
+
+    private static final String UPDATES_COUNTER = "sales.tracking.updates";
+
+    private final ShipmentTrackingRepository shipmentTrackingRepository;
+    private final EventPublisherService eventPublisherService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.tracking.queue-capacity:50000}")
+    private int queueCapacity;
+
+    @Value("${app.tracking.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.tracking.poll-interval-ms:200}")
+    private long pollIntervalMs;
+
+    @Value("${app.tracking.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.tracking.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private final LinkedBlockingQueue<QueuedUpdate> queue = new LinkedBlockingQueue<>();
+    private Semaphore capacity;
+    private Thread drainer;
+    private volatile boolean running;
+
+    private Counter received;
+    private Counter rejected;
+    private Counter coalesced;
+    private Counter applied;
+    private Counter skipped;
+    private Counter failed;
+    private Timer batchTimer;
+    private Timer queueWaitTimer;
+
+    @PostConstruct
+    void start() {
+        capacity = new Semaphore(queueCapacity);
+
+        Gauge.builder("sales.tracking.queue.depth", queue, Collection::size)
+                .description("Tracking updates waiting to be applied")
+                .register(meterRegistry);
+        Gauge.builder("sales.tracking.queue.remaining", capacity, Semaphore::availablePermits)
+                .description("Free slots in the tracking ingestion queue")
+                .register(meterRegistry);
+        received = updatesCounter("received");
+        rejected = updatesCounter("rejected");
+        coalesced = updatesCounter("coalesced");
+        applied = updatesCounter("applied");
+        skipped = updatesCounter("skipped");
+        failed = updatesCounter("failed");
+        batchTimer = Timer.builder("sales.tracking.batch").register(meterRegistry);
+        queueWaitTimer = Timer.builder("sales.tracking.queue.wait").register(meterRegistry);
+
+        running = true;
+        drainer = Thread.ofVirtual().name("tracking-ingestion").start(this::drainLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        drainer.join(shutdownTimeoutMs);
+        if (!queue.isEmpty()) {
+            log.warn("Tracking ingestion stopped with {} updates still queued", queue.size());
+        }
+    }
+
+    /**
+     * Queue a webhook's events; returns false, queuing nothing, when they do not all fit
+     */
+    public boolean enqueue(List<CarrierTrackingEventRequest> events) {
+        if (!capacity.tryAcquire(events.size())) {
+            rejected.increment(events.size());
+            log.warn("Tracking ingestion queue full; rejected {} events (depth {})", events.size(), queue.size());
+            return false;
+        }
+
+        long enqueuedAt = System.nanoTime();
+        for (CarrierTrackingEventRequest event : events) {
+            queue.add(new QueuedUpdate(new ShipmentTrackingUpdate(
+                    event.trackingNumber(),
+                    event.carrier(),
+                    event.status().name(),
+                    event.eventTime(),
+                    event.estimatedDeliveryAt()
+            ), enqueuedAt));
+        }
+        received.increment(events.size());
+        return true;
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public int remainingCapacity() {
+        return capacity.availablePermits();
+    }
+
+    private void drainLoop() {
+        List<QueuedUpdate> drained = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedUpdate first = queue.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                queue.drainTo(drained, batchSize - 1);
+                capacity.release(drained.size());
+
+                long now = System.nanoTime();
+                for (QueuedUpdate update : drained) {
+                    queueWaitTimer.record(now - update.enqueuedAt(), TimeUnit.NANOSECONDS);
+                }
+
+                List<ShipmentTrackingUpdate> batch = coalesce(drained);
+                coalesced.increment(drained.size() - batch.size());
+                applyWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in tracking ingestion loop", e);
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    /**
+     * Keep only the newest event per tracking number; an estimated delivery date carries
+     * over from older events when the newest one does not repeat it
+     */
+    private static List<ShipmentTrackingUpdate> coalesce(List<QueuedUpdate> drained) {
+        Map<String, ShipmentTrackingUpdate> latest = new LinkedHashMap<>();
+        for (QueuedUpdate queued : drained) {
+            latest.merge(queued.update().trackingNumber(), queued.update(), (current, candidate) -> {
+                ShipmentTrackingUpdate newer = candidate.eventTime().isBefore(current.eventTime()) ? current : candidate;
+                ShipmentTrackingUpdate older = newer == candidate ? current : candidate;
+                if (newer.estimatedDeliveryAt() == null && older.estimatedDeliveryAt() != null) {
+                    return new ShipmentTrackingUpdate(newer.trackingNumber(), newer.carrier(), newer.status(),
+                            newer.eventTime(), older.estimatedDeliveryAt());
+                }
+                return newer;
+            });
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    private void applyWithRetry(List<ShipmentTrackingUpdate> batch) throws InterruptedException {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                List<ShipmentTrackingChange> changes = batchTimer.recordCallable(
+                        () -> shipmentTrackingRepository.applyUpdates(batch));
+                applied.increment(changes.size());
+                // Unknown tracking numbers and events older than the last applied one
+                skipped.increment(batch.size() - changes.size());
+
+                List<Shipment> statusChanged = changes.stream()
+                        .filter(ShipmentTrackingChange::statusChanged)
+                        .map(TrackingIngestionService::toShipment)
+                        .toList();
+                if (!statusChanged.isEmpty()) {
+                    eventPublisherService.publishShipmentStatusUpdatedEvents(statusChanged);
+                }
+                log.debug("Applied tracking batch: {} updates, {} shipments changed, {} status changes",
+                        batch.size(), changes.size(), statusChanged.size());
+                return;
+            } catch (Exception e) {
+                if (attempt == maxAttempts) {
+                    failed.increment(batch.size());
+                    log.error("Tracking batch of {} updates failed after {} attempts", batch.size(), attempt, e);
+                    saveDead(batch, e);
+                    return;
+                }
+                log.warn("Tracking batch attempt {} failed; retrying", attempt, e);
+                Thread.sleep(pollIntervalMs * attempt);
+            }
+        }
+    }
+
+    private void saveDead(List<ShipmentTrackingUpdate> batch, Exception cause) {
+        try {
+            shipmentTrackingRepository.saveDead(batch, String.valueOf(cause.getMessage()));
+            log.warn("Stored {} tracking updates in dead_tracking_updates for follow-up", batch.size());
+        } catch (Exception e) {
+            // Last resort: the updates survive only in the log
+            log.error("Could not store dead tracking updates; lost: {}", batch, e);
+        }
+    }
+
+    private static Shipment toShipment(ShipmentTrackingChange change) {
+        return Shipment.builder()
+                .id(change.shipmentId())
+                .orderId(change.orderId())
+                .carrier(change.carrier())
+                .trackingNumber(change.trackingNumber())
+                .status(Shipment.ShipmentStatus.valueOf(change.status()))
+                .build();
+    }
+
+    private Counter updatesCounter(String outcome) {
+        return Counter.builder(UPDATES_COUNTER)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record QueuedUpdate(ShipmentTrackingUpdate update, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,214 @@
+-- 注文・注文明細テーブルの月次レンジパーティション化 (order_date)
+-- PostgreSQL 13 以上が必要
+
+-- 配送・返品からの外部キーを削除
+-- パーティションテーブルの主キーは (id, order_date) となるため、id 単独では参照できない
+ALTER TABLE shipments DROP CONSTRAINT IF EXISTS shipments_order_id_fkey;
+ALTER TABLE returns DROP CONSTRAINT IF EXISTS returns_order_id_fkey;
+ALTER TABLE returns DROP CONSTRAINT IF EXISTS returns_order_item_id_fkey;
+
+-- 既存テーブルを退避
+DROP TRIGGER IF EXISTS update_orders_updated_at ON orders;
+ALTER TABLE orders RENAME TO orders_legacy;
+ALTER TABLE order_items RENAME TO order_items_legacy;
+DROP INDEX IF EXISTS idx_orders_customer_id;
+DROP INDEX IF EXISTS idx_orders_status;
+DROP INDEX IF EXISTS idx_orders_order_date;
+DROP INDEX IF EXISTS idx_orders_order_number;
+DROP INDEX IF EXISTS idx_order_items_order_id;
+DROP INDEX IF EXISTS idx_order_items_product_id;
+
+-- 注文テーブル (パーティション親)
+CREATE TABLE orders (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    order_number VARCHAR(50) NOT NULL,
+    customer_id VARCHAR(100) NOT NULL,
+    order_date TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    payment_status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    payment_method VARCHAR(50) NOT NULL,
+    subtotal_amount DECIMAL(10,2) NOT NULL DEFAULT 0,
+    tax_amount DECIMAL(10,2) NOT NULL DEFAULT 0,
+    shipping_fee DECIMAL(10,2) NOT NULL DEFAULT 0,
+    discount_amount DECIMAL(10,2) NOT NULL DEFAULT 0,
+    total_amount DECIMAL(10,2) NOT NULL DEFAULT 0,
+    coupon_code VARCHAR(50),
+    used_points INTEGER DEFAULT 0,
+    point_discount_amount DECIMAL(10,2) DEFAULT 0,
+    shipping_postal_code VARCHAR(10),
+    shipping_prefecture VARCHAR(50),
+    shipping_city VARCHAR(100),
+    shipping_address_line1 VARCHAR(200),
+    shipping_address_line2 VARCHAR(200),
+    shipping_recipient_name VARCHAR(100),
+    shipping_phone_number VARCHAR(20),
+    notes TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_orders PRIMARY KEY (id, order_date),
+    CONSTRAINT uk_orders_order_number UNIQUE (order_number, order_date)
+) PARTITION BY RANGE (order_date);
+
+-- 注文明細テーブル (パーティション親)
+-- order_date は注文から複製し、注文と同じ月のパーティションに格納する
+CREATE TABLE order_items (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    order_id UUID NOT NULL,
+    order_date TIMESTAMP NOT NULL,
+    product_id VARCHAR(100) NOT NULL,
+    product_name VARCHAR(200) NOT NULL,
+    sku VARCHAR(100) NOT NULL,
+    unit_price DECIMAL(10,2) NOT NULL,
+    quantity INTEGER NOT NULL,
+    subtotal DECIMAL(10,2) NOT NULL,
+    applied_coupon_id VARCHAR(100),
+    coupon_discount_amount DECIMAL(10,2) DEFAULT 0,
+    used_points INTEGER DEFAULT 0,
+    point_discount_amount DECIMAL(10,2) DEFAULT 0,
+    CONSTRAINT pk_order_items PRIMARY KEY (id, order_date),
+    CONSTRAINT fk_order_items_order FOREIGN KEY (order_id, order_date)
+        REFERENCES orders(id, order_date) ON DELETE CASCADE
+) PARTITION BY RANGE (order_date);
+
+-- 範囲外の日付を受け止めるデフォルトパーティション
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+CREATE TABLE order_items_default PARTITION OF order_items DEFAULT;
+
+-- アーカイブテーブル (古い月次パーティションの移動先)
+CREATE TABLE orders_archive (
+    LIKE orders INCLUDING DEFAULTS,
+    CONSTRAINT pk_orders_archive PRIMARY KEY (id, order_date)
+) PARTITION BY RANGE (order_date);
+
+CREATE TABLE order_items_archive (
+    LIKE order_items INCLUDING DEFAULTS,
+    CONSTRAINT pk_order_items_archive PRIMARY KEY (id, order_date)
+) PARTITION BY RANGE (order_date);
+
+-- 月次パーティション作成関数
+-- from_month から to_month までの各月について、未作成のパーティションを作成する
+CREATE OR REPLACE FUNCTION create_order_partitions(from_month DATE, to_month DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_month)::DATE;
+    month_end DATE;
+    suffix TEXT;
+    created INTEGER := 0;
+BEGIN
+    -- 複数レプリカからの同時実行を直列化
+    PERFORM pg_advisory_xact_lock(hashtext('order_partition_maintenance'));
+
+    WHILE month_start <= to_month LOOP
+        month_end := (month_start + INTERVAL '1 month')::DATE;
+        suffix := to_char(month_start, '"y"YYYY"m"MM');
+
+        -- アーカイブ済みの月は同名テーブルが存在するため再作成しない
+        IF to_regclass('orders_' || suffix) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                           'orders_' || suffix, month_start, month_end);
+            EXECUTE format('CREATE TABLE %I PARTITION OF order_items FOR VALUES FROM (%L) TO (%L)',
+                           'order_items_' || suffix, month_start, month_end);
+            created := created + 1;
+        END IF;
+
+        month_start := month_end;
+    END LOOP;
+
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 月次パーティションのアーカイブ関数
+-- before_month より前の月のパーティションを切り離し、アーカイブテーブルに付け替える
+-- データのコピーは発生せず、カタログ操作のみで完了する
+CREATE OR REPLACE FUNCTION archive_order_partitions(before_month DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    partition_month DATE;
+    suffix TEXT;
+    archived INTEGER := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('order_partition_maintenance'));
+
+    FOR partition_month IN
+        SELECT to_date(substring(c.relname FROM 8), '"y"YYYY"m"MM')
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'orders'::regclass
+          AND c.relname ~ '^orders_y[0-9]{4}m[0-9]{2}$'
+        ORDER BY 1
+    LOOP
+        EXIT WHEN partition_month >= date_trunc('month', before_month)::DATE;
+        suffix := to_char(partition_month, '"y"YYYY"m"MM');
+
+        -- 明細を先に切り離し、注文への外部キーを外してから注文を切り離す
+        EXECUTE format('ALTER TABLE order_items DETACH PARTITION %I', 'order_items_' || suffix);
+        EXECUTE format('ALTER TABLE %I DROP CONSTRAINT IF EXISTS fk_order_items_order', 'order_items_' || suffix);
+        EXECUTE format('ALTER TABLE orders DETACH PARTITION %I', 'orders_' || suffix);
+
+        EXECUTE format('ALTER TABLE orders_archive ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       'orders_' || suffix, partition_month, (partition_month + INTERVAL '1 month')::DATE);
+        EXECUTE format('ALTER TABLE order_items_archive ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       'order_items_' || suffix, partition_month, (partition_month + INTERVAL '1 month')::DATE);
+
+        -- アーカイブは追記されないため、ページを詰めて格納する
+        EXECUTE format('ALTER TABLE %I SET (fillfactor = 100)', 'orders_' || suffix);
+        EXECUTE format('ALTER TABLE %I SET (fillfactor = 100)', 'order_items_' || suffix);
+
+        archived := archived + 1;
+    END LOOP;
+
+    RETURN archived;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 既存データの期間 + 3か月先までのパーティションを作成
+SELECT create_order_partitions(
+    COALESCE((SELECT MIN(order_date) FROM orders_legacy)::DATE, CURRENT_DATE),
+    (CURRENT_DATE + INTERVAL '3 months')::DATE
+);
+
+-- 既存データを移行
+INSERT INTO orders (
+    id, order_number, customer_id, order_date, status, payment_status, payment_method,
+    subtotal_amount, tax_amount, shipping_fee, discount_amount, total_amount,
+    coupon_code, used_points, point_discount_amount,
+    shipping_postal_code, shipping_prefecture, shipping_city, shipping_address_line1,
+    shipping_address_line2, shipping_recipient_name, shipping_phone_number,
+    notes, created_at, updated_at
+)
+SELECT
+    id, order_number, customer_id, order_date, status, payment_status, payment_method,
+    subtotal_amount, tax_amount, shipping_fee, discount_amount, total_amount,
+    coupon_code, used_points, point_discount_amount,
+    shipping_postal_code, shipping_prefecture, shipping_city, shipping_address_line1,
+    shipping_address_line2, shipping_recipient_name, shipping_phone_number,
+    notes, created_at, updated_at
+FROM orders_legacy;
+
+INSERT INTO order_items (
+    id, order_id, order_date, product_id, product_name, sku, unit_price, quantity, subtotal,
+    applied_coupon_id, coupon_discount_amount, used_points, point_discount_amount
+)
+SELECT
+    oi.id, oi.order_id, o.order_date, oi.product_id, oi.product_name, oi.sku, oi.unit_price, oi.quantity, oi.subtotal,
+    oi.applied_coupon_id, oi.coupon_discount_amount, oi.used_points, oi.point_discount_amount
+FROM order_items_legacy oi
+JOIN orders_legacy o ON o.id = oi.order_id;
+
+DROP TABLE order_items_legacy;
+DROP TABLE orders_legacy;
+
+-- インデックス作成 (各パーティションに自動作成される)
+CREATE INDEX idx_orders_customer_id ON orders(customer_id);
+CREATE INDEX idx_orders_status ON orders(status);
+CREATE INDEX idx_orders_order_date ON orders(order_date);
+CREATE INDEX idx_orders_order_number ON orders(order_number);
+CREATE INDEX idx_orders_id ON orders(id);
+
+CREATE INDEX idx_order_items_order_id ON order_items(order_id);
+CREATE INDEX idx_order_items_product_id ON order_items(product_id);
+
+-- 更新日時自動更新のトリガー
+CREATE TRIGGER update_orders_updated_at BEFORE UPDATE ON orders
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
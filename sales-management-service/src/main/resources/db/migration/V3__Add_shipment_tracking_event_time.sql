@@ -0,0 +1,3 @@
+-- 運送会社の追跡イベント取り込み用
+-- イベントは順不同・重複して届くため、適用済みイベントの発生時刻を保持し、それより古いイベントは無視する
+ALTER TABLE shipments ADD COLUMN IF NOT EXISTS last_tracking_event_at TIMESTAMP;
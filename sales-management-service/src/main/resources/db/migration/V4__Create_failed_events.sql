@@ -0,0 +1,21 @@
+-- Kafka 送信失敗イベントの再送・デッドレター用テーブル
+-- 送信に失敗したイベントを保存し、定期ジョブが再送する。上限回数を超えたものは DEAD として残す
+CREATE TABLE IF NOT EXISTS failed_events (
+    id BIGSERIAL PRIMARY KEY,
+    topic VARCHAR(200) NOT NULL,
+    event_key VARCHAR(200),
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error VARCHAR(1000),
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 再送対象の取得用 (PENDING のみ)
+CREATE INDEX IF NOT EXISTS idx_failed_events_pending ON failed_events(next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_failed_events_status ON failed_events(status);
+
+CREATE TRIGGER update_failed_events_updated_at BEFORE UPDATE ON failed_events
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
@@ -0,0 +1,92 @@
+-- 注文番号の全体一意性と、配送・返品からの参照整合性を復元する
+-- パーティションテーブルの一意制約にはパーティションキー (order_date) が必要なため、
+-- 注文・注文明細のキーを非パーティションのキーテーブルに保持し、一意制約と外部キーの参照先とする
+-- キーはアーカイブ後も残るため、アーカイブ済みの注文番号も再利用されない
+
+-- 注文キーテーブル
+CREATE TABLE order_keys (
+    id UUID PRIMARY KEY,
+    order_number VARCHAR(50) NOT NULL,
+    order_date TIMESTAMP NOT NULL,
+    CONSTRAINT uk_order_keys_order_number UNIQUE (order_number)
+);
+
+-- 注文明細キーテーブル
+CREATE TABLE order_item_keys (
+    id UUID PRIMARY KEY,
+    order_id UUID NOT NULL REFERENCES order_keys(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_order_item_keys_order_id ON order_item_keys(order_id);
+
+-- 既存の注文 (アーカイブ済みを含む) からキーを作成
+INSERT INTO order_keys (id, order_number, order_date)
+SELECT id, order_number, order_date FROM orders
+UNION ALL
+SELECT id, order_number, order_date FROM orders_archive;
+
+INSERT INTO order_item_keys (id, order_id)
+SELECT id, order_id FROM order_items
+UNION ALL
+SELECT id, order_id FROM order_items_archive;
+
+-- 注文の追加・更新・削除をキーテーブルに反映
+-- 重複した注文番号は一意制約違反となり、注文の INSERT ごとロールバックされる
+CREATE OR REPLACE FUNCTION sync_order_keys()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO order_keys (id, order_number, order_date)
+        VALUES (NEW.id, NEW.order_number, NEW.order_date);
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE order_keys SET order_number = NEW.order_number WHERE id = OLD.id;
+    ELSE
+        DELETE FROM order_keys WHERE id = OLD.id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION sync_order_item_keys()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO order_item_keys (id, order_id) VALUES (NEW.id, NEW.order_id);
+    ELSE
+        DELETE FROM order_item_keys WHERE id = OLD.id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 注文日の変更はパーティション間の移動 (削除 + 追加) となり、キーの削除が配送・返品に連鎖するため禁止する
+CREATE OR REPLACE FUNCTION prevent_order_key_change()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.id <> OLD.id OR NEW.order_date <> OLD.order_date THEN
+        RAISE EXCEPTION 'order id and order_date cannot be changed (order %)', OLD.id;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- パーティション親に作成したトリガーは各パーティションに複製され、アーカイブ時の切り離しで外れる
+CREATE TRIGGER prevent_order_key_change BEFORE UPDATE OF id, order_date ON orders
+    FOR EACH ROW EXECUTE FUNCTION prevent_order_key_change();
+
+CREATE TRIGGER sync_order_keys AFTER INSERT OR DELETE OR UPDATE OF order_number ON orders
+    FOR EACH ROW EXECUTE FUNCTION sync_order_keys();
+
+CREATE TRIGGER sync_order_item_keys AFTER INSERT OR DELETE ON order_items
+    FOR EACH ROW EXECUTE FUNCTION sync_order_item_keys();
+
+-- 配送・返品の外部キーをキーテーブルに張り直す (注文削除時の連鎖削除も従来どおり)
+ALTER TABLE shipments ADD CONSTRAINT shipments_order_id_fkey
+    FOREIGN KEY (order_id) REFERENCES order_keys(id) ON DELETE CASCADE;
+ALTER TABLE returns ADD CONSTRAINT returns_order_id_fkey
+    FOREIGN KEY (order_id) REFERENCES order_keys(id) ON DELETE CASCADE;
+ALTER TABLE returns ADD CONSTRAINT returns_order_item_id_fkey
+    FOREIGN KEY (order_item_id) REFERENCES order_item_keys(id) ON DELETE CASCADE;
+
+-- 注文番号の一意性はキーテーブルで保証するため、パーティション単位の一意制約は不要
+ALTER TABLE orders DROP CONSTRAINT IF EXISTS uk_orders_order_number;
@@ -0,0 +1,5 @@
+-- 注文の通貨コード (Order エンティティの currency_code)
+-- 既存の注文は円建て
+-- アーカイブへのパーティション付け替えには列の一致が必要なため、アーカイブ側にも追加する
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS currency_code VARCHAR(3) NOT NULL DEFAULT 'JPY';
+ALTER TABLE orders_archive ADD COLUMN IF NOT EXISTS currency_code VARCHAR(3) NOT NULL DEFAULT 'JPY';
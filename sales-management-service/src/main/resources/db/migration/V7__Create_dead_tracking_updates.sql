@@ -0,0 +1,14 @@
+-- 再試行の上限を超えても適用できなかった運送会社の追跡イベント
+-- 運送会社には受付済み (202) を返しており再送されないため、手動での確認・再適用用に保存する
+CREATE TABLE IF NOT EXISTS dead_tracking_updates (
+    id BIGSERIAL PRIMARY KEY,
+    tracking_number VARCHAR(100) NOT NULL,
+    carrier VARCHAR(100) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    event_time TIMESTAMP NOT NULL,
+    estimated_delivery_at TIMESTAMP,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_dead_tracking_updates_tracking_number ON dead_tracking_updates(tracking_number);
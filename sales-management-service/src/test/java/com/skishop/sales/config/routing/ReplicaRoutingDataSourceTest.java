@@ -0,0 +1,123 @@
+package com.skishop.sales.config.routing;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final String LAG_QUERY = "SELECT lag_ms FROM replication_status";
+
+    private JdbcTemplate primaryJdbc;
+    private JdbcTemplate replicaJdbc;
+    private ReplicaLagMonitor lagMonitor;
+    private JdbcTemplate routedJdbc;
+    private TransactionTemplate readWriteTx;
+    private TransactionTemplate readOnlyTx;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = h2("primary");
+        DataSource replica = h2("replica");
+        primaryJdbc = new JdbcTemplate(primary);
+        replicaJdbc = new JdbcTemplate(replica);
+
+        primaryJdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        primaryJdbc.update("INSERT INTO node VALUES ('primary')");
+        replicaJdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        replicaJdbc.update("INSERT INTO node VALUES ('replica')");
+        replicaJdbc.execute("CREATE TABLE replication_status (lag_ms BIGINT)");
+        replicaJdbc.update("INSERT INTO replication_status VALUES (0)");
+
+        lagMonitor = new ReplicaLagMonitor(replica, LAG_QUERY, Duration.ofMillis(500));
+        lagMonitor.checkLag();
+
+        DataSource routed = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, lagMonitor));
+        routedJdbc = new JdbcTemplate(routed);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routed);
+        readWriteTx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+    }
+
+    @Test
+    @DisplayName("read-only transactions are served by the replica")
+    void readOnlyTransaction_usesReplica() {
+        assertTrue(lagMonitor.isReplicaUsable());
+        assertEquals("replica", readOnlyTx.execute(status -> currentNode()));
+    }
+
+    @Test
+    @DisplayName("read-write transactions and non-transactional calls use the primary")
+    void readWriteTransaction_usesPrimary() {
+        assertEquals("primary", readWriteTx.execute(status -> currentNode()));
+        assertEquals("primary", currentNode());
+    }
+
+    @Test
+    @DisplayName("reads fall back to the primary while replica lag exceeds the limit")
+    void laggingReplica_fallsBackToPrimary() {
+        replicaJdbc.update("UPDATE replication_status SET lag_ms = 5000");
+        lagMonitor.checkLag();
+
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals(5000, lagMonitor.getLastLagMillis());
+        assertEquals("primary", readOnlyTx.execute(status -> currentNode()));
+
+        replicaJdbc.update("UPDATE replication_status SET lag_ms = 100");
+        lagMonitor.checkLag();
+
+        assertEquals("replica", readOnlyTx.execute(status -> currentNode()));
+    }
+
+    @Test
+    @DisplayName("reads fall back to the primary when the lag probe fails")
+    void unreachableReplica_fallsBackToPrimary() {
+        replicaJdbc.execute("DROP TABLE replication_status");
+        lagMonitor.checkLag();
+
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals(-1, lagMonitor.getLastLagMillis());
+        assertEquals("primary", readOnlyTx.execute(status -> currentNode()));
+    }
+
+    @Test
+    @DisplayName("reads of a just-written key stay on the primary until the window closes")
+    void readYourWritesWindow_pinsPrimary() throws InterruptedException {
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(100);
+        String key = ReadYourWritesTracker.customerKey("customer-1");
+
+        tracker.recordWrite(key);
+
+        assertEquals("primary", readOnlyTx.execute(status -> tracker.read(key, this::currentNode)));
+        assertEquals("replica", readOnlyTx.execute(status ->
+                tracker.read(ReadYourWritesTracker.customerKey("customer-2"), this::currentNode)));
+
+        Thread.sleep(150);
+
+        assertFalse(tracker.isRecentlyWritten(key));
+        assertEquals("replica", readOnlyTx.execute(status -> tracker.read(key, this::currentNode)));
+    }
+
+    private String currentNode() {
+        return routedJdbc.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
@@ -0,0 +1,108 @@
+package com.skishop.sales.repository.jpa;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the native claim query of {@link OrderRepository} against H2 in PostgreSQL mode
+ */
+class OrderRepositoryClaimTest {
+
+    private static final LocalDateTime EXPIRY = LocalDateTime.of(2024, 1, 15, 12, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private String claimSql;
+
+    @BeforeEach
+    void setUp() throws NoSuchMethodException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:orders-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=5000");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("""
+                CREATE TABLE orders (
+                    id UUID PRIMARY KEY,
+                    status VARCHAR(20) NOT NULL,
+                    payment_status VARCHAR(20) NOT NULL,
+                    created_at TIMESTAMP NOT NULL
+                )
+                """);
+
+        Query query = OrderRepository.class
+                .getMethod("claimExpiredPendingOrderIds", LocalDateTime.class, int.class)
+                .getAnnotation(Query.class);
+        claimSql = query.value().replace(":expiryTime", "?").replace(":limit", "?");
+    }
+
+    @Test
+    @DisplayName("only unpaid pending or confirmed orders created before the expiry are claimed, oldest first")
+    void claimExpiredPendingOrderIds_filtersAndOrders() {
+        UUID newer = insert("PENDING", "PENDING", EXPIRY.minusHours(1));
+        UUID older = insert("CONFIRMED", "PENDING", EXPIRY.minusHours(2));
+        insert("PENDING", "PAID", EXPIRY.minusHours(3));
+        insert("SHIPPED", "PENDING", EXPIRY.minusHours(3));
+        insert("PENDING", "PENDING", EXPIRY.plusHours(1));
+
+        List<UUID> claimed = transactionTemplate.execute(status -> claim(10));
+
+        assertEquals(List.of(older, newer), claimed);
+    }
+
+    @Test
+    @DisplayName("a claim skips rows locked by another replica's open transaction instead of waiting for them")
+    void claimExpiredPendingOrderIds_skipsLockedRows() {
+        UUID lockedOldest = insert("PENDING", "PENDING", EXPIRY.minusHours(4));
+        UUID lockedNewest = insert("PENDING", "PENDING", EXPIRY.minusHours(1));
+        UUID free = insert("PENDING", "PENDING", EXPIRY.minusHours(3));
+        UUID alsoFree = insert("PENDING", "PENDING", EXPIRY.minusHours(2));
+
+        List<UUID> claimed = transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM orders WHERE id IN (?, ?) FOR UPDATE", UUID.class,
+                    lockedOldest, lockedNewest);
+            // Claim from another connection while this transaction still holds the two rows
+            return CompletableFuture
+                    .supplyAsync(() -> transactionTemplate.execute(other -> claim(10)))
+                    .orTimeout(2, TimeUnit.SECONDS)
+                    .join();
+        });
+
+        assertEquals(List.of(free, alsoFree), claimed);
+    }
+
+    @Test
+    @DisplayName("a claim returns at most the chunk size")
+    void claimExpiredPendingOrderIds_honoursLimit() {
+        for (int i = 1; i <= 3; i++) {
+            insert("PENDING", "PENDING", EXPIRY.minusHours(i));
+        }
+
+        assertEquals(2, transactionTemplate.execute(status -> claim(2)).size());
+    }
+
+    private List<UUID> claim(int limit) {
+        return jdbcTemplate.queryForList(claimSql, UUID.class, Timestamp.valueOf(EXPIRY), limit);
+    }
+
+    private UUID insert(String status, String paymentStatus, LocalDateTime createdAt) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO orders (id, status, payment_status, created_at) VALUES (?, ?, ?, ?)",
+                id, status, paymentStatus, Timestamp.valueOf(createdAt));
+        return id;
+    }
+}
@@ -0,0 +1,83 @@
+package com.skishop.sales.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderAutoCancelSchedulerTest {
+
+    @Mock
+    OrderService orderService;
+
+    @InjectMocks
+    OrderAutoCancelScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "expiryHours", 24L);
+        ReflectionTestUtils.setField(scheduler, "chunkSize", 2);
+        ReflectionTestUtils.setField(scheduler, "maxChunksPerRun", 5);
+    }
+
+    @Test
+    @DisplayName("full chunks are followed by another until one comes back short")
+    void cancelExpiredOrders_stopsAfterShortChunk() {
+        when(orderService.cancelExpiredOrderChunk(any(), eq(2))).thenReturn(2, 2, 1);
+
+        scheduler.cancelExpiredOrders();
+
+        verify(orderService, times(3)).cancelExpiredOrderChunk(any(), eq(2));
+    }
+
+    @Test
+    @DisplayName("a run stops at the per-run chunk limit, leaving the rest for the next run")
+    void cancelExpiredOrders_stopsAtChunkLimit() {
+        when(orderService.cancelExpiredOrderChunk(any(), eq(2))).thenReturn(2);
+
+        scheduler.cancelExpiredOrders();
+
+        verify(orderService, times(5)).cancelExpiredOrderChunk(any(), eq(2));
+    }
+
+    @Test
+    @DisplayName("every chunk of a run uses the same expiry time, the configured hours before the run started")
+    void cancelExpiredOrders_usesOneExpiryTime() {
+        LocalDateTime before = LocalDateTime.now().minusHours(24);
+        when(orderService.cancelExpiredOrderChunk(any(), eq(2))).thenReturn(2, 0);
+
+        scheduler.cancelExpiredOrders();
+
+        ArgumentCaptor<LocalDateTime> expiryTimes = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(orderService, times(2)).cancelExpiredOrderChunk(expiryTimes.capture(), eq(2));
+        assertEquals(expiryTimes.getAllValues().get(0), expiryTimes.getAllValues().get(1));
+        assertFalse(expiryTimes.getValue().isBefore(before));
+        assertTrue(expiryTimes.getValue().isBefore(LocalDateTime.now().minusHours(23)));
+    }
+
+    @Test
+    @DisplayName("a failing chunk ends the run without throwing out of the scheduler")
+    void cancelExpiredOrders_swallowsFailure() {
+        when(orderService.cancelExpiredOrderChunk(any(), eq(2)))
+                .thenReturn(2)
+                .thenThrow(new IllegalStateException("database down"));
+
+        assertDoesNotThrow(scheduler::cancelExpiredOrders);
+        verify(orderService, times(2)).cancelExpiredOrderChunk(any(), eq(2));
+    }
+}
@@ -0,0 +1,68 @@
+package com.skishop.sales.service;
+
+import com.skishop.sales.repository.jdbc.OrderPartitionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderPartitionMaintenanceServiceTest {
+
+    @Mock
+    OrderPartitionRepository orderPartitionRepository;
+
+    @InjectMocks
+    OrderPartitionMaintenanceService service;
+
+    private final LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "monthsAhead", 3);
+        ReflectionTestUtils.setField(service, "archiveAfterMonths", 24);
+    }
+
+    @Test
+    @DisplayName("partitions are created from the current month through the months ahead, and older months archived")
+    void maintainPartitions_createsAheadAndArchives() {
+        service.maintainPartitions();
+
+        verify(orderPartitionRepository).createPartitions(currentMonth, currentMonth.plusMonths(3));
+        verify(orderPartitionRepository).archivePartitionsBefore(currentMonth.minusMonths(24));
+    }
+
+    @Test
+    @DisplayName("archiving is off when archive-after-months is zero")
+    void maintainPartitions_archiveDisabled() {
+        ReflectionTestUtils.setField(service, "archiveAfterMonths", 0);
+
+        service.maintainPartitions();
+
+        verify(orderPartitionRepository).createPartitions(currentMonth, currentMonth.plusMonths(3));
+        verify(orderPartitionRepository, never()).archivePartitionsBefore(any());
+    }
+
+    @Test
+    @DisplayName("nothing is archived when creating partitions fails, and the failure does not escape")
+    void maintainPartitions_swallowsFailure() {
+        when(orderPartitionRepository.createPartitions(any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+
+        assertDoesNotThrow(service::maintainPartitions);
+        verify(orderPartitionRepository, never()).archivePartitionsBefore(any());
+    }
+}
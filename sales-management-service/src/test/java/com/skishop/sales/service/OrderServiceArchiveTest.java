@@ -0,0 +1,125 @@
+package com.skishop.sales.service;
+
+import com.skishop.sales.config.routing.ReadYourWritesTracker;
+import com.skishop.sales.dto.response.OrderResponse;
+import com.skishop.sales.entity.jpa.Order;
+import com.skishop.sales.entity.jpa.OrderItem;
+import com.skishop.sales.exception.ResourceNotFoundException;
+import com.skishop.sales.mapper.OrderMapper;
+import com.skishop.sales.repository.jpa.OrderItemRepository;
+import com.skishop.sales.repository.jpa.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reads of orders that partition maintenance moved to the archive tables
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderServiceArchiveTest {
+
+    @Mock
+    OrderRepository orderRepository;
+
+    @Mock
+    OrderItemRepository orderItemRepository;
+
+    @Mock
+    OrderNumberGenerator orderNumberGenerator;
+
+    @Mock
+    EventPublisherService eventPublisherService;
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderService(orderRepository, orderItemRepository, new OrderMapper(),
+                orderNumberGenerator, eventPublisherService, new ReadYourWritesTracker(5_000));
+    }
+
+    @Test
+    @DisplayName("a live order is read from the partitioned tables without touching the archive")
+    void getOrder_live() {
+        Order order = order("ORD-LIVE");
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(orderItemRepository.findByOrderId(order.getId())).thenReturn(List.of(item(order, "Live ski")));
+
+        OrderResponse response = orderService.getOrder(order.getId());
+
+        assertEquals("ORD-LIVE", response.orderNumber());
+        assertEquals("Live ski", response.items().getFirst().productName());
+        verify(orderRepository, never()).findArchivedById(any());
+        verify(orderItemRepository, never()).findArchivedByOrderId(any());
+    }
+
+    @Test
+    @DisplayName("an archived order is found by ID together with its archived items")
+    void getOrder_fallsBackToArchive() {
+        Order order = order("ORD-OLD");
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.empty());
+        when(orderRepository.findArchivedById(order.getId())).thenReturn(Optional.of(order));
+        when(orderItemRepository.findArchivedByOrderId(order.getId())).thenReturn(List.of(item(order, "Old ski")));
+
+        OrderResponse response = orderService.getOrder(order.getId());
+
+        assertEquals("ORD-OLD", response.orderNumber());
+        assertEquals("Old ski", response.items().getFirst().productName());
+        verify(orderItemRepository, never()).findByOrderId(any());
+    }
+
+    @Test
+    @DisplayName("an archived order is found by order number")
+    void getOrderByNumber_fallsBackToArchive() {
+        Order order = order("ORD-OLD");
+        when(orderRepository.findByOrderNumber("ORD-OLD")).thenReturn(Optional.empty());
+        when(orderRepository.findArchivedByOrderNumber("ORD-OLD")).thenReturn(Optional.of(order));
+        when(orderItemRepository.findArchivedByOrderId(order.getId())).thenReturn(List.of(item(order, "Old ski")));
+
+        OrderResponse response = orderService.getOrderByNumber("ORD-OLD");
+
+        assertEquals(order.getId().toString(), response.id());
+        assertEquals(1, response.items().size());
+    }
+
+    @Test
+    @DisplayName("an order in neither the live nor the archive tables is not found")
+    void getOrder_missingEverywhere() {
+        UUID orderId = UUID.randomUUID();
+        when(orderRepository.findById(orderId)).thenReturn(Optional.empty());
+        when(orderRepository.findArchivedById(orderId)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> orderService.getOrder(orderId));
+    }
+
+    private static Order order(String orderNumber) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .orderNumber(orderNumber)
+                .customerId("customer-1")
+                .status(Order.OrderStatus.DELIVERED)
+                .paymentStatus(Order.PaymentStatus.PAID)
+                .build();
+    }
+
+    private static OrderItem item(Order order, String productName) {
+        return OrderItem.builder()
+                .id(UUID.randomUUID())
+                .orderId(order.getId())
+                .productName(productName)
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.skishop.sales.service;
+
+import com.skishop.sales.dto.response.SalesReportResponse;
+import com.skishop.sales.exception.ReportTimeoutException;
+import com.skishop.sales.repository.jdbc.OrderExportRepository;
+import com.skishop.sales.repository.jpa.OrderItemRepository;
+import com.skishop.sales.repository.jpa.OrderRepository;
+import com.skishop.sales.service.ranking.BestSellerTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportsServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 1, 8, 0, 0);
+
+    @Mock
+    BestSellerTracker bestSellerTracker;
+
+    @Mock
+    OrderItemRepository orderItemRepository;
+
+    @Mock
+    OrderExportRepository orderExportRepository;
+
+    @Mock
+    OrderRepository orderRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private ReportsService reportsService;
+
+    @BeforeEach
+    void setUp() {
+        reportsService = new ReportsService(bestSellerTracker, orderItemRepository, orderExportRepository,
+                orderRepository, new SimpleMeterRegistry(), transactionManager);
+        ReflectionTestUtils.setField(reportsService, "reportDeadlineMs", 5_000L);
+
+        lenient().when(orderRepository.getSalesSummaryBetween(START, END))
+                .thenReturn(List.<Object[]>of(new Object[]{new BigDecimal("30000"), 3L, 2L}));
+        lenient().when(orderRepository.getSalesByPeriodBetween("day", START, END))
+                .thenReturn(List.<Object[]>of(new Object[]{"2024-01-01", new BigDecimal("30000"), 3L, 2L}));
+        lenient().when(orderItemRepository.getProductSalesRanking(eq(START), eq(END), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{"p-1", "Ski", 4L, new BigDecimal("20000")}));
+    }
+
+    @Test
+    @DisplayName("the trend compares the report period with the period of the same length before it")
+    void getSalesReport_trendAgainstPreviousPeriod() {
+        when(orderRepository.getRevenueBetween(START, END)).thenReturn(new BigDecimal("30000"));
+        when(orderRepository.getRevenueBetween(START.minusDays(7), START)).thenReturn(new BigDecimal("20000"));
+
+        SalesReportResponse report = reportsService.getSalesReport("DAILY", "2024-01-01", "2024-01-07");
+
+        SalesReportResponse.SalesTrend trend = report.trends().getFirst();
+        assertEquals("Last 7 days vs previous 7 days", trend.period());
+        assertEquals(new BigDecimal("30000"), trend.value());
+        assertEquals("+50.0%", trend.changePercentage());
+        assertEquals(new BigDecimal("10000.00"), report.summary().averageOrderValue());
+        assertEquals(1, report.data().size());
+        assertEquals("p-1", report.topProducts().getFirst().productId());
+    }
+
+    @Test
+    @DisplayName("a previous period without revenue has no change percentage")
+    void getSalesReport_noPreviousRevenue() {
+        when(orderRepository.getRevenueBetween(START, END)).thenReturn(new BigDecimal("30000"));
+        when(orderRepository.getRevenueBetween(START.minusDays(7), START)).thenReturn(BigDecimal.ZERO);
+
+        SalesReportResponse report = reportsService.getSalesReport("DAILY", "2024-01-01", "2024-01-07");
+
+        assertEquals("N/A", report.trends().getFirst().changePercentage());
+    }
+
+    @Test
+    @DisplayName("each sub-query runs in a read-only transaction that times out by the report deadline")
+    void getSalesReport_subQueriesTimeOutAtDeadline() {
+        when(orderRepository.getRevenueBetween(any(), any())).thenReturn(BigDecimal.ONE);
+
+        reportsService.getSalesReport("DAILY", "2024-01-01", "2024-01-07");
+
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, atLeastOnce()).getTransaction(definitions.capture());
+        assertEquals(4, definitions.getAllValues().size());
+        definitions.getAllValues().forEach(definition -> {
+            assertTrue(definition.isReadOnly());
+            assertTrue(definition.getTimeout() >= 1 && definition.getTimeout() <= 5, "timeout " + definition.getTimeout());
+        });
+    }
+
+    @Test
+    @DisplayName("a sub-query still running at the deadline fails the report with a timeout")
+    void getSalesReport_deadline() {
+        ReflectionTestUtils.setField(reportsService, "reportDeadlineMs", 100L);
+        when(orderRepository.getRevenueBetween(any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return BigDecimal.ONE;
+        });
+
+        long start = System.nanoTime();
+        assertThrows(ReportTimeoutException.class,
+                () -> reportsService.getSalesReport("DAILY", "2024-01-01", "2024-01-07"));
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 1_000);
+    }
+}
@@ -0,0 +1,185 @@
+package com.skishop.sales.service;
+
+import com.skishop.sales.dto.request.ReturnCreateRequest;
+import com.skishop.sales.entity.jpa.Order;
+import com.skishop.sales.entity.jpa.OrderItem;
+import com.skishop.sales.entity.jpa.Return;
+import com.skishop.sales.exception.BusinessRuleViolationException;
+import com.skishop.sales.mapper.ReturnMapper;
+import com.skishop.sales.repository.jpa.OrderItemRepository;
+import com.skishop.sales.repository.jpa.OrderRepository;
+import com.skishop.sales.repository.jpa.ReturnRepository;
+import com.skishop.sales.repository.jpa.ShipmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReturnServiceTest {
+
+    private static final UUID ORDER_ID = UUID.randomUUID();
+    private static final UUID ORDER_ITEM_ID = UUID.randomUUID();
+
+    @Mock
+    ReturnRepository returnRepository;
+
+    @Mock
+    OrderRepository orderRepository;
+
+    @Mock
+    OrderItemRepository orderItemRepository;
+
+    @Mock
+    ShipmentRepository shipmentRepository;
+
+    @Mock
+    ReturnMapper returnMapper;
+
+    @Mock
+    EventPublisherService eventPublisherService;
+
+    private ReturnService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReturnService(returnRepository, orderRepository, orderItemRepository, shipmentRepository,
+                returnMapper, eventPublisherService);
+        ReflectionTestUtils.setField(service, "allowedDays", 30L);
+        ReflectionTestUtils.setField(service, "autoApprovalThreshold", new BigDecimal("10000"));
+    }
+
+    @Test
+    @DisplayName("the remaining quantity is checked against the locked order item")
+    void createReturn_locksOrderItem() {
+        givenDeliveredOrderItem(3);
+        when(returnRepository.sumActiveQuantityByOrderItemId(ORDER_ITEM_ID)).thenReturn(2L);
+
+        BusinessRuleViolationException exceeded = assertThrows(BusinessRuleViolationException.class,
+                () -> service.createReturn(request("DEFECTIVE", 2)));
+
+        assertEquals("Return quantity exceeds remaining quantity: 1", exceeded.getMessage());
+        verify(orderItemRepository).findByIdForUpdate(ORDER_ITEM_ID);
+        verify(orderItemRepository, never()).findById(any());
+        verify(returnRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("a return within the remaining quantity is requested with the parsed reason")
+    void createReturn_savesRequestedReturn() {
+        givenDeliveredOrderItem(3);
+        when(returnRepository.sumActiveQuantityByOrderItemId(ORDER_ITEM_ID)).thenReturn(1L);
+        when(returnRepository.save(any())).thenAnswer(invocation -> {
+            Return saved = invocation.getArgument(0);
+            saved.setId(UUID.randomUUID());
+            saved.setRequestedAt(LocalDateTime.now());
+            when(returnRepository.findById(saved.getId())).thenReturn(Optional.of(saved));
+            return saved;
+        });
+
+        service.createReturn(request("size_issue", 2));
+
+        ArgumentCaptor<Return> saved = ArgumentCaptor.forClass(Return.class);
+        verify(returnRepository).save(saved.capture());
+        assertEquals(Return.ReturnReason.SIZE_ISSUE, saved.getValue().getReason());
+        assertEquals(Return.ReturnStatus.REQUESTED, saved.getValue().getStatus());
+        assertEquals(2, saved.getValue().getQuantity());
+    }
+
+    @Test
+    @DisplayName("an unknown reason is a business rule violation, answered with 400, before anything is locked")
+    void createReturn_rejectsUnknownReason() {
+        assertThrows(BusinessRuleViolationException.class, () -> service.createReturn(request("BORED", 1)));
+
+        verify(orderItemRepository, never()).findByIdForUpdate(any());
+        verify(returnRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("auto-approval appends its note without a separator of its own and counts the approved rows")
+    void autoApproveReturnChunk_appendsNote() {
+        List<UUID> returnIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        when(returnRepository.claimAutoApprovableReturnIds(new BigDecimal("10000"), 10)).thenReturn(returnIds);
+        when(returnRepository.approveByIdIn(eq(returnIds), anyString(), any())).thenReturn(2);
+        when(returnRepository.findAllById(returnIds)).thenReturn(List.of(
+                returnIn(Return.ReturnStatus.APPROVED), returnIn(Return.ReturnStatus.APPROVED)));
+
+        assertEquals(2, service.autoApproveReturnChunk(10));
+
+        verify(returnRepository).approveByIdIn(eq(returnIds), eq("Auto-approved: refund below 10000"), any());
+    }
+
+    @Test
+    @DisplayName("expiry only cancels returns still requested, and publishes only those")
+    void expireStaleReturnChunk_guardsStatus() {
+        Return stale = returnIn(Return.ReturnStatus.REQUESTED);
+        Return approvedMeanwhile = returnIn(Return.ReturnStatus.REQUESTED);
+        List<UUID> returnIds = List.of(stale.getId(), approvedMeanwhile.getId());
+        when(returnRepository.findExpiredReturnRequests(any(), any(Pageable.class)))
+                .thenReturn(List.of(stale, approvedMeanwhile));
+        when(returnRepository.updateStatusByIdIn(eq(returnIds), eq(Return.ReturnStatus.REQUESTED),
+                eq(Return.ReturnStatus.CANCELLED), eq("Cancelled: request expired before review"), any()))
+                .thenReturn(1);
+        Return cancelled = returnIn(Return.ReturnStatus.CANCELLED);
+        when(returnRepository.findAllById(returnIds))
+                .thenReturn(List.of(cancelled, returnIn(Return.ReturnStatus.APPROVED)));
+
+        assertEquals(1, service.expireStaleReturnChunk(LocalDateTime.now(), 10));
+
+        verify(eventPublisherService).publishReturnStatusUpdatedEvents(List.of(cancelled));
+    }
+
+    private void givenDeliveredOrderItem(int quantity) {
+        when(orderRepository.findById(ORDER_ID)).thenReturn(Optional.of(Order.builder()
+                .id(ORDER_ID)
+                .customerId("customer-1")
+                .orderDate(LocalDateTime.now().minusDays(5))
+                .status(Order.OrderStatus.DELIVERED)
+                .build()));
+        when(orderItemRepository.findByIdForUpdate(ORDER_ITEM_ID)).thenReturn(Optional.of(OrderItem.builder()
+                .id(ORDER_ITEM_ID)
+                .orderId(ORDER_ID)
+                .unitPrice(new BigDecimal("5000"))
+                .quantity(quantity)
+                .build()));
+        when(shipmentRepository.findByOrderId(ORDER_ID)).thenReturn(Optional.empty());
+    }
+
+    private static ReturnCreateRequest request(String reason, int quantity) {
+        ReturnCreateRequest request = new ReturnCreateRequest();
+        request.setOrderId(ORDER_ID.toString());
+        request.setOrderItemId(ORDER_ITEM_ID.toString());
+        request.setReason(reason);
+        request.setQuantity(quantity);
+        request.setRefundAmount(new BigDecimal("5000"));
+        return request;
+    }
+
+    private static Return returnIn(Return.ReturnStatus status) {
+        return Return.builder()
+                .id(UUID.randomUUID())
+                .orderId(ORDER_ID)
+                .orderItemId(ORDER_ITEM_ID)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.skishop.sales.service.export;
+
+import com.skishop.sales.repository.jdbc.OrderExportRow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarSalesExportWriterTest {
+
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2024, 3, 31, 1, 30, 15, 250_000_000);
+
+    @Test
+    @DisplayName("every column round-trips, in header order")
+    void roundTrip_preservesValues() throws IOException {
+        OrderExportRow row = new OrderExportRow("ORD-1", ORDER_DATE, "customer-1", "DELIVERED", "PAID",
+                "CREDIT_CARD", new BigDecimal("1000.00"), new BigDecimal("100.00"), new BigDecimal("500.00"),
+                new BigDecimal("50.00"), new BigDecimal("1550.00"));
+
+        List<Object[]> rows = new ArrayList<>();
+        try (ColumnarSalesExportReader reader = new ColumnarSalesExportReader(new ByteArrayInputStream(export(List.of(row))))) {
+            assertEquals(Arrays.stream(SalesExportColumn.values()).map(SalesExportColumn::getColumnName).toList(),
+                    reader.getColumnNames());
+            for (Object[] values = reader.next(); values != null; values = reader.next()) {
+                rows.add(values);
+            }
+        }
+
+        assertEquals(1, rows.size());
+        assertArrayEquals(new Object[]{"ORD-1", ORDER_DATE, "customer-1", "DELIVERED", "PAID", "CREDIT_CARD",
+                new BigDecimal("1000.00"), new BigDecimal("100.00"), new BigDecimal("500.00"),
+                new BigDecimal("50.00"), new BigDecimal("1550.00")}, rows.getFirst());
+    }
+
+    @Test
+    @DisplayName("missing values read back as null, not as empty strings, zero or a sentinel date")
+    void roundTrip_preservesNulls() throws IOException {
+        OrderExportRow row = new OrderExportRow("ORD-1", null, "customer-1", "PENDING", null, "",
+                null, BigDecimal.ZERO, null, null, new BigDecimal("0.00"));
+
+        Object[] values = readAll(export(List.of(row))).getFirst();
+
+        assertArrayEquals(new Object[]{"ORD-1", null, "customer-1", "PENDING", null, "",
+                null, new BigDecimal("0.00"), null, null, new BigDecimal("0.00")}, values);
+    }
+
+    @Test
+    @DisplayName("timestamps are wall-clock values and read back unchanged whatever the JVM time zone")
+    void roundTrip_keepsWallClockTime() throws IOException {
+        TimeZone original = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            byte[] exported = export(List.of(rowAt(ORDER_DATE)));
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+
+            assertEquals(ORDER_DATE, readAll(exported).getFirst()[1]);
+        } finally {
+            TimeZone.setDefault(original);
+        }
+    }
+
+    @Test
+    @DisplayName("rows spanning several row groups come back in order")
+    void roundTrip_acrossRowGroups() throws IOException {
+        List<OrderExportRow> rows = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            rows.add(new OrderExportRow("ORD-" + i, ORDER_DATE.plusMinutes(i), "customer-" + (i % 7),
+                    i % 3 == 0 ? null : "DELIVERED", "PAID", "CREDIT_CARD", BigDecimal.valueOf(i, 2),
+                    null, null, null, BigDecimal.valueOf(i, 2)));
+        }
+
+        List<Object[]> read = readAll(export(rows));
+
+        assertEquals(rows.size(), read.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals("ORD-" + i, read.get(i)[0]);
+            assertEquals(ORDER_DATE.plusMinutes(i), read.get(i)[1]);
+            assertEquals(rows.get(i).status(), read.get(i)[3]);
+            assertEquals(BigDecimal.valueOf(i, 2), read.get(i)[10]);
+        }
+    }
+
+    @Test
+    @DisplayName("an export without rows has a header and no rows")
+    void roundTrip_empty() throws IOException {
+        assertTrue(readAll(export(List.of())).isEmpty());
+    }
+
+    @Test
+    @DisplayName("a stream without the magic header is rejected")
+    void reader_rejectsOtherFormats() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write("order_number,order_date\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThrows(IOException.class, () -> new ColumnarSalesExportReader(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static OrderExportRow rowAt(LocalDateTime orderDate) {
+        return new OrderExportRow("ORD-1", orderDate, "customer-1", "DELIVERED", "PAID", "CREDIT_CARD",
+                BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ONE);
+    }
+
+    private static byte[] export(List<OrderExportRow> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SalesExportWriter writer = SalesExportFormat.COLUMNAR.openWriter(bytes);
+        for (OrderExportRow row : rows) {
+            writer.write(row);
+        }
+        writer.finish();
+        return bytes.toByteArray();
+    }
+
+    private static List<Object[]> readAll(byte[] exported) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        try (ColumnarSalesExportReader reader = new ColumnarSalesExportReader(new ByteArrayInputStream(exported))) {
+            for (Object[] values = reader.next(); values != null; values = reader.next()) {
+                rows.add(values);
+            }
+        }
+        return rows;
+    }
+}
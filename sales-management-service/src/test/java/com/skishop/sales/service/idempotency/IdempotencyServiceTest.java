@@ -0,0 +1,80 @@
+package com.skishop.sales.service.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LocalIdempotencyStore store = new LocalIdempotencyStore();
+    /** Two replicas sharing one store, with a one second lock */
+    private final IdempotencyService first = new IdempotencyService(store, objectMapper, 24, 1, 10_000, 20);
+    private final IdempotencyService second = new IdempotencyService(store, objectMapper, 24, 1, 10_000, 20);
+
+    @AfterEach
+    void tearDown() {
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    @DisplayName("a request running past the lock TTL keeps its key, and a concurrent replay waits for its response")
+    void slowRequest_keepsLockWhileRunning() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        Map<String, String> request = Map.of("orderId", "1");
+
+        CompletableFuture<IdempotentResult<String>> slow = CompletableFuture.supplyAsync(() ->
+                first.execute("orders", "key-1", request, String.class, () -> {
+                    executions.incrementAndGet();
+                    pause(Duration.ofMillis(2_500));
+                    return "order-1";
+                }));
+        pause(Duration.ofMillis(1_500));
+        IdempotentResult<String> replay = second.execute("orders", "key-1", request, String.class, () -> {
+            executions.incrementAndGet();
+            return "order-2";
+        });
+
+        assertEquals(new IdempotentResult<>("order-1", false), slow.get());
+        assertEquals(new IdempotentResult<>("order-1", true), replay);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("a request whose lock expired cannot renew, complete or release the next owner's lock")
+    void expiredLock_isFenced() {
+        IdempotencyRecord expired = IdempotencyRecord.inProgress("fingerprint", "owner-1");
+        IdempotencyRecord current = IdempotencyRecord.inProgress("fingerprint", "owner-2");
+        assertTrue(store.tryAcquire("key", expired, Duration.ofMillis(20)));
+        pause(Duration.ofMillis(50));
+        assertTrue(store.tryAcquire("key", current, Duration.ofSeconds(30)));
+
+        assertFalse(store.renew("key", expired, Duration.ofSeconds(30)));
+        assertFalse(store.complete("key", expired, IdempotencyRecord.completed("fingerprint", "\"stale\""),
+                Duration.ofHours(1)));
+        store.release("key", expired);
+        assertEquals(current, store.get("key").orElseThrow());
+
+        IdempotencyRecord completed = IdempotencyRecord.completed("fingerprint", "\"fresh\"");
+        assertTrue(store.complete("key", current, completed, Duration.ofHours(1)));
+        assertEquals(completed, store.get("key").orElseThrow());
+    }
+
+    private static void pause(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
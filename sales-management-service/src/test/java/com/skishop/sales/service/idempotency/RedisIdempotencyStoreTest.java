@@ -0,0 +1,73 @@
+package com.skishop.sales.service.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.sales.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisIdempotencyStoreTest {
+
+    private static EmbeddedRedis redis;
+
+    private RedisIdempotencyStore store;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        store = new RedisIdempotencyStore(redis.template(), new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("the owner renews and completes its lock")
+    void owner_renewsAndCompletes() {
+        IdempotencyRecord lock = IdempotencyRecord.inProgress("fingerprint", "owner-1");
+        assertTrue(store.tryAcquire("key", lock, Duration.ofSeconds(1)));
+        assertFalse(store.tryAcquire("key", IdempotencyRecord.inProgress("fingerprint", "owner-2"), Duration.ofSeconds(1)));
+
+        assertTrue(store.renew("key", lock, Duration.ofSeconds(60)));
+        assertTrue(redis.template().getExpire("key") > 30);
+
+        IdempotencyRecord completed = IdempotencyRecord.completed("fingerprint", "\"order-1\"");
+        assertTrue(store.complete("key", lock, completed, Duration.ofHours(1)));
+        assertEquals(completed, store.get("key").orElseThrow());
+        // A completed key is no longer a lock
+        assertFalse(store.renew("key", lock, Duration.ofSeconds(60)));
+        store.release("key", lock);
+        assertEquals(completed, store.get("key").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("a request whose lock expired cannot renew, complete or release the next owner's lock")
+    void expiredLock_isFenced() throws InterruptedException {
+        IdempotencyRecord expired = IdempotencyRecord.inProgress("fingerprint", "owner-1");
+        IdempotencyRecord current = IdempotencyRecord.inProgress("fingerprint", "owner-2");
+        assertTrue(store.tryAcquire("key", expired, Duration.ofMillis(20)));
+        Thread.sleep(50);
+        assertTrue(store.tryAcquire("key", current, Duration.ofSeconds(30)));
+
+        assertFalse(store.renew("key", expired, Duration.ofSeconds(60)));
+        assertFalse(store.complete("key", expired, IdempotencyRecord.completed("fingerprint", "\"stale\""),
+                Duration.ofHours(1)));
+        store.release("key", expired);
+
+        assertEquals(current, store.get("key").orElseThrow());
+        assertTrue(redis.template().getExpire("key") <= 30);
+    }
+}
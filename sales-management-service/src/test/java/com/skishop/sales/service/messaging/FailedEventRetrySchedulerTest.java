@@ -0,0 +1,133 @@
+package com.skishop.sales.service.messaging;
+
+import com.skishop.sales.repository.jdbc.FailedEvent;
+import com.skishop.sales.repository.jdbc.FailedEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FailedEventRetrySchedulerTest {
+
+    @Mock
+    FailedEventRepository failedEventRepository;
+
+    @Mock
+    KafkaEventSender kafkaEventSender;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private FailedEventRetryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new FailedEventRetryScheduler(failedEventRepository, kafkaEventSender,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "chunkSize", 10);
+        ReflectionTestUtils.setField(scheduler, "maxChunksPerRun", 5);
+        ReflectionTestUtils.setField(scheduler, "maxAttempts", 3);
+        ReflectionTestUtils.setField(scheduler, "initialBackoffMs", 1000L);
+        ReflectionTestUtils.setField(scheduler, "maxBackoffMs", 60_000L);
+        ReflectionTestUtils.setField(scheduler, "sendTimeoutMs", 200L);
+        ReflectionTestUtils.setField(scheduler, "claimLeaseMs", 60_000L);
+    }
+
+    @Test
+    @DisplayName("the claim commits before any record is sent, so no row lock is held while waiting for the broker")
+    void retryFailedEvents_sendsAfterClaimCommits() {
+        FailedEvent event = new FailedEvent(1L, "orders", "key-1", "{}", 1);
+        when(failedEventRepository.claimDue(eq(10), any())).thenReturn(List.of(event));
+        when(kafkaEventSender.sendTracked("orders", "key-1", "{}")).thenReturn(delivered());
+
+        scheduler.retryFailedEvents();
+
+        InOrder order = inOrder(transactionManager, failedEventRepository, kafkaEventSender);
+        order.verify(failedEventRepository).claimDue(eq(10), any());
+        order.verify(transactionManager).commit(any());
+        order.verify(kafkaEventSender).sendTracked("orders", "key-1", "{}");
+        order.verify(failedEventRepository).deleteByIds(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("claimed records are leased past the send timeout")
+    void retryFailedEvents_leasesClaimedRecords() {
+        LocalDateTime before = LocalDateTime.now();
+        when(failedEventRepository.claimDue(eq(10), any())).thenReturn(List.of());
+
+        scheduler.retryFailedEvents();
+
+        ArgumentCaptor<LocalDateTime> leaseUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(failedEventRepository).claimDue(eq(10), leaseUntil.capture());
+        assertFalse(leaseUntil.getValue().isBefore(before.plusSeconds(60)));
+    }
+
+    @Test
+    @DisplayName("a chunk waits for the broker under one deadline; unacknowledged records are rescheduled or given up")
+    void retryFailedEvents_sharesOneDeadline() {
+        List<FailedEvent> events = List.of(
+                new FailedEvent(1L, "orders", "key-1", "{}", 1),
+                new FailedEvent(2L, "orders", "key-2", "{}", 1),
+                new FailedEvent(3L, "orders", "key-3", "{}", 2),
+                new FailedEvent(4L, "orders", "key-4", "{}", 1));
+        when(failedEventRepository.claimDue(eq(10), any())).thenReturn(events);
+        when(kafkaEventSender.sendTracked("orders", "key-1", "{}")).thenReturn(delivered());
+        when(kafkaEventSender.sendTracked("orders", "key-2", "{}")).thenReturn(new CompletableFuture<>());
+        when(kafkaEventSender.sendTracked("orders", "key-3", "{}")).thenReturn(new CompletableFuture<>());
+        when(kafkaEventSender.sendTracked("orders", "key-4", "{}"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        long start = System.nanoTime();
+        scheduler.retryFailedEvents();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Two hanging sends wait one deadline between them, not one each
+        assertTrue(elapsedMs < 400, "took " + elapsedMs + " ms");
+        verify(failedEventRepository).deleteByIds(List.of(1L));
+        verify(failedEventRepository).recordFailure(eq(2L), eq("Send not acknowledged within 200 ms"), any());
+        verify(failedEventRepository).markDead(3L, "Send not acknowledged within 200 ms");
+        verify(failedEventRepository).recordFailure(eq(4L), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("a full chunk is followed by another, up to the per-run limit")
+    void retryFailedEvents_stopsAfterShortChunk() {
+        ReflectionTestUtils.setField(scheduler, "chunkSize", 1);
+        when(failedEventRepository.claimDue(anyInt(), any()))
+                .thenReturn(List.of(new FailedEvent(1L, "orders", "key-1", "{}", 1)))
+                .thenReturn(List.of());
+        when(kafkaEventSender.sendTracked(anyString(), anyString(), anyString())).thenReturn(delivered());
+
+        scheduler.retryFailedEvents();
+
+        verify(failedEventRepository, times(2)).claimDue(anyInt(), any());
+    }
+
+    private static CompletableFuture<SendResult<String, String>> delivered() {
+        return CompletableFuture.completedFuture(null);
+    }
+}
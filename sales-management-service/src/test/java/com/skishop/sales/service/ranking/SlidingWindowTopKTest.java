@@ -0,0 +1,90 @@
+package com.skishop.sales.service.ranking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowTopKTest {
+
+    /** HOUR: twelve buckets of five minutes */
+    private static final long BUCKET_MILLIS = RankingWindow.HOUR.getBucketSize().toMillis();
+    private static final long NOW = 1_000 * BUCKET_MILLIS;
+
+    private final SlidingWindowTopK window = new SlidingWindowTopK(RankingWindow.HOUR, 16, 3);
+
+    @Test
+    @DisplayName("sales from all live buckets are merged and ranked by quantity")
+    void refresh_ranksByQuantityAcrossBuckets() {
+        window.offer(NOW - 10 * BUCKET_MILLIS, NOW, "a", "A", 2, new BigDecimal("9000"));
+        window.offer(NOW - 2 * BUCKET_MILLIS, NOW, "b", "B", 3, new BigDecimal("300"));
+        window.offer(NOW, NOW, "a", "A", 2, new BigDecimal("9000"));
+        window.offer(NOW, NOW, "c", "C", 1, new BigDecimal("100"));
+
+        window.refresh(NOW);
+
+        assertEquals(List.of("a", "b", "c"), productIds(window.top(10)));
+        RankedProduct top = window.top(1).getFirst();
+        assertEquals(4, top.quantity());
+        assertEquals(new BigDecimal("18000"), top.revenue());
+        assertEquals(0, top.maxError());
+    }
+
+    @Test
+    @DisplayName("a bucket drops out of the ranking once the window has slid past it")
+    void refresh_expiresOldBuckets() {
+        window.offer(NOW, NOW, "old", "Old", 5, BigDecimal.TEN);
+        window.offer(NOW + 6 * BUCKET_MILLIS, NOW + 6 * BUCKET_MILLIS, "new", "New", 1, BigDecimal.ONE);
+
+        window.refresh(NOW + 11 * BUCKET_MILLIS);
+        assertEquals(List.of("old", "new"), productIds(window.top(10)));
+
+        window.refresh(NOW + 12 * BUCKET_MILLIS);
+        assertEquals(List.of("new"), productIds(window.top(10)));
+    }
+
+    @Test
+    @DisplayName("a reused ring slot starts empty instead of adding to the bucket it replaced")
+    void offer_clearsReusedBucket() {
+        window.offer(NOW, NOW, "old", "Old", 5, BigDecimal.TEN);
+        long later = NOW + 12 * BUCKET_MILLIS;
+        window.offer(later, later, "new", "New", 1, BigDecimal.ONE);
+
+        window.refresh(later);
+
+        assertEquals(List.of("new"), productIds(window.top(10)));
+    }
+
+    @Test
+    @DisplayName("sales older than the window are ignored and future ones count as now")
+    void offer_clampsTimestamps() {
+        window.offer(NOW - 12 * BUCKET_MILLIS, NOW, "stale", "Stale", 5, BigDecimal.TEN);
+        window.offer(NOW + 100 * BUCKET_MILLIS, NOW, "future", "Future", 1, BigDecimal.ONE);
+
+        window.refresh(NOW);
+
+        assertEquals(List.of("future"), productIds(window.top(10)));
+    }
+
+    @Test
+    @DisplayName("the snapshot holds the top K, and reads are bounded by it")
+    void top_isBoundedByTopK() {
+        for (int i = 1; i <= 5; i++) {
+            window.offer(NOW, NOW, "p" + i, "P" + i, i, BigDecimal.ONE);
+        }
+        assertTrue(window.top(10).isEmpty());
+
+        window.refresh(NOW);
+
+        assertEquals(List.of("p5", "p4", "p3"), productIds(window.top(10)));
+        assertEquals(List.of("p5"), productIds(window.top(1)));
+        assertTrue(window.top(-1).isEmpty());
+    }
+
+    private static List<String> productIds(List<RankedProduct> products) {
+        return products.stream().map(RankedProduct::productId).toList();
+    }
+}
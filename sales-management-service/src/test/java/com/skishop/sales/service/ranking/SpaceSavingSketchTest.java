@@ -0,0 +1,107 @@
+package com.skishop.sales.service.ranking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    @DisplayName("below capacity every product is counted exactly")
+    void offer_belowCapacity_isExact() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        sketch.offer("a", "A", 3, new BigDecimal("300"));
+        sketch.offer("b", "B", 1, new BigDecimal("100"));
+        sketch.offer("a", "A", 2, new BigDecimal("200"));
+
+        Map<String, SpaceSavingSketch.Counter> counters = counters(sketch);
+        assertEquals(2, sketch.size());
+        assertEquals(5, counters.get("a").count);
+        assertEquals(0, counters.get("a").error);
+        assertEquals(new BigDecimal("500"), counters.get("a").revenue);
+        assertEquals(1, counters.get("b").count);
+    }
+
+    @Test
+    @DisplayName("a new product replaces the smallest counter and inherits its count as error")
+    void offer_atCapacity_evictsSmallest() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.offer("a", "A", 5, BigDecimal.TEN);
+        sketch.offer("b", "B", 2, BigDecimal.ONE);
+        sketch.offer("c", "C", 1, BigDecimal.ONE);
+
+        Map<String, SpaceSavingSketch.Counter> counters = counters(sketch);
+        assertEquals(2, sketch.size());
+        assertFalse(counters.containsKey("b"));
+        assertEquals(3, counters.get("c").count);
+        assertEquals(2, counters.get("c").error);
+        assertEquals(5, counters.get("a").count);
+    }
+
+    @Test
+    @DisplayName("on a skewed stream the heavy hitters are kept, and every estimate bounds the true count")
+    void offer_skewedStream_keepsHeavyHitters() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(20);
+        Map<String, Long> truth = new HashMap<>();
+        Random random = new Random(42);
+        long total = 0;
+        for (int i = 0; i < 20_000; i++) {
+            // A few popular products among a long tail
+            String productId = random.nextInt(4) == 0
+                    ? "tail-" + random.nextInt(2_000)
+                    : "hot-" + random.nextInt(5);
+            sketch.offer(productId, productId, 1, BigDecimal.ONE);
+            truth.merge(productId, 1L, Long::sum);
+            total++;
+        }
+
+        Map<String, SpaceSavingSketch.Counter> counters = counters(sketch);
+        for (int hot = 0; hot < 5; hot++) {
+            assertTrue(counters.containsKey("hot-" + hot), "hot-" + hot + " was evicted");
+        }
+        long errorBound = total / 20;
+        counters.values().forEach(counter -> {
+            long actual = truth.get(counter.productId);
+            assertTrue(counter.count >= actual, counter.productId + " under-estimated");
+            assertTrue(counter.count - counter.error <= actual, counter.productId + " error bound too small");
+            assertTrue(counter.error <= errorBound, counter.productId + " error above N/capacity");
+        });
+    }
+
+    @Test
+    @DisplayName("merging adds counts, errors and revenue per product without changing the sketch")
+    void mergeInto_addsPerProduct() {
+        SpaceSavingSketch first = new SpaceSavingSketch(4);
+        first.offer("a", "A", 2, new BigDecimal("20"));
+        SpaceSavingSketch second = new SpaceSavingSketch(4);
+        second.offer("a", "A", 3, new BigDecimal("30"));
+        second.offer("b", "B", 1, new BigDecimal("10"));
+
+        Map<String, SpaceSavingSketch.Counter> merged = new HashMap<>();
+        first.mergeInto(merged);
+        second.mergeInto(merged);
+
+        assertEquals(5, merged.get("a").count);
+        assertEquals(new BigDecimal("50"), merged.get("a").revenue);
+        assertEquals(1, merged.get("b").count);
+        assertEquals(2, counters(first).get("a").count);
+    }
+
+    @Test
+    @DisplayName("a sketch needs at least one counter")
+    void constructor_rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch(0));
+    }
+
+    private static Map<String, SpaceSavingSketch.Counter> counters(SpaceSavingSketch sketch) {
+        Map<String, SpaceSavingSketch.Counter> counters = new HashMap<>();
+        sketch.mergeInto(counters);
+        return counters;
+    }
+}
@@ -0,0 +1,113 @@
+package com.skishop.sales.service.report;
+
+import com.skishop.sales.exception.ReportTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportTaskScopeTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("sub-queries run in parallel and their results are available after join")
+    void joinUntil_allSucceed() {
+        try (ReportTaskScope scope = new ReportTaskScope("sales", meterRegistry)) {
+            Supplier<String> first = scope.fork("first", () -> sleepThen(200, "a"));
+            Supplier<String> second = scope.fork("second", () -> sleepThen(200, "b"));
+
+            long start = System.nanoTime();
+            scope.joinUntil(Instant.now().plusSeconds(5));
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals("a", first.get());
+            assertEquals("b", second.get());
+            assertTrue(elapsedMs < 380, "took " + elapsedMs + " ms");
+        }
+        assertEquals(1, meterRegistry.get("sales.report.subquery")
+                .tag("part", "first").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    @DisplayName("the first failure is rethrown at once and interrupts the other sub-queries")
+    void joinUntil_failsFast() throws InterruptedException {
+        CountDownLatch siblingInterrupted = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("query failed");
+
+        try (ReportTaskScope scope = new ReportTaskScope("sales", meterRegistry)) {
+            scope.fork("slow", () -> {
+                try {
+                    return sleepThen(5_000, "late");
+                } catch (InterruptedException e) {
+                    siblingInterrupted.countDown();
+                    throw e;
+                }
+            });
+            scope.fork("broken", () -> {
+                throw failure;
+            });
+
+            long start = System.nanoTime();
+            IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                    () -> scope.joinUntil(Instant.now().plusSeconds(5)));
+            assertSame(failure, thrown);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+        }
+        assertTrue(siblingInterrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("a checked failure is wrapped so callers only see unchecked exceptions")
+    void joinUntil_wrapsCheckedFailure() {
+        try (ReportTaskScope scope = new ReportTaskScope("sales", meterRegistry)) {
+            scope.fork("broken", () -> {
+                throw new IOException("disk");
+            });
+
+            IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                    () -> scope.joinUntil(Instant.now().plusSeconds(5)));
+            assertInstanceOf(IOException.class, thrown.getCause());
+        }
+    }
+
+    @Test
+    @DisplayName("passing the deadline raises ReportTimeoutException and interrupts what is still running")
+    void joinUntil_deadline() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        try (ReportTaskScope scope = new ReportTaskScope("sales", meterRegistry)) {
+            scope.fork("slow", () -> {
+                try {
+                    return sleepThen(5_000, "late");
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            });
+
+            assertThrows(ReportTimeoutException.class, () -> scope.joinUntil(Instant.now().plusMillis(100)));
+        }
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("a scope with nothing forked joins immediately")
+    void joinUntil_empty() {
+        try (ReportTaskScope scope = new ReportTaskScope("sales", meterRegistry)) {
+            assertDoesNotThrow(() -> scope.joinUntil(Instant.now()));
+        }
+    }
+
+    private static String sleepThen(long millis, String value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+}
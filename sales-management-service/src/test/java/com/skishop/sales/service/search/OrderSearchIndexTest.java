@@ -0,0 +1,119 @@
+package com.skishop.sales.service.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderSearchIndexTest {
+
+    @Test
+    @DisplayName("filtered searches find older matches behind many newer ones")
+    void filter_appliesBeforeLimit() {
+        OrderSearchIndex index = new OrderSearchIndex();
+        UUID target = UUID.randomUUID();
+        index.upsert(document(target, "ORD-000001", "customer-1", "Yamada Taro"));
+        for (int i = 2; i <= 20_000; i++) {
+            index.upsert(document(UUID.randomUUID(), "ORD-%06d".formatted(i), "customer-2", "Yamada Taro"));
+        }
+
+        List<OrderSearchDocument> hits = index.search(OrderSearchIndex.normalize("yamada"), 10,
+                document -> "customer-1".equals(document.customerId()));
+
+        assertEquals(1, hits.size());
+        assertEquals(target, hits.getFirst().orderId());
+    }
+
+    @Test
+    @DisplayName("replaced values no longer leave postings behind")
+    void replace_removesStalePostings() {
+        TrigramIndex trigrams = new TrigramIndex();
+        trigrams.add(1, "yamadataro");
+
+        trigrams.replace(1, List.of("yamadataro"), List.of("suzukihanako"));
+
+        TrigramIndex fresh = new TrigramIndex();
+        fresh.add(1, "suzukihanako");
+        assertTrue(candidates(trigrams, "yamada").isEmpty());
+        assertEquals(List.of(1), candidates(trigrams, "suzuki"));
+        assertEquals(fresh.gramCount(), trigrams.gramCount());
+    }
+
+    @Test
+    @DisplayName("candidates come newest first and stop when the visitor says so")
+    void candidates_newestFirst() {
+        TrigramIndex trigrams = new TrigramIndex();
+        for (int docId = 0; docId < 5; docId++) {
+            trigrams.add(docId, "tracking" + docId);
+        }
+
+        List<Integer> visited = new ArrayList<>();
+        trigrams.forEachCandidate("tracking", docId -> {
+            visited.add(docId);
+            return visited.size() < 3;
+        });
+
+        assertEquals(List.of(4, 3, 2), visited);
+    }
+
+    @Test
+    @DisplayName("a stale snapshot merged after a newer event does not bring back the old status")
+    void upsert_keepsNewerStatus() {
+        UUID orderId = UUID.randomUUID();
+        LocalDateTime loadedAt = LocalDateTime.of(2026, 3, 1, 10, 0);
+        OrderSearchDocument loaded = new OrderSearchDocument(orderId, "ORD-000001", "customer-1", "Yamada Taro",
+                "09012345678", List.of("TRK-1"), loadedAt.minusDays(1), "PENDING", "PENDING", loadedAt);
+        OrderSearchDocument shipped = new OrderSearchDocument(orderId, "ORD-000001", "customer-1", null, null,
+                List.of(), null, "SHIPPED", "PAID", loadedAt.plusMinutes(5));
+
+        OrderSearchIndex eventFirst = new OrderSearchIndex();
+        eventFirst.upsert(shipped);
+        eventFirst.upsert(loaded);
+        OrderSearchIndex loadFirst = new OrderSearchIndex();
+        loadFirst.upsert(loaded);
+        loadFirst.upsert(shipped);
+
+        for (OrderSearchIndex index : List.of(eventFirst, loadFirst)) {
+            OrderSearchDocument document = index.search("yamada", 10, any -> true).getFirst();
+            assertEquals("SHIPPED", document.status());
+            assertEquals("PAID", document.paymentStatus());
+            assertEquals("09012345678", document.phoneNumber());
+            assertEquals(List.of("TRK-1"), document.trackingNumbers());
+            assertEquals(loadedAt.plusMinutes(5), document.updatedAt());
+        }
+    }
+
+    @Test
+    @DisplayName("evicted orders leave the index and its postings")
+    void removeOlderThan_dropsOldOrders() {
+        OrderSearchIndex index = new OrderSearchIndex();
+        UUID recent = UUID.randomUUID();
+        index.upsert(new OrderSearchDocument(UUID.randomUUID(), "ORD-000001", "customer-1", "Yamada Taro", null,
+                List.of(), LocalDateTime.of(2023, 1, 10, 9, 0), "DELIVERED", "PAID", null));
+        index.upsert(new OrderSearchDocument(recent, "ORD-000002", "customer-1", "Yamada Taro", null,
+                List.of(), LocalDateTime.of(2026, 1, 10, 9, 0), "PENDING", "PENDING", null));
+
+        assertEquals(1, index.removeOlderThan(LocalDateTime.of(2024, 1, 1, 0, 0)));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("ord000001", 10, any -> true).isEmpty());
+        assertEquals(List.of(recent), index.search("yamada", 10, any -> true).stream()
+                .map(OrderSearchDocument::orderId).toList());
+    }
+
+    private static List<Integer> candidates(TrigramIndex trigrams, String query) {
+        List<Integer> docIds = new ArrayList<>();
+        trigrams.forEachCandidate(query, docId -> docIds.add(docId));
+        return docIds;
+    }
+
+    private static OrderSearchDocument document(UUID orderId, String orderNumber, String customerId, String recipientName) {
+        return new OrderSearchDocument(orderId, orderNumber, customerId, recipientName, null, List.of(),
+                LocalDateTime.now(), "PENDING", "PENDING", null);
+    }
+}
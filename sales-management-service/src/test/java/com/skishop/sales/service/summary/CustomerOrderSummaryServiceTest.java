@@ -0,0 +1,153 @@
+package com.skishop.sales.service.summary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skishop.sales.dto.response.CustomerOrderSummaryResponse;
+import com.skishop.sales.repository.jdbc.CustomerOrderRow;
+import com.skishop.sales.repository.jdbc.CustomerOrderSummaryRepository;
+import com.skishop.sales.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class CustomerOrderSummaryServiceTest {
+
+    private static final String CUSTOMER = "customer-1";
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private static EmbeddedRedis redis;
+
+    private final CustomerOrderSummaryRepository repository = mock(CustomerOrderSummaryRepository.class);
+    private CustomerOrderSummaryService service;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        service = new CustomerOrderSummaryService(redis.template(), new ObjectMapper(), repository);
+        ReflectionTestUtils.setField(service, "recentOrders", 2);
+        ReflectionTestUtils.setField(service, "trackedOrders", 3);
+        ReflectionTestUtils.setField(service, "ttlDays", 400L);
+        ReflectionTestUtils.setField(service, "nearCacheMaxEntries", 10);
+        // Every read goes to Redis
+        ReflectionTestUtils.setField(service, "nearCacheTtlMs", 0L);
+        service.init();
+    }
+
+    @Test
+    @DisplayName("status changes move the order between status counts and out of lifetime spend")
+    void handleOrderEvent_appliesStatusChanges() {
+        service.handleOrderEvent(event("ORDER_CREATED", "order-1", "PENDING", ORDER_DATE, "1000", 1));
+        service.handleOrderEvent(event("ORDER_CREATED", "order-2", "PENDING", ORDER_DATE.plusDays(1), "500", 1));
+        service.handleOrderEvent(event("ORDER_CANCELLED", "order-2", "CANCELLED", ORDER_DATE.plusDays(1), "500", 2));
+
+        CustomerOrderSummaryResponse summary = service.getSummary(CUSTOMER);
+        assertEquals(2, summary.orderCount());
+        assertEquals(0, new BigDecimal("1000").compareTo(summary.lifetimeSpend()));
+        assertEquals(Map.of("PENDING", 1L, "CANCELLED", 1L), summary.statusCounts());
+        assertEquals(List.of("order-2", "order-1"),
+                summary.recentOrders().stream().map(CustomerOrderSummaryResponse.RecentOrder::orderId).toList());
+        assertEquals(ORDER_DATE.plusDays(1), summary.lastOrderDate());
+    }
+
+    @Test
+    @DisplayName("a replayed or older event leaves the summary unchanged")
+    void handleOrderEvent_ignoresStaleEvents() {
+        service.handleOrderEvent(event("ORDER_CREATED", "order-1", "PENDING", ORDER_DATE, "1000", 1));
+        service.handleOrderEvent(event("ORDER_STATUS_UPDATED", "order-1", "SHIPPED", ORDER_DATE, "1000", 3));
+        service.handleOrderEvent(event("ORDER_STATUS_UPDATED", "order-1", "CONFIRMED", ORDER_DATE, "1000", 2));
+        service.handleOrderEvent(event("ORDER_CREATED", "order-1", "PENDING", ORDER_DATE, "1000", 1));
+
+        CustomerOrderSummaryResponse summary = service.getSummary(CUSTOMER);
+        assertEquals(1, summary.orderCount());
+        assertEquals(Map.of("SHIPPED", 1L), summary.statusCounts());
+    }
+
+    @Test
+    @DisplayName("orders past the tracked limit stay in the totals and their late events are ignored")
+    void handleOrderEvent_evictsOldestSnapshots() {
+        for (int i = 1; i <= 4; i++) {
+            service.handleOrderEvent(event("ORDER_CREATED", "order-" + i, "PENDING", ORDER_DATE.plusDays(i), "100", 1));
+        }
+        service.handleOrderEvent(event("ORDER_CANCELLED", "order-1", "CANCELLED", ORDER_DATE.plusDays(1), "100", 2));
+
+        CustomerOrderSummaryResponse summary = service.getSummary(CUSTOMER);
+        assertEquals(4, summary.orderCount());
+        assertEquals(0, new BigDecimal("400").compareTo(summary.lifetimeSpend()));
+        assertEquals(Map.of("PENDING", 4L), summary.statusCounts());
+    }
+
+    @Test
+    @DisplayName("only order snapshots expire; totals and the summary of an inactive customer are kept")
+    void handleOrderEvent_keepsTotalsOfInactiveCustomers() {
+        service.handleOrderEvent(event("ORDER_CREATED", "order-1", "DELIVERED", ORDER_DATE, "1000", 1));
+
+        assertEquals(-1L, redis.template().getExpire("sales:customer-summary:{" + CUSTOMER + "}"));
+        assertEquals(-1L, redis.template().getExpire("sales:customer-totals:{" + CUSTOMER + "}"));
+        assertTrue(redis.template().getExpire("sales:customer-order-states:{" + CUSTOMER + "}") > 0);
+        assertTrue(redis.template().getExpire("sales:customer-order-index:{" + CUSTOMER + "}") > 0);
+
+        // The snapshot TTL runs out
+        redis.template().delete(List.of("sales:customer-order-states:{" + CUSTOMER + "}",
+                "sales:customer-order-index:{" + CUSTOMER + "}"));
+        assertEquals(1, service.getSummary(CUSTOMER).orderCount());
+
+        service.handleOrderEvent(event("ORDER_STATUS_UPDATED", "order-1", "RETURNED", ORDER_DATE, "1000", 2));
+        service.handleOrderEvent(event("ORDER_CREATED", "order-2", "PENDING", ORDER_DATE.plusYears(2), "300", 3));
+
+        CustomerOrderSummaryResponse summary = service.getSummary(CUSTOMER);
+        assertEquals(2, summary.orderCount());
+        assertEquals(0, new BigDecimal("1300").compareTo(summary.lifetimeSpend()));
+        assertEquals(Map.of("DELIVERED", 1L, "PENDING", 1L), summary.statusCounts());
+    }
+
+    @Test
+    @DisplayName("backfilled orders keep their own currency")
+    void backfill_usesOrderCurrency() {
+        ReflectionTestUtils.setField(service, "backfillOnStartup", true);
+        doAnswer(invocation -> {
+            Consumer<CustomerOrderRow> consumer = invocation.getArgument(0);
+            consumer.accept(new CustomerOrderRow(UUID.randomUUID(), "ORD-1", CUSTOMER, ORDER_DATE, "DELIVERED",
+                    new BigDecimal("12.34"), "USD", ORDER_DATE));
+            return null;
+        }).when(repository).streamOrders(any());
+
+        service.backfill();
+
+        CustomerOrderSummaryResponse summary = service.getSummary(CUSTOMER);
+        assertEquals("USD", summary.currencyCode());
+        assertEquals(new BigDecimal("12.34"), summary.lifetimeSpend());
+        assertEquals(new BigDecimal("12.34"), summary.recentOrders().getFirst().totalAmount());
+    }
+
+    private static String event(String eventType, String orderId, String status, LocalDateTime orderDate,
+                                String totalAmount, long timestamp) {
+        return """
+                {"eventType":"%s","orderId":"%s","orderNumber":"ORD-%s","customerId":"%s","orderDate":"%s",\
+                "totalAmount":%s,"currencyCode":"JPY","status":"%s","timestamp":%d}"""
+                .formatted(eventType, orderId, orderId, CUSTOMER, orderDate, totalAmount, status, timestamp);
+    }
+}
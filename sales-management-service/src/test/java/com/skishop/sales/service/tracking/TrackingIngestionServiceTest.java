@@ -0,0 +1,187 @@
+package com.skishop.sales.service.tracking;
+
+import com.skishop.sales.dto.request.CarrierTrackingEventRequest;
+import com.skishop.sales.entity.jpa.Shipment;
+import com.skishop.sales.repository.jdbc.ShipmentTrackingChange;
+import com.skishop.sales.repository.jdbc.ShipmentTrackingRepository;
+import com.skishop.sales.repository.jdbc.ShipmentTrackingUpdate;
+import com.skishop.sales.service.EventPublisherService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrackingIngestionServiceTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 1, 15, 12, 0);
+
+    @Mock
+    ShipmentTrackingRepository shipmentTrackingRepository;
+
+    @Mock
+    EventPublisherService eventPublisherService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TrackingIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TrackingIngestionService(shipmentTrackingRepository, eventPublisherService, meterRegistry);
+        ReflectionTestUtils.setField(service, "queueCapacity", 3);
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "pollIntervalMs", 10L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "shutdownTimeoutMs", 2_000L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    @Test
+    @DisplayName("a batch keeps the newest event per tracking number and carries over an earlier estimated delivery")
+    void enqueue_coalescesPerTrackingNumber() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        when(shipmentTrackingRepository.applyUpdates(anyList()))
+                .thenAnswer(invocation -> {
+                    firstBatchStarted.countDown();
+                    releaseFirstBatch.await();
+                    return List.of();
+                })
+                .thenReturn(List.of());
+        LocalDateTime estimate = NOON.plusDays(2);
+        service.start();
+
+        // Hold the drainer on a first batch so that the next three events land in one batch
+        service.enqueue(List.of(event("TN-0", Shipment.ShipmentStatus.SHIPPED, NOON, null)));
+        assertTrue(firstBatchStarted.await(2, TimeUnit.SECONDS));
+        assertTrue(service.enqueue(List.of(
+                event("TN-1", Shipment.ShipmentStatus.SHIPPED, NOON, estimate),
+                event("TN-1", Shipment.ShipmentStatus.IN_TRANSIT, NOON.plusHours(3), null),
+                event("TN-1", Shipment.ShipmentStatus.SHIPPED, NOON.plusHours(1), null))));
+        releaseFirstBatch.countDown();
+
+        ArgumentCaptor<List<ShipmentTrackingUpdate>> batches = updatesCaptor();
+        verify(shipmentTrackingRepository, timeout(2_000).times(2)).applyUpdates(batches.capture());
+        assertEquals(List.of(new ShipmentTrackingUpdate("TN-1", "YAMATO", "IN_TRANSIT", NOON.plusHours(3), estimate)),
+                batches.getAllValues().get(1));
+        assertEquals(2.0, updates("coalesced"));
+    }
+
+    @Test
+    @DisplayName("only shipments whose status changed are published")
+    void enqueue_publishesStatusChangesOnly() {
+        ShipmentTrackingChange moved = new ShipmentTrackingChange(
+                UUID.randomUUID(), UUID.randomUUID(), "YAMATO", "TN-1", "IN_TRANSIT", "SHIPPED");
+        ShipmentTrackingChange rescanned = new ShipmentTrackingChange(
+                UUID.randomUUID(), UUID.randomUUID(), "YAMATO", "TN-2", "SHIPPED", "SHIPPED");
+        when(shipmentTrackingRepository.applyUpdates(anyList())).thenReturn(List.of(moved, rescanned));
+        service.start();
+
+        assertTrue(service.enqueue(List.of(
+                event("TN-1", Shipment.ShipmentStatus.IN_TRANSIT, NOON, null),
+                event("TN-2", Shipment.ShipmentStatus.SHIPPED, NOON, null))));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Shipment>> published = ArgumentCaptor.forClass(List.class);
+        verify(eventPublisherService, timeout(2_000)).publishShipmentStatusUpdatedEvents(published.capture());
+        assertEquals(1, published.getValue().size());
+        assertEquals("TN-1", published.getValue().getFirst().getTrackingNumber());
+        assertEquals(Shipment.ShipmentStatus.IN_TRANSIT, published.getValue().getFirst().getStatus());
+    }
+
+    @Test
+    @DisplayName("a batch that fails every attempt is stored as dead with its last error instead of being dropped")
+    void enqueue_storesDeadBatchAfterLastAttempt() {
+        when(shipmentTrackingRepository.applyUpdates(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+        service.start();
+
+        assertTrue(service.enqueue(List.of(event("TN-1", Shipment.ShipmentStatus.DELIVERED, NOON, null))));
+
+        ArgumentCaptor<List<ShipmentTrackingUpdate>> dead = updatesCaptor();
+        verify(shipmentTrackingRepository, timeout(2_000)).saveDead(dead.capture(), eq("database down"));
+        verify(shipmentTrackingRepository, times(3)).applyUpdates(anyList());
+        assertEquals("TN-1", dead.getValue().getFirst().trackingNumber());
+        assertEquals(1.0, updates("failed"));
+        verify(eventPublisherService, never()).publishShipmentStatusUpdatedEvents(anyList());
+    }
+
+    @Test
+    @DisplayName("the drainer keeps running when the dead batch cannot be stored either")
+    void enqueue_survivesFailedDeadStore() {
+        when(shipmentTrackingRepository.applyUpdates(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database down"))
+                .thenThrow(new DataAccessResourceFailureException("database down"))
+                .thenThrow(new DataAccessResourceFailureException("database down"))
+                .thenReturn(List.of());
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .when(shipmentTrackingRepository).saveDead(anyList(), anyString());
+        service.start();
+
+        service.enqueue(List.of(event("TN-1", Shipment.ShipmentStatus.DELIVERED, NOON, null)));
+        verify(shipmentTrackingRepository, timeout(2_000)).saveDead(anyList(), any());
+        service.enqueue(List.of(event("TN-2", Shipment.ShipmentStatus.DELIVERED, NOON, null)));
+
+        verify(shipmentTrackingRepository, timeout(2_000).times(4)).applyUpdates(anyList());
+    }
+
+    @Test
+    @DisplayName("a request that does not fit in the queue is rejected whole")
+    void enqueue_rejectsWholeRequestOverCapacity() {
+        service.start();
+
+        assertFalse(service.enqueue(List.of(
+                event("TN-1", Shipment.ShipmentStatus.SHIPPED, NOON, null),
+                event("TN-2", Shipment.ShipmentStatus.SHIPPED, NOON, null),
+                event("TN-3", Shipment.ShipmentStatus.SHIPPED, NOON, null),
+                event("TN-4", Shipment.ShipmentStatus.SHIPPED, NOON, null))));
+
+        assertEquals(0, service.queueDepth());
+        assertEquals(3, service.remainingCapacity());
+        assertEquals(4.0, updates("rejected"));
+        verify(shipmentTrackingRepository, never()).applyUpdates(anyList());
+    }
+
+    private double updates(String outcome) {
+        return meterRegistry.get("sales.tracking.updates").tag("outcome", outcome).counter().count();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<ShipmentTrackingUpdate>> updatesCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    private static CarrierTrackingEventRequest event(String trackingNumber, Shipment.ShipmentStatus status,
+                                                     LocalDateTime eventTime, LocalDateTime estimatedDeliveryAt) {
+        return new CarrierTrackingEventRequest(trackingNumber, "YAMATO", status, eventTime, estimatedDeliveryAt);
+    }
+}
@@ -0,0 +1,120 @@
+package com.skishop.sales.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    private static final Currency JPY = Currency.getInstance("JPY");
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency BHD = Currency.getInstance("BHD");
+
+    @Test
+    @DisplayName("decimal amounts round HALF_UP to the currency's fraction digits")
+    void of_roundsToCurrencyScale() {
+        assertEquals(1235L, Money.of(new BigDecimal("12.345"), USD).minorUnits());
+        assertEquals(1234L, Money.of(new BigDecimal("12.344"), USD).minorUnits());
+        assertEquals(-1235L, Money.of(new BigDecimal("-12.345"), USD).minorUnits());
+        assertEquals(13L, Money.of(new BigDecimal("12.5"), JPY).minorUnits());
+        assertEquals(12_346L, Money.of(new BigDecimal("12.3455"), BHD).minorUnits());
+        assertEquals(new BigDecimal("12.346"), Money.of(new BigDecimal("12.3455"), BHD).toBigDecimal());
+    }
+
+    @Test
+    @DisplayName("a missing amount is zero and a missing currency code is the default currency")
+    void of_defaults() {
+        assertEquals(Money.zero(USD), Money.of(null, USD));
+        assertEquals(Money.ofMinor(500L, JPY), Money.of(new BigDecimal("500"), (String) null));
+        assertEquals(Money.ofMinor(500L, USD), Money.of(new BigDecimal("5"), "USD"));
+    }
+
+    @Test
+    @DisplayName("whole amounts scale by the currency's minor units, including pseudo-currencies")
+    void ofMajor_scalesByFractionDigits() {
+        assertEquals(800L, Money.ofMajor(800, JPY).minorUnits());
+        assertEquals(800_00L, Money.ofMajor(800, USD).minorUnits());
+        assertEquals(800_000L, Money.ofMajor(800, BHD).minorUnits());
+        assertEquals(7L, Money.ofMajor(7, Currency.getInstance("XXX")).minorUnits());
+    }
+
+    @Test
+    @DisplayName("arithmetic stays exact in minor units")
+    void arithmetic_isExact() {
+        Money price = Money.of(new BigDecimal("0.10"), USD);
+        Money total = Money.zero(USD);
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(price);
+        }
+
+        assertEquals(new BigDecimal("1.00"), total.toBigDecimal());
+        assertEquals(new BigDecimal("0.30"), price.times(3).toBigDecimal());
+        assertEquals(new BigDecimal("-0.10"), Money.zero(USD).minus(price).toBigDecimal());
+        assertTrue(Money.zero(USD).minus(price).isNegative());
+        assertTrue(price.minus(price).isZero());
+    }
+
+    @Test
+    @DisplayName("overflow fails instead of wrapping around")
+    void arithmetic_detectsOverflow() {
+        Money largest = Money.ofMinor(Long.MAX_VALUE, JPY);
+
+        assertThrows(ArithmeticException.class, () -> largest.plus(Money.ofMinor(1L, JPY)));
+        assertThrows(ArithmeticException.class, () -> largest.times(2));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE, JPY).minus(Money.ofMinor(1L, JPY)));
+        assertThrows(ArithmeticException.class, () -> largest.percentOf(1_000));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e30"), JPY));
+    }
+
+    @Test
+    @DisplayName("basis point rates round HALF_UP away from zero in both directions")
+    void percentOf_roundsHalfUp() {
+        assertEquals(100L, Money.ofMinor(1_000L, JPY).percentOf(1_000).minorUnits());
+        assertEquals(1L, Money.ofMinor(5L, JPY).percentOf(1_000).minorUnits());
+        assertEquals(0L, Money.ofMinor(4L, JPY).percentOf(1_000).minorUnits());
+        assertEquals(-1L, Money.ofMinor(-5L, JPY).percentOf(1_000).minorUnits());
+        assertEquals(0L, Money.ofMinor(-4L, JPY).percentOf(1_000).minorUnits());
+        // 8% consumption tax on 1,234 yen is 98.72 yen
+        assertEquals(99L, Money.ofMinor(1_234L, JPY).percentOf(800).minorUnits());
+    }
+
+    @Test
+    @DisplayName("percentOf agrees with BigDecimal HALF_UP rounding")
+    void percentOf_matchesBigDecimal() {
+        for (long minorUnits = -2_000; minorUnits <= 2_000; minorUnits += 7) {
+            for (long basisPoints : new long[]{1, 250, 800, 1_000, 3_333, 10_000}) {
+                long expected = BigDecimal.valueOf(minorUnits * basisPoints)
+                        .divide(BigDecimal.valueOf(10_000), 0, RoundingMode.HALF_UP)
+                        .longValueExact();
+                assertEquals(expected, Money.ofMinor(minorUnits, USD).percentOf(basisPoints).minorUnits(),
+                        minorUnits + " at " + basisPoints + " bp");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("comparison orders by amount and rejects other currencies")
+    void compare_sameCurrencyOnly() {
+        Money small = Money.ofMajor(1, USD);
+        Money large = Money.ofMajor(2, USD);
+
+        assertTrue(small.isLessThan(large));
+        assertSame(large, small.max(large));
+        assertSame(large, large.max(small));
+        assertThrows(IllegalArgumentException.class, () -> small.compareTo(Money.ofMajor(1, JPY)));
+        assertThrows(IllegalArgumentException.class, () -> small.plus(Money.ofMajor(1, JPY)));
+        assertThrows(NullPointerException.class, () -> Money.zero(null));
+    }
+
+    @Test
+    @DisplayName("toString shows the amount at the currency's scale")
+    void toString_usesCurrencyScale() {
+        assertEquals("12.30 USD", Money.of(new BigDecimal("12.3"), USD).toString());
+        assertEquals("1500 JPY", Money.ofMajor(1_500, JPY).toString());
+    }
+}